@@ -0,0 +1,72 @@
+package jade.content.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jade.content.abs.AbsAggregate;
+import jade.content.abs.AbsContentElement;
+import jade.content.abs.AbsPredicate;
+import jade.content.abs.AbsPrimitive;
+import jade.content.lang.leap.LEAPCodec;
+import jade.content.lang.sl.SL0Vocabulary;
+import jade.content.lang.sl.SLCodec;
+import jade.content.onto.BasicOntology;
+import jade.content.onto.Ontology;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContentCodecBenchmark {
+
+	@Param({ "sl", "leap" })
+	public String language;
+
+	private Ontology onto;
+	private AbsContentElement content;
+	private SLCodec slCodec;
+	private LEAPCodec leapCodec;
+	private String slEncoded;
+	private byte[] leapEncoded;
+
+	@Setup
+	public void setup() throws Exception {
+		onto = BasicOntology.getInstance();
+		AbsPredicate p = new AbsPredicate(SL0Vocabulary.EQUALS);
+		p.set(SL0Vocabulary.EQUALS_LEFT, AbsPrimitive.wrap("left"));
+		AbsAggregate agg = new AbsAggregate(BasicOntology.SEQUENCE);
+		for (int i = 0; i < 20; i++) {
+			agg.add(AbsPrimitive.wrap("value-" + (i % 4)));
+			agg.add(AbsPrimitive.wrap(i));
+		}
+		p.set(SL0Vocabulary.EQUALS_RIGHT, agg);
+		content = p;
+		slCodec = new SLCodec();
+		leapCodec = new LEAPCodec();
+		slEncoded = slCodec.encode(onto, content);
+		leapEncoded = leapCodec.encode(onto, content);
+	}
+
+	@Benchmark
+	public Object encode() throws Exception {
+		return "sl".equals(language) ? slCodec.encode(onto, content) : leapCodec.encode(onto, content);
+	}
+
+	@Benchmark
+	public AbsContentElement decode() throws Exception {
+		return "sl".equals(language) ? slCodec.decode(onto, slEncoded) : leapCodec.decode(onto, leapEncoded);
+	}
+}
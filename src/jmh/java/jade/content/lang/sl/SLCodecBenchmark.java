@@ -0,0 +1,68 @@
+package jade.content.lang.sl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jade.content.abs.AbsAggregate;
+import jade.content.abs.AbsConcept;
+import jade.content.abs.AbsContentElement;
+import jade.content.abs.AbsPredicate;
+import jade.content.abs.AbsPrimitive;
+import jade.content.onto.BasicOntology;
+
+/**
+ * Throughput of a single SLCodec instance shared by several threads, as it
+ * happens when many agents of a container use the same codec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SLCodecBenchmark {
+
+	private SLCodec codec;
+	private AbsContentElement content;
+	private String encoded;
+
+	@Setup
+	public void setup() throws Exception {
+		AbsPredicate p = new AbsPredicate("status");
+		AbsConcept item = new AbsConcept("item");
+		item.set("name", "widget \"deluxe\"");
+		item.set("price", 1250L);
+		item.set("available", true);
+		AbsAggregate tags = new AbsAggregate(BasicOntology.SEQUENCE);
+		for (int i = 0; i < 10; i++) {
+			tags.add(AbsPrimitive.wrap("tag-" + i));
+		}
+		item.set("tags", tags);
+		p.set(SLCodec.UNNAMEDPREFIX + 0, item);
+		content = p;
+		codec = new SLCodec();
+		encoded = codec.encode(content);
+	}
+
+	@Benchmark
+	public String encode() throws Exception {
+		return codec.encode(content);
+	}
+
+	@Benchmark
+	public AbsContentElement decode() throws Exception {
+		return codec.decode(encoded);
+	}
+}
@@ -0,0 +1,131 @@
+package jade.content.onto;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jade.content.abs.AbsObject;
+import jade.content.onto.BeanOntologyTest.Item;
+import jade.content.schema.ObjectSchema;
+
+/**
+ * Conversion between beans and abstract descriptors. Each benchmark has a
+ * <code>Reflective</code> counterpart running the same workload on an ontology
+ * whose slots are accessed by means of <code>Method.invoke()</code>, as the
+ * BeanIntrospector did before using generated accessors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BeanOntologyBenchmark {
+
+	private Ontology onto;
+	private Ontology reflectiveOnto;
+	private ObjectSchema schema;
+	private String[] slotNames;
+	private Item item;
+	private AbsObject abs;
+
+	@Setup
+	public void setup() throws Exception {
+		onto = createOntology();
+		reflectiveOnto = createOntology();
+		schema = onto.getSchema(Item.class);
+		slotNames = schema.getNames();
+		BeanIntrospector introspector = (BeanIntrospector) reflectiveOnto.getIntrospector();
+		for (String slotName : slotNames) {
+			useReflection(introspector.getAccessData(schema.getTypeName(), slotName));
+		}
+
+		item = new Item();
+		item.setName("book");
+		item.setQuantity(3);
+		item.setAvailable(true);
+		List<String> tags = new ArrayList<>();
+		tags.add("paper");
+		tags.add("used");
+		item.setTags(tags);
+		abs = onto.fromObject(item);
+	}
+
+	@Benchmark
+	public AbsObject fromObject() throws Exception {
+		return onto.fromObject(item);
+	}
+
+	@Benchmark
+	public AbsObject fromObjectReflective() throws Exception {
+		return reflectiveOnto.fromObject(item);
+	}
+
+	@Benchmark
+	public Object toObject() throws Exception {
+		return onto.toObject(abs);
+	}
+
+	@Benchmark
+	public Object toObjectReflective() throws Exception {
+		return reflectiveOnto.toObject(abs);
+	}
+
+	@Benchmark
+	public void getSet(Blackhole bh) throws Exception {
+		getSet(onto.getIntrospector(), bh);
+	}
+
+	@Benchmark
+	public void getSetReflective(Blackhole bh) throws Exception {
+		getSet(reflectiveOnto.getIntrospector(), bh);
+	}
+
+	// Read each slot of the bean and write it back
+	private void getSet(Introspector introspector, Blackhole bh) throws Exception {
+		for (String slotName : slotNames) {
+			Object value = introspector.getSlotValue(slotName, item, schema);
+			introspector.setSlotValue(slotName, value, item, schema);
+			bh.consume(value);
+		}
+	}
+
+	private static Ontology createOntology() throws Exception {
+		BeanOntology bo = new BeanOntology("Bench-ontology");
+		bo.add(Item.class);
+		return bo;
+	}
+
+	private static void useReflection(SlotAccessData sad) {
+		final Method getter = sad.getter;
+		final Method setter = sad.setter;
+		sad.getterAccessor = bean -> {
+			try {
+				return getter.invoke(bean, (Object[]) null);
+			} catch (InvocationTargetException | IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		};
+		sad.setterAccessor = (bean, value) -> {
+			try {
+				setter.invoke(bean, new Object[] { value });
+			} catch (InvocationTargetException | IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		};
+	}
+}
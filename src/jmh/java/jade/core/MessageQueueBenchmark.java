@@ -0,0 +1,83 @@
+package jade.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+/**
+ * Selective receive from a queue holding <code>queueLength</code> pending
+ * messages belonging to different conversations. Each invocation extracts one
+ * message and puts it back at the tail, so that the queue content stays the
+ * same.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageQueueBenchmark {
+	private static final int CONVERSATIONS = 16;
+
+	@Param({ "jade.core.InternalMessageQueue", "jade.core.IndexedMessageQueue" })
+	public String queueClass;
+
+	@Param({ "10", "1000" })
+	public int queueLength;
+
+	private MessageQueue queue;
+	private MessageTemplate[] templates;
+	private MessageTemplate missing;
+	private int next;
+
+	@Setup
+	public void setup() throws Exception {
+		queue = (MessageQueue) Class.forName(queueClass).getDeclaredConstructor().newInstance();
+		for (int i = 0; i < queueLength; i++) {
+			ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+			msg.setConversationId("C-" + (i % CONVERSATIONS));
+			queue.addLast(msg);
+		}
+		templates = new MessageTemplate[CONVERSATIONS];
+		for (int i = 0; i < CONVERSATIONS; i++) {
+			templates[i] = MessageTemplate.MatchConversationId("C-" + i);
+		}
+		missing = MessageTemplate.MatchConversationId("C-none");
+	}
+
+	@Benchmark
+	public ACLMessage receiveByConversation() {
+		ACLMessage msg = queue.receive(templates[next]);
+		next = (next + 1) % CONVERSATIONS;
+		if (msg != null) {
+			queue.addLast(msg);
+		}
+		return msg;
+	}
+
+	@Benchmark
+	public ACLMessage receiveMissing() {
+		// No message matches: the whole queue is inspected
+		return queue.receive(missing);
+	}
+
+	@Benchmark
+	public ACLMessage receiveAny() {
+		ACLMessage msg = queue.receive(null);
+		queue.addLast(msg);
+		return msg;
+	}
+}
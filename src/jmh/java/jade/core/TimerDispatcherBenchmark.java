@@ -0,0 +1,108 @@
+package jade.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adding and removing timers, as behaviours calling <code>block(millis)</code>
+ * do, on a dispatcher already holding <code>pendingTimers</code> timers owned
+ * by many listeners (agents). Pending timers expire within one hour and are
+ * never fired during the benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TimerDispatcherBenchmark {
+	private static final int LISTENERS = 10000;
+	private static final long HORIZON = 3600000;
+	private static final int BURST = 100;
+
+	@Param({ "jade.core.TimerDispatcher", "jade.core.TimingWheelTimerDispatcher" })
+	public String dispatcherClass;
+
+	@Param({ "1000000" })
+	public int pendingTimers;
+
+	private TimerDispatcher dispatcher;
+	private TimerListener[] listeners;
+	private long base;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+		long seed = System.nanoTime();
+
+		long nextDelay() {
+			seed = seed * 6364136223846793005L + 1442695040888963407L;
+			return 60000 + Math.floorMod(seed >>> 16, HORIZON);
+		}
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		dispatcher = (TimerDispatcher) Class.forName(dispatcherClass).getDeclaredConstructor().newInstance();
+		listeners = new TimerListener[LISTENERS];
+		for (int i = 0; i < LISTENERS; i++) {
+			listeners[i] = t -> {
+			};
+		}
+		base = System.currentTimeMillis();
+		Cursor c = new Cursor();
+		for (int i = 0; i < pendingTimers; i++) {
+			dispatcher.add(new Timer(base + c.nextDelay(), listeners[i % LISTENERS]));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		dispatcher.stop();
+	}
+
+	@Benchmark
+	public Timer addRemove(Cursor c) {
+		Timer t = dispatcher.add(new Timer(base + c.nextDelay(), listeners[c.next++ % LISTENERS]));
+		dispatcher.remove(t);
+		return t;
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Timer addRemoveFourThreads(Cursor c) {
+		return addRemove(c);
+	}
+
+	/**
+	 * Many timers expiring at the same millisecond (e.g. behaviours blocked
+	 * by the same event): the default dispatcher shifts colliding timers.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BURST)
+	public Timer sameExpirationBurst(Cursor c) {
+		long when = base + c.nextDelay();
+		Timer[] burst = new Timer[BURST];
+		for (int i = 0; i < BURST; i++) {
+			burst[i] = dispatcher.add(new Timer(when, listeners[c.next++ % LISTENERS]));
+		}
+		for (int i = 0; i < BURST; i++) {
+			dispatcher.remove(burst[i]);
+		}
+		return burst[0];
+	}
+}
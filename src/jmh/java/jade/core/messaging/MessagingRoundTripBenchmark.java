@@ -0,0 +1,117 @@
+package jade.core.messaging;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.wrapper.AgentContainer;
+
+/**
+ * Request/reply round trip between two agents living in the same container,
+ * i.e. through the MessagingService local delivery path. The benchmark thread
+ * sends the request on behalf of a driver agent and waits for the driver to
+ * receive the reply.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessagingRoundTripBenchmark {
+
+	public static class EchoAgent extends Agent {
+		protected void setup() {
+			addBehaviour(new CyclicBehaviour(this) {
+				public void action() {
+					ACLMessage msg = myAgent.receive();
+					if (msg != null) {
+						ACLMessage reply = msg.createReply();
+						reply.setPerformative(ACLMessage.INFORM);
+						reply.setContent(msg.getContent());
+						myAgent.send(reply);
+					} else {
+						block();
+					}
+				}
+			});
+		}
+	}
+
+	public static class DriverAgent extends Agent {
+		private final BlockingQueue<ACLMessage> replies = new LinkedBlockingQueue<>();
+
+		protected void setup() {
+			addBehaviour(new CyclicBehaviour(this) {
+				public void action() {
+					ACLMessage msg = myAgent.receive();
+					if (msg != null) {
+						replies.add(msg);
+					} else {
+						block();
+					}
+				}
+			});
+		}
+	}
+
+	private AgentContainer container;
+	private DriverAgent driver;
+	private ACLMessage request;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		int port;
+		try (ServerSocket ss = new ServerSocket(0)) {
+			port = ss.getLocalPort();
+		}
+		Runtime rt = Runtime.instance();
+		rt.setCloseVM(false);
+		Profile p = new ProfileImpl(null, port, null);
+		p.setParameter(Profile.NO_MTP, "true");
+		p.setParameter(Profile.FILE_DIR, System.getProperty("java.io.tmpdir") + File.separator);
+		container = rt.createMainContainer(p);
+		container.createNewAgent("echo", EchoAgent.class.getName(), null).start();
+		driver = new DriverAgent();
+		container.acceptNewAgent("driver", driver).start();
+
+		request = new ACLMessage(ACLMessage.REQUEST);
+		request.addReceiver(new AID("echo", AID.ISLOCALNAME));
+		request.setContent("ping");
+		// Make sure both agents are up and running
+		roundTrip();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		container.kill();
+	}
+
+	@Benchmark
+	public ACLMessage roundTrip() throws InterruptedException {
+		driver.send(request);
+		return driver.replies.take();
+	}
+}
@@ -0,0 +1,48 @@
+package jade.lang.acl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ACLCodecBenchmark {
+
+	@Param({ "leap", "string" })
+	public String codecType;
+
+	private ACLCodec codec;
+	private ACLMessage msg;
+	private byte[] encoded;
+
+	@Setup
+	public void setup() throws Exception {
+		codec = "leap".equals(codecType) ? new LEAPACLCodec() : new StringACLCodec();
+		msg = ACLMessageBenchmark.createMessage(ACLMessage.INFORM, "C-1");
+		encoded = codec.encode(msg, null);
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		return codec.encode(msg, null);
+	}
+
+	@Benchmark
+	public ACLMessage decode() throws Exception {
+		return codec.decode(encoded, null);
+	}
+}
@@ -0,0 +1,68 @@
+package jade.lang.acl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jade.core.AID;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ACLMessageBenchmark {
+
+	static final AID SENDER = new AID("sender@bench", AID.ISGUID);
+	static final AID RECEIVER = new AID("receiver@bench", AID.ISGUID);
+
+	private ACLMessage msg;
+
+	static ACLMessage createMessage(int performative, String conversationId) {
+		ACLMessage msg = new ACLMessage(performative);
+		msg.setSender(SENDER);
+		msg.addReceiver(RECEIVER);
+		msg.setConversationId(conversationId);
+		msg.setReplyWith("R" + conversationId);
+		msg.setLanguage("fipa-sl");
+		msg.setOntology("bench-ontology");
+		msg.setProtocol("fipa-request");
+		msg.setContent("((action (agent-identifier :name receiver@bench) (do-something :arg 42)))");
+		return msg;
+	}
+
+	@Setup
+	public void setup() {
+		msg = createMessage(ACLMessage.REQUEST, "C-1");
+	}
+
+	@Benchmark
+	public ACLMessage create() {
+		return createMessage(ACLMessage.REQUEST, "C-1");
+	}
+
+	@Benchmark
+	public Object deepClone() {
+		return msg.clone();
+	}
+
+	@Benchmark
+	public ACLMessage shallowClone() {
+		return msg.shallowClone();
+	}
+
+	@Benchmark
+	public ACLMessage createReply() {
+		return msg.createReply();
+	}
+}
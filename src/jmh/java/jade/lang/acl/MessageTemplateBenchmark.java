@@ -0,0 +1,53 @@
+package jade.lang.acl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageTemplateBenchmark {
+
+	private ACLMessage msg;
+	private MessageTemplate performative;
+	private MessageTemplate conjunction;
+	private MessageTemplate custom;
+
+	@Setup
+	public void setup() {
+		msg = ACLMessageBenchmark.createMessage(ACLMessage.INFORM, "C-1");
+		performative = MessageTemplate.MatchPerformative(ACLMessage.INFORM);
+		conjunction = MessageTemplate.and(MessageTemplate.MatchConversationId("C-1"),
+				MessageTemplate.and(MessageTemplate.MatchOntology("bench-ontology"),
+						MessageTemplate.not(MessageTemplate.MatchPerformative(ACLMessage.FAILURE))));
+		custom = MessageTemplate.MatchCustom(ACLMessageBenchmark.createMessage(ACLMessage.INFORM, "C-1"), true);
+	}
+
+	@Benchmark
+	public boolean matchPerformative() {
+		return performative.match(msg);
+	}
+
+	@Benchmark
+	public boolean matchConjunction() {
+		return conjunction.match(msg);
+	}
+
+	@Benchmark
+	public boolean matchCustom() {
+		return custom.match(msg);
+	}
+}
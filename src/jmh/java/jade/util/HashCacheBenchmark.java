@@ -0,0 +1,74 @@
+package jade.util;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mixed lookups (hits and misses) and insertions on a cache shared by all
+ * benchmark threads, as in the MessagingService address cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashCacheBenchmark {
+	private static final int CACHE_SIZE = 1000;
+	private static final int KEYS = 2 * CACHE_SIZE;
+
+	@Param({ "jade.util.HashCache", "jade.util.ConcurrentHashCache" })
+	public String cacheClass;
+
+	private Map<Object, Object> cache;
+	private String[] keys;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setup() throws Exception {
+		cache = (Map<Object, Object>) Class.forName(cacheClass).getDeclaredConstructor(int.class).newInstance(CACHE_SIZE);
+		keys = new String[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			keys[i] = "agent-" + i + "@bench";
+		}
+	}
+
+	private Object access(Cursor c) {
+		String key = keys[c.next];
+		c.next = (c.next + 7) % KEYS;
+		Object value = cache.get(key);
+		if (value == null) {
+			cache.put(key, key);
+		}
+		return value;
+	}
+
+	@Benchmark
+	public Object singleThread(Cursor c) {
+		return access(c);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Object fourThreads(Cursor c) {
+		return access(c);
+	}
+}
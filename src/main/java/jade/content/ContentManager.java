@@ -29,6 +29,7 @@ import jade.content.lang.Codec;
 import jade.content.lang.StringCodec;
 import jade.content.lang.ByteArrayCodec;
 import jade.content.lang.Codec.CodecException;
+import jade.content.lang.leap.LEAPCodec;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -211,6 +212,15 @@ public class ContentManager implements Serializable {
 		}
 		Ontology onto = getMergedOntology(codec, o);
 
+		if (!validationMode && codec instanceof LEAPCodec leapCodec && onto instanceof BeanOntology beanOnto) {
+			// Fast path: encode the bean directly without creating the abstract descriptor
+			byte[] bytes = leapCodec.encodeBean(beanOnto, content);
+			if (bytes != null) {
+				msg.setByteSequenceContent(bytes);
+				return;
+			}
+		}
+
 		AbsContentElement abs = (AbsContentElement) onto.fromObject(content);
 
 		validate(abs, onto);
@@ -283,6 +293,14 @@ public class ContentManager implements Serializable {
 		}
 		Ontology onto = getMergedOntology(codec, o);
 
+		if (!validationMode && codec instanceof LEAPCodec leapCodec && onto instanceof BeanOntology beanOnto) {
+			// Fast path: decode the bean directly without creating the abstract descriptor
+			Object bean = leapCodec.decodeBean(beanOnto, msg.getByteSequenceContent());
+			if (bean != null) {
+				return (ContentElement) bean;
+			}
+		}
+
 		AbsContentElement content = decode(msg, codec, onto);
 
 		validate(content, onto);
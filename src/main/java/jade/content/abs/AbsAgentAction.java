@@ -49,6 +49,22 @@ public class AbsAgentAction extends AbsConcept implements AbsContentElement, Age
 		super(typeName);
 	}
 
+	//#APIDOC_EXCLUDE_BEGIN
+	/**
+	 * Construct an Abstract descriptor to hold an agent action of the proper type whose
+	 * slots are laid out according to the <code>SlotLayout</code> of its schema.
+	 * This constructor is not intended to be used by programmers.
+	 * 
+	 * @param typeName The name of the type of the agent action held by this abstract
+	 *                 descriptor.
+	 * @param layout   The slot layout of the schema of the agent action.
+	 * @see jade.content.schema.ObjectSchema#getSlotLayout()
+	 */
+	public AbsAgentAction(String typeName, SlotLayout layout) {
+		super(typeName, layout);
+	}
+	//#APIDOC_EXCLUDE_END
+
 	/**
 	 * Set an attribute of the agent action held by this
 	 * abstract descriptor.
@@ -50,6 +50,22 @@ public class AbsConcept extends AbsPrimitiveSlotsHolder implements AbsTerm, Conc
 		super(typeName);
 	}
 
+	//#APIDOC_EXCLUDE_BEGIN
+	/**
+	 * Construct an Abstract descriptor to hold a concept of the proper type whose
+	 * slots are laid out according to the <code>SlotLayout</code> of its schema.
+	 * This constructor is not intended to be used by programmers.
+	 * 
+	 * @param typeName The name of the type of the concept held by this abstract
+	 *                 descriptor.
+	 * @param layout   The slot layout of the schema of the concept.
+	 * @see jade.content.schema.ObjectSchema#getSlotLayout()
+	 */
+	public AbsConcept(String typeName, SlotLayout layout) {
+		super(typeName, layout);
+	}
+	//#APIDOC_EXCLUDE_END
+
 	/**
 	 * Sets an attribute of the concept held by this abstract descriptor.
 	 * 
@@ -26,10 +26,13 @@ package jade.content.abs;
 
 import jade.core.CaseInsensitiveString;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 
 /**
  * Base class for all non-primitive abstract descriptor classes. This class is
@@ -43,9 +46,38 @@ public class AbsObjectImpl implements AbsObject {
 
 	@Serial
 	private static final long serialVersionUID = -5723008914669583458L;
-	private final HashMap<CaseInsensitiveString, AbsObject> elements = new HashMap<>();
-	/** This list keeps the keys in the same order as they were added **/
-	private final ArrayList<String> orderedKeys = new ArrayList<>();
+	private static final String[] NO_NAMES = new String[0];
+	private static final AbsObject[] NO_VALUES = new AbsObject[0];
+	private static final int[] NO_POSITIONS = new int[0];
+
+	/**
+	 * Abstract descriptors keep the serialized form they had when slots were
+	 * stored in a map: a map of the slots plus the list of slot names in the
+	 * order they were added. The slot layout is not serialized.
+	 **/
+	@Serial
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("elements", HashMap.class),
+			new ObjectStreamField("orderedKeys", ArrayList.class),
+			new ObjectStreamField("typeName", String.class),
+			new ObjectStreamField("changed", Boolean.TYPE),
+			new ObjectStreamField("hashCode", Integer.TYPE) };
+
+	/**
+	 * The layout of the schema this object was created from (if any). Slots
+	 * included in the layout are stored at their layout position, other slots are
+	 * appended after them.
+	 **/
+	private final transient SlotLayout layout;
+	private final transient int layoutSize;
+	/** The names of the slots as they were set, indexed by slot position **/
+	private String[] names = NO_NAMES;
+	private AbsObject[] values = NO_VALUES;
+	/** Number of positions in use beyond the layout ones **/
+	private int extraCnt;
+	/** Slot positions in the same order as the slots were added **/
+	private int[] order = NO_POSITIONS;
+	private int count;
 	private String typeName;
 	/** true if this object is changed and its hash must be recomputed **/
 	private boolean changed = true;
@@ -58,7 +90,27 @@ public class AbsObjectImpl implements AbsObject {
 	 *                 descriptor.
 	 */
 	protected AbsObjectImpl(String typeName) {
+		this(typeName, null);
+	}
+
+	/**
+	 * Construct an Abstract descriptor to hold an object of the proper type whose
+	 * slots are laid out according to a given <code>SlotLayout</code>.
+	 * 
+	 * @param typeName The name of the type of the object held by this abstract
+	 *                 descriptor.
+	 * @param layout   The slot layout of the schema of the object or
+	 *                 <code>null</code>
+	 */
+	protected AbsObjectImpl(String typeName, SlotLayout layout) {
 		this.typeName = typeName;
+		this.layout = layout;
+		layoutSize = layout != null ? layout.size() : 0;
+		if (layoutSize > 0) {
+			names = new String[layoutSize];
+			values = new AbsObject[layoutSize];
+			order = new int[layoutSize];
+		}
 	}
 
 	/**
@@ -81,19 +133,91 @@ public class AbsObjectImpl implements AbsObject {
 	 *              the current mapping with <code>name</code> (if any) is removed.
 	 */
 	protected void set(String name, AbsObject value) {
-		CaseInsensitiveString ciName = new CaseInsensitiveString(name);
+		int pos = indexOf(name);
 		if (value == null) {
-			orderedKeys.remove(name);
-			elements.remove(ciName);
-		} else {
-			if (!orderedKeys.contains(name)) {
-				orderedKeys.add(name);
+			if (pos >= 0 && values[pos] != null) {
+				remove(pos);
 			}
-			elements.put(ciName, value);
+		} else {
+			put(pos, name, value);
 		}
 		changed = true;
 	}
 
+	private void put(int pos, String name, AbsObject value) {
+		if (pos < 0) {
+			pos = layoutSize + extraCnt;
+			if (pos == values.length) {
+				grow(pos == 0 ? 4 : pos * 2);
+			}
+			extraCnt++;
+		}
+		if (values[pos] == null) {
+			if (count == order.length) {
+				int[] tmp = new int[count == 0 ? 4 : count * 2];
+				System.arraycopy(order, 0, tmp, 0, count);
+				order = tmp;
+			}
+			order[count++] = pos;
+			names[pos] = name;
+		}
+		values[pos] = value;
+	}
+
+	/**
+	 * @return the position of slot <code>name</code> or -1 if this object does
+	 *         not include such slot.
+	 */
+	private int indexOf(String name) {
+		if (layout != null) {
+			int pos = layout.indexOf(name);
+			if (pos >= 0) {
+				return pos;
+			}
+		}
+		for (int i = layoutSize, end = layoutSize + extraCnt; i < end; i++) {
+			if (name == names[i] || CaseInsensitiveString.equalsIgnoreCase(names[i], name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void remove(int pos) {
+		int k = 0;
+		while (order[k] != pos) {
+			k++;
+		}
+		System.arraycopy(order, k + 1, order, k, count - k - 1);
+		count--;
+		if (pos < layoutSize) {
+			names[pos] = null;
+			values[pos] = null;
+		} else {
+			// Keep slots outside the layout contiguous
+			int last = layoutSize + extraCnt - 1;
+			System.arraycopy(names, pos + 1, names, pos, last - pos);
+			System.arraycopy(values, pos + 1, values, pos, last - pos);
+			names[last] = null;
+			values[last] = null;
+			extraCnt--;
+			for (int i = 0; i < count; i++) {
+				if (order[i] > pos) {
+					order[i]--;
+				}
+			}
+		}
+	}
+
+	private void grow(int size) {
+		String[] tmpNames = new String[size];
+		AbsObject[] tmpValues = new AbsObject[size];
+		System.arraycopy(names, 0, tmpNames, 0, names.length);
+		System.arraycopy(values, 0, tmpValues, 0, values.length);
+		names = tmpNames;
+		values = tmpValues;
+	}
+
 	/**
 	 * Gets the value of an attribute of the object held by this abstract
 	 * descriptor.
@@ -103,26 +227,29 @@ public class AbsObjectImpl implements AbsObject {
 	 * @see AbsObject#getAbsObject(String)
 	 */
 	public AbsObject getAbsObject(String name) {
-		return elements.get(new CaseInsensitiveString(name));
+		int pos = indexOf(name);
+		return pos >= 0 ? values[pos] : null;
 	}
 
 	/**
 	 * This method enables all order-based getter methods in AbsPredicate
 	 */
 	protected AbsObject getAbsObject(int index) {
-		String name = orderedKeys.get(index);
-		return getAbsObject(name);
+		if (index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+		return values[order[index]];
 	}
 
 	/**
 	 * This method enables the omonimous method in AbsPredicate
 	 */
 	protected AbsObject[] getValues() {
-		AbsObject[] values = new AbsObject[orderedKeys.size()];
-		for (int i = 0; i < orderedKeys.size(); ++i) {
-			values[i] = getAbsObject(orderedKeys.get(i));
+		AbsObject[] orderedValues = new AbsObject[count];
+		for (int i = 0; i < count; ++i) {
+			orderedValues[i] = values[order[i]];
 		}
-		return values;
+		return orderedValues;
 	}
 
 	/**
@@ -130,12 +257,11 @@ public class AbsObjectImpl implements AbsObject {
 	 * @see AbsObject#getNames()
 	 */
 	public String[] getNames() {
-		String[] names = new String[orderedKeys.size()];
-		int j = 0;
-		for (Iterator<String> i = orderedKeys.iterator();i.hasNext();) {
-			names[j++] = i.next();
+		String[] orderedNames = new String[count];
+		for (int i = 0; i < count; ++i) {
+			orderedNames[i] = names[order[i]];
 		}
-		return names;
+		return orderedNames;
 	}
 
 	/**
@@ -146,9 +272,8 @@ public class AbsObjectImpl implements AbsObject {
 	 * @see AbsObject#isGrounded()
 	 */
 	public boolean isGrounded() {
-		for (Iterator<AbsObject> i = elements.values().iterator(); i.hasNext();) {
-			AbsObject abs = i.next();
-			if (!abs.isGrounded()) {
+		for (int i = 0; i < count; ++i) {
+			if (!values[order[i]].isGrounded()) {
 				return false;
 			}
 		}
@@ -162,7 +287,7 @@ public class AbsObjectImpl implements AbsObject {
 	 * @see AbsObject#getCount()
 	 */
 	public int getCount() {
-		return elements.size();
+		return count;
 	}
 
 	/**
@@ -261,4 +386,44 @@ public class AbsObjectImpl implements AbsObject {
 	public int getAbsType() {
 		return UNKNOWN;
 	}
+
+	@Serial
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		HashMap<CaseInsensitiveString, AbsObject> elements = new HashMap<>();
+		ArrayList<String> orderedKeys = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			int pos = order[i];
+			elements.put(new CaseInsensitiveString(names[pos]), values[pos]);
+			orderedKeys.add(names[pos]);
+		}
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("elements", elements);
+		fields.put("orderedKeys", orderedKeys);
+		fields.put("typeName", typeName);
+		fields.put("changed", true);
+		fields.put("hashCode", 0);
+		out.writeFields();
+	}
+
+	@Serial
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		HashMap<CaseInsensitiveString, AbsObject> elements = (HashMap<CaseInsensitiveString, AbsObject>) fields.get("elements", null);
+		ArrayList<String> orderedKeys = (ArrayList<String>) fields.get("orderedKeys", null);
+		typeName = (String) fields.get("typeName", null);
+		// Deserialized descriptors have no slot layout
+		names = NO_NAMES;
+		values = NO_VALUES;
+		order = NO_POSITIONS;
+		if (elements != null && orderedKeys != null) {
+			for (String name : orderedKeys) {
+				AbsObject value = elements.get(new CaseInsensitiveString(name));
+				if (value != null && indexOf(name) < 0) {
+					put(-1, name, value);
+				}
+			}
+		}
+		changed = true;
+	}
 }
@@ -52,6 +52,22 @@ public class AbsPredicate extends AbsPrimitiveSlotsHolder implements AbsContentE
 		super(typeName);
 	}
 
+	//#APIDOC_EXCLUDE_BEGIN
+	/**
+	 * Construct an Abstract descriptor to hold a predicate of the proper type whose
+	 * slots are laid out according to the <code>SlotLayout</code> of its schema.
+	 * This constructor is not intended to be used by programmers.
+	 * 
+	 * @param typeName The name of the type of the predicate held by this abstract
+	 *                 descriptor.
+	 * @param layout   The slot layout of the schema of the predicate.
+	 * @see jade.content.schema.ObjectSchema#getSlotLayout()
+	 */
+	public AbsPredicate(String typeName, SlotLayout layout) {
+		super(typeName, layout);
+	}
+	//#APIDOC_EXCLUDE_END
+
 	/**
 	 * Sets an attribute of the predicate held by this abstract descriptor.
 	 * 
@@ -48,6 +48,18 @@ public class AbsPrimitiveSlotsHolder extends AbsObjectImpl {
 		super(typeName);
 	}
 
+	/**
+	 * Construct an Abstract descriptor to hold an object of the proper type whose
+	 * slots are laid out according to a given <code>SlotLayout</code>.
+	 * 
+	 * @param typeName The name of the type of the object held by this abstract
+	 *                 descriptor.
+	 * @param layout   The slot layout of the schema of the object.
+	 */
+	protected AbsPrimitiveSlotsHolder(String typeName, SlotLayout layout) {
+		super(typeName, layout);
+	}
+
 	/**
 	 * Utility method that allows setting attributes of type <code>String</code>
 	 * without the need of wrapping the new value into an <code>AbsPrimitive</code>.
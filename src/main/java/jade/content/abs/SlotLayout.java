@@ -0,0 +1,98 @@
+/**
+ * ***************************************************************
+ * JADE - Java Agent DEvelopment Framework is a framework to develop
+ * multi-agent systems in compliance with the FIPA specifications.
+ * Copyright (C) 2000 CSELT S.p.A.
+ * 
+ * GNU Lesser General Public License
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation,
+ * version 2.1 of the License.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ * **************************************************************
+ */
+package jade.content.abs;
+
+//#APIDOC_EXCLUDE_FILE
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.HashMap;
+
+/**
+ * The slot layout of a schema, i.e. the position of each slot in the value
+ * array of the abstract descriptors created by that schema. Slot names are
+ * resolved to positions once, without allocating anything when the name is
+ * given with the same case used in the schema. A layout is immutable and
+ * shared by all the abstract descriptors of a given schema. This class is not
+ * intended to be used by programmers.
+ * 
+ * @see jade.content.schema.ObjectSchema#getSlotLayout()
+ */
+public final class SlotLayout implements Serializable {
+
+	@Serial
+	private static final long serialVersionUID = 2890375613347409612L;
+
+	private final String[] names;
+	/** Maps both the slot names and their lower case version to their position **/
+	private final HashMap<String, Integer> positions;
+
+	/**
+	 * Create the layout for the given slot names. If a name occurs more than once
+	 * (regardless of case) its first position is used.
+	 * 
+	 * @param names the slot names in the order they will be laid out.
+	 */
+	public SlotLayout(String[] names) {
+		this.names = names.clone();
+		positions = new HashMap<>(names.length * 4);
+		for (int i = 0; i < names.length; i++) {
+			Integer pos = Integer.valueOf(i);
+			positions.putIfAbsent(names[i], pos);
+			positions.putIfAbsent(names[i].toLowerCase(), pos);
+		}
+	}
+
+	/**
+	 * @return the number of slots in this layout.
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * @return the name of the slot at position <code>index</code>.
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * Retrieve the position of a slot. The lookup is case insensitive.
+	 * 
+	 * @param name the slot name
+	 * @return the position of the slot or -1 if this layout does not include it.
+	 */
+	public int indexOf(String name) {
+		if (name == null) {
+			return -1;
+		}
+		Integer pos = positions.get(name);
+		if (pos == null) {
+			pos = positions.get(name.toLowerCase());
+		}
+		return pos != null ? pos.intValue() : -1;
+	}
+}
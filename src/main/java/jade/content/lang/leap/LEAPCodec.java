@@ -25,7 +25,9 @@
 package jade.content.lang.leap;
 
 import java.io.*;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -37,11 +39,17 @@ import jade.content.abs.AbsObject;
 import jade.content.abs.AbsPrimitive;
 import jade.content.abs.AbsTerm;
 import jade.content.lang.ByteArrayCodec;
+import jade.content.onto.BasicOntology;
+import jade.content.onto.BeanOntology;
+import jade.content.onto.CompiledBeanSchema;
 import jade.content.onto.Ontology;
 import jade.content.schema.ObjectSchema;
 
 /**
- * Content language codec for the LEAP language
+ * Content language codec for the LEAP language.
+ * This codec is reentrant: the state of each encoding/decoding is kept in a
+ * per-thread context so that a single instance can be safely shared among
+ * several threads (and <code>ContentManager</code>s) without serializing them.
  * 
  * @author Federico Bergenti - Universita` di Parma
  * @author Moreno LAGO
@@ -53,16 +61,12 @@ public class LEAPCodec extends ByteArrayCodec {
 
 	public static final String NAME = "LEAP";
 
-	private transient ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
-	private transient DataOutputStream outStream = new DataOutputStream(outBuffer);
-	private transient List<String> stringReferences = new ArrayList<>();
+	// Encoding buffers larger than this are not kept for reuse
+	private static final int MAX_RETAINED_BUFFER_SIZE = 65536;
 
-	private void readObject(java.io.ObjectInputStream oin) throws java.io.IOException, ClassNotFoundException {
-		oin.defaultReadObject();
-		outBuffer = new ByteArrayOutputStream();
-		outStream = new DataOutputStream(outBuffer);
-		stringReferences = new ArrayList<>();
-	}
+	// Per-thread encoding/decoding state. This makes the codec reentrant: the same
+	// LEAPCodec instance can be used by many threads at the same time.
+	private static final ThreadLocal<Context> contexts = new ThreadLocal<>();
 
 	// Types
 	@SuppressWarnings("unused")
@@ -112,15 +116,48 @@ public class LEAPCodec extends ByteArrayCodec {
 	 * @return the content as a byte array.
 	 * @throws CodecException
 	 */
-	public synchronized byte[] encode(AbsContentElement content) throws CodecException {
+	public byte[] encode(AbsContentElement content) throws CodecException {
+		Context ctx = acquireContext();
 		try {
-			outBuffer.reset();
-			stringReferences.clear();
-			write(outStream, content);
+			write(ctx.outStream, ctx.stringReferences, content);
 
-			return outBuffer.toByteArray();
+			return ctx.outBuffer.toByteArray();
 		} catch (Throwable t) {
 			throw new CodecException("Error encoding content", t);
+		} finally {
+			releaseContext(ctx);
+		}
+	}
+
+	/**
+	 * Encodes an abstract descriptor holding a content element directly into a
+	 * caller provided buffer. This avoids allocating a new byte array for each
+	 * encoded content. The produced bytes are the same as those returned by
+	 * <code>encode(AbsContentElement)</code>.
+	 * 
+	 * @param content the content as an abstract descriptor.
+	 * @param buffer  the buffer where to write the encoded content.
+	 * @param offset  the position in the buffer where to start writing.
+	 * @return the number of bytes written.
+	 * @throws CodecException if the content cannot be encoded or the buffer is too
+	 *                        small to hold it.
+	 */
+	public int encode(AbsContentElement content, byte[] buffer, int offset) throws CodecException {
+		Context ctx = acquireContext();
+		try {
+			write(ctx.outStream, ctx.stringReferences, content);
+
+			int size = ctx.outBuffer.size();
+			if (size > buffer.length - offset) {
+				throw new CodecException("Buffer too small: " + size + " bytes required, " + (buffer.length - offset) + " available");
+			}
+			return ctx.outBuffer.copyTo(buffer, offset);
+		} catch (CodecException ce) {
+			throw ce;
+		} catch (Throwable t) {
+			throw new CodecException("Error encoding content", t);
+		} finally {
+			releaseContext(ctx);
 		}
 	}
 
@@ -155,74 +192,276 @@ public class LEAPCodec extends ByteArrayCodec {
 	 * @return the content as an abstract description.
 	 * @throws CodecException
 	 */
-	public synchronized AbsContentElement decode(Ontology ontology, byte[] content) throws CodecException {
+	public AbsContentElement decode(Ontology ontology, byte[] content) throws CodecException {
 		if (content.length == 0) {
 			return null;
 		}
+		Context ctx = acquireContext();
 		try {
 			ByteArrayInputStream inpBuffer = new ByteArrayInputStream(content);
 			DataInputStream inpStream = new DataInputStream(inpBuffer);
 
-			stringReferences.clear();
-			AbsObject obj = read(inpStream, ontology);
+			AbsObject obj = read(inpStream, ctx.stringReferences, ontology);
 			inpStream.close();
 			return (AbsContentElement) obj;
 		} catch (Throwable t) {
 			throw new CodecException("Error decoding content", t);
+		} finally {
+			releaseContext(ctx);
 		}
 	}
 
-	private void write(DataOutputStream stream, AbsObject abs) throws Throwable {
-		// PRIMITIVE
-		if (abs instanceof AbsPrimitive primitive) {
-			// stream.writeByte(PRIMITIVE);
+	//#APIDOC_EXCLUDE_BEGIN
+	/**
+	 * Encodes a bean of a <code>BeanOntology</code> directly into a byte array,
+	 * without building the intermediate abstract descriptor. The produced bytes are
+	 * the same as those obtained encoding <code>ontology.fromObject(obj)</code>.
+	 * 
+	 * @param ontology the ontology defining the class of <code>obj</code>
+	 * @param obj      the bean to encode
+	 * @return the encoded bean or <code>null</code> if the bean (or one of the
+	 *         objects it refers to) cannot be encoded this way. In that case the
+	 *         bean must be encoded through its abstract descriptor.
+	 */
+	public byte[] encodeBean(BeanOntology ontology, Object obj) {
+		CompiledBeanSchema cbs = ontology.getCompiledSchema(obj.getClass());
+		if (cbs == null) {
+			return null;
+		}
+		Context ctx = acquireContext();
+		try {
+			writeBean(ctx.outStream, ctx.stringReferences, ontology, cbs, obj);
 
-			Object obj = primitive.getObject();
+			return ctx.outBuffer.toByteArray();
+		} catch (Throwable t) {
+			// Unsupported value or error: let the regular path deal with it
+			return null;
+		} finally {
+			releaseContext(ctx);
+		}
+	}
 
-			if (obj instanceof String s) {
-				if (s.length() >= 65535) {
-					writeBigString(stream, BIG_STRING, s);
+	/**
+	 * Decodes a byte array produced by this codec directly into a bean of a
+	 * <code>BeanOntology</code>, without building the intermediate abstract
+	 * descriptor.
+	 * 
+	 * @param ontology the ontology
+	 * @param content  the content as a byte array.
+	 * @return the decoded bean or <code>null</code> if the content cannot be
+	 *         decoded this way. In that case it must be decoded through its
+	 *         abstract descriptor.
+	 */
+	public Object decodeBean(BeanOntology ontology, byte[] content) {
+		if (content == null || content.length == 0) {
+			return null;
+		}
+		Context ctx = acquireContext();
+		try {
+			DataInputStream inpStream = new DataInputStream(new ByteArrayInputStream(content));
+			byte type = inpStream.readByte();
+			if ((type & UNMODIFIER) != OBJECT) {
+				return null;
+			}
+			CompiledBeanSchema cbs = ontology.getCompiledSchema(readString(inpStream, ctx.stringReferences, type));
+			if (cbs == null) {
+				return null;
+			}
+			return readBean(inpStream, ctx.stringReferences, ontology, cbs);
+		} catch (Throwable t) {
+			return null;
+		} finally {
+			releaseContext(ctx);
+		}
+	}
+	//#APIDOC_EXCLUDE_END
+
+	private void writeBean(DataOutputStream stream, List<String> stringReferences, BeanOntology ontology, CompiledBeanSchema cbs, Object bean) throws Throwable {
+		writeString(stream, stringReferences, OBJECT, cbs.getTypeName());
+		if (cbs.isEnum()) {
+			writeString(stream, stringReferences, ELEMENT, CompiledBeanSchema.ENUM_SLOT_NAME);
+			writePrimitive(stream, stringReferences, bean.toString());
+		} else {
+			CompiledBeanSchema.Slot[] slots = cbs.getSlots();
+			for (int i = 0; i < slots.length; i++) {
+				Object value = slots[i].getValue(bean);
+				if (value == null) {
+					continue;
+				}
+				if (value instanceof Collection<?> c) {
+					// Empty optional collections are omitted
+					if (!c.isEmpty() || slots[i].isMandatory()) {
+						writeString(stream, stringReferences, ELEMENT, slots[i].getName());
+						writeString(stream, stringReferences, AGGREGATE, value instanceof List ? BasicOntology.SEQUENCE : BasicOntology.SET);
+						for (Object element : c) {
+							stream.writeByte(ELEMENT);
+							writeBeanValue(stream, stringReferences, ontology, element);
+						}
+						stream.writeByte(END);
+					}
+				} else if (value.getClass().isArray() && !(value instanceof byte[])) {
+					if (!slots[i].isTypized()) {
+						throw NotSupported.INSTANCE;
+					}
+					writeString(stream, stringReferences, ELEMENT, slots[i].getName());
+					writeString(stream, stringReferences, AGGREGATE, BasicOntology.SEQUENCE);
+					for (int j = 0, length = Array.getLength(value); j < length; j++) {
+						stream.writeByte(ELEMENT);
+						writeBeanValue(stream, stringReferences, ontology, Array.get(value, j));
+					}
+					stream.writeByte(END);
 				} else {
-					writeString(stream, STRING, s);
+					writeString(stream, stringReferences, ELEMENT, slots[i].getName());
+					writeBeanValue(stream, stringReferences, ontology, value);
 				}
-			} else if (obj instanceof Boolean boolean1) {
-				stream.writeByte(BOOLEAN);
-				stream.writeBoolean(boolean1.booleanValue());
-			} else if (obj instanceof Integer integer) {
-				stream.writeByte(INTEGER);
-				stream.writeInt(integer.intValue());
-			} else if (obj instanceof Long long1) {
-				stream.writeByte(LONG);
-				stream.writeLong(long1.longValue());
 			}
+		}
+		stream.writeByte(END);
+	}
+
+	/**
+	 * Write a slot value or aggregate element: either a primitive or a (concept)
+	 * bean of the same ontology. Anything else is not supported.
+	 */
+	private void writeBeanValue(DataOutputStream stream, List<String> stringReferences, BeanOntology ontology, Object value) throws Throwable {
+		if (value instanceof String || value instanceof Boolean || value instanceof Integer || value instanceof Long
+				|| value instanceof Float || value instanceof Double || value instanceof Date || value instanceof byte[]) {
+			writePrimitive(stream, stringReferences, value);
+			return;
+		}
+		CompiledBeanSchema cbs = value != null ? ontology.getCompiledSchema(value.getClass()) : null;
+		if (cbs == null || !cbs.isConcept()) {
+			throw NotSupported.INSTANCE;
+		}
+		writeBean(stream, stringReferences, ontology, cbs, value);
+	}
 
-			else if (obj instanceof Float float1) {
-				stream.writeByte(FLOAT);
-				stream.writeFloat(float1.floatValue());
-			} else if (obj instanceof Double double1) {
-				stream.writeByte(DOUBLE);
-				stream.writeDouble(double1.doubleValue());
+	private Object readBean(DataInputStream stream, List<String> stringReferences, BeanOntology ontology, CompiledBeanSchema cbs) throws Throwable {
+		if (cbs.isEnum()) {
+			byte marker = stream.readByte();
+			if ((marker & UNMODIFIER) != ELEMENT || !CompiledBeanSchema.ENUM_SLOT_NAME.equalsIgnoreCase(readString(stream, stringReferences, marker))) {
+				throw NotSupported.INSTANCE;
+			}
+			Object name = readBeanValue(stream, stringReferences, ontology, stream.readByte());
+			if (stream.readByte() != END) {
+				throw NotSupported.INSTANCE;
+			}
+			return cbs.getEnumConstant((String) name);
+		}
+
+		Object bean = cbs.newInstance();
+		byte marker = stream.readByte();
+		while (marker != END) {
+			if ((marker & UNMODIFIER) != ELEMENT) {
+				throw NotSupported.INSTANCE;
+			}
+			CompiledBeanSchema.Slot slot = cbs.getSlot(readString(stream, stringReferences, marker));
+			if (slot == null) {
+				throw NotSupported.INSTANCE;
+			}
+			byte type = stream.readByte();
+			if ((type & UNMODIFIER) == AGGREGATE) {
+				String aggregateType = readString(stream, stringReferences, type);
+				List<Object> elements = new ArrayList<>();
+				byte elementMarker = stream.readByte();
+				while (elementMarker == ELEMENT) {
+					elements.add(readBeanValue(stream, stringReferences, ontology, stream.readByte()));
+					elementMarker = stream.readByte();
+				}
+				if (elementMarker != END) {
+					throw NotSupported.INSTANCE;
+				}
+				slot.setAggregate(bean, aggregateType, elements);
+			} else {
+				slot.setValue(bean, readBeanValue(stream, stringReferences, ontology, type));
+			}
+			marker = stream.readByte();
+		}
+		return bean;
+	}
+
+	/**
+	 * Read a slot value or aggregate element: either a primitive or a (concept)
+	 * bean of the same ontology. Anything else is not supported.
+	 */
+	private Object readBeanValue(DataInputStream stream, List<String> stringReferences, BeanOntology ontology, byte type) throws Throwable {
+		if ((type & UNMODIFIER) == STRING) {
+			return readString(stream, stringReferences, type);
+		}
+		if ((type & UNMODIFIER) == BIG_STRING) {
+			return readBigString(stream, stringReferences, type);
+		}
+		switch (type) {
+		case BOOLEAN:
+			return Boolean.valueOf(stream.readBoolean());
+		case INTEGER:
+			return Integer.valueOf(stream.readInt());
+		case LONG:
+			return Long.valueOf(stream.readLong());
+		case FLOAT:
+			return Float.valueOf(stream.readFloat());
+		case DOUBLE:
+			return Double.valueOf(stream.readDouble());
+		case DATE:
+			return new Date(stream.readLong());
+		case BYTE_SEQUENCE:
+			byte[] value = new byte[stream.readInt()];
+			stream.read(value, 0, value.length);
+			return value;
+		default:
+			if ((type & UNMODIFIER) == OBJECT) {
+				CompiledBeanSchema cbs = ontology.getCompiledSchema(readString(stream, stringReferences, type));
+				if (cbs != null && cbs.isConcept()) {
+					return readBean(stream, stringReferences, ontology, cbs);
+				}
 			}
+			throw NotSupported.INSTANCE;
+		}
+	}
+
+	private static Context acquireContext() {
+		Context ctx = contexts.get();
+		if (ctx == null || ctx.busy) {
+			// No context yet or nested usage (e.g. an ontology decoding some content
+			// while another one is in progress on the same thread) --> use a new one
+			ctx = new Context();
+			if (contexts.get() == null) {
+				contexts.set(ctx);
+			}
+		}
+		ctx.busy = true;
+		return ctx;
+	}
 
-			else if (obj instanceof Date date) {
-				stream.writeByte(DATE);
-				stream.writeLong(date.getTime());
-			} else if (obj instanceof byte[] b) {
-				stream.writeByte(BYTE_SEQUENCE);
-				stream.writeInt(b.length);
-				stream.write(b, 0, b.length);
+	private static void releaseContext(Context ctx) {
+		ctx.busy = false;
+		ctx.stringReferences.clear();
+		if (ctx.outBuffer.size() > MAX_RETAINED_BUFFER_SIZE) {
+			// Do not keep big buffers around
+			if (contexts.get() == ctx) {
+				contexts.remove();
 			}
+		} else {
+			ctx.outBuffer.reset();
+		}
+	}
+
+	private void write(DataOutputStream stream, List<String> stringReferences, AbsObject abs) throws Throwable {
+		// PRIMITIVE
+		if (abs instanceof AbsPrimitive primitive) {
+			// stream.writeByte(PRIMITIVE);
 
+			writePrimitive(stream, stringReferences, primitive.getObject());
 			return;
 		}
 
 		// AGGREGATE
 		if (abs instanceof AbsAggregate aggregate) {
-			writeString(stream, AGGREGATE, abs.getTypeName());
+			writeString(stream, stringReferences, AGGREGATE, abs.getTypeName());
 
 			for (int i = 0; i < aggregate.size(); i++) {
 				stream.writeByte(ELEMENT);
-				write(stream, aggregate.get(i));
+				write(stream, stringReferences, aggregate.get(i));
 			}
 
 			stream.writeByte(END);
@@ -236,7 +475,7 @@ public class LEAPCodec extends ByteArrayCodec {
 
 			for (int i = 0; i < acel.size(); i++) {
 				stream.writeByte(ELEMENT);
-				write(stream, acel.get(i));
+				write(stream, stringReferences, acel.get(i));
 			}
 
 			stream.writeByte(END);
@@ -245,20 +484,56 @@ public class LEAPCodec extends ByteArrayCodec {
 		}
 
 		// If we get here it must be a complex OBJECT
-		writeString(stream, OBJECT, abs.getTypeName());
+		writeString(stream, stringReferences, OBJECT, abs.getTypeName());
 
 		String[] names = abs.getNames();
 
 		for (int i = 0; i < abs.getCount(); i++) {
-			writeString(stream, ELEMENT, names[i]);
+			writeString(stream, stringReferences, ELEMENT, names[i]);
 			AbsObject child = abs.getAbsObject(names[i]);
-			write(stream, child);
+			write(stream, stringReferences, child);
 		}
 
 		stream.writeByte(END);
 	}
 
-	private AbsObject read(DataInputStream stream, Ontology ontology) throws Throwable {
+	private void writePrimitive(DataOutputStream stream, List<String> stringReferences, Object obj) throws Throwable {
+		if (obj instanceof String s) {
+			if (s.length() >= 65535) {
+				writeBigString(stream, stringReferences, BIG_STRING, s);
+			} else {
+				writeString(stream, stringReferences, STRING, s);
+			}
+		} else if (obj instanceof Boolean boolean1) {
+			stream.writeByte(BOOLEAN);
+			stream.writeBoolean(boolean1.booleanValue());
+		} else if (obj instanceof Integer integer) {
+			stream.writeByte(INTEGER);
+			stream.writeInt(integer.intValue());
+		} else if (obj instanceof Long long1) {
+			stream.writeByte(LONG);
+			stream.writeLong(long1.longValue());
+		}
+
+		else if (obj instanceof Float float1) {
+			stream.writeByte(FLOAT);
+			stream.writeFloat(float1.floatValue());
+		} else if (obj instanceof Double double1) {
+			stream.writeByte(DOUBLE);
+			stream.writeDouble(double1.doubleValue());
+		}
+
+		else if (obj instanceof Date date) {
+			stream.writeByte(DATE);
+			stream.writeLong(date.getTime());
+		} else if (obj instanceof byte[] b) {
+			stream.writeByte(BYTE_SEQUENCE);
+			stream.writeInt(b.length);
+			stream.write(b, 0, b.length);
+		}
+	}
+
+	private AbsObject read(DataInputStream stream, List<String> stringReferences, Ontology ontology) throws Throwable {
 		byte type = stream.readByte();
 
 		// PRIMITIVE
@@ -267,10 +542,10 @@ public class LEAPCodec extends ByteArrayCodec {
 		// AbsPrimitive abs = null;
 
 		if ((type & UNMODIFIER) == STRING) {
-			return AbsPrimitive.wrap(readString(stream, type));
+			return AbsPrimitive.wrap(readString(stream, stringReferences, type));
 		}
 		if ((type & UNMODIFIER) == BIG_STRING) {
-			return AbsPrimitive.wrap(readBigString(stream, type));
+			return AbsPrimitive.wrap(readBigString(stream, stringReferences, type));
 		}
 		if (type == BOOLEAN) {
 			boolean value = stream.readBoolean();
@@ -309,13 +584,13 @@ public class LEAPCodec extends ByteArrayCodec {
 
 		// AGGREGATE
 		if ((type & UNMODIFIER) == AGGREGATE) {
-			String typeName = readString(stream, type);
+			String typeName = readString(stream, stringReferences, type);
 			AbsAggregate abs = new AbsAggregate(typeName);
 			byte marker = stream.readByte();
 
 			do {
 				if (marker == ELEMENT) {
-					AbsObject elementValue = read(stream, ontology);
+					AbsObject elementValue = read(stream, stringReferences, ontology);
 
 					if (elementValue != null) {
 						try {
@@ -339,7 +614,7 @@ public class LEAPCodec extends ByteArrayCodec {
 
 			do {
 				if (marker == ELEMENT) {
-					AbsObject elementValue = read(stream, ontology);
+					AbsObject elementValue = read(stream, stringReferences, ontology);
 
 					if (elementValue != null) {
 						try {
@@ -357,7 +632,7 @@ public class LEAPCodec extends ByteArrayCodec {
 		}
 
 		// If we get here it must be a complex OBJECT
-		String typeName = readString(stream, type);
+		String typeName = readString(stream, stringReferences, type);
 		// DEBUG System.out.println("Type is "+typeName);
 		ObjectSchema schema = ontology.getSchema(typeName);
 		// DEBUG System.out.println("Schema is "+schema);
@@ -367,8 +642,8 @@ public class LEAPCodec extends ByteArrayCodec {
 
 		do {
 			if ((marker & UNMODIFIER) == ELEMENT) {
-				String attributeName = readString(stream, marker);
-				AbsObject attributeValue = read(stream, ontology);
+				String attributeName = readString(stream, stringReferences, marker);
+				AbsObject attributeValue = read(stream, stringReferences, ontology);
 
 				if (attributeValue != null) {
 					AbsHelper.setAttribute(abs, attributeName, attributeValue);
@@ -381,7 +656,7 @@ public class LEAPCodec extends ByteArrayCodec {
 		return abs;
 	}
 
-	private final void writeString(DataOutputStream stream, byte tag, String s) throws Throwable {
+	private final void writeString(DataOutputStream stream, List<String> stringReferences, byte tag, String s) throws Throwable {
 		int index = stringReferences.indexOf(s);
 		if (index >= 0) {
 			// Write the tag modified and just put the index
@@ -399,7 +674,7 @@ public class LEAPCodec extends ByteArrayCodec {
 
 	// This method is equal to writeString, but is used to encode String whose
 	// length is >= 65535. Therefore the string is not encoded using writeUTF().
-	private final void writeBigString(DataOutputStream stream, byte tag, String s) throws Throwable {
+	private final void writeBigString(DataOutputStream stream, List<String> stringReferences, byte tag, String s) throws Throwable {
 		int index = stringReferences.indexOf(s);
 		if (index >= 0) {
 			// Write the tag modified and just put the index
@@ -417,7 +692,7 @@ public class LEAPCodec extends ByteArrayCodec {
 		}
 	}
 
-	private final String readString(DataInputStream stream, byte tag) throws Throwable {
+	private final String readString(DataInputStream stream, List<String> stringReferences, byte tag) throws Throwable {
 		String s = null;
 		if ((tag & MODIFIER) != 0) {
 			int index = stream.readUnsignedByte();
@@ -435,7 +710,7 @@ public class LEAPCodec extends ByteArrayCodec {
 
 	// This method is equal to readString, but is used to decode String whose
 	// length is >= 65535. Therefore the string is not decoded using writeUTF().
-	private final String readBigString(DataInputStream stream, byte tag) throws Throwable {
+	private final String readBigString(DataInputStream stream, List<String> stringReferences, byte tag) throws Throwable {
 		String s = null;
 		if ((tag & MODIFIER) != 0) {
 			int index = stream.readUnsignedByte();
@@ -452,4 +727,39 @@ public class LEAPCodec extends ByteArrayCodec {
 		}
 		return s;
 	}
+
+	/**
+	 * Inner class Context. The state of an ongoing encoding or decoding.
+	 */
+	private static final class Context {
+		private final Buffer outBuffer = new Buffer();
+		private final DataOutputStream outStream = new DataOutputStream(outBuffer);
+		private final List<String> stringReferences = new ArrayList<>();
+		private boolean busy;
+	} // END of inner class Context
+
+	/**
+	 * Inner class NotSupported. Thrown when a bean cannot be encoded/decoded
+	 * directly. Being used for flow control only it carries no stack trace.
+	 */
+	private static final class NotSupported extends Exception {
+		@Serial
+		private static final long serialVersionUID = 1L;
+		private static final NotSupported INSTANCE = new NotSupported();
+
+		private NotSupported() {
+			super(null, null, false, false);
+		}
+	} // END of inner class NotSupported
+
+	/**
+	 * Inner class Buffer. A ByteArrayOutputStream that can copy its content to
+	 * a given array without creating an intermediate copy.
+	 */
+	private static final class Buffer extends ByteArrayOutputStream {
+		private int copyTo(byte[] dest, int offset) {
+			System.arraycopy(buf, 0, dest, offset, count);
+			return count;
+		}
+	} // END of inner class Buffer
 }
@@ -31,6 +31,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.Base64;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import jade.content.abs.AbsAggregate;
 import jade.content.abs.AbsConcept;
@@ -67,12 +68,16 @@ public class SLCodec extends StringCodec {
 
 	public static final String PRESERVE_JAVA_TYPES = "SL-preserve-java-types";
 
-	private transient SLParser parser;
-	private transient ExtendedSLParser extendedParser;
+	/**
+	 * Parsers not currently in use. A parser is taken from (or created if the pool
+	 * is empty) at each decode operation and given back when done, so that
+	 * concurrent decodings do not contend on a single parser instance while the
+	 * buffers of the JavaCC SimpleCharStream are still reused across calls.
+	 **/
+	private transient ConcurrentLinkedQueue<SLParser> parsers;
+	private transient ConcurrentLinkedQueue<ExtendedSLParser> extendedParsers;
+	private transient int slType;
 	private SL0Ontology slOnto; // ontology of the content language
-	private Ontology domainOnto; // application ontology
-	/** This is the StringBuffer used by the encode method **/
-	private transient StringBuilder buffer;
 	/**
 	 * This variable is true, when meta symbols are allowed (metas are a
 	 * semantics-specific extension to the SL Grammar)
@@ -142,17 +147,30 @@ public class SLCodec extends StringCodec {
 	}
 
 	private void initParser() {
-		int slType = jade.domain.FIPANames.ContentLanguage.FIPA_SL0.equals(getName()) ? 0
+		slType = jade.domain.FIPANames.ContentLanguage.FIPA_SL0.equals(getName()) ? 0
 				: jade.domain.FIPANames.ContentLanguage.FIPA_SL2.equals(getName()) ? 1
 						: jade.domain.FIPANames.ContentLanguage.FIPA_SL2.equals(getName()) ? 2 : 3;
 
-		if (preserveJavaTypes) {
-			extendedParser = new ExtendedSLParser(new StringReader(""));
-			extendedParser.setSLType(slType);
-		} else {
+		parsers = new ConcurrentLinkedQueue<>();
+		extendedParsers = new ConcurrentLinkedQueue<>();
+	}
+
+	private SLParser borrowParser() {
+		SLParser parser = parsers.poll();
+		if (parser == null) {
 			parser = new SLParser(new StringReader(""));
 			parser.setSLType(slType);
 		}
+		return parser;
+	}
+
+	private ExtendedSLParser borrowExtendedParser() {
+		ExtendedSLParser parser = extendedParsers.poll();
+		if (parser == null) {
+			parser = new ExtendedSLParser(new StringReader(""));
+			parser.setSLType(slType);
+		}
+		return parser;
 	}
 
 	public boolean getPreserveJavaTypes() {
@@ -178,287 +196,21 @@ public class SLCodec extends StringCodec {
 	 * @return the content as a String.
 	 * @throws CodecException
 	 */
-	public synchronized String encode(Ontology ontology, AbsContentElement content) throws CodecException {
-		try {
-			domainOnto = ontology;
-			buffer = new StringBuilder("(");
-			if (content instanceof AbsContentElementList list) {
-				for (Iterator i = list.iterator(); i.hasNext();) {
-					AbsObject o = (AbsObject) i.next();
-					encodeAndAppend(o);
-					buffer.append(' ');
-				}
-			}
-			else {
-				encodeAndAppend(content);
-			}
-			buffer.append(')');
-			return buffer.toString();
-		} finally {
-			buffer = null; // frees the memory
-		}
-	}
-
-	/**
-	 * Encode a string, taking care of quoting separated words and escaping strings,
-	 * if necessary. And append it to the buffer.
-	 **/
-	private void encodeAndAppend(String val) {
-		// if the slotName is a String of words then quote it. If it is a meta (i.e.
-		// startsWith "??") do not quote it.
-		String out = SimpleSLTokenizer.isAWord(val) || (metaAllowed && val.startsWith("??")) ? val
-				: SimpleSLTokenizer.quoteString(val);
-		buffer.append(out);
-	}
-
-	/** Encode the passed Abstract Predicate and append its encoding to buffer **/
-	private void encodeAndAppend(AbsPredicate val) throws CodecException {
-		String propositionSymbol = val.getTypeName();
-		if (val.getCount() > 0) { // predicate with arguments
-			String[] slotNames = getSlotNames(val);
-			buffer.append('(');
-			if (slOnto.isUnaryLogicalOp(propositionSymbol)) {
-				// Unary logical operator of the SL language (NOT)
-				buffer.append(propositionSymbol);
-				buffer.append(' ');
-				try {
-					encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[0]));
-				} catch (RuntimeException e) {
-					throw new CodecException("A UnaryLogicalOp requires a formula argument", e);
-				}
-			} else if (slOnto.isBinaryLogicalOp(propositionSymbol)) {
-				// Bynary logical operator of the SL language (AND, OR)
-				buffer.append(propositionSymbol);
-				buffer.append(' ');
-				try {
-					encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[0]));
-					buffer.append(' ');
-					encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[1]));
-				} catch (RuntimeException e) {
-					throw new CodecException("A BinaryLogicalOp requires 2 formula arguments", e);
-				}
-			} else if (slOnto.isQuantifier(propositionSymbol)) {
-				// Quantifier operator of the SL language (EXISTS, FORALL)
-				buffer.append(propositionSymbol);
-				buffer.append(' ');
-				try {
-					encodeAndAppend((AbsVariable) val.getAbsObject(slotNames[0]));
-					buffer.append(' ');
-					encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[1]));
-				} catch (RuntimeException e) {
-					throw new CodecException("A Quantifier requires a variable and a formula arguments", e);
-				}
-			} else if (slOnto.isConditionedQuantifier(propositionSymbol)) {
-				// Conditioned Quantifier operator of the extended-SL language (FOREACH)
-				buffer.append(propositionSymbol);
-				buffer.append(' ');
-				try {
-					encodeAndAppend((AbsVariable) val.getAbsObject(slotNames[0]));
-					buffer.append(' ');
-					encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[1]));
-					buffer.append(' ');
-					encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[2]));
-				} catch (RuntimeException e) {
-					throw new CodecException("A Quantifier requires a variable and a formula arguments", e);
-				}
-			} else if (slOnto.isModalOp(propositionSymbol)) {
-				// Modal operator of the SL language (B, I, U, PG)
-				buffer.append(propositionSymbol);
-				buffer.append(' ');
-				try {
-					encodeAndAppend((AbsTerm) val.getAbsObject(slotNames[0]));
-					buffer.append(' ');
-					encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[1]));
-				} catch (RuntimeException e) {
-					throw new CodecException("A ModalOp requires a term and a formula arguments", e);
-				}
-			} else if (slOnto.isActionOp(propositionSymbol)) {
-				// Action operator of the SL language (DONE, FEASIBLE)
-				buffer.append(propositionSymbol);
-				buffer.append(' ');
-				try {
-					encodeAndAppend((AbsTerm) val.getAbsObject(slotNames[0])); // FIXME check it is an action expression
-					AbsPredicate ap = (AbsPredicate) val.getAbsObject(slotNames[1]);
-					if (ap != null) { // Second argument is optional
-						buffer.append(' ');
-						encodeAndAppend(ap);
-					}
-				} catch (RuntimeException e) {
-					throw new CodecException(
-							"An ActionOp requires an actionexpression and (optionally) a formula arguments", e);
-				}
-			} else if (slOnto.isBinaryTermOp(propositionSymbol)) {
-				// Binary term operator of the SL language (RESULT, =)
-				buffer.append(propositionSymbol);
+	public String encode(Ontology ontology, AbsContentElement content) throws CodecException {
+		StringBuilder buffer = new StringBuilder("(");
+		Encoder encoder = new Encoder(ontology, buffer);
+		if (content instanceof AbsContentElementList list) {
+			for (Iterator i = list.iterator(); i.hasNext();) {
+				AbsObject o = (AbsObject) i.next();
+				encoder.encodeAndAppend(o);
 				buffer.append(' ');
-				try {
-					encodeAndAppend((AbsTerm) val.getAbsObject(slotNames[0]));
-					buffer.append(' ');
-					encodeAndAppend((AbsTerm) val.getAbsObject(slotNames[1]));
-				} catch (RuntimeException e) {
-					throw new CodecException("A BinaryTermOp requires 2 term arguments", e);
-				}
-			} else {
-				encodeAndAppend(propositionSymbol);
-				// Predicate in the ontology
-				try {
-					encodeSlotsByOrder(val, slotNames);
-				} catch (RuntimeException e) {
-					throw new CodecException("SL allows predicates with term arguments only", e);
-				}
 			}
-			buffer.append(')');
 		}
 		else {
-			// Proposition
-			encodeAndAppend(propositionSymbol);
-		}
-	}
-
-	private void encodeAndAppend(AbsIRE val) throws CodecException {
-		buffer.append('(');
-		encodeAndAppend(val.getTypeName());
-		buffer.append(' ');
-		encodeAndAppend(val.getTerm());
-		buffer.append(' ');
-		encodeAndAppend(val.getProposition());
-		buffer.append(')');
-	}
-
-	private void encodeAndAppend(AbsVariable val) throws CodecException {
-		String var = val.getName();
-		if (var.charAt(0) == '?') {
-			encodeAndAppend(var);
-		} else {
-			buffer.append('?');
-			encodeAndAppend(var);
-		}
-	}
-
-	private void encodeAndAppend(AbsReference val) throws CodecException {
-		String objectType = val.getType();
-		String name = val.getName();
-		buffer.append(AbsReference.asString(objectType, name));
-	}
-
-	private void encodeAndAppend(AbsConcept val) throws CodecException {
-		String functionSymbol = val.getTypeName();
-		buffer.append('(');
-		String[] slotNames = getSlotNames(val);
-		if (slOnto.isSLFunctionWithoutSlotNames(functionSymbol)) {
-			// A Functional operator of the SL language (ACTION, + ...)
-			// The form is: functionSymbol Term*
-			buffer.append(functionSymbol);
-			try {
-				encodeSlotsByOrder(val, slotNames);
-			} catch (RuntimeException e) {
-				throw new CodecException("A FunctionalOperator requires 1 or 2 Term arguments", e);
-			}
-		} else {
-			// A generic term in the ontology. The form can be both
-			// functionSymbol Parameter* or functionSymbol Term*. Get the
-			// preferred way from the ontology.
-			encodeAndAppend(functionSymbol);
-			try {
-				// FIXME: To improve performances the two operations that imply
-				// retrieving a schema from the ontology (getting slot names and
-				// getting the preferred encoding type) should be carried out at
-				// the same time.
-				if (getEncodingByOrder(val)) {
-					encodeSlotsByOrder(val, slotNames);
-				} else {
-					encodeSlotsByName(val, slotNames);
-				}
-			} catch (RuntimeException e) {
-				throw new CodecException("A FunctionalTerm requires Terms arguments", e);
-			}
-		}
-
-		buffer.append(')');
-	}
-
-	private void encodeAndAppend(AbsAggregate val) throws CodecException {
-		buffer.append('(');
-		encodeAndAppend(val.getTypeName());
-		for (Iterator i = val.iterator(); i.hasNext();) {
-			buffer.append(' ');
-			encodeAndAppend((AbsObject) i.next());
+			encoder.encodeAndAppend(content);
 		}
 		buffer.append(')');
-	}
-
-	private void encodeAndAppend(AbsPrimitive val) throws CodecException {
-		Object v = val.getObject();
-		if (v instanceof Date date) {
-			buffer.append(ISO8601.toString(date));
-		}
-		else if (v instanceof Number) {
-			buffer.append(v.toString());
-			if (preserveJavaTypes) {
-				if (v instanceof Long) {
-					buffer.append('L');
-				}
-				else if (v instanceof Float) {
-					buffer.append('F');
-				}
-			}
-		}
-		else if (v instanceof byte[] b) {
-			b = Base64.getEncoder().encode(b);
-
-			buffer.append('#');
-			buffer.append(b.length);
-			buffer.append('"');
-			try {
-				buffer.append(new String(b, "US-ASCII"));
-			} catch (UnsupportedEncodingException uee) {
-				throw new CodecException("Error encoding byte-array to Base64 US-ASCII", uee);
-			}
-		}
-		else if (v instanceof Boolean) {
-			buffer.append(v.toString());
-		}
-		else {
-			String vs = v.toString();
-			if ((CaseInsensitiveString.equalsIgnoreCase("true", vs))
-				|| (CaseInsensitiveString.equalsIgnoreCase("false", vs))) {
-				// quote true and false to avoid confusion with booleans
-				buffer.append('"');
-				buffer.append(vs);
-				buffer.append('"');
-			}
-			else {
-				encodeAndAppend(vs);
-			}
-		}
-	}
-
-	private void encodeAndAppend(AbsObject val) throws CodecException {
-		if (val instanceof AbsPrimitive primitive) {
-			encodeAndAppend(primitive);
-		}
-		else if (val instanceof AbsPredicate predicate) {
-			encodeAndAppend(predicate);
-		}
-		else if (val instanceof AbsIRE rE) {
-			encodeAndAppend(rE);
-		}
-		else if (val instanceof AbsVariable variable) {
-			encodeAndAppend(variable);
-			// if (val instanceof AbsAgentAction) return toString( (AbsAgentAction)val);
-		}
-		else if (val instanceof AbsAggregate aggregate) {
-			encodeAndAppend(aggregate);
-		}
-		else if (val instanceof AbsConcept concept) {
-			encodeAndAppend(concept);
-		}
-		else if (val instanceof AbsReference reference) {
-			encodeAndAppend(reference);
-		}
-		else {
-			throw new CodecException("SLCodec cannot encode this object " + val);
-		}
+		return buffer.toString();
 	}
 
 	/**
@@ -480,18 +232,28 @@ public class SLCodec extends StringCodec {
 	 * @return the content as an abstract description.
 	 * @throws CodecException
 	 */
-	public synchronized AbsContentElement decode(Ontology ontology, String content) throws CodecException {
+	public AbsContentElement decode(Ontology ontology, String content) throws CodecException {
 		if (ontology == null) {
 			ontology = slOnto;
 		}
 		try {
 			AbsContentElementList tuple = null;
 			if (preserveJavaTypes) {
-				extendedParser.reinit(ontology, content);
-				tuple = extendedParser.Content();
+				ExtendedSLParser extendedParser = borrowExtendedParser();
+				try {
+					extendedParser.reinit(ontology, content);
+					tuple = extendedParser.Content();
+				} finally {
+					extendedParsers.offer(extendedParser);
+				}
 			} else {
-				parser.reinit(ontology, content);
-				tuple = parser.Content();
+				SLParser parser = borrowParser();
+				try {
+					parser.reinit(ontology, content);
+					tuple = parser.Content();
+				} finally {
+					parsers.offer(parser);
+				}
 			}
 			if (tuple.size() > 1) {
 				return tuple;
@@ -514,17 +276,27 @@ public class SLCodec extends StringCodec {
 	 * @throws CodecException
 	 * @since JADE 3.4
 	 */
-	public synchronized AbsTerm decodeTerm(Ontology ontology, String term) throws CodecException {
+	public AbsTerm decodeTerm(Ontology ontology, String term) throws CodecException {
 		if (ontology == null) {
 			ontology = slOnto;
 		}
 		try {
 			if (preserveJavaTypes) {
-				extendedParser.reinit(ontology, term);
-				return extendedParser.Term();
+				ExtendedSLParser extendedParser = borrowExtendedParser();
+				try {
+					extendedParser.reinit(ontology, term);
+					return extendedParser.Term();
+				} finally {
+					extendedParsers.offer(extendedParser);
+				}
 			} else {
-				parser.reinit(ontology, term);
-				return parser.Term();
+				SLParser parser = borrowParser();
+				try {
+					parser.reinit(ontology, term);
+					return parser.Term();
+				} finally {
+					parsers.offer(parser);
+				}
 			}
 		} catch (Throwable e) { // both ParseException and TokenMgrError
 			throw new CodecException("Parse exception", e);
@@ -540,15 +312,10 @@ public class SLCodec extends StringCodec {
 	 * @throws CodecException
 	 * @since JADE 3.4
 	 */
-	public synchronized String encodeTerm(Ontology ontology, AbsTerm term) throws CodecException {
-		try {
-			domainOnto = ontology;
-			buffer = new StringBuilder();
-			encodeAndAppend(term);
-			return buffer.toString();
-		} finally {
-			buffer = null; // frees the memory
-		}
+	public String encodeTerm(Ontology ontology, AbsTerm term) throws CodecException {
+		StringBuilder buffer = new StringBuilder();
+		new Encoder(ontology, buffer).encodeAndAppend(term);
+		return buffer.toString();
 	}
 
 	/**
@@ -561,17 +328,27 @@ public class SLCodec extends StringCodec {
 	 * @throws CodecException
 	 * @since JADE 3.4
 	 */
-	public synchronized AbsPredicate decodeFormula(Ontology ontology, String formula) throws CodecException {
+	public AbsPredicate decodeFormula(Ontology ontology, String formula) throws CodecException {
 		if (ontology == null) {
 			ontology = slOnto;
 		}
 		try {
 			if (preserveJavaTypes) {
-				extendedParser.reinit(ontology, formula);
-				return extendedParser.Wff();
+				ExtendedSLParser extendedParser = borrowExtendedParser();
+				try {
+					extendedParser.reinit(ontology, formula);
+					return extendedParser.Wff();
+				} finally {
+					extendedParsers.offer(extendedParser);
+				}
 			} else {
-				parser.reinit(ontology, formula);
-				return parser.Wff();
+				SLParser parser = borrowParser();
+				try {
+					parser.reinit(ontology, formula);
+					return parser.Wff();
+				} finally {
+					parsers.offer(parser);
+				}
 			}
 		} catch (Throwable e) { // both ParseException and TokenMgrError
 			throw new CodecException("Parse exception", e);
@@ -588,15 +365,10 @@ public class SLCodec extends StringCodec {
 	 * @throws CodecException
 	 * @since JADE 3.4
 	 */
-	public synchronized String encodeFormula(Ontology ontology, AbsPredicate formula) throws CodecException {
-		try {
-			domainOnto = ontology;
-			buffer = new StringBuilder();
-			encodeAndAppend(formula);
-			return buffer.toString();
-		} finally {
-			buffer = null; // frees the memory
-		}
+	public String encodeFormula(Ontology ontology, AbsPredicate formula) throws CodecException {
+		StringBuilder buffer = new StringBuilder();
+		new Encoder(ontology, buffer).encodeAndAppend(formula);
+		return buffer.toString();
 	}
 
 	public static void main(String[] args) {
@@ -668,90 +440,367 @@ public class SLCodec extends StringCodec {
 		return slOnto;
 	}
 
-	private String[] getSlotNames(AbsObject abs) throws CodecException {
-		String[] slotNames = null;
-		String type = abs.getTypeName();
-		if (domainOnto != null && abs.getTypeName() != SL0Vocabulary.AID) {
-			// If an ontology is specified, get the slot names from it
-			// (and not directly from the abstract descriptor val) to preserve the order
-			//
-			// NOTA: Per supportare la gestione degli UserDefinedSlot di AID e' necessario
-			// recuperare i nomi degli slot non dall'ontologia ma direttamente dall'abstract
-			// decriptor
-			// questo in quanto gli UserDefinedSlot secondo lo standard FIPA sono gestiti
-			// come
-			// slot con il formato :X-<key> <value> che non posso essere descritti
-			// ontologicamente
-			try {
-				ObjectSchema s = domainOnto.getSchema(type);
-				if (s == null) {
-					throw new CodecException("No schema found for symbol " + type);
+	/**
+	 * Holds the state of a single encoding operation, so that concurrent calls
+	 * to the encode methods of the same SLCodec do not interfere.
+	 */
+	private class Encoder {
+		private final Ontology domainOnto; // application ontology
+		/** This is the StringBuilder the encoded content is appended to **/
+		private final StringBuilder buffer;
+
+		private Encoder(Ontology domainOnto, StringBuilder buffer) {
+			this.domainOnto = domainOnto;
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Encode a string, taking care of quoting separated words and escaping strings,
+		 * if necessary. And append it to the buffer.
+		 **/
+		private void encodeAndAppend(String val) {
+			// if the slotName is a String of words then quote it. If it is a meta (i.e.
+			// startsWith "??") do not quote it.
+			String out = SimpleSLTokenizer.isAWord(val) || (metaAllowed && val.startsWith("??")) ? val
+					: SimpleSLTokenizer.quoteString(val);
+			buffer.append(out);
+		}
+
+		/** Encode the passed Abstract Predicate and append its encoding to buffer **/
+		private void encodeAndAppend(AbsPredicate val) throws CodecException {
+			String propositionSymbol = val.getTypeName();
+			if (val.getCount() > 0) { // predicate with arguments
+				String[] slotNames = getSlotNames(val);
+				buffer.append('(');
+				if (slOnto.isUnaryLogicalOp(propositionSymbol)) {
+					// Unary logical operator of the SL language (NOT)
+					buffer.append(propositionSymbol);
+					buffer.append(' ');
+					try {
+						encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[0]));
+					} catch (RuntimeException e) {
+						throw new CodecException("A UnaryLogicalOp requires a formula argument", e);
+					}
+				} else if (slOnto.isBinaryLogicalOp(propositionSymbol)) {
+					// Bynary logical operator of the SL language (AND, OR)
+					buffer.append(propositionSymbol);
+					buffer.append(' ');
+					try {
+						encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[0]));
+						buffer.append(' ');
+						encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[1]));
+					} catch (RuntimeException e) {
+						throw new CodecException("A BinaryLogicalOp requires 2 formula arguments", e);
+					}
+				} else if (slOnto.isQuantifier(propositionSymbol)) {
+					// Quantifier operator of the SL language (EXISTS, FORALL)
+					buffer.append(propositionSymbol);
+					buffer.append(' ');
+					try {
+						encodeAndAppend((AbsVariable) val.getAbsObject(slotNames[0]));
+						buffer.append(' ');
+						encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[1]));
+					} catch (RuntimeException e) {
+						throw new CodecException("A Quantifier requires a variable and a formula arguments", e);
+					}
+				} else if (slOnto.isConditionedQuantifier(propositionSymbol)) {
+					// Conditioned Quantifier operator of the extended-SL language (FOREACH)
+					buffer.append(propositionSymbol);
+					buffer.append(' ');
+					try {
+						encodeAndAppend((AbsVariable) val.getAbsObject(slotNames[0]));
+						buffer.append(' ');
+						encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[1]));
+						buffer.append(' ');
+						encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[2]));
+					} catch (RuntimeException e) {
+						throw new CodecException("A Quantifier requires a variable and a formula arguments", e);
+					}
+				} else if (slOnto.isModalOp(propositionSymbol)) {
+					// Modal operator of the SL language (B, I, U, PG)
+					buffer.append(propositionSymbol);
+					buffer.append(' ');
+					try {
+						encodeAndAppend((AbsTerm) val.getAbsObject(slotNames[0]));
+						buffer.append(' ');
+						encodeAndAppend((AbsPredicate) val.getAbsObject(slotNames[1]));
+					} catch (RuntimeException e) {
+						throw new CodecException("A ModalOp requires a term and a formula arguments", e);
+					}
+				} else if (slOnto.isActionOp(propositionSymbol)) {
+					// Action operator of the SL language (DONE, FEASIBLE)
+					buffer.append(propositionSymbol);
+					buffer.append(' ');
+					try {
+						encodeAndAppend((AbsTerm) val.getAbsObject(slotNames[0])); // FIXME check it is an action expression
+						AbsPredicate ap = (AbsPredicate) val.getAbsObject(slotNames[1]);
+						if (ap != null) { // Second argument is optional
+							buffer.append(' ');
+							encodeAndAppend(ap);
+						}
+					} catch (RuntimeException e) {
+						throw new CodecException(
+								"An ActionOp requires an actionexpression and (optionally) a formula arguments", e);
+					}
+				} else if (slOnto.isBinaryTermOp(propositionSymbol)) {
+					// Binary term operator of the SL language (RESULT, =)
+					buffer.append(propositionSymbol);
+					buffer.append(' ');
+					try {
+						encodeAndAppend((AbsTerm) val.getAbsObject(slotNames[0]));
+						buffer.append(' ');
+						encodeAndAppend((AbsTerm) val.getAbsObject(slotNames[1]));
+					} catch (RuntimeException e) {
+						throw new CodecException("A BinaryTermOp requires 2 term arguments", e);
+					}
+				} else {
+					encodeAndAppend(propositionSymbol);
+					// Predicate in the ontology
+					try {
+						encodeSlotsByOrder(val, slotNames);
+					} catch (RuntimeException e) {
+						throw new CodecException("SL allows predicates with term arguments only", e);
+					}
 				}
-				slotNames = s.getNames();
-			} catch (OntologyException oe) {
-				throw new CodecException("Error getting schema for symbol " + type, oe);
+				buffer.append(')');
+			}
+			else {
+				// Proposition
+				encodeAndAppend(propositionSymbol);
 			}
-		} else {
-			slotNames = abs.getNames();
 		}
-		return slotNames;
-	}
 
-	private boolean getEncodingByOrder(AbsObject abs) throws CodecException {
-		if (domainOnto != null) {
-			String type = abs.getTypeName();
-			try {
-				ObjectSchema s = domainOnto.getSchema(type);
-				return s.getEncodingByOrder();
-			} catch (Exception e) {
-				// Just ignore it
+		private void encodeAndAppend(AbsIRE val) throws CodecException {
+			buffer.append('(');
+			encodeAndAppend(val.getTypeName());
+			buffer.append(' ');
+			encodeAndAppend(val.getTerm());
+			buffer.append(' ');
+			encodeAndAppend(val.getProposition());
+			buffer.append(')');
+		}
+
+		private void encodeAndAppend(AbsVariable val) throws CodecException {
+			String var = val.getName();
+			if (var.charAt(0) == '?') {
+				encodeAndAppend(var);
+			} else {
+				buffer.append('?');
+				encodeAndAppend(var);
 			}
 		}
-		return false;
-	}
 
-	/**
-	 * Encode the slots of an abstract descriptor by order, i.e. without writing the
-	 * slot names. Also take into account that, in order to ensure a correct
-	 * parsing, empty slots can only occur at the end. Append this encoded string to
-	 * buffer.
-	 */
-	private void encodeSlotsByOrder(AbsObject val, String[] slotNames) throws CodecException {
-		boolean lastSlotEmpty = false;
-		for (int i = 0; i < slotNames.length; i++) {
-			AbsTerm t = (AbsTerm) val.getAbsObject(slotNames[i]);
-			if (t != null) {
-				if (lastSlotEmpty) {
-					throw new CodecException(
-							"Non-empty slot " + slotNames[i] + " follows empty slot " + slotNames[i - 1]);
+		private void encodeAndAppend(AbsReference val) throws CodecException {
+			String objectType = val.getType();
+			String name = val.getName();
+			buffer.append(AbsReference.asString(objectType, name));
+		}
+
+		private void encodeAndAppend(AbsConcept val) throws CodecException {
+			String functionSymbol = val.getTypeName();
+			buffer.append('(');
+			String[] slotNames = getSlotNames(val);
+			if (slOnto.isSLFunctionWithoutSlotNames(functionSymbol)) {
+				// A Functional operator of the SL language (ACTION, + ...)
+				// The form is: functionSymbol Term*
+				buffer.append(functionSymbol);
+				try {
+					encodeSlotsByOrder(val, slotNames);
+				} catch (RuntimeException e) {
+					throw new CodecException("A FunctionalOperator requires 1 or 2 Term arguments", e);
+				}
+			} else {
+				// A generic term in the ontology. The form can be both
+				// functionSymbol Parameter* or functionSymbol Term*. Get the
+				// preferred way from the ontology.
+				encodeAndAppend(functionSymbol);
+				try {
+					// FIXME: To improve performances the two operations that imply
+					// retrieving a schema from the ontology (getting slot names and
+					// getting the preferred encoding type) should be carried out at
+					// the same time.
+					if (getEncodingByOrder(val)) {
+						encodeSlotsByOrder(val, slotNames);
+					} else {
+						encodeSlotsByName(val, slotNames);
+					}
+				} catch (RuntimeException e) {
+					throw new CodecException("A FunctionalTerm requires Terms arguments", e);
 				}
+			}
+
+			buffer.append(')');
+		}
+
+		private void encodeAndAppend(AbsAggregate val) throws CodecException {
+			buffer.append('(');
+			encodeAndAppend(val.getTypeName());
+			for (Iterator i = val.iterator(); i.hasNext();) {
 				buffer.append(' ');
-				encodeAndAppend(t);
+				encodeAndAppend((AbsObject) i.next());
+			}
+			buffer.append(')');
+		}
+
+		private void encodeAndAppend(AbsPrimitive val) throws CodecException {
+			Object v = val.getObject();
+			if (v instanceof Date date) {
+				buffer.append(ISO8601.toString(date));
+			}
+			else if (v instanceof Number) {
+				buffer.append(v.toString());
+				if (preserveJavaTypes) {
+					if (v instanceof Long) {
+						buffer.append('L');
+					}
+					else if (v instanceof Float) {
+						buffer.append('F');
+					}
+				}
+			}
+			else if (v instanceof byte[] b) {
+				b = Base64.getEncoder().encode(b);
+
+				buffer.append('#');
+				buffer.append(b.length);
+				buffer.append('"');
+				try {
+					buffer.append(new String(b, "US-ASCII"));
+				} catch (UnsupportedEncodingException uee) {
+					throw new CodecException("Error encoding byte-array to Base64 US-ASCII", uee);
+				}
+			}
+			else if (v instanceof Boolean) {
+				buffer.append(v.toString());
+			}
+			else {
+				String vs = v.toString();
+				if ((CaseInsensitiveString.equalsIgnoreCase("true", vs))
+					|| (CaseInsensitiveString.equalsIgnoreCase("false", vs))) {
+					// quote true and false to avoid confusion with booleans
+					buffer.append('"');
+					buffer.append(vs);
+					buffer.append('"');
+				}
+				else {
+					encodeAndAppend(vs);
+				}
+			}
+		}
+
+		private void encodeAndAppend(AbsObject val) throws CodecException {
+			if (val instanceof AbsPrimitive primitive) {
+				encodeAndAppend(primitive);
+			}
+			else if (val instanceof AbsPredicate predicate) {
+				encodeAndAppend(predicate);
+			}
+			else if (val instanceof AbsIRE rE) {
+				encodeAndAppend(rE);
+			}
+			else if (val instanceof AbsVariable variable) {
+				encodeAndAppend(variable);
+				// if (val instanceof AbsAgentAction) return toString( (AbsAgentAction)val);
+			}
+			else if (val instanceof AbsAggregate aggregate) {
+				encodeAndAppend(aggregate);
+			}
+			else if (val instanceof AbsConcept concept) {
+				encodeAndAppend(concept);
+			}
+			else if (val instanceof AbsReference reference) {
+				encodeAndAppend(reference);
+			}
+			else {
+				throw new CodecException("SLCodec cannot encode this object " + val);
+			}
+		}
+
+		private String[] getSlotNames(AbsObject abs) throws CodecException {
+			String[] slotNames = null;
+			String type = abs.getTypeName();
+			if (domainOnto != null && abs.getTypeName() != SL0Vocabulary.AID) {
+				// If an ontology is specified, get the slot names from it
+				// (and not directly from the abstract descriptor val) to preserve the order
+				//
+				// NOTA: Per supportare la gestione degli UserDefinedSlot di AID e' necessario
+				// recuperare i nomi degli slot non dall'ontologia ma direttamente dall'abstract
+				// decriptor
+				// questo in quanto gli UserDefinedSlot secondo lo standard FIPA sono gestiti
+				// come
+				// slot con il formato :X-<key> <value> che non posso essere descritti
+				// ontologicamente
+				try {
+					ObjectSchema s = domainOnto.getSchema(type);
+					if (s == null) {
+						throw new CodecException("No schema found for symbol " + type);
+					}
+					slotNames = s.getNames();
+				} catch (OntologyException oe) {
+					throw new CodecException("Error getting schema for symbol " + type, oe);
+				}
 			} else {
-				lastSlotEmpty = true;
+				slotNames = abs.getNames();
 			}
+			return slotNames;
 		}
-	}
 
-	/**
-	 * Encode the slots of an abstract descriptor by name, i.e. writing for each
-	 * non-empty slot the slot name followed by the slot value. Append this encoded
-	 * string to buffer.
-	 */
-	private void encodeSlotsByName(AbsObject val, String[] slotNames) throws CodecException {
-		for (int i = 0; i < slotNames.length; i++) {
-			AbsTerm t = (AbsTerm) val.getAbsObject(slotNames[i]);
-			if (t != null) {
-				// if this isn't un unnamed slot, then encode it otherwise just encode its value
-				if (!slotNames[i].startsWith(this.UNNAMEDPREFIX)) {
-					buffer.append(" :");
-					encodeAndAppend(slotNames[i]);
+		private boolean getEncodingByOrder(AbsObject abs) throws CodecException {
+			if (domainOnto != null) {
+				String type = abs.getTypeName();
+				try {
+					ObjectSchema s = domainOnto.getSchema(type);
+					return s.getEncodingByOrder();
+				} catch (Exception e) {
+					// Just ignore it
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Encode the slots of an abstract descriptor by order, i.e. without writing the
+		 * slot names. Also take into account that, in order to ensure a correct
+		 * parsing, empty slots can only occur at the end. Append this encoded string to
+		 * buffer.
+		 */
+		private void encodeSlotsByOrder(AbsObject val, String[] slotNames) throws CodecException {
+			boolean lastSlotEmpty = false;
+			for (int i = 0; i < slotNames.length; i++) {
+				AbsTerm t = (AbsTerm) val.getAbsObject(slotNames[i]);
+				if (t != null) {
+					if (lastSlotEmpty) {
+						throw new CodecException(
+								"Non-empty slot " + slotNames[i] + " follows empty slot " + slotNames[i - 1]);
+					}
+					buffer.append(' ');
+					encodeAndAppend(t);
+				} else {
+					lastSlotEmpty = true;
 				}
-				buffer.append(' ');
-				encodeAndAppend(t);
 			}
 		}
-	}
+
+		/**
+		 * Encode the slots of an abstract descriptor by name, i.e. writing for each
+		 * non-empty slot the slot name followed by the slot value. Append this encoded
+		 * string to buffer.
+		 */
+		private void encodeSlotsByName(AbsObject val, String[] slotNames) throws CodecException {
+			for (int i = 0; i < slotNames.length; i++) {
+				AbsTerm t = (AbsTerm) val.getAbsObject(slotNames[i]);
+				if (t != null) {
+					// if this isn't un unnamed slot, then encode it otherwise just encode its value
+					if (!slotNames[i].startsWith(UNNAMEDPREFIX)) {
+						buffer.append(" :");
+						encodeAndAppend(slotNames[i]);
+					}
+					buffer.append(' ');
+					encodeAndAppend(t);
+				}
+			}
+		}
+	} // END of inner class Encoder
 
 	/**
 	 * Restore parser after deserialization. <br>
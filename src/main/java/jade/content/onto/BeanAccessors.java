@@ -0,0 +1,138 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.content.onto;
+
+//#APIDOC_EXCLUDE_FILE
+//#MIDP_EXCLUDE_FILE
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import jade.util.Logger;
+
+/**
+ * Factory of fast accessors for bean getter and setter methods. Accessors are
+ * generated by means of the <code>LambdaMetafactory</code> so that, once
+ * created, invoking them costs as much as a plain method call (no
+ * <code>Method.invoke()</code>, no argument array, no access checks).
+ * Accessors are created once per method and cached per declaring class.
+ * <br>
+ * If an accessor cannot be generated (e.g. because the declaring class lives
+ * in a module that is not open to JADE) a reflection based one is returned.
+ */
+class BeanAccessors {
+
+	private static final Logger myLogger = Logger.getJADELogger(BeanAccessors.class.getName());
+
+	// Accessors cached per declaring class. ClassValue does not prevent
+	// the classes (and their class loaders) from being garbage collected
+	private static final ClassValue<Map<Method, Object>> cache = new ClassValue<Map<Method, Object>>() {
+		@Override
+		protected Map<Method, Object> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private BeanAccessors() {
+	}
+
+	/**
+	 * @return A function invoking the given getter method on its argument
+	 */
+	@SuppressWarnings("unchecked")
+	static Function<Object, Object> getter(Method m) {
+		return (Function<Object, Object>) cache.get(m.getDeclaringClass()).computeIfAbsent(m, BeanAccessors::createGetter);
+	}
+
+	/**
+	 * @return A function invoking the given setter method on its first argument
+	 *         passing the second one as parameter
+	 */
+	@SuppressWarnings("unchecked")
+	static BiConsumer<Object, Object> setter(Method m) {
+		return (BiConsumer<Object, Object>) cache.get(m.getDeclaringClass()).computeIfAbsent(m, BeanAccessors::createSetter);
+	}
+
+	private static Object createGetter(Method m) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(m.getDeclaringClass(), MethodHandles.lookup());
+			MethodHandle mh = lookup.unreflect(m);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+					MethodType.methodType(Object.class, Object.class), mh,
+					MethodType.methodType(wrap(m.getReturnType()), m.getDeclaringClass()));
+			return site.getTarget().invoke();
+		} catch (Throwable t) {
+			myLogger.log(Logger.FINE, "Cannot generate accessor for getter " + m + ". Using reflection [" + t + "]");
+			return (Function<Object, Object>) bean -> {
+				try {
+					return m.invoke(bean);
+				} catch (InvocationTargetException ite) {
+					throw BeanAccessors.<RuntimeException>sneakyThrow(ite.getCause());
+				} catch (IllegalAccessException iae) {
+					throw new IllegalStateException(iae);
+				}
+			};
+		}
+	}
+
+	private static Object createSetter(Method m) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(m.getDeclaringClass(), MethodHandles.lookup());
+			MethodHandle mh = lookup.unreflect(m);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+					MethodType.methodType(void.class, Object.class, Object.class), mh,
+					MethodType.methodType(void.class, m.getDeclaringClass(), wrap(m.getParameterTypes()[0])));
+			return site.getTarget().invoke();
+		} catch (Throwable t) {
+			myLogger.log(Logger.FINE, "Cannot generate accessor for setter " + m + ". Using reflection [" + t + "]");
+			return (BiConsumer<Object, Object>) (bean, value) -> {
+				try {
+					m.invoke(bean, value);
+				} catch (InvocationTargetException ite) {
+					throw BeanAccessors.<RuntimeException>sneakyThrow(ite.getCause());
+				} catch (IllegalAccessException iae) {
+					throw new IllegalStateException(iae);
+				}
+			};
+		}
+	}
+
+	private static Class<?> wrap(Class<?> c) {
+		return MethodType.methodType(c).wrap().returnType();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Throwable> T sneakyThrow(Throwable t) throws T {
+		throw (T) t;
+	}
+}
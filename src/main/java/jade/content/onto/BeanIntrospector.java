@@ -37,12 +37,13 @@ import jade.content.schema.ObjectSchema;
 
 import java.io.Serial;
 import java.lang.reflect.Array;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 class BeanIntrospector implements Introspector {
@@ -62,23 +63,30 @@ class BeanIntrospector implements Introspector {
 		this.accessors.putAll(accessors);
 	}
 
-	private Object invokeGetterMethod(Method method, Object obj) throws OntologyException {
+	SlotAccessData getAccessData(String schemaName, String slotName) {
+		return accessors.get(new SlotKey(schemaName, slotName));
+	}
+
+	static Object invokeGetterMethod(SlotAccessData slotAccessData, Object obj) throws OntologyException {
+		if (!slotAccessData.declaringClass.isInstance(obj)) {
+			// The getter cannot be invoked on an object of this class
+			return new Object();
+		}
 		Object result = null;
 		try {
-			result = method.invoke(obj, (Object[]) null);
+			result = slotAccessData.getterAccessor.apply(obj);
 			if (result != null && java.util.Calendar.class.isAssignableFrom(result.getClass())) {
 				// ontologically, Calendar is translated into a Date => convert the Calendar into a Date
 				result = ((java.util.Calendar)result).getTime();
 			}
-		} catch (IllegalArgumentException iae) {
-			result = new Object();
 		} catch (Exception e) {
-			throw new OntologyException("Error invoking getter method "+method.getName()+" on object "+obj, e);
+			throw new OntologyException("Error invoking getter method "+slotAccessData.getter.getName()+" on object "+obj, e);
 		}
 		return result;
 	} 
 
-	private void invokeSetterMethod(Method method, Object obj, Object value, Class clazz) throws OntologyException {
+	static void invokeSetterMethod(SlotAccessData slotAccessData, Object obj, Object value) throws OntologyException {
+		Class clazz = slotAccessData.type;
 		try {
 			if (java.util.Calendar.class.isAssignableFrom(clazz)) {
 				// ontologically, Calendar is translated into a Date => convert the date back into a Calendar
@@ -89,10 +97,9 @@ class BeanIntrospector implements Introspector {
 			else {
 				value = BasicOntology.adjustPrimitiveValue(value, clazz);
 			}
-			Object[] params = new Object[] {value};
-			method.invoke(obj, params);
+			slotAccessData.setterAccessor.accept(obj, value);
 		} catch (Exception e) {
-			throw new OntologyException("Error invoking setter method "+method.getName()+" on object "+obj+" with parameter "+value, e);
+			throw new OntologyException("Error invoking setter method "+slotAccessData.setter.getName()+" on object "+obj+" with parameter "+value, e);
 		}
 	}
 
@@ -106,7 +113,7 @@ class BeanIntrospector implements Introspector {
 			throw new OntologyException("cannot retrieve a getter for slot "+slotName+", class "+obj.getClass());
 		}
 
-		return invokeGetterMethod(slotAccessData.getter, obj);
+		return invokeGetterMethod(slotAccessData, obj);
 	}
 
 	public void setSlotValue(String slotName, Object slotValue, Object obj, ObjectSchema schema) throws OntologyException {
@@ -115,7 +122,7 @@ class BeanIntrospector implements Introspector {
 			throw new OntologyException("cannot retrieve a setter for slot "+slotName+", class "+obj.getClass());
 		}
 
-		invokeSetterMethod(slotAccessData.setter, obj, slotValue, slotAccessData.type);
+		invokeSetterMethod(slotAccessData, obj, slotValue);
 	}
 	
 	public AbsAggregate externalizeAggregate(String slotName, Object slotValue, ObjectSchema schema, Ontology referenceOnto) throws OntologyException {
@@ -198,6 +205,20 @@ class BeanIntrospector implements Introspector {
 			throw new OntologyException("cannot retrieve a setter for slot "+slotName+", class "+containerClazz);
 		}
 
+		List<Object> elements = new ArrayList<>(absAggregate.size());
+		Iterator iterator = absAggregate.iterator();
+		while (iterator.hasNext()) {
+			elements.add(Ontology.internalizeSlotValue((AbsTerm)iterator.next(), this, referenceOnto));
+		}
+		return createAggregate(slotAccessData, absAggregate.getTypeName(), elements);
+	}
+
+	/**
+	 * Create the Java aggregate (array or collection) to be assigned to a slot
+	 * given the type of the abstract aggregate and its (already internalized)
+	 * elements.
+	 */
+	static Object createAggregate(SlotAccessData slotAccessData, String aggregateType, List<Object> elements) throws OntologyException {
 		Class<?> elementClazz = slotAccessData.aggregateClass;
 		Class<?> aggregateClass = slotAccessData.type;
 
@@ -208,7 +229,7 @@ class BeanIntrospector implements Introspector {
 			aggregateClass == java.util.Collection.class) {
 			// Aggregate not typized -> use default class
 			
-			if (BasicOntology.SEQUENCE.equals(absAggregate.getTypeName())) {
+			if (BasicOntology.SEQUENCE.equals(aggregateType)) {
 				aggregateClass = java.util.ArrayList.class;
 			} else {
 				aggregateClass = java.util.HashSet.class;
@@ -216,14 +237,11 @@ class BeanIntrospector implements Introspector {
 		}
 		
 		Object result;
-		Iterator iterator = absAggregate.iterator();
 		try {
 			if (aggregateClass.isArray()) {
-				int index = 0;
-				result = Array.newInstance(elementClazz, absAggregate.size());
-				while (iterator.hasNext()) {
-					Array.set(result, index, Ontology.internalizeSlotValue((AbsTerm)iterator.next(), this, referenceOnto));
-					index++;
+				result = Array.newInstance(elementClazz, elements.size());
+				for (int index = 0; index < elements.size(); index++) {
+					Array.set(result, index, elements.get(index));
 				}
 			} else if (java.util.Collection.class.isAssignableFrom(aggregateClass)) {
 				Collection javaCollection = AggregateHelper.createConcreteJavaCollection(aggregateClass);
@@ -231,15 +249,7 @@ class BeanIntrospector implements Introspector {
 					throw new OntologyException("cannot create a concrete collection for class "+aggregateClass.getName());
 				}
 				result = javaCollection;
-				while (iterator.hasNext()) {
-					javaCollection.add(Ontology.internalizeSlotValue((AbsTerm)iterator.next(), this, referenceOnto));
-				}
-			} else if (Collection.class.isAssignableFrom(aggregateClass)) {
-				Collection jadeCollection = AggregateHelper.createConcreteJadeCollection(aggregateClass);
-				result = jadeCollection;
-				while (iterator.hasNext()) {
-					jadeCollection.add(Ontology.internalizeSlotValue((AbsTerm)iterator.next(), this, referenceOnto));
-				}
+				javaCollection.addAll(elements);
 			} else {
 				throw new OntologyException("don't know how to handle aggregate slot of class "+aggregateClass.getName());
 			}
@@ -26,9 +26,18 @@ package jade.content.onto;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serial;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jade.content.onto.exception.BeanOntologyException;
+import jade.content.onto.exception.OntologyException;
+import jade.content.schema.ConceptSchema;
+import jade.content.schema.ObjectSchema;
+import jade.content.schema.PredicateSchema;
+import jade.core.CaseInsensitiveString;
 
 
 /**
@@ -112,6 +121,11 @@ public class BeanOntology extends Ontology {
 	
 	private transient BeanOntologyBuilder bob;
 
+	// Compiled schemas indexed by bean class and by lower case type name.
+	// Classes that cannot be compiled are mapped to NOT_COMPILABLE
+	private static final Object NOT_COMPILABLE = new Object();
+	private transient Map<Object, Object> compiledSchemas = new ConcurrentHashMap<>();
+
 	/**
 	 * Create an Ontology with the given <code>name</code>.
 	 * The <code>BasicOntology</code> is automatically added
@@ -186,6 +200,7 @@ public class BeanOntology extends Ontology {
 	 */
 	public void add(Class clazz, boolean buildHierarchy) throws BeanOntologyException {
 		bob.addSchema(clazz, buildHierarchy);
+		compiledSchemas.clear();
 	}
 
 	/**
@@ -201,10 +216,106 @@ public class BeanOntology extends Ontology {
 	 */
 	public void add(String pkgname, boolean buildHierarchy) throws BeanOntologyException {
 		bob.addSchemas(pkgname, buildHierarchy);
+		compiledSchemas.clear();
 	}
 	
+	@Override
+	public void add(ObjectSchema schema, Class<?> javaClass) throws OntologyException {
+		super.add(schema, javaClass);
+		compiledSchemas.clear();
+	}
+
+	//#APIDOC_EXCLUDE_BEGIN
+	/**
+	 * Retrieve the compiled form of the schema associated to a bean class. Only
+	 * classes whose schema (and super-schemas) are defined in this ontology can be
+	 * compiled. The compiled schema is created the first time it is requested and
+	 * recreated if slots are added to the schema afterwards.
+	 * 
+	 * @param clazz the bean class
+	 * @return the compiled schema or <code>null</code> if the class cannot be
+	 *         compiled.
+	 */
+	public CompiledBeanSchema getCompiledSchema(Class<?> clazz) {
+		Object cbs = compiledSchemas.get(clazz);
+		if (cbs == null || (cbs != NOT_COMPILABLE && ((CompiledBeanSchema) cbs).isStale())) {
+			cbs = compile(clazz);
+			compiledSchemas.put(clazz, cbs);
+		}
+		return cbs != NOT_COMPILABLE ? (CompiledBeanSchema) cbs : null;
+	}
+
+	/**
+	 * Retrieve the compiled form of the schema of a given type.
+	 * 
+	 * @param typeName the name of the schema
+	 * @return the compiled schema or <code>null</code> if the type is not defined
+	 *         in this ontology or its class cannot be compiled.
+	 * @see #getCompiledSchema(Class)
+	 */
+	public CompiledBeanSchema getCompiledSchema(String typeName) {
+		String lcName = typeName.toLowerCase();
+		Object cbs = compiledSchemas.get(lcName);
+		if (cbs == null || (cbs != NOT_COMPILABLE && ((CompiledBeanSchema) cbs).isStale())) {
+			Class<?> clazz = getLocalClass(lcName);
+			cbs = clazz != null && getLocalSchema(clazz) == getLocalSchema(lcName) ? getCompiledSchema(clazz) : null;
+			compiledSchemas.put(lcName, cbs != null ? cbs : NOT_COMPILABLE);
+		}
+		return cbs != NOT_COMPILABLE ? (CompiledBeanSchema) cbs : null;
+	}
+	//#APIDOC_EXCLUDE_END
+
+	private Object compile(Class<?> clazz) {
+		ObjectSchema schema = getLocalSchema(clazz);
+		if (!(schema instanceof ConceptSchema || schema instanceof PredicateSchema)) {
+			return NOT_COMPILABLE;
+		}
+		List<CompiledBeanSchema.Slot> slots = new ArrayList<>();
+		if (!clazz.isEnum()) {
+			try {
+				if (!addSlots(schema, slots)) {
+					return NOT_COMPILABLE;
+				}
+			} catch (OntologyException oe) {
+				return NOT_COMPILABLE;
+			}
+		}
+		return new CompiledBeanSchema(schema.getTypeName(), clazz, schema, slots.toArray(new CompiledBeanSchema.Slot[slots.size()]));
+	}
+
+	/**
+	 * Add the slots of <code>schema</code> in the same order used by
+	 * <code>externalize()</code>
+	 */
+	private boolean addSlots(ObjectSchema schema, List<CompiledBeanSchema.Slot> slots) throws OntologyException {
+		ObjectSchema[] superSchemas = schema.getSuperSchemas();
+		for (int i = 0; i < superSchemas.length; ++i) {
+			// Slots of super-schemas defined elsewhere are managed by other introspectors
+			if (getDefiningOntology(superSchemas[i].getTypeName().toLowerCase()) != this || !addSlots(superSchemas[i], slots)) {
+				return false;
+			}
+		}
+		BeanIntrospector introspector = (BeanIntrospector) getIntrospector();
+		String[] names = schema.getOwnNames();
+		for (int i = 0; i < names.length; ++i) {
+			SlotAccessData accessData = introspector.getAccessData(schema.getTypeName(), names[i]);
+			if (accessData == null) {
+				return false;
+			}
+			for (CompiledBeanSchema.Slot s : slots) {
+				if (CaseInsensitiveString.equalsIgnoreCase(s.getName(), names[i])) {
+					// Slot redefined in a sub-schema
+					return false;
+				}
+			}
+			slots.add(new CompiledBeanSchema.Slot(names[i], accessData, schema.isMandatory(names[i])));
+		}
+		return true;
+	}
+
 	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
 		in.defaultReadObject();
+		compiledSchemas = new ConcurrentHashMap<>();
 
 		// Create a new instance of BOB
 		bob = new BeanOntologyBuilder(this);
@@ -0,0 +1,179 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.content.onto;
+
+//#APIDOC_EXCLUDE_FILE
+
+import java.util.List;
+
+import jade.content.abs.SlotLayout;
+import jade.content.onto.exception.OntologyException;
+import jade.content.schema.ConceptSchema;
+import jade.content.schema.ObjectSchema;
+import jade.core.CaseInsensitiveString;
+
+/**
+ * The slots of a bean class of a <code>BeanOntology</code> listed in the same
+ * order the ontology externalizes them (slots of super-schemas first), together
+ * with the accessors to read and write them. It allows codecs to convert beans
+ * directly to/from their encoded form without building the intermediate
+ * abstract descriptor tree, while producing the same result.
+ * 
+ * @see BeanOntology#getCompiledSchema(Class)
+ */
+public final class CompiledBeanSchema {
+
+	/** The name of the only slot of enum schemas **/
+	public static final String ENUM_SLOT_NAME = BeanOntologyBuilder.ENUM_SLOT_NAME;
+
+	private final String typeName;
+	private final Class<?> beanClass;
+	private final ObjectSchema schema;
+	// Used to detect slots added to the schema after compilation
+	private final SlotLayout layout;
+	private final Slot[] slots;
+
+	CompiledBeanSchema(String typeName, Class<?> beanClass, ObjectSchema schema, Slot[] slots) {
+		this.typeName = typeName;
+		this.beanClass = beanClass;
+		this.schema = schema;
+		this.slots = slots;
+		layout = schema.getSlotLayout();
+	}
+
+	public String getTypeName() {
+		return typeName;
+	}
+
+	/**
+	 * @return <code>true</code> if instances of this schema are terms (i.e. they
+	 *         can be used as slot values)
+	 */
+	public boolean isConcept() {
+		return schema instanceof ConceptSchema;
+	}
+
+	/**
+	 * @return <code>true</code> if the bean class is an enum: its only slot is
+	 *         then the enum constant name.
+	 */
+	public boolean isEnum() {
+		return beanClass.isEnum();
+	}
+
+	public Slot[] getSlots() {
+		return slots;
+	}
+
+	/**
+	 * Retrieve a slot by name. The lookup is case insensitive.
+	 * 
+	 * @return the slot or <code>null</code> if the schema has no such slot.
+	 */
+	public Slot getSlot(String name) {
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i].name.equals(name) || CaseInsensitiveString.equalsIgnoreCase(slots[i].name, name)) {
+				return slots[i];
+			}
+		}
+		return null;
+	}
+
+	public Object newInstance() throws OntologyException {
+		try {
+			return beanClass.getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			throw new OntologyException("Class " + beanClass + " can't be instantiated", e);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Object getEnumConstant(String name) {
+		return Enum.valueOf((Class) beanClass, name);
+	}
+
+	boolean isStale() {
+		return schema.getSlotLayout() != layout;
+	}
+
+	/**
+	 * A slot of a compiled bean schema
+	 */
+	public static final class Slot {
+		private final String name;
+		private final SlotAccessData accessData;
+		private final boolean mandatory;
+
+		Slot(String name, SlotAccessData accessData, boolean mandatory) {
+			this.name = name;
+			this.accessData = accessData;
+			this.mandatory = mandatory;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isMandatory() {
+			return mandatory;
+		}
+
+		/**
+		 * @return <code>true</code> if the declared type of the slot is neither
+		 *         <code>Object</code> nor <code>Term</code>
+		 */
+		public boolean isTypized() {
+			return accessData.isTypized();
+		}
+
+		/**
+		 * Read the slot value from a bean. <code>Calendar</code> values are
+		 * returned as <code>Date</code>.
+		 */
+		public Object getValue(Object bean) throws OntologyException {
+			if (!accessData.declaringClass.isInstance(bean)) {
+				throw new OntologyException("Getter of slot " + name + " cannot be invoked on object " + bean);
+			}
+			return BeanIntrospector.invokeGetterMethod(accessData, bean);
+		}
+
+		/**
+		 * Write a (non aggregate) value into a bean slot, adjusting primitive types
+		 * as the ontology does.
+		 */
+		public void setValue(Object bean, Object value) throws OntologyException {
+			BeanIntrospector.invokeSetterMethod(accessData, bean, value);
+		}
+
+		/**
+		 * Write an aggregate value into a bean slot.
+		 * 
+		 * @param aggregateType the type of the aggregate (sequence or set)
+		 * @param elements      the elements of the aggregate
+		 */
+		public void setAggregate(Object bean, String aggregateType, List<Object> elements) throws OntologyException {
+			BeanIntrospector.invokeSetterMethod(accessData, bean, BeanIntrospector.createAggregate(accessData, aggregateType, elements));
+		}
+	} // END of inner class Slot
+}
@@ -254,6 +254,31 @@ public class Ontology implements Serializable {
 		return introspector;
 	}
 
+	/**
+	 * @return the schema associated to class <code>clazz</code> in this ontology
+	 *         (base ontologies are not searched) or <code>null</code>.
+	 */
+	ObjectSchema getLocalSchema(Class<?> clazz) {
+		return schemas.get(clazz);
+	}
+
+	/**
+	 * @return the schema of element <code>lcName</code> (lower case) in this
+	 *         ontology (base ontologies are not searched) or <code>null</code>.
+	 */
+	ObjectSchema getLocalSchema(String lcName) {
+		return elements.get(lcName);
+	}
+
+	/**
+	 * @return the class associated to element <code>lcName</code> (lower case)
+	 *         in this ontology (base ontologies are not searched) or
+	 *         <code>null</code>.
+	 */
+	Class<?> getLocalClass(String lcName) {
+		return (Class<?>) classes.get(lcName);
+	}
+
 	/**
 	 * Adds a schema to this ontology
 	 * 
@@ -279,6 +304,8 @@ public class Ontology implements Serializable {
 
 		String s = schema.getTypeName().toLowerCase();
 		elements.put(s, schema);
+		// Compile the slot layout upfront (it is rebuilt if slots are added later)
+		schema.getSlotLayout();
 
 		if (javaClass != null) {
 			classes.put(s, javaClass);
@@ -469,7 +496,7 @@ public class Ontology implements Serializable {
 	 *         <code>lcName</code> or null if such schema is not defined neither in
 	 *         this ontology nor in one of its super-ontologies
 	 */
-	private Ontology getDefiningOntology(String lcName) {
+	Ontology getDefiningOntology(String lcName) {
 		Ontology definingOntology = null;
 		if (elements.containsKey(lcName)) {
 			definingOntology = this;
@@ -29,6 +29,8 @@ import jade.content.onto.exception.OntologyException;
 import jade.content.schema.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.Serial;
 import java.lang.reflect.*;
 import jade.core.CaseInsensitiveString;
@@ -46,6 +48,15 @@ public class ReflectiveIntrospector implements Introspector {
 	@Serial
 	private static final long serialVersionUID = 3070768391947620878L;
 
+	// Methods retrieved by findMethodCaseInsensitive() cached per class to avoid
+	// scanning all class methods at each slot access
+	private static final ClassValue<Map<String, Method>> methodsCache = new ClassValue<Map<String, Method>>() {
+		@Override
+		protected Map<String, Method> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
 	public Object getSlotValue(String slotName, Object obj, ObjectSchema schema) throws OntologyException {
 		String methodName = "get" + translateName(slotName);
 		Method getMethod = findMethodCaseInsensitive(methodName, obj.getClass());
@@ -111,14 +122,21 @@ public class ReflectiveIntrospector implements Introspector {
 
 	// #APIDOC_EXCLUDE_BEGIN
 	protected Method findMethodCaseInsensitive(String name, Class<?> c) throws OntologyException {
-		Method[] methods = c.getMethods();
-		for (int i = 0; i < methods.length; i++) {
-			String ithName = methods[i].getName();
-			if (CaseInsensitiveString.equalsIgnoreCase(ithName, name)) {
-				return methods[i];
+		Map<String, Method> cachedMethods = methodsCache.get(c);
+		Method m = cachedMethods.get(name);
+		if (m == null) {
+			Method[] methods = c.getMethods();
+			for (int i = 0; i < methods.length; i++) {
+				String ithName = methods[i].getName();
+				if (CaseInsensitiveString.equalsIgnoreCase(ithName, name)) {
+					m = methods[i];
+					cachedMethods.put(name, m);
+					return m;
+				}
 			}
+			throw new OntologyException("Method " + name + " not found in class " + c.getName());
 		}
-		throw new OntologyException("Method " + name + " not found in class " + c.getName());
+		return m;
 	}
 
 	protected String translateName(String name) {
@@ -35,6 +35,8 @@ import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 class SlotAccessData implements Serializable {
 
@@ -43,6 +45,9 @@ class SlotAccessData implements Serializable {
 	Class<?> type;
 	transient Method getter;
 	transient Method setter;
+	// Fast accessors generated once when the ontology is built
+	transient Function<Object, Object> getterAccessor;
+	transient BiConsumer<Object, Object> setterAccessor;
 	boolean aggregate;
 	boolean mandatory;
 	boolean manageAsSerializable;
@@ -79,6 +84,12 @@ class SlotAccessData implements Serializable {
 		declaringClass = getter.getDeclaringClass();
 		getterName = getter.getName();
 		setterName = setter.getName();
+		initAccessors();
+	}
+
+	private void initAccessors() {
+		getterAccessor = BeanAccessors.getter(getter);
+		setterAccessor = BeanAccessors.setter(setter);
 	}
 
 	boolean isTypized() {
@@ -138,6 +149,7 @@ class SlotAccessData implements Serializable {
 		try {
 			getter = declaringClass.getMethod(getterName, (Class[]) null);
 			setter = declaringClass.getMethod(setterName, type);
+			initAccessors();
 		} catch (Exception e) {
 			// Should never happen
 			e.printStackTrace();
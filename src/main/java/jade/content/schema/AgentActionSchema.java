@@ -95,7 +95,7 @@ public class AgentActionSchema extends ConceptSchema {
      * the proper type.
      */
     public AbsObject newInstance() throws OntologyException {
-        return new AbsAgentAction(getTypeName());
+        return new AbsAgentAction(getTypeName(), getSlotLayout());
     } 
 
 		/**
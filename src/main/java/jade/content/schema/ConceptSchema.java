@@ -170,7 +170,7 @@ public class ConceptSchema extends TermSchema {
 	 * the proper type.
 	 */
 	public AbsObject newInstance() throws OntologyException {
-		return new AbsConcept(getTypeName());
+		return new AbsConcept(getTypeName(), getSlotLayout());
 	} 
 
 	/**
@@ -221,6 +221,20 @@ public abstract class ObjectSchema implements Serializable {
 	 * this <code>Schema</code>.
 	 */
 	public abstract AbsObject newInstance() throws OntologyException;
+
+	//#APIDOC_EXCLUDE_BEGIN
+	/**
+	 * Retrieve the layout of the slots of the abstract descriptors created by
+	 * this <code>Schema</code>, i.e. the position of each slot (including
+	 * those defined in super schemas) in their value array.
+	 * 
+	 * @return the slot layout or <code>null</code> if this schema does not
+	 *         define one.
+	 */
+	public SlotLayout getSlotLayout() {
+		return null;
+	}
+	//#APIDOC_EXCLUDE_END
 	
 	/**
 	 Check whether a given abstract descriptor complies with this 
@@ -75,6 +75,10 @@ class ObjectSchemaImpl extends ObjectSchema {
 	
 	private Hashtable       facets;
 
+	// The slot layout is built the first time it is requested and rebuilt if slots
+	// are added afterwards (to this schema or to one of its super-schemas).
+	private transient volatile SlotLayout slotLayout;
+
 	static {
 		baseSchema = new ObjectSchemaImpl();
 	}
@@ -370,6 +374,29 @@ class ObjectSchemaImpl extends ObjectSchema {
 		throw new OntologyException("AbsObject cannot be instantiated");
 	}
 
+	/**
+	 * Retrieve the layout of the slots of the abstract descriptors created by
+	 * this <code>Schema</code>. 
+	 */
+	public SlotLayout getSlotLayout() {
+		SlotLayout layout = slotLayout;
+		if (layout == null || layout.size() != getSlotCount()) {
+			layout = new SlotLayout(getNames());
+			slotLayout = layout;
+		}
+		return layout;
+	}
+
+	private final int getSlotCount() {
+		int cnt = slotNames != null ? slotNames.size() : 0;
+		if (superSchemas != null) {
+			for (int i = 0; i < superSchemas.size(); ++i) {
+				cnt += ((ObjectSchemaImpl) superSchemas.elementAt(i)).getSlotCount();
+			}
+		}
+		return cnt;
+	}
+
 	private final void fillAllSlotNames(Vector v) {
 		// Get slot names of super schemas (if any) first
 		if (superSchemas != null) {
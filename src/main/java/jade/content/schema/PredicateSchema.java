@@ -171,7 +171,7 @@ public class PredicateSchema extends ContentElementSchema {
      * the proper type.
      */
     public AbsObject newInstance() throws OntologyException {
-        return new AbsPredicate(getTypeName());
+        return new AbsPredicate(getTypeName(), getSlotLayout());
     } 
 
 		/**
@@ -35,10 +35,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jade.core.behaviours.Behaviour;
 import jade.core.exception.ServiceException;
 import jade.core.mobility.AgentMobilityHelper;
+import jade.core.messaging.MessageTrace;
 import jade.core.mobility.Movable;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
@@ -89,14 +93,31 @@ public class Agent implements Runnable, Serializable
 		}
 	} // END of inner class Interrupted
 
+	/**
+	 * Inner class Parked. In pooled execution mode this is used to unwind the
+	 * execution of the agent when it has nothing to do, so that its worker can
+	 * be released instead of waiting on the scheduler.
+	 */
+	private static final class Parked extends Error {
+		@Serial
+		private static final long serialVersionUID = 4305727813592634567L;
+		private static final Parked INSTANCE = new Parked();
+
+		private Parked() {
+			super(null, null, false, false);
+		}
+	} // END of inner class Parked
+
 	/**
 	 * Inner class AssociationTB. This class manages bidirectional associations
 	 * between Timer and Behaviour objects, using hash tables. This class is
-	 * synchronized with the operations carried out by the TimerDispatcher. It
-	 * allows also to avoid a deadlock when: 1) A behaviour blocks for a very short
-	 * time --> A Timer is added to the TimerDispatcher 2) The Timer immediately
-	 * expires and the TimerDispatcher try to restart the behaviour before the pair
-	 * (b, t) is added to the pendingTimers of this agent.
+	 * synchronized with the operations carried out by the TimerDispatcher on the
+	 * timers of this agent (the lock is per agent so that agents do not contend
+	 * on the JVM-wide TimerDispatcher). It allows also to avoid a deadlock when:
+	 * 1) A behaviour blocks for a very short time --> A Timer is added to the
+	 * TimerDispatcher 2) The Timer immediately expires and the TimerDispatcher
+	 * try to restart the behaviour before the pair (b, t) is added to the
+	 * pendingTimers of this agent.
 	 */
 	private class AssociationTB {
 
@@ -104,7 +125,7 @@ public class Agent implements Runnable, Serializable
 		private Map<Timer, TBPair> tToB = new Hashtable<>();
 
 		public void clear() {
-			synchronized (theDispatcher) {
+			synchronized (this) {
 				Set<Timer> e = timers();
 				for (Timer timer : e) {
 					theDispatcher.remove(timer);
@@ -124,7 +145,7 @@ public class Agent implements Runnable, Serializable
 		}
 
 		public void addPair(TBPair pair) {
-			synchronized (theDispatcher) {
+			synchronized (this) {
 				if (pair.getOwner() == null) {
 					pair.setOwner(Agent.this);
 				}
@@ -146,7 +167,7 @@ public class Agent implements Runnable, Serializable
 		}
 
 		public void removeMapping(Behaviour b) {
-			synchronized (theDispatcher) {
+			synchronized (this) {
 				TBPair pair = bToT.remove(b);
 				if (pair != null) {
 					tToB.remove(pair.getTimer());
@@ -308,7 +329,7 @@ public class Agent implements Runnable, Serializable
 		// removed instead of the old one.
 		// In any case b.restart() must be called outside the synchronized
 		// block to avoid a deadlock between the TimerDispatcher and the Scheduler.
-		synchronized (theDispatcher) {
+		synchronized (pendingTimers) {
 			b = pendingTimers.getPeer(t);
 			if (b != null) {
 				pendingTimers.removeMapping(b);
@@ -430,6 +451,15 @@ public class Agent implements Runnable, Serializable
 
 	public static final String MSG_QUEUE_CLASS = "jade_core_Agent_msgQueueClass";
 
+	/**
+	 * If set to <code>true</code> (default <code>false</code>) an incoming message
+	 * only restarts the behaviours that may be interested in it, i.e. all
+	 * behaviours but those blocked by means of
+	 * <code>Behaviour.block(MessageTemplate)</code> on a template the message does
+	 * not match.
+	 */
+	public static final String TARGETED_WAKEUP = "jade_core_Agent_targetedWakeup";
+
 	private transient AgentToolkit myToolkit;
 
 	private transient MessageQueue msgQueue;
@@ -453,6 +483,21 @@ public class Agent implements Runnable, Serializable
 	private transient Thread myThread;
 	private transient TimerDispatcher theDispatcher;
 
+	// Pooled execution mode (see FullResourceManager.AGENT_EXECUTION_MODE)
+	private static final int PARKED = 0;
+	private static final int RUNNING = 1;
+	private static final int SIGNALLED = 2;
+	private static final int SLICE_YIELD = 0;
+	private static final int SLICE_PARK = 1;
+	private static final int SLICE_END = 2;
+	private transient AgentPool myPool;
+	private transient AtomicInteger runState;
+	private transient Object runLock;
+	private transient CountDownLatch terminationLatch;
+	private transient boolean initialized;
+	private transient boolean parkedIdle;
+	private transient Runnable sliceTask;
+
 	private Scheduler myScheduler;
 
 	private transient AssociationTB pendingTimers;
@@ -482,6 +527,7 @@ public class Agent implements Runnable, Serializable
 
 	private boolean generateBehaviourEvents;
 	private boolean generateMessageEvents = true;
+	private volatile boolean targetedWakeup;
 
 	/**
 	 * Default constructor.
@@ -525,6 +571,7 @@ public class Agent implements Runnable, Serializable
 	 * copy messages if any
 	 */
 	void initMessageQueue() {
+		targetedWakeup = "true".equalsIgnoreCase(getProperty(TARGETED_WAKEUP, "false"));
 		if (temporaryMessageQueue) {
 			temporaryMessageQueue = false;
 			MessageQueue queue = createMessageQueue();
@@ -753,6 +800,9 @@ public class Agent implements Runnable, Serializable
 	 * @return true if the agent implemented by this Agent object is alive
 	 */
 	public boolean isAlive() {
+		if (myPool != null) {
+			return terminationLatch.getCount() > 0;
+		}
 		if (myThread != null) {
 			return myThread.isAlive();
 		} else {
@@ -814,6 +864,9 @@ public class Agent implements Runnable, Serializable
 	public boolean join() {
 		
 		try {
+			if (myPool != null) {
+				return joinPooled();
+			}
 			if (myThread == null) {
 				return true;
 			}
@@ -844,6 +897,16 @@ public class Agent implements Runnable, Serializable
 		}
 		return false;
 	}
+
+	private boolean joinPooled() throws InterruptedException {
+		if (terminationLatch.await(5000, TimeUnit.MILLISECONDS)) {
+			return true;
+		}
+		log.log(Logger.WARNING, "*** Agent " + myName + " did not terminate when requested to do so.");
+		interruptThread();
+		log.log(Logger.WARNING, "*** Second interrupt issued.");
+		return false;
+	}
 	// #APIDOC_EXCLUDE_END
 
 	/**
@@ -1149,6 +1212,12 @@ public class Agent implements Runnable, Serializable
 	 * @see jade.core.Agent#doWait()
 	 */
 	public void doWake() {
+		doWake(null);
+	}
+
+	// Wakes the agent up as a consequence of the arrival of the given messages.
+	// In targeted wake-up mode only the behaviours interested in them are restarted.
+	private void doWake(ACLMessage[] msgs) {
 		synchronized (stateLock) {
 			int previous = myLifeCycle.getState();
 			if ((previous == AP_WAITING) || (previous == AP_IDLE)) {
@@ -1156,7 +1225,11 @@ public class Agent implements Runnable, Serializable
 			}
 		}
 		if (myLifeCycle.isMessageAware()) {
-			activateAllBehaviours();
+			if (msgs != null && targetedWakeup) {
+				myScheduler.restartMatching(msgs);
+			} else {
+				activateAllBehaviours();
+			}
 			synchronized (msgQueue) {
 				msgQueue.notifyAll(); // Wakes up the embedded thread
 			}
@@ -1180,6 +1253,12 @@ public class Agent implements Runnable, Serializable
 	// This is called only by the scheduler
 	void idle() throws InterruptedException {
 		setActiveState(AP_IDLE);
+		if (myPool != null) {
+			// Release the worker: the agent will be re-submitted to the pool 
+			// as soon as a behaviour becomes ready
+			parkedIdle = true;
+			throw Parked.INSTANCE;
+		}
 		// No need for synchronized block since this is only called by the
 		// scheduler in the synchronized schedule() method
 		waitOn(myScheduler, 0);
@@ -1499,32 +1578,140 @@ public class Agent implements Runnable, Serializable
 		try {
 			myLifeCycle.init();
 			while (myLifeCycle.alive()) {
-				try {
-					myLifeCycle.execute();
-					// Let other agents go on
-					Thread.yield();
-				} catch (JADESecurityException jse) {
-					// FIXME: maybe we should send a message to the agent
-					log.warning("JADESecurityException: " + jse.getMessage());
-				} catch (InterruptedException ie) {
-					// Change LC state request from the outside. Just do nothing
-					// and let the new LC state do its job
-				} catch (InterruptedIOException ie) {
-					// Change LC state request from the outside. Just do nothing
-					// and let the new LC state do its job
-				} catch (Interrupted i) {
-					// Change LC state request from the outside. Just do nothing
-					// and let the new LC state do its job
-				}
+				executeLifeCycleStep();
+				// Let other agents go on
+				Thread.yield();
 			}
 		} catch (Throwable t) {
-			System.err.println("***  Uncaught Exception for agent " + myName + "  ***");
-			t.printStackTrace();
+			handleUncaughtException(t);
 		}
 		terminating = true;
 		myLifeCycle.end();
 	}
 
+	/**
+	 * Execute one step of the current life cycle. Exceptions that do not 
+	 * terminate the agent (e.g. change LC state requests from the outside) are 
+	 * handled here. This is shared by the dedicated-thread and the pooled 
+	 * execution modes.
+	 */
+	private void executeLifeCycleStep() {
+		try {
+			if (parkedIdle) {
+				// Pooled execution mode only: the agent was parked while idle
+				parkedIdle = false;
+				setActiveState(AP_ACTIVE);
+			}
+			myLifeCycle.execute();
+		} catch (JADESecurityException jse) {
+			// FIXME: maybe we should send a message to the agent
+			log.warning("JADESecurityException: " + jse.getMessage());
+		} catch (InterruptedException ie) {
+			// Change LC state request from the outside. Just do nothing
+			// and let the new LC state do its job
+		} catch (InterruptedIOException ie) {
+			// Change LC state request from the outside. Just do nothing
+			// and let the new LC state do its job
+		} catch (Interrupted i) {
+			// Change LC state request from the outside. Just do nothing
+			// and let the new LC state do its job
+		}
+	}
+
+	private void handleUncaughtException(Throwable t) {
+		System.err.println("***  Uncaught Exception for agent " + myName + "  ***");
+		t.printStackTrace();
+	}
+
+	/**
+	 * Pooled execution mode counterpart of the <code>run()</code> method. Each
+	 * invocation executes a slice of the agent life on a worker of the pool and
+	 * terminates when the agent yields, parks or dies.
+	 */
+	private void runSlice() {
+		for (;;) {
+			synchronized (runLock) {
+				myThread = Thread.currentThread();
+			}
+			int outcome = executeSlice();
+			if (outcome != SLICE_END) {
+				releaseThread();
+				if (outcome == SLICE_YIELD) {
+					// Let other agents go on
+					myPool.execute(sliceTask);
+					return;
+				}
+				if (runState.compareAndSet(RUNNING, PARKED)) {
+					return;
+				}
+				// Woken up while parking: go on
+				runState.set(RUNNING);
+			} else {
+				terminating = true;
+				myLifeCycle.end();
+				releaseThread();
+				terminationLatch.countDown();
+				return;
+			}
+		}
+	}
+
+	private int executeSlice() {
+		try {
+			if (!initialized) {
+				initialized = true;
+				myLifeCycle.init();
+			}
+			int cnt = 0;
+			while (myLifeCycle.alive()) {
+				if (cnt++ >= myPool.getQuantum()) {
+					return SLICE_YIELD;
+				}
+				try {
+					executeLifeCycleStep();
+				} catch (Parked p) {
+					return SLICE_PARK;
+				}
+			}
+		} catch (Throwable t) {
+			handleUncaughtException(t);
+		}
+		return SLICE_END;
+	}
+
+	private void releaseThread() {
+		synchronized (runLock) {
+			myThread = null;
+			// Clear any pending interruption so that it does not affect the 
+			// next task executed by this worker
+			Thread.interrupted();
+		}
+	}
+
+	/**
+	 * In pooled execution mode, re-submit this agent to the pool if it is 
+	 * currently parked, or make sure it does not park if it is running.
+	 */
+	void unpark() {
+		if (myPool != null) {
+			for (;;) {
+				int s = runState.get();
+				if (s == PARKED) {
+					if (runState.compareAndSet(PARKED, RUNNING)) {
+						myPool.execute(sliceTask);
+						return;
+					}
+				} else if (s == RUNNING) {
+					if (runState.compareAndSet(RUNNING, SIGNALLED)) {
+						return;
+					}
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
 	// #APIDOC_EXCLUDE_END
 
 	/**
@@ -1779,7 +1966,7 @@ public class Agent implements Runnable, Serializable
 	// first time
 	// Mutual exclusion with itself and Agent.addPlatformAddress()
 	synchronized void powerUp(AID id, Thread t) {
-		if (myThread == null) {
+		if (myThread == null && myPool == null) {
 			// Set this agent's name and address and start its embedded thread
 			myName = id.getLocalName();
 			myHap = id.getHap();
@@ -1792,10 +1979,30 @@ public class Agent implements Runnable, Serializable
 		}
 	}
 
+	// This method is used by the Agent Container to fire up a new agent for the
+	// first time in pooled execution mode
+	synchronized void powerUp(AID id, AgentPool pool) {
+		if (myPool == null && myThread == null) {
+			myName = id.getLocalName();
+			myHap = id.getHap();
+
+			myAID = id;
+			myToolkit.setPlatformAddresses(myAID);
+
+			runLock = new Object();
+			runState = new AtomicInteger(RUNNING);
+			terminationLatch = new CountDownLatch(1);
+			sliceTask = this::runSlice;
+			myPool = pool;
+			myPool.execute(sliceTask);
+		}
+	}
+
 	
 	// Return agent thread
 	// Package scooped as it is called by JadeMisc add-on for container monitor
-	// purpose
+	// purpose. In pooled execution mode this is the worker currently executing 
+	// the agent, if any.
 	Thread getThread() {
 		return myThread;
 	}
@@ -1847,6 +2054,11 @@ public class Agent implements Runnable, Serializable
 
 	
 	private void waitUntilActivate() throws InterruptedException {
+		if (myPool != null) {
+			// A suspended agent does not hold any worker. It will be unparked
+			// by the state change that resumes it.
+			throw Parked.INSTANCE;
+		}
 		synchronized (suspendLock) {
 			waitOn(suspendLock, 0);
 		}
@@ -1943,6 +2155,7 @@ public class Agent implements Runnable, Serializable
 			
 			if (msg != null) {
 				receivedMessagesCnt++;
+				traceReceived(msg);
 				if (generateMessageEvents) {
 					myToolkit.handleReceived(myAID, msg);
 				}
@@ -1971,6 +2184,9 @@ public class Agent implements Runnable, Serializable
 			mm = msgQueue.receive(pattern, max);
 			if (mm != null) {
 				receivedMessagesCnt += mm.size();
+				for (ACLMessage msg : mm) {
+					traceReceived(msg);
+				}
 				if (generateMessageEvents) {
 					for (ACLMessage msg : mm) {
 						myToolkit.handleReceived(myAID, msg);
@@ -1980,6 +2196,15 @@ public class Agent implements Runnable, Serializable
 		}
 		return mm;
 	}
+
+	private static void traceReceived(ACLMessage msg) {
+		MessageTrace trace = msg.getTrace();
+		if (trace != null) {
+			trace.mark(MessageTrace.RECEIVE);
+			// The message may be re-posted or forwarded: stop tracing it
+			msg.setTrace(null);
+		}
+	}
 	
 
 	/**
@@ -2161,6 +2386,20 @@ public class Agent implements Runnable, Serializable
 		return generateBehaviourEvents;
 	}
 
+	/**
+	 * Allow enabling/disabling (default: disabled) the targeted wake-up of
+	 * behaviours on message arrival.
+	 * 
+	 * @see #TARGETED_WAKEUP
+	 */
+	public void setTargetedWakeup(boolean b) {
+		targetedWakeup = b;
+	}
+
+	public boolean getTargetedWakeup() {
+		return targetedWakeup;
+	}
+
 	// Notify toolkit that the current agent has changed its state
 	private void notifyChangedAgentState(int oldState, int newState) {
 		myToolkit.handleChangedAgentState(myAID, oldState, newState);
@@ -2183,16 +2422,29 @@ public class Agent implements Runnable, Serializable
 	 */
 	public final void postMessage(final ACLMessage msg) {
 		msg.setPostTimeStamp(System.currentTimeMillis());
-		synchronized (msgQueue) {
+		MessageTrace trace = msg.getTrace();
+		if (trace != null) {
+			trace.mark(MessageTrace.POST_MESSAGE);
+		}
+		MessageQueue queue = msgQueue;
+		boolean concurrentQueue = queue instanceof IndexedMessageQueue;
+		if (concurrentQueue) {
+			// This queue supports concurrent producers: enqueue outside the queue monitor.
+			// The message will be seen by a receiver as soon as it is notified below.
+			queue.addLast(msg);
+		}
+		synchronized (queue) {
 			// if (msg != null) {
 				
 				if (generateMessageEvents) {
 					myToolkit.handlePosted(myAID, msg);
 				}
 				
-				msgQueue.addLast(msg);
+				if (!concurrentQueue) {
+					queue.addLast(msg);
+				}
 				postedMessagesCnt++;
-				doWake();
+				doWake(targetedWakeup ? new ACLMessage[] { msg } : null);
 			// }
 		}
 	}
@@ -2203,13 +2455,17 @@ public class Agent implements Runnable, Serializable
 			for (int i = 0; i < mm.length; ++i) {
 				ACLMessage msg = mm[i];
 				msg.setPostTimeStamp(time);
+				MessageTrace trace = msg.getTrace();
+				if (trace != null) {
+					trace.mark(MessageTrace.POST_MESSAGE);
+				}
 				
 				myToolkit.handlePosted(myAID, msg);
 				
 				msgQueue.addLast(msg);
 				postedMessagesCnt++;
 			}
-			doWake();
+			doWake(mm);
 		}
 	}
 
@@ -2299,7 +2555,16 @@ public class Agent implements Runnable, Serializable
 	 * wherever it may be
 	 */
 	private void interruptThread() {
-		myThread.interrupt();
+		if (myPool != null) {
+			synchronized (runLock) {
+				if (myThread != null) {
+					myThread.interrupt();
+				}
+			}
+			unpark();
+		} else {
+			myThread.interrupt();
+		}
 	}
 
 	/**
@@ -2308,7 +2573,11 @@ public class Agent implements Runnable, Serializable
 	 * simulated interruption happened just before and after going to sleep.
 	 */
 	void waitOn(Object lock, long millis) throws InterruptedException {
-		lock.wait(millis);
+		if (myPool != null && Thread.currentThread() == myThread) {
+			myPool.waitOn(lock, millis);
+		} else {
+			lock.wait(millis);
+		}
 	}
 
 	
@@ -41,6 +41,7 @@ import jade.core.exception.ProfileException;
 import jade.core.exception.ServiceException;
 import jade.core.exception.ServiceNotActiveException;
 import jade.core.messaging.GenericMessage;
+import jade.core.messaging.MessageTrace;
 import jade.core.management.AgentManagementSlice;
 
 import jade.domain.AMSEventQueueFeeder;
@@ -730,6 +731,7 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
 				toBeSent = msg;
 			}
 			GenericMessage gmsg = new GenericMessage(toBeSent);
+			gmsg.setTrace(MessageTrace.sample(MessageTrace.SEND));
 			cmd.addParam(gmsg);
 			cmd.addParam(receiver);
 			// Set the credentials of the sender
@@ -960,8 +962,16 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
 		}
 		int type = (agentID.equals(theAMS) || agentID.equals(theDefaultDF) ? ResourceManager.SYSTEM_AGENTS
 				: ResourceManager.USER_AGENTS);
-		Thread t = myResourceManager.getThread(type, agentID.getLocalName(), instance);
-		instance.powerUp(agentID, t);
+		AgentPool pool = null;
+		if (myResourceManager instanceof FullResourceManager frm) {
+			pool = frm.getAgentPool(type);
+		}
+		if (pool != null) {
+			instance.powerUp(agentID, pool);
+		} else {
+			Thread t = myResourceManager.getThread(type, agentID.getLocalName(), instance);
+			instance.powerUp(agentID, t);
+		}
 		localAgents.release(agentID);
 	}
 
@@ -0,0 +1,140 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core;
+
+//#APIDOC_EXCLUDE_FILE
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jade.util.Logger;
+
+/**
+ * A bounded work-stealing pool shared by all the agents of a container when the
+ * pooled agent execution mode is active. Instead of owning a dedicated thread,
+ * each agent is submitted to this pool as a task that executes a slice of its
+ * behaviours and then either yields (re-submitting itself) or parks until a
+ * new behaviour becomes ready.
+ * <br>
+ * Blocking calls performed by agent code (e.g. <code>doWait()</code> or
+ * <code>blockingReceive()</code>) are executed as managed blocks so that the
+ * pool can compensate with additional workers up to the configured maximum.
+ * <br>
+ * Agents ready to run are kept in a single FIFO run queue: each task submitted
+ * to the underlying pool just executes the agent at the head of that queue.
+ * Submitting agents to the pool directly would not be fair as an agent yielding
+ * from a worker would be pushed to the local queue of that worker, that drains
+ * it before serving any other submission.
+ *
+ * @see FullResourceManager#AGENT_EXECUTION_MODE
+ */
+class AgentPool {
+
+	private final ForkJoinPool pool;
+	private final int quantum;
+	private final ConcurrentLinkedQueue<Runnable> runQueue = new ConcurrentLinkedQueue<>();
+	private final Runnable runNext = this::runNext;
+
+	private final Logger myLogger = Logger.getJADELogger(getClass().getName());
+
+	AgentPool(final String name, int size, int maxSize, int quantum, final int priority) {
+		this.quantum = quantum;
+		final AtomicInteger cnt = new AtomicInteger();
+		ForkJoinPool.ForkJoinWorkerThreadFactory factory = p -> {
+			ForkJoinWorkerThread t = new ForkJoinWorkerThread(p) {
+			};
+			t.setName(name + "-" + cnt.incrementAndGet());
+			t.setPriority(priority);
+			// Agent threads have always been non-daemon threads
+			t.setDaemon(false);
+			return t;
+		};
+		// asyncMode = true --> FIFO scheduling of agents that yield
+		pool = new ForkJoinPool(size, factory, null, true, size, Math.max(size, maxSize), 1, p -> true, 60, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @return The maximum number of behaviours an agent executes before giving
+	 *         other agents a chance to run
+	 */
+	int getQuantum() {
+		return quantum;
+	}
+
+	void execute(Runnable r) {
+		runQueue.add(r);
+		try {
+			pool.execute(runNext);
+		} catch (RejectedExecutionException ree) {
+			// The pool is shutting down: the container is terminating
+			runQueue.remove(r);
+			myLogger.log(Logger.WARNING, "Agent task rejected by pool: " + ree.getMessage());
+		}
+	}
+
+	private void runNext() {
+		// There is one pool task per queued agent: the queue is never empty here
+		Runnable r = runQueue.poll();
+		if (r != null) {
+			r.run();
+		}
+	}
+
+	/**
+	 * Block the current thread on the monitor of a given object (that the
+	 * caller must own) allowing the pool to activate a spare worker in the
+	 * meanwhile.
+	 */
+	void waitOn(final Object lock, final long millis) throws InterruptedException {
+		ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+			private boolean done = false;
+
+			public boolean block() throws InterruptedException {
+				lock.wait(millis);
+				done = true;
+				return true;
+			}
+
+			public boolean isReleasable() {
+				return done;
+			}
+		});
+	}
+
+	int getActiveCount() {
+		return pool.getActiveThreadCount();
+	}
+
+	int getPoolSize() {
+		return pool.getPoolSize();
+	}
+
+	void shutdown() {
+		pool.shutdown();
+	}
+}
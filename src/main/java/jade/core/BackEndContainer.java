@@ -147,7 +147,7 @@ public class BackEndContainer extends AgentContainerImpl implements BackEnd {
 			myFrontEnd = myConnectionManager.getFrontEnd(this, null);
 			myLogger.log(Logger.FINE, "BackEnd container "+myProfile.getParameter(Profile.CONTAINER_NAME, null)+" joining the platform ... (FrontEnd version: "+myProfile.getParameter(JICPProtocol.VERSION_KEY, "not available")+")");
 			
-			Runtime.instance().beginContainer();
+			Runtime.instance().beginContainer(myProfile);
 			boolean connected = joinPlatform();
 			if (connected) {
 				myLogger.log(Logger.FINE, "Join platform OK");
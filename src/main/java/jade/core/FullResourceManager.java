@@ -31,6 +31,33 @@ class FullResourceManager implements ResourceManager {
 	private static final boolean DEFAULT_DISABLE_THREAD_GROUP_INTERRUPT = false;
 	public static final String THREAD_GROUP_INTERRUPT_TIMEOUT = "jade_core_FullResourceManager_threadgroupinterrupttimeout";
 	private static final String DEFAULT_THREAD_GROUP_INTERRUPT_TIMEOUT = "5000";
+	/**
+	 * The execution mode of user agents: <code>thread</code> (default) means each
+	 * agent runs in its own dedicated thread, <code>pool</code> means agents are
+	 * executed as tasks on a bounded work-stealing pool and release their thread
+	 * whenever they have no ready behaviour.
+	 */
+	public static final String AGENT_EXECUTION_MODE = "jade_core_FullResourceManager_agentexecutionmode";
+	public static final String THREAD_EXECUTION_MODE = "thread";
+	public static final String POOL_EXECUTION_MODE = "pool";
+	/**
+	 * The number of workers executing agents in <code>pool</code> execution mode.
+	 * Default is the number of available processors.
+	 */
+	public static final String AGENT_POOL_SIZE = "jade_core_FullResourceManager_agentpoolsize";
+	/**
+	 * The maximum number of workers (including spare workers activated while
+	 * agents are blocked in <code>doWait()</code>/<code>blockingReceive()</code>)
+	 * in <code>pool</code> execution mode.
+	 */
+	public static final String AGENT_POOL_MAX_SIZE = "jade_core_FullResourceManager_agentpoolmaxsize";
+	private static final String DEFAULT_AGENT_POOL_MAX_SIZE = "256";
+	/**
+	 * The maximum number of behaviours an agent executes before yielding its
+	 * worker to other agents in <code>pool</code> execution mode.
+	 */
+	public static final String AGENT_POOL_QUANTUM = "jade_core_FullResourceManager_agentpoolquantum";
+	private static final String DEFAULT_AGENT_POOL_QUANTUM = "16";
 	
 	private static final String USER_AGENTS_GROUP_NAME = "JADE User Agents";
 	private static final String SYSTEM_AGENTS_GROUP_NAME = "JADE System Agents";
@@ -46,6 +73,7 @@ class FullResourceManager implements ResourceManager {
 	private Profile myProfile;
 	private boolean disableThreadGroupInterrupt;
 	private int threadGroupInterruptTimeout;
+	private AgentPool agentPool;
 
 	
 	public FullResourceManager() {
@@ -89,9 +117,22 @@ class FullResourceManager implements ResourceManager {
 		return t;
 	}
 
+	/**
+	 * @return The pool where agents of the given type are executed as tasks or
+	 *         <code>null</code> if each agent of that type must run in its own
+	 *         thread. Only user agents can be pooled.
+	 */
+	AgentPool getAgentPool(int type) {
+		return type == USER_AGENTS ? agentPool : null;
+	}
+
 	public void releaseResources() {
 		terminating = true;
 		
+		if (agentPool != null) {
+			agentPool.shutdown();
+		}
+		
 		if (!disableThreadGroupInterrupt) {
 			Thread t = new Thread() {
 				public void run() {
@@ -123,6 +164,14 @@ class FullResourceManager implements ResourceManager {
 		String tmp = myProfile.getParameter(THREAD_GROUP_INTERRUPT_TIMEOUT, DEFAULT_THREAD_GROUP_INTERRUPT_TIMEOUT);
 		threadGroupInterruptTimeout = Integer.parseInt(tmp);
 		
+		String mode = myProfile.getParameter(AGENT_EXECUTION_MODE, THREAD_EXECUTION_MODE);
+		if (POOL_EXECUTION_MODE.equalsIgnoreCase(mode)) {
+			int size = Integer.parseInt(myProfile.getParameter(AGENT_POOL_SIZE, String.valueOf(java.lang.Runtime.getRuntime().availableProcessors())));
+			int maxSize = Integer.parseInt(myProfile.getParameter(AGENT_POOL_MAX_SIZE, DEFAULT_AGENT_POOL_MAX_SIZE));
+			int quantum = Integer.parseInt(myProfile.getParameter(AGENT_POOL_QUANTUM, DEFAULT_AGENT_POOL_QUANTUM));
+			agentPool = new AgentPool(USER_AGENTS_GROUP_NAME, size, maxSize, quantum, agentThreads.getMaxPriority());
+		}
+		
 		if (!myProfile.getBooleanProperty(Profile.NO_DISPLAY, false)) {
 			// Start the AWT-Toolkit outside the JADE Thread Group to avoid annoying InterruptedException-s on termination
 			// when some agent with a Swing or AWT based GUI is used
@@ -25,6 +25,7 @@ package jade.core;
 import java.util.List;
 
 import jade.core.exception.IMTPException;
+import jade.core.sam.HistogramMeasureProvider;
 //#APIDOC_EXCLUDE_FILE
 import jade.mtp.TransportAddress;
 
@@ -122,4 +123,18 @@ public interface IMTPManager {
 	/**
 	 */
 	TransportAddress stringToAddr(String addr) throws IMTPException;
+
+	/**
+	 * Activate the measurement of the round-trip time of the commands dispatched
+	 * by this IMTPManager. IMTP implementations sharing their dispatching
+	 * resources among all containers of a JVM return the same provider to all of
+	 * them.
+	 * 
+	 * @return The provider of the round-trip time histogram (microseconds) or
+	 *         <code>null</code> if this IMTPManager does not support such
+	 *         measurement
+	 */
+	default HistogramMeasureProvider getDispatchTimeProvider() {
+		return null;
+	}
 }
@@ -0,0 +1,390 @@
+/*****************************************************************
+ JADE - Java Agent DEvelopment Framework is a framework to develop
+ multi-agent systems in compliance with the FIPA specifications.
+ Copyright (C) 2000 CSELT S.p.A.
+
+ GNU Lesser General Public License
+
+ This library is free software; you can redistribute it and/or
+ modify it under the terms of the GNU Lesser General Public
+ License as published by the Free Software Foundation,
+ version 2.1 of the License.
+
+ This library is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ Lesser General Public License for more details.
+
+ You should have received a copy of the GNU Lesser General Public
+ License along with this library; if not, write to the
+ Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core;
+
+//#MIDP_EXCLUDE_FILE
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import jade.util.Logger;
+
+/**
+ * Agent MessageQueue optimized for agents that deal with a large number of
+ * queued messages and several behaviours receiving messages by means of
+ * different templates.
+ * <ul>
+ * <li>Messages posted to the agent are appended to a lock-free inbox, so that
+ * threads delivering messages never block each other or the agent thread. The
+ * inbox is moved into the actual queue by the agent thread at the next
+ * receive.</li>
+ * <li>Queued messages are indexed by conversation-id, in-reply-to and
+ * performative. Templates built by means of <code>MatchConversationId()</code>,
+ * <code>MatchInReplyTo()</code>, <code>MatchPerformative()</code> and their
+ * <b>and</b> combinations only inspect the messages having the required
+ * values instead of scanning the whole queue.</li>
+ * </ul>
+ * The order in which messages are returned is the same as with the default
+ * queue. When the max size is exceeded the eldest messages are discarded.
+ * <br>
+ * This queue can be activated for all agents by setting the
+ * <code>jade_core_Agent_msgQueueClass</code> property to
+ * <code>jade.core.IndexedMessageQueue</code> or for a single agent by
+ * redefining the <code>Agent.createMessageQueue()</code> method.
+ *
+ * @see Agent#MSG_QUEUE_CLASS
+ * @see Agent#createMessageQueue()
+ */
+public class IndexedMessageQueue implements MessageQueue {
+	// Chain dimensions
+	private static final int ALL = 0;
+	private static final int CONVERSATION_ID = 1;
+	private static final int IN_REPLY_TO = 2;
+	private static final int PERFORMATIVE = 3;
+	private static final int DIMENSIONS = 4;
+
+	// Producer side: written by any thread without locking
+	private final ConcurrentLinkedQueue<ACLMessage> inbox = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger inboxSize = new AtomicInteger();
+
+	// Consumer side: accessed in mutual exclusion on this object
+	private final Chain all = new Chain(ALL);
+	private final Map<String, Chain> byConversationId = new HashMap<>();
+	private final Map<String, Chain> byInReplyTo = new HashMap<>();
+	private final Map<Integer, Chain> byPerformative = new HashMap<>();
+
+	private volatile int maxSize;
+	private Agent myAgent;
+	private Logger myLogger = Logger.getJADELogger(getClass().getName());
+
+	public IndexedMessageQueue(int maxSize, Agent a) {
+		this.maxSize = maxSize;
+		myAgent = a;
+	}
+
+	public IndexedMessageQueue() {
+		this(0, null);
+	}
+
+	public void setMaxSize(int newSize) throws IllegalArgumentException {
+		if (newSize < 0) {
+			throw new IllegalArgumentException("Invalid MsgQueue size");
+		}
+		maxSize = newSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of messages currently in the queue
+	 **/
+	public int size() {
+		return all.size + inboxSize.get();
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Append a message to this queue. This method can be called concurrently by
+	 * any number of threads and does not require the caller to hold the monitor
+	 * of this queue.
+	 */
+	public void addLast(ACLMessage msg) {
+		inbox.offer(msg);
+		int pending = inboxSize.incrementAndGet();
+		int max = maxSize;
+		if (max != 0 && pending > max) {
+			// Messages are not being consumed: discard the eldest pending one
+			// to bound memory usage. The overall size is enforced at drain time.
+			if (inbox.poll() != null) {
+				inboxSize.decrementAndGet();
+				logDiscarded();
+			}
+		}
+	}
+
+	public synchronized void addFirst(ACLMessage msg) {
+		drain();
+		if (maxSize != 0 && all.size >= maxSize) {
+			// FIFO replacement policy
+			unlink(all.head);
+		}
+		link(new Node(msg), true);
+	}
+
+	public synchronized ACLMessage receive(MessageTemplate pattern) {
+		drain();
+		Chain c = selectChain(pattern);
+		if (c != null) {
+			for (Node n = c.head; n != null; n = n.next[c.dim]) {
+				if (pattern == null || pattern.match(n.msg)) {
+					unlink(n);
+					return n.msg;
+				}
+			}
+		}
+		return null;
+	}
+
+	public synchronized List<ACLMessage> receive(MessageTemplate pattern, int max) {
+		drain();
+		List<ACLMessage> mm = null;
+		Chain c = selectChain(pattern);
+		if (c != null) {
+			Node n = c.head;
+			while (n != null) {
+				Node next = n.next[c.dim];
+				if (pattern == null || pattern.match(n.msg)) {
+					unlink(n);
+					if (mm == null) {
+						mm = new ArrayList<>(max > 0 ? max : 16);
+					}
+					mm.add(n.msg);
+					if (mm.size() == max) {
+						break;
+					}
+				}
+				n = next;
+			}
+		}
+		return mm;
+	}
+
+	public synchronized void copyTo(List<ACLMessage> messages) {
+		drain();
+		for (Node n = all.head; n != null; n = n.next[ALL]) {
+			messages.add(n.msg);
+		}
+	}
+
+	/**
+	 * Select the shortest chain holding all messages that may match a given
+	 * template.
+	 *
+	 * @return The selected chain or null if no queued message can match
+	 */
+	private Chain selectChain(MessageTemplate pattern) {
+		Chain best = all;
+		if (pattern != null) {
+			String conversationId = pattern.getRequiredConversationId();
+			if (conversationId != null) {
+				Chain c = byConversationId.get(toKey(conversationId));
+				if (c == null) {
+					return null;
+				}
+				best = c;
+			}
+			String inReplyTo = pattern.getRequiredInReplyTo();
+			if (inReplyTo != null) {
+				Chain c = byInReplyTo.get(toKey(inReplyTo));
+				if (c == null) {
+					return null;
+				}
+				if (c.size < best.size) {
+					best = c;
+				}
+			}
+			Integer performative = pattern.getRequiredPerformative();
+			if (performative != null) {
+				Chain c = byPerformative.get(performative);
+				if (c == null) {
+					return null;
+				}
+				if (c.size < best.size) {
+					best = c;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Move the messages posted since the last call from the inbox to the actual
+	 * queue
+	 */
+	private void drain() {
+		ACLMessage msg;
+		while ((msg = inbox.poll()) != null) {
+			inboxSize.decrementAndGet();
+			if (maxSize != 0 && all.size >= maxSize) {
+				// FIFO replacement policy
+				unlink(all.head);
+				logDiscarded();
+			}
+			link(new Node(msg), false);
+		}
+	}
+
+	private void link(Node n, boolean first) {
+		all.add(n, first);
+		n.chains[ALL] = all;
+		String conversationId = n.msg.getConversationId();
+		if (conversationId != null) {
+			n.conversationKey = toKey(conversationId);
+			linkIndex(n, CONVERSATION_ID, byConversationId, n.conversationKey, first);
+		}
+		String inReplyTo = n.msg.getInReplyTo();
+		if (inReplyTo != null) {
+			n.inReplyToKey = toKey(inReplyTo);
+			linkIndex(n, IN_REPLY_TO, byInReplyTo, n.inReplyToKey, first);
+		}
+		n.performativeKey = Integer.valueOf(n.msg.getPerformative());
+		linkIndex(n, PERFORMATIVE, byPerformative, n.performativeKey, first);
+	}
+
+	private <T> void linkIndex(Node n, int dim, Map<T, Chain> index, T key, boolean first) {
+		Chain c = index.get(key);
+		if (c == null) {
+			c = new Chain(dim);
+			index.put(key, c);
+		}
+		c.add(n, first);
+		n.chains[dim] = c;
+	}
+
+	private void unlink(Node n) {
+		all.remove(n);
+		unlinkIndex(n, CONVERSATION_ID, byConversationId, n.conversationKey);
+		unlinkIndex(n, IN_REPLY_TO, byInReplyTo, n.inReplyToKey);
+		unlinkIndex(n, PERFORMATIVE, byPerformative, n.performativeKey);
+	}
+
+	private <T> void unlinkIndex(Node n, int dim, Map<T, Chain> index, T key) {
+		Chain c = n.chains[dim];
+		if (c != null) {
+			c.remove(n);
+			if (c.size == 0) {
+				// Do not keep empty chains (conversation-ids are typically unique)
+				index.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Conversation-id and in-reply-to are matched ignoring case: use a
+	 * normalized form as index key. Characters are normalized the same way as
+	 * <code>String.regionMatches(true, ...)</code> does.
+	 */
+	private static String toKey(String s) {
+		StringBuilder sb = null;
+		for (int i = 0; i < s.length(); ++i) {
+			char c = s.charAt(i);
+			char k = Character.toLowerCase(Character.toUpperCase(c));
+			if (k != c && sb == null) {
+				sb = new StringBuilder(s.length());
+				sb.append(s, 0, i);
+			}
+			if (sb != null) {
+				sb.append(k);
+			}
+		}
+		return sb != null ? sb.toString() : s;
+	}
+
+	private void logDiscarded() {
+		myLogger.log(Logger.SEVERE,
+				"Agent " + getAgentName() + " - Message queue size exceeded. Message discarded!!!!!");
+	}
+
+	private String getAgentName() {
+		return myAgent != null ? myAgent.getLocalName() : "null";
+	}
+
+	/**
+	 * Inner class Node. A queued message linked in one chain per dimension.
+	 */
+	private static final class Node {
+		private final ACLMessage msg;
+		private final Chain[] chains = new Chain[DIMENSIONS];
+		private final Node[] prev = new Node[DIMENSIONS];
+		private final Node[] next = new Node[DIMENSIONS];
+		// The message slots may be modified by the application after the message
+		// was queued: keep the keys used to index it
+		private String conversationKey;
+		private String inReplyToKey;
+		private Integer performativeKey;
+
+		private Node(ACLMessage msg) {
+			this.msg = msg;
+		}
+	} // END of inner class Node
+
+	/**
+	 * Inner class Chain. An intrusive doubly linked list of nodes, in queue
+	 * order, along a given dimension.
+	 */
+	private static final class Chain {
+		private final int dim;
+		private Node head;
+		private Node tail;
+		private volatile int size;
+
+		private Chain(int dim) {
+			this.dim = dim;
+		}
+
+		private void add(Node n, boolean first) {
+			if (head == null) {
+				head = tail = n;
+			} else if (first) {
+				n.next[dim] = head;
+				head.prev[dim] = n;
+				head = n;
+			} else {
+				n.prev[dim] = tail;
+				tail.next[dim] = n;
+				tail = n;
+			}
+			size++;
+		}
+
+		private void remove(Node n) {
+			Node p = n.prev[dim];
+			Node x = n.next[dim];
+			if (p != null) {
+				p.next[dim] = x;
+			} else {
+				head = x;
+			}
+			if (x != null) {
+				x.prev[dim] = p;
+			} else {
+				tail = p;
+			}
+			n.prev[dim] = null;
+			n.next[dim] = null;
+			size--;
+		}
+	} // END of inner class Chain
+}
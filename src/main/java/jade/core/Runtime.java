@@ -123,7 +123,7 @@ public class Runtime {
 			mode = MULTIPLE_MODE;
 			p.setParameter(Profile.MAIN, "false"); // set to an agent container
 			AgentContainerImpl impl = new AgentContainerImpl(p);
-			beginContainer();
+			beginContainer(p);
 			if (impl.joinPlatform()) {
 				return impl.getContainerController();
 			} else {
@@ -153,7 +153,7 @@ public class Runtime {
 			// set to a main container
 			p.setParameter(Profile.MAIN, "true");
 			AgentContainerImpl impl = new AgentContainerImpl(p);
-			beginContainer();
+			beginContainer(p);
 			if (impl.joinPlatform()) {
 				return impl.getContainerController();
 			} else {
@@ -201,7 +201,7 @@ public class Runtime {
 		if (mode == UNKNOWN_MODE) {
 			mode = SINGLE_MODE;
 			theContainer = new AgentContainerImpl(p);
-			beginContainer();
+			beginContainer(p);
 			theContainer.joinPlatform();
 		}
 	}
@@ -236,11 +236,12 @@ public class Runtime {
 	// #APIDOC_EXCLUDE_END
 
 	// Called by a starting up container.
-	void beginContainer() {
+	void beginContainer(Profile p) {
 		myLogger.log(Logger.INFO, "----------------------------------\n" + getCopyrightNotice()
 				+ "----------------------------------------");
 		if (activeContainers == 0) {
 			// Initialize and start up the timer dispatcher
+			selectTimerDispatcher(p);
 			TimerDispatcher theDispatcher = TimerDispatcher.getTimerDispatcher();
 
 			// Set up group and attributes for time critical threads
@@ -256,6 +257,25 @@ public class Runtime {
 		++activeContainers;
 	}
 
+	private void selectTimerDispatcher(Profile p) {
+		String className = p.getParameter(TimerDispatcher.TIMER_DISPATCHER_CLASS, null);
+		if (className != null && !className.equals(TimerDispatcher.getTimerDispatcher().getClass().getName())) {
+			try {
+				Class<?> c = Class.forName(className);
+				TimerDispatcher td;
+				try {
+					td = (TimerDispatcher) c.getConstructor(Profile.class).newInstance(p);
+				} catch (NoSuchMethodException nsme) {
+					td = (TimerDispatcher) c.getDeclaredConstructor().newInstance();
+				}
+				TimerDispatcher.setTimerDispatcher(td);
+				myLogger.log(Logger.CONFIG, "Using TimerDispatcher " + className);
+			} catch (Exception e) {
+				myLogger.log(Logger.WARNING, "Cannot create TimerDispatcher " + className + ". Using " + TimerDispatcher.getTimerDispatcher().getClass().getName(), e);
+			}
+		}
+	}
+
 	// Called by a terminating container.
 	void endContainer() {
 		--activeContainers;
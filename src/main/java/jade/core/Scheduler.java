@@ -32,6 +32,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import jade.core.behaviours.Behaviour;
+import jade.lang.acl.ACLMessage;
 
 /**
  @author Giovanni Rimassa - Universita' di Parma
@@ -85,6 +86,7 @@ public class Scheduler implements Serializable {
 	public synchronized void add(Behaviour b) {
 		readyBehaviours.add(b);
 		notify();
+		owner.unpark();
 		owner.notifyAddBehaviour(b);
 	}
 	
@@ -102,6 +104,7 @@ public class Scheduler implements Serializable {
 		if (removeFromBlocked(b)) {
 			readyBehaviours.add(b);
 			notify();
+			owner.unpark();
 			owner.notifyChangeBehaviourState(b, Behaviour.STATE_BLOCKED, Behaviour.STATE_READY);
 			
 		}
@@ -163,6 +166,29 @@ public class Scheduler implements Serializable {
 		}
 	}
 	
+	/**
+	 Restarts only the behaviours that may be interested in one of the
+	 given messages, i.e. those that did not declare (by means of
+	 Behaviour.block(MessageTemplate)) a template none of the messages
+	 matches. Behaviours that block without declaring a template are
+	 always restarted as in restartAll(). Composite behaviours are walked
+	 so that only their interested children are restarted.
+	 */
+	public synchronized void restartMatching(ACLMessage[] msgs) {
+		Behaviour[] behaviours = new Behaviour[readyBehaviours.size() + blockedBehaviours.size()];
+		int counter = 0;
+		for (Iterator<Behaviour> it = readyBehaviours.iterator(); it.hasNext();) {
+			behaviours[counter++] = it.next();
+		}
+		for (Iterator<Behaviour> it = blockedBehaviours.iterator(); it.hasNext();) {
+			behaviours[counter++] = it.next();
+		}
+		
+		for (int i = 0; i < behaviours.length; i++) {
+			behaviours[i].restartIfWaitingFor(msgs);
+		}
+	}
+	
 	/**
 	 Removes a specified behaviour from the scheduler
 	 */
@@ -311,8 +311,8 @@ public class ServiceManagerImpl implements ServiceManager, ServiceFinder {
 			return null;
 		} else {
 			List<Slice> ss = new ArrayList<>(v.size());
-			for (int i = 0; i < ss.size(); ++i) {
-				ss.set(i, bindToLocalNode(v.get(i)));
+			for (int i = 0; i < v.size(); ++i) {
+				ss.add(bindToLocalNode(v.get(i)));
 			}
 			return ss;
 		}
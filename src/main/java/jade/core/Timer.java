@@ -39,17 +39,19 @@ public class Timer {
 	private boolean fired;
 	private final TimerListener owner;
 
+	// Used by the TimingWheelTimerDispatcher: the bucket this timer is linked
+	// into (null if not scheduled), its neighbours and its expiration tick
+	Object bucket;
+	Timer prev;
+	Timer next;
+	long deadlineTick;
+
 	public Timer(long when, TimerListener tl) {
 		expireTimeMillis = when;
 		owner = tl;
 		fired = false;
 	}
 
-	public boolean equals(Object o) {
-		Timer t = (Timer)o;
-		return expireTimeMillis == t.expireTimeMillis;
-	}
-
 
 	// Called by the TimerDispatcher
 
@@ -64,6 +66,10 @@ public class Timer {
 		}
 	}
 
+	final TimerListener getListener() {
+		return owner;
+	}
+
 	final long expirationTime() {
 		return expireTimeMillis;
 	}
@@ -42,10 +42,17 @@ import jade.util.Logger;
  */
 
 public class TimerDispatcher implements Runnable {
+	/**
+	 * The profile option specifying the class of the JVM-wide TimerDispatcher
+	 * (e.g. <code>jade.core.TimingWheelTimerDispatcher</code>). It is taken
+	 * into account when the first container of the JVM starts up.
+	 */
+	public static final String TIMER_DISPATCHER_CLASS = "timer-dispatcher-class";
+
 	// The singleton TimerDispatcher
 	private static TimerDispatcher theDispatcher;
 
-	private Thread myThread;
+	Thread myThread;
 
 	// In J2ME we use a Vector to keep timers to minimize the number of classes.
 	// In J2SE, where we can have thousands of timers, using a Vector can be highly
@@ -57,7 +64,7 @@ public class TimerDispatcher implements Runnable {
 	/*
 	 * #J2ME_INCLUDE_BEGIN private Vector timers = new Vector<>(); #J2ME_INCLUDE_END
 	 */
-	private boolean active;
+	boolean active;
 
 	protected Logger myLogger = Logger.getJADELogger(getClass().getName());
 
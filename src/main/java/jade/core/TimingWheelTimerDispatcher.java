@@ -0,0 +1,320 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+//#APIDOC_EXCLUDE_FILE
+//#MIDP_EXCLUDE_FILE
+
+import jade.util.Logger;
+
+/**
+ * A <code>TimerDispatcher</code> based on a hashed timing wheel, suited to
+ * containers with a very large number of pending timers (e.g. lots of
+ * behaviours calling <code>block(millis)</code>).
+ * <br>
+ * Time is divided into ticks and each timer is linked into the bucket of the
+ * tick it expires at: adding and removing a timer take constant time and
+ * timers expiring at the same time do not need to be shifted as in the
+ * default dispatcher. At each tick the dispatcher thread collects all expired
+ * timers and fires them in expiration order: a timer fires at most one tick
+ * after its expiration time.
+ * <br>
+ * Timers are partitioned into shards according to their listener (typically
+ * an agent), each one with its own lock, so that agents adding and removing
+ * timers concurrently do not contend on a single monitor.
+ * <br>
+ * This dispatcher is activated by setting the <code>timer-dispatcher-class</code>
+ * option to <code>jade.core.TimingWheelTimerDispatcher</code>. It accepts the
+ * following options:
+ * <ul>
+ * <li><code>jade_core_TimingWheelTimerDispatcher_tick</code>: The tick
+ * duration in ms (default 10)</li>
+ * <li><code>jade_core_TimingWheelTimerDispatcher_wheelsize</code>: The number
+ * of buckets of each shard, rounded up to a power of 2 (default 512)</li>
+ * <li><code>jade_core_TimingWheelTimerDispatcher_shards</code>: The number of
+ * shards (default: the number of available processors)</li>
+ * </ul>
+ */
+public class TimingWheelTimerDispatcher extends TimerDispatcher {
+	public static final String PREFIX = "jade_core_TimingWheelTimerDispatcher_";
+	public static final String TICK = PREFIX + "tick";
+	public static final String WHEEL_SIZE = PREFIX + "wheelsize";
+	public static final String SHARDS = PREFIX + "shards";
+
+	private static final long TICK_DEFAULT = 10;
+	private static final int WHEEL_SIZE_DEFAULT = 512;
+
+	private static final Comparator<Timer> EXPIRATION_ORDER = Comparator.comparingLong(Timer::expirationTime);
+
+	private final long tickMillis;
+	private final int mask;
+	private final Shard[] shards;
+	// Ticks are counted from this time
+	private final long startTime;
+	// Number of pending timers in all shards
+	private final AtomicLong pendingCnt = new AtomicLong();
+
+	public TimingWheelTimerDispatcher() {
+		this(TICK_DEFAULT, WHEEL_SIZE_DEFAULT, java.lang.Runtime.getRuntime().availableProcessors());
+	}
+
+	public TimingWheelTimerDispatcher(Profile p) {
+		this(getLong(p, TICK, TICK_DEFAULT), (int) getLong(p, WHEEL_SIZE, WHEEL_SIZE_DEFAULT), (int) getLong(p, SHARDS, java.lang.Runtime.getRuntime().availableProcessors()));
+	}
+
+	TimingWheelTimerDispatcher(long tickMillis, int wheelSize, int nShards) {
+		this.tickMillis = Math.max(1, tickMillis);
+		int size = 1;
+		while (size < wheelSize) {
+			size <<= 1;
+		}
+		mask = size - 1;
+		shards = new Shard[Math.max(1, nShards)];
+		for (int i = 0; i < shards.length; ++i) {
+			shards[i] = new Shard(size);
+		}
+		startTime = System.currentTimeMillis();
+	}
+
+	private static long getLong(Profile p, String key, long defaultValue) {
+		try {
+			return Long.parseLong(p.getParameter(key, null));
+		} catch (Exception e) {
+			// Parameter not set or malformed --> keep default
+			return defaultValue;
+		}
+	}
+
+	@Override
+	public Timer add(Timer t) {
+		synchronized (this) {
+			if (myThread == null) {
+				myThread = new Thread(this);
+				start();
+			}
+		}
+		Shard s = shards[Math.floorMod(System.identityHashCode(t.getListener()), shards.length)];
+		long deadline = Math.floorDiv(t.expirationTime() - startTime + tickMillis - 1, tickMillis);
+		boolean wasEmpty;
+		synchronized (s) {
+			if (t.bucket != null) {
+				// Re-adding a pending timer reschedules it
+				s.unlink(t);
+			}
+			// A timer that already expired fires at next tick
+			t.deadlineTick = Math.max(deadline, s.currentTick + 1);
+			wasEmpty = s.link(t);
+		}
+		if (wasEmpty) {
+			// The dispatcher thread may be waiting with no timers to serve
+			synchronized (this) {
+				wakeUp();
+			}
+		}
+		return t;
+	}
+
+	@Override
+	public void remove(Timer t) {
+		Object b = t.bucket;
+		if (b != null) {
+			// A timer never moves to another shard
+			Shard s = ((Bucket) b).shard;
+			synchronized (s) {
+				if (t.bucket != null) {
+					s.unlink(t);
+				}
+			}
+		}
+	}
+
+	public void run() {
+		List<Timer> expired = new ArrayList<>();
+		long lastTick = 0;
+		try {
+			while (active) {
+				long now = System.currentTimeMillis();
+				long tick = (now - startTime) / tickMillis;
+				if (tick > lastTick) {
+					for (Shard s : shards) {
+						s.expire(tick, expired);
+					}
+					lastTick = tick;
+					fire(expired);
+					continue;
+				}
+				synchronized (this) {
+					if (!active) {
+						break;
+					}
+					if (getPendingCount() == 0) {
+						sleep(0);
+					} else {
+						sleep(Math.max(1, startTime + (tick + 1) * tickMillis - now));
+					}
+				}
+			}
+		} catch (InterruptedException ie) {
+			// Do nothing, but just return, since this is a shutdown.
+		}
+		for (Shard s : shards) {
+			s.clear();
+		}
+	}
+
+	private void fire(List<Timer> expired) {
+		if (expired.size() > 1) {
+			expired.sort(EXPIRATION_ORDER);
+		}
+		for (Timer t : expired) {
+			// This check just avoids firing timers on termination
+			if (!active) {
+				break;
+			}
+			try {
+				t.fire();
+			} catch (Throwable th) {
+				myLogger.log(Logger.WARNING, "Unexpected error firing timer " + t.expirationTime(), th);
+			}
+		}
+		expired.clear();
+	}
+
+	/**
+	 * @return The number of timers waiting to expire
+	 */
+	public long getPendingCount() {
+		return pendingCnt.get();
+	}
+
+
+	/**
+	 * Inner class Bucket. The list of timers expiring at the ticks mapped to a
+	 * slot of the wheel
+	 */
+	private static class Bucket {
+		private final Shard shard;
+		private Timer head;
+
+		private Bucket(Shard shard) {
+			this.shard = shard;
+		}
+	} // END of inner class Bucket
+
+
+	/**
+	 * Inner class Shard. A timing wheel with its own lock.
+	 */
+	private class Shard {
+		private final Bucket[] buckets;
+		// The last tick whose expired timers were collected
+		private long currentTick;
+		private int count;
+
+		private Shard(int size) {
+			buckets = new Bucket[size];
+			for (int i = 0; i < size; ++i) {
+				buckets[i] = new Bucket(this);
+			}
+		}
+
+		/**
+		 * @return true if the shard was empty
+		 */
+		private boolean link(Timer t) {
+			Bucket b = buckets[(int) (t.deadlineTick & mask)];
+			t.bucket = b;
+			t.prev = null;
+			t.next = b.head;
+			if (b.head != null) {
+				b.head.prev = t;
+			}
+			b.head = t;
+			pendingCnt.incrementAndGet();
+			return count++ == 0;
+		}
+
+		private void unlink(Timer t) {
+			Bucket b = (Bucket) t.bucket;
+			if (t.prev != null) {
+				t.prev.next = t.next;
+			} else {
+				b.head = t.next;
+			}
+			if (t.next != null) {
+				t.next.prev = t.prev;
+			}
+			t.bucket = null;
+			t.prev = null;
+			t.next = null;
+			pendingCnt.decrementAndGet();
+			count--;
+		}
+
+		/**
+		 * Move all timers expiring up to a given tick to a list
+		 */
+		private synchronized void expire(long tick, List<Timer> expired) {
+			if (count > 0) {
+				if (tick - currentTick >= buckets.length) {
+					// More than a whole round elapsed (e.g. no timers for a long while)
+					for (Bucket b : buckets) {
+						collect(b, tick, expired);
+					}
+				} else {
+					for (long i = currentTick + 1; i <= tick; ++i) {
+						collect(buckets[(int) (i & mask)], tick, expired);
+					}
+				}
+			}
+			currentTick = tick;
+		}
+
+		private void collect(Bucket b, long tick, List<Timer> expired) {
+			Timer t = b.head;
+			while (t != null) {
+				Timer next = t.next;
+				// Timers expiring in later rounds stay in the bucket
+				if (t.deadlineTick <= tick) {
+					unlink(t);
+					expired.add(t);
+				}
+				t = next;
+			}
+		}
+
+		private synchronized void clear() {
+			for (Bucket b : buckets) {
+				while (b.head != null) {
+					unlink(b.head);
+				}
+			}
+		}
+	} // END of inner class Shard
+}
@@ -27,6 +27,8 @@ import java.io.Serial;
 import java.io.Serializable;
 
 import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 
 /**
  * Abstract base class for <b><em>JADE</em></b> behaviours. Extending this class
@@ -176,6 +178,13 @@ public abstract class Behaviour implements Serializable {
 	private volatile long restartCounter;
 	private volatile String executionState = STATE_READY;
 
+	/**
+	 * The template this behaviour declared when it last blocked waiting for a
+	 * message (see <code>block(MessageTemplate)</code>). It is cleared as soon as
+	 * the behaviour becomes runnable again and it is not kept across migrations.
+	 */
+	private transient volatile MessageTemplate waitTemplate;
+
 	// #APIDOC_EXCLUDE_BEGIN
 
 	/**
@@ -417,6 +426,7 @@ public abstract class Behaviour implements Serializable {
 	void setRunnable(boolean runnable) {
 		runnableState = runnable;
 		if (runnableState) {
+			waitTemplate = null;
 			restartCounter++;
 		}
 	}
@@ -457,9 +467,85 @@ public abstract class Behaviour implements Serializable {
 	 * @see jade.core.behaviours.Behaviour#restart()
 	 */
 	public void block() {
+		waitTemplate = null;
 		handleBlockEvent();
 	}
 
+	/**
+	 * Blocks this behaviour declaring that it is waiting for a message matching a
+	 * given template. This is equivalent to <code>block()</code>, but when the
+	 * owner agent runs in targeted wake-up mode (see
+	 * <code>Agent.TARGETED_WAKEUP</code>) an incoming message that does not match
+	 * <code>t</code> will not restart this behaviour.
+	 * 
+	 * @param t The template of the awaited message. A <code>null</code> value
+	 *          means any message and is equivalent to <code>block()</code>.
+	 * @see jade.core.behaviours.Behaviour#block()
+	 */
+	public void block(MessageTemplate t) {
+		// The template must be visible before the behaviour turns blocked so that
+		// a message arriving in the meanwhile is never skipped
+		waitTemplate = t;
+		handleBlockEvent();
+	}
+
+	/**
+	 * Blocks this behaviour for a specified amount of time declaring that it is
+	 * waiting for a message matching a given template.
+	 * 
+	 * @param t      The template of the awaited message.
+	 * @param millis The amount of time to block, in milliseconds.
+	 * @see jade.core.behaviours.Behaviour#block(MessageTemplate)
+	 * @see jade.core.behaviours.Behaviour#block(long)
+	 */
+	public void block(MessageTemplate t, long millis) {
+		block(t);
+		if (myAgent != null) {
+			myAgent.restartLater(this, millis);
+		}
+	}
+
+	// #APIDOC_EXCLUDE_BEGIN
+	/**
+	 * This method is used internally by the framework to decide, in targeted
+	 * wake-up mode, whether the arrival of a message must restart this behaviour.
+	 * A behaviour is considered interested unless it is blocked on a declared
+	 * template that does not match the message.
+	 */
+	public boolean isWaitingFor(ACLMessage msg) {
+		if (runnableState) {
+			return true;
+		}
+		MessageTemplate t = waitTemplate;
+		return t == null || t.match(msg);
+	}
+
+	/**
+	 * This method is used internally by the framework to restart, in targeted
+	 * wake-up mode, this behaviour if it is waiting for one of the given messages.
+	 * Composite behaviours redefine it to restart only their interested
+	 * children.
+	 * 
+	 * @return <code>true</code> if this behaviour (or one of its children) was
+	 *         restarted
+	 */
+	public boolean restartIfWaitingFor(ACLMessage[] msgs) {
+		for (int i = 0; i < msgs.length; i++) {
+			if (isWaitingFor(msgs[i])) {
+				restart();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Records a restart that was not notified to this behaviour by means of a
+	// RunnableChangedEvent
+	void bumpRestartCounter() {
+		restartCounter++;
+	}
+	// #APIDOC_EXCLUDE_END
+
 	// #APIDOC_EXCLUDE_BEGIN
 	/**
 	 * This method is used internally by the framework. Developer should not call or
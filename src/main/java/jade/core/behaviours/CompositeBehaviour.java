@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.Iterator;
 
 import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
 
 /**
  * An abstract superclass for behaviours composed by many parts. This class
@@ -212,6 +213,59 @@ public abstract class CompositeBehaviour extends Behaviour {
 		// Then notify upwards
 		super.handleRestartEvent();
 	}
+
+	/**
+	 * This method is used internally by the framework. Developer should not call or
+	 * redefine it. A <code>CompositeBehaviour</code> is interested in a message as
+	 * soon as one of its children is.
+	 */
+	public boolean isWaitingFor(ACLMessage msg) {
+		Collection<Behaviour> c = getChildren();
+		if (c == null || c.isEmpty()) {
+			return super.isWaitingFor(msg);
+		}
+		Iterator<Behaviour> it = c.iterator();
+		while (it.hasNext()) {
+			if (it.next().isWaitingFor(msg)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method is used internally by the framework. Developer should not call or
+	 * redefine it. Restarting a <code>CompositeBehaviour</code> would restart all
+	 * its children: only the interested ones are restarted instead and the restart
+	 * is then propagated upwards as usual.
+	 */
+	public boolean restartIfWaitingFor(ACLMessage[] msgs) {
+		Collection<Behaviour> c = getChildren();
+		if (c == null || c.isEmpty()) {
+			return super.restartIfWaitingFor(msgs);
+		}
+		// Restarting a child may modify the collection of children
+		Behaviour[] children = c.toArray(new Behaviour[c.size()]);
+		boolean restarted = false;
+		for (int i = 0; i < children.length; i++) {
+			restarted |= children[i].restartIfWaitingFor(msgs);
+		}
+		return childRestarted(restarted);
+	}
+
+	/**
+	 * A child restarted while this behaviour is still runnable does not notify
+	 * upwards. If the child is about to block (e.g. its receive() failed just
+	 * before the message arrived) the restart would then be lost as the agent
+	 * only checks the restart counter of the root behaviour: bump ours so that
+	 * the check sees it at every level.
+	 */
+	boolean childRestarted(boolean restarted) {
+		if (restarted) {
+			bumpRestartCounter();
+		}
+		return restarted;
+	}
 	// #APIDOC_EXCLUDE_END
 
 	/**
@@ -30,8 +30,10 @@ import java.util.Collection;
 
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 
 import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
 
 /**
  * Composite behaviour with concurrent children scheduling. It is a
@@ -39,6 +41,12 @@ import jade.core.Agent;
  * concurrently, and it terminates when a particular condition on its
  * sub-behaviours is met i.e. when all children are done, <em>N</em> children
  * are done or any child is done.
+ * <p>
+ * By default children are scheduled in a round robin fashion skipping blocked
+ * ones. A <code>ParallelBehaviour</code> with lots of mostly blocked children
+ * (e.g. one child per conversation being served) should rather use the ready
+ * queue scheduling mode (see <code>setReadyQueueScheduling()</code>), where
+ * each scheduling step only deals with runnable children.
  * 
  * @author Giovanni Rimassa - Universita` di Parma
  * @author Giovanni Caire - Telecom Italia Lab
@@ -68,6 +76,14 @@ public class ParallelBehaviour extends CompositeBehaviour {
 	private Hashtable<Behaviour, Behaviour> blockedChildren = new Hashtable<>();
 	private BehaviourList terminatedChildren = new BehaviourList();
 
+	// Ready queue scheduling mode: children are kept in an insertion ordered set
+	// (subBehaviours stays empty and is just used as lock) and runnable ones are
+	// queued in readyChildren as they become runnable
+	private boolean readyQueueScheduling;
+	private LinkedHashSet<Behaviour> children;
+	private LinkedHashSet<Behaviour> readyChildren;
+	private Behaviour current;
+
 	/**
 	 * Construct a <code>ParallelBehaviour</code> without setting the owner agent,
 	 * and using the default termination condition (i.e. the parallel behaviour
@@ -127,6 +143,13 @@ public class ParallelBehaviour extends CompositeBehaviour {
 	 * @see jade.core.behaviours.CompositeBehaviour#scheduleFirst
 	 */
 	protected void scheduleFirst() {
+		if (readyQueueScheduling) {
+			synchronized (subBehaviours) {
+				current = null;
+				scheduleReady();
+			}
+			return;
+		}
 		// Schedule the first child
 		subBehaviours.begin();
 		Behaviour b = subBehaviours.getCurrent();
@@ -150,6 +173,12 @@ public class ParallelBehaviour extends CompositeBehaviour {
 	 * @see jade.core.behaviours.CompositeBehaviour#scheduleNext(boolean, int)
 	 */
 	protected void scheduleNext(boolean currentDone, int currentResult) {
+		if (readyQueueScheduling) {
+			synchronized (subBehaviours) {
+				scheduleReady();
+			}
+			return;
+		}
 		// Regardless of whether the current child is terminated, schedule
 		// the next one;
 		Behaviour b = subBehaviours.next();
@@ -167,6 +196,25 @@ public class ParallelBehaviour extends CompositeBehaviour {
 		}
 	}
 
+	/**
+	 * Ready queue scheduling: move the current child (if still runnable) to the
+	 * tail of the ready queue and schedule the head.
+	 */
+	private void scheduleReady() {
+		if (current != null && readyChildren.remove(current)) {
+			readyChildren.add(current);
+		}
+		if (!readyChildren.isEmpty()) {
+			current = readyChildren.iterator().next();
+		} else if (!children.isEmpty()) {
+			// No runnable child: schedule a blocked one so that this
+			// ParallelBehaviour blocks as in the round robin mode
+			current = children.iterator().next();
+		} else {
+			current = null;
+		}
+	}
+
 	/**
 	 * Check whether this <code>ParallelBehaviour</code> must terminate.
 	 * 
@@ -176,8 +224,8 @@ public class ParallelBehaviour extends CompositeBehaviour {
 		if (currentDone) {
 			// If the current child is terminated --> remove it from
 			// the list of sub-behaviours
-			Behaviour b = subBehaviours.getCurrent();
-			subBehaviours.removeElement(b);
+			Behaviour b = getCurrent();
+			removeChild(b);
 			b.setParent(null);
 			terminatedChildren.addElement(b);
 		}
@@ -186,7 +234,7 @@ public class ParallelBehaviour extends CompositeBehaviour {
 			// The following check must be done regardless of the fact
 			// that the current child is done or not, but provided that
 			// this ParallelBehaviour is not terminated
-			if (blockedChildren.size() == subBehaviours.size()) {
+			if (blockedChildren.size() == childrenCount()) {
 				// If all children are blocked --> this
 				// ParallelBehaviour must block too and notify upwards
 				myEvent.init(false, NOTIFY_UP);
@@ -204,7 +252,7 @@ public class ParallelBehaviour extends CompositeBehaviour {
 	 * @see jade.core.behaviours.CompositeBehaviour#getCurrent
 	 */
 	protected Behaviour getCurrent() {
-		return subBehaviours.getCurrent();
+		return readyQueueScheduling ? current : subBehaviours.getCurrent();
 	}
 
 	/**
@@ -214,7 +262,7 @@ public class ParallelBehaviour extends CompositeBehaviour {
 	 * @see jade.core.behaviours.CompositeBehaviour#getChildren
 	 */
 	public Collection<Behaviour> getChildren() {
-		return subBehaviours;
+		return readyQueueScheduling ? children : subBehaviours;
 	}
 
 	/**
@@ -229,7 +277,16 @@ public class ParallelBehaviour extends CompositeBehaviour {
 	 * Add a sub behaviour to this <code>ParallelBehaviour</code>
 	 */
 	public void addSubBehaviour(Behaviour b) {
-		subBehaviours.addElement(b);
+		if (readyQueueScheduling) {
+			synchronized (subBehaviours) {
+				children.add(b);
+				if (b.isRunnable()) {
+					readyChildren.add(b);
+				}
+			}
+		} else {
+			subBehaviours.addElement(b);
+		}
 
 		b.setParent(this);
 		b.setAgent(myAgent);
@@ -261,7 +318,7 @@ public class ParallelBehaviour extends CompositeBehaviour {
 	 */
 	public void removeSubBehaviour(Behaviour b) {
 		terminatedChildren.removeElement(b);
-		boolean rc = subBehaviours.removeElement(b);
+		boolean rc = removeChild(b);
 
 		if (rc) {
 			b.setParent(null);
@@ -274,7 +331,7 @@ public class ParallelBehaviour extends CompositeBehaviour {
 		} else {
 			// If some children still exist and they are all blocked,
 			// block this ParallelBehaviour and notify upwards
-			if ((!subBehaviours.isEmpty()) && (blockedChildren.size() == subBehaviours.size())) {
+			if ((childrenCount() > 0) && (blockedChildren.size() == childrenCount())) {
 				myEvent.init(false, NOTIFY_UP);
 				super.handle(myEvent);
 			}
@@ -296,11 +353,24 @@ public class ParallelBehaviour extends CompositeBehaviour {
 		while (b != null) {
 			terminatedChildren.removeElement(b);
 			b.setParent(this);
-			subBehaviours.addElement(b);
+			if (readyQueueScheduling) {
+				children.add(b);
+			} else {
+				subBehaviours.addElement(b);
+			}
 			b = terminatedChildren.next();
 		}
 
-		subBehaviours.begin();
+		if (readyQueueScheduling) {
+			// All children are going to be restarted
+			synchronized (subBehaviours) {
+				readyChildren.clear();
+				readyChildren.addAll(children);
+				current = null;
+			}
+		} else {
+			subBehaviours.begin();
+		}
 
 		super.reset();
 
@@ -335,6 +405,9 @@ public class ParallelBehaviour extends CompositeBehaviour {
 						// If this is a restart, remove the child from the
 						// list of blocked children
 						Object child = blockedChildren.remove(b);
+						if (readyQueueScheduling && children.contains(b)) {
+							readyChildren.add(b);
+						}
 
 						// Only if all children were blocked (this ParallelBehaviour was
 						// blocked too), restart this ParallelBehaviour and notify upwards
@@ -349,10 +422,13 @@ public class ParallelBehaviour extends CompositeBehaviour {
 						// If this is a block, put the child in the list of
 						// blocked children
 						Object child = blockedChildren.put(b, b);
+						if (readyQueueScheduling) {
+							readyChildren.remove(b);
+						}
 
 						// Only if, with the addition of this child all sub-behaviours
 						// are now blocked, block this ParallelBehaviour and notify upwards
-						if ((child == null) && (blockedChildren.size() == subBehaviours.size())) {
+						if ((child == null) && (blockedChildren.size() == childrenCount())) {
 							myEvent.init(false, NOTIFY_UP);
 							super.handle(myEvent);
 						}
@@ -376,25 +452,110 @@ public class ParallelBehaviour extends CompositeBehaviour {
 				// according to whether this is a block or restart
 				if (r) {
 					blockedChildren.clear();
+					if (readyQueueScheduling) {
+						readyChildren.addAll(children);
+					}
 				} else {
 					it = getChildren().iterator();
 					while (it.hasNext()) {
 						Behaviour b = (Behaviour) it.next();
 						blockedChildren.put(b, b);
 					}
+					if (readyQueueScheduling) {
+						readyChildren.clear();
+					}
 				}
 			} // END of downwards notification
 		}
 	}
 
+	/**
+	 * This method may be executed by a thread posting a message into the Agent's
+	 * message queue --> it must be synchronized with sub-behaviour
+	 * additions/removal.
+	 */
+	public boolean isWaitingFor(ACLMessage msg) {
+		synchronized (subBehaviours) {
+			return super.isWaitingFor(msg);
+		}
+	}
+
+	/**
+	 * This method may be executed by a thread posting a message into the Agent's
+	 * message queue --> it must be synchronized with sub-behaviour
+	 * additions/removal.
+	 */
+	public boolean restartIfWaitingFor(ACLMessage[] msgs) {
+		synchronized (subBehaviours) {
+			return super.restartIfWaitingFor(msgs);
+		}
+	}
+
 	// #APIDOC_EXCLUDE_END
 
+	/**
+	 * Enable or disable the ready queue scheduling mode. In this mode, besides
+	 * the set of blocked children, this <code>ParallelBehaviour</code> keeps a
+	 * queue of runnable children, updated in constant time as children block
+	 * and restart: each scheduling step takes the next runnable child from the
+	 * queue instead of walking past blocked children, and removing a
+	 * terminated child takes constant time too. Children are still executed
+	 * in a round robin fashion.
+	 * This is typically called before adding children.
+	 */
+	public void setReadyQueueScheduling(boolean on) {
+		synchronized (subBehaviours) {
+			if (on == readyQueueScheduling) {
+				return;
+			}
+			if (on) {
+				current = subBehaviours.getCurrent();
+				children = new LinkedHashSet<>(subBehaviours);
+				readyChildren = new LinkedHashSet<>();
+				for (Behaviour b : children) {
+					if (!blockedChildren.containsKey(b)) {
+						readyChildren.add(b);
+					}
+				}
+				subBehaviours.clear();
+			} else {
+				for (Behaviour b : children) {
+					subBehaviours.addElement(b);
+				}
+				subBehaviours.begin();
+				children = null;
+				readyChildren = null;
+				current = null;
+			}
+			readyQueueScheduling = on;
+		}
+	}
+
+	public boolean isReadyQueueScheduling() {
+		return readyQueueScheduling;
+	}
+
+	private int childrenCount() {
+		return readyQueueScheduling ? children.size() : subBehaviours.size();
+	}
+
+	private boolean removeChild(Behaviour b) {
+		if (readyQueueScheduling) {
+			synchronized (subBehaviours) {
+				readyChildren.remove(b);
+				return children.remove(b);
+			}
+		} else {
+			return subBehaviours.removeElement(b);
+		}
+	}
+
 	private boolean evalCondition() {
 
 		boolean cond;
 		switch (whenToStop) {
 		case WHEN_ALL:
-			cond = subBehaviours.isEmpty();
+			cond = childrenCount() == 0;
 			break;
 		case WHEN_ANY:
 			cond = !terminatedChildren.isEmpty();
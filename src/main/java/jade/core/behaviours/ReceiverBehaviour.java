@@ -299,7 +299,7 @@ public final class ReceiverBehaviour extends Behaviour {
 
 		if (msg == null) {
 			if (timeOut < 0) {
-				block();
+				block(template);
 				finished = false;
 			} else {
 				long elapsedTime = 0;
@@ -313,7 +313,7 @@ public final class ReceiverBehaviour extends Behaviour {
 				if (timeToWait > 0) {
 					blockingTime = System.currentTimeMillis();
 					// System.out.println("Waiting for " + timeToWait + " ms.");
-					block(timeToWait);
+					block(template, timeToWait);
 				} else {
 					future.setMessage(msg);
 					finished = true;
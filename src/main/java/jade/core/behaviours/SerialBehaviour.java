@@ -27,6 +27,7 @@ package jade.core.behaviours;
 import java.io.Serial;
 
 import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
 
 /**
  * Base class for all composite behaviour whose children run serially, i.e. the
@@ -95,6 +96,28 @@ public abstract class SerialBehaviour extends CompositeBehaviour {
 		}
 	}
 
+	/**
+	 * Only the currently active child of a <code>SerialBehaviour</code> can be
+	 * waiting for a message.
+	 */
+	public boolean isWaitingFor(ACLMessage msg) {
+		Behaviour b = getCurrent();
+		return b == null ? super.isWaitingFor(msg) : b.isWaitingFor(msg);
+	}
+
+	/**
+	 * Only the currently active child of a <code>SerialBehaviour</code> can be
+	 * restarted by a message.
+	 */
+	public boolean restartIfWaitingFor(ACLMessage[] msgs) {
+		Behaviour b = getCurrent();
+		if (b == null) {
+			return super.restartIfWaitingFor(msgs);
+		} else {
+			return childRestarted(b.restartIfWaitingFor(msgs));
+		}
+	}
+
 	// #APIDOC_EXCLUDE_END
 
 }
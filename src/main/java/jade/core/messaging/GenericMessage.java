@@ -60,6 +60,7 @@ public class GenericMessage implements Serializable {
 	private transient boolean modifiable = true;
 	private String traceID;
 	private long timeStamp = -1;
+	private transient MessageTrace trace;
 
 	public GenericMessage(){
 	}
@@ -156,6 +157,18 @@ public class GenericMessage implements Serializable {
 		this.timeStamp = timeStamp; 
 	}
 
+	/**
+	 * @return The latency trace of this message or null if this message is not
+	 *         sampled
+	 */
+	public final MessageTrace getTrace() {
+		return trace;
+	}
+
+	public final void setTrace(MessageTrace trace) {
+		this.trace = trace;
+	}
+
 	
 	private void writeObject(ObjectOutputStream out) throws IOException {
 		// Updates the payload if not present, before serialising
@@ -188,6 +188,18 @@ public class LightMessagingService extends BaseService
         // Do nothing
     }
 
+    public void deliverNow(GenericMessage[] msgs, AID[] receiverIDs)
+        throws UnreachableException {
+        for (int i = 0; i < msgs.length; ++i) {
+            deliverNow(msgs[i], receiverIDs[i]);
+        }
+    }
+
+    public Object getTargetNode(GenericMessage msg, AID receiverID) {
+        // Node-level batching is not supported
+        return null;
+    }
+
     public void deliverNow(GenericMessage msg, AID receiverID)
         throws UnreachableException {
         try {
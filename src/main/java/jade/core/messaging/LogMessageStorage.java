@@ -0,0 +1,544 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.messaging;
+
+//#MIDP_EXCLUDE_FILE
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import jade.core.AID;
+import jade.core.Profile;
+import jade.util.Logger;
+
+/**
+ * A <code>MessageStorage</code> that keeps undelivered messages in an
+ * append-only log split into memory-mapped segment files.
+ * <ul>
+ * <li>Storing a message appends a record to the active segment. Deleting it
+ * appends a small tombstone record. No file is created, renamed or rewritten
+ * on a per-message basis.</li>
+ * <li>Records are forced to disk by a dedicated thread. Concurrent
+ * <code>store()</code> calls waiting for their record to be persistent are
+ * served by a single force (group commit).</li>
+ * <li>When a segment contains mostly delivered messages, the remaining ones
+ * (and the tombstones still referring to older segments) are copied to the
+ * active segment and the segment is removed.</li>
+ * <li>At startup the segments are scanned once to rebuild the index of
+ * undelivered messages and cut at their last valid record. Only undelivered
+ * messages are then deserialized by <code>loadAll()</code>. New records are
+ * always appended to a new segment.</li>
+ * </ul>
+ * This storage is selected by setting the
+ * <code>persistent-delivery-storagemethod</code> property to <b>log</b>.
+ *
+ * @see PersistentDeliveryService#PERSISTENT_DELIVERY_STORAGEMETHOD
+ */
+class LogMessageStorage implements MessageStorage {
+
+	private static final String LOG_DIR = "MessageLog";
+	private static final String SEGMENT_PREFIX = "SEG-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	// Compacted segments are renamed with this suffix before being deleted
+	private static final String DELETED_SUFFIX = ".del";
+	private static final String STORE_NAME_PREFIX = "LOG-";
+
+	private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+	// A segment is compacted when less than this fraction of its records is still needed
+	private static final double COMPACTION_THRESHOLD = 0.5;
+	// Delay before forcing the log again after a failure
+	private static final long FLUSH_RETRY_DELAY = 1000;
+
+	// Record types
+	private static final byte STORE = 1;
+	private static final byte DELETE = 2;
+
+	// Record layout: length (4), type (1), id (8), payload, CRC of type+id+payload (4)
+	private static final int RECORD_OVERHEAD = 17;
+
+	private final Logger myLogger = Logger.getMyLogger(getClass().getName());
+
+	private File logDir;
+	private int segmentSize;
+	private boolean syncWrites;
+
+	// Segments, oldest first. The last one is the active segment
+	private final List<Segment> segments = new ArrayList<>();
+	private Segment active;
+	private long nextSegmentNumber;
+	private long nextId;
+	// Undelivered messages: id --> segment holding the STORE record
+	private final Map<Long, Segment> undelivered = new HashMap<>();
+
+	// Group commit
+	private long writtenSeq;
+	private long flushedSeq;
+	// The error of the last force, if it failed. Cleared by the next successful one
+	private Throwable flushFailure;
+	private boolean compactionRequested;
+	private Thread flusher;
+
+	public void init(Profile p) {
+		String s = p.getParameter(PersistentDeliveryService.PERSISTENT_DELIVERY_BASEDIR, null);
+		if (s == null) {
+			s = "." + File.separator + "PersistentDeliveryStore";
+		}
+		logDir = new File(s, LOG_DIR);
+		if (!logDir.exists()) {
+			logDir.mkdirs();
+		}
+
+		segmentSize = DEFAULT_SEGMENT_SIZE;
+		s = p.getParameter(PersistentDeliveryService.PERSISTENT_DELIVERY_LOGSEGMENTSIZE, null);
+		if (s != null) {
+			try {
+				segmentSize = Integer.parseInt(s);
+			} catch (NumberFormatException nfe) {
+				// Do nothing: the default value will be used...
+			}
+		}
+		syncWrites = p.getBooleanProperty(PersistentDeliveryService.PERSISTENT_DELIVERY_LOGSYNC, true);
+
+		try {
+			recover();
+		} catch (IOException ioe) {
+			myLogger.log(Logger.SEVERE, "Error recovering message log in " + logDir, ioe);
+		}
+
+		flusher = new Thread(this::flushLoop, "Persistent Delivery Service -- Log Flusher Thread");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	public String store(GenericMessage msg, AID receiver) throws IOException {
+		// Serialize outside the lock
+		ByteArrayOutputStream ostream = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(ostream);
+		out.writeObject(msg);
+		out.writeObject(receiver);
+		out.close();
+		byte[] payload = ostream.toByteArray();
+
+		long id;
+		long seq;
+		synchronized (this) {
+			id = nextId++;
+			int offset = append(STORE, id, payload);
+			active.undelivered.put(id, offset);
+			undelivered.put(id, active);
+			seq = ++writtenSeq;
+			notifyAll();
+
+			if (syncWrites) {
+				// Wait until the flusher thread forced our record to disk
+				boolean interrupted = false;
+				while (flushedSeq < seq && flushFailure == null && flusher.isAlive()) {
+					try {
+						wait();
+					} catch (InterruptedException ie) {
+						interrupted = true;
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				if (flushedSeq < seq && flushFailure != null) {
+					// The record may not be persistent: forget it so that it is not
+					// delivered again after a restart, and let the caller know
+					delete(STORE_NAME_PREFIX + id, receiver);
+					throw new IOException("Error forcing message log to disk [" + flushFailure + "]", flushFailure);
+				}
+			}
+		}
+		return STORE_NAME_PREFIX + id;
+	}
+
+	public synchronized void delete(String storeName, AID receiver) throws IOException {
+		long id;
+		try {
+			id = Long.parseLong(storeName.substring(STORE_NAME_PREFIX.length()));
+		} catch (Exception e) {
+			throw new IOException("Invalid store name " + storeName);
+		}
+		Segment s = undelivered.remove(id);
+		if (s != null) {
+			s.undelivered.remove(id);
+			// A lost tombstone at most causes a duplicate delivery after a crash:
+			// do not wait for it to be forced to disk
+			append(DELETE, id, new byte[0]);
+			if (s != active) {
+				active.tombstones.put(id, s);
+			}
+			writtenSeq++;
+			checkCompaction();
+			notifyAll();
+		}
+	}
+
+	public synchronized void loadAll(LoadListener ll) throws IOException {
+		// Notify the listener that the load process started
+		ll.loadStarted("");
+
+		for (Segment s : segments) {
+			for (Map.Entry<Long, Integer> e : s.undelivered.entrySet()) {
+				long id = e.getKey();
+				byte[] payload = s.readPayload(e.getValue());
+				try {
+					ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload));
+					GenericMessage msg = (GenericMessage) in.readObject();
+					AID receiver = (AID) in.readObject();
+					in.close();
+					ll.itemLoaded(STORE_NAME_PREFIX + id, msg, receiver);
+				} catch (ClassNotFoundException cnfe) {
+					myLogger.log(Logger.WARNING, "Error reading message " + id + " from " + s.file.getName() + " [" + cnfe.getMessage() + "]");
+				}
+			}
+		}
+
+		// Notify the listener that the load process ended
+		ll.loadEnded("");
+	}
+
+	/**
+	 * Append a record to the active segment, rolling to a new segment if needed.
+	 * @return The offset of the record in the active segment
+	 */
+	private int append(byte type, long id, byte[] payload) throws IOException {
+		int size = RECORD_OVERHEAD + payload.length;
+		if (active == null || active.remaining() < size) {
+			roll(size);
+		}
+		return active.append(type, id, payload);
+	}
+
+	private void roll(int minSize) throws IOException {
+		if (active != null) {
+			// The flusher only deals with the active segment
+			active.force();
+		}
+		File f = new File(logDir, segmentName(nextSegmentNumber++));
+		active = new Segment(f, Math.max(segmentSize, minSize));
+		segments.add(active);
+		myLogger.log(Logger.FINE, "New message log segment " + f.getName());
+		checkCompaction();
+	}
+
+	private void checkCompaction() {
+		for (Segment s : segments) {
+			if (s != active && s.isCompactable()) {
+				compactionRequested = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Flusher thread entry point: force written records to disk (serving all
+	 * waiting store() calls at once) and compact segments when needed.
+	 */
+	private void flushLoop() {
+		while (true) {
+			try {
+				Segment s;
+				long target;
+				synchronized (this) {
+					while (writtenSeq == flushedSeq && !compactionRequested) {
+						wait();
+					}
+					s = active;
+					target = writtenSeq;
+				}
+				if (s != null) {
+					s.force();
+				}
+				synchronized (this) {
+					flushedSeq = target;
+					flushFailure = null;
+					notifyAll();
+					if (compactionRequested) {
+						compactionRequested = false;
+						try {
+							compact();
+						} catch (Throwable t) {
+							myLogger.log(Logger.SEVERE, "Error compacting message log", t);
+						}
+					}
+				}
+			} catch (InterruptedException ie) {
+				// Just go on
+			} catch (Throwable t) {
+				myLogger.log(Logger.SEVERE, "Error flushing message log", t);
+				synchronized (this) {
+					// flushedSeq is not advanced past the failed force: store() calls
+					// waiting for it get an exception. Retry later.
+					flushFailure = t;
+					notifyAll();
+					try {
+						wait(FLUSH_RETRY_DELAY);
+					} catch (InterruptedException ie) {
+						// Just go on
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy the undelivered messages of compactable segments to the active
+	 * segment and remove them. Tombstones referring to messages stored in older
+	 * segments that still exist are copied too: dropping them would make those
+	 * messages be loaded again at next startup.
+	 * Compacted segments are renamed before being deleted. If a crash occurs
+	 * before all of them are gone, the copies of their messages are found in a
+	 * later segment at next startup and scan() keeps only the latest one.
+	 */
+	private void compact() throws IOException {
+		List<Segment> compactable = new ArrayList<>();
+		for (Segment s : segments) {
+			if (s != active && s.isCompactable()) {
+				compactable.add(s);
+			}
+		}
+		for (Segment s : compactable) {
+			for (Map.Entry<Long, Integer> e : new ArrayList<>(s.undelivered.entrySet())) {
+				long id = e.getKey();
+				int offset = append(STORE, id, s.readPayload(e.getValue()));
+				active.undelivered.put(id, offset);
+				undelivered.put(id, active);
+			}
+			for (Map.Entry<Long, Segment> e : s.tombstones.entrySet()) {
+				if (segments.contains(e.getValue()) && !compactable.contains(e.getValue())) {
+					append(DELETE, e.getKey(), new byte[0]);
+					active.tombstones.put(e.getKey(), e.getValue());
+				}
+			}
+		}
+		if (!compactable.isEmpty()) {
+			// The copies must be persistent before the original records are removed
+			active.force();
+			for (Segment s : compactable) {
+				segments.remove(s);
+				s.delete();
+				myLogger.log(Logger.FINE, "Message log segment " + s.file.getName() + " compacted");
+			}
+			// Tombstones referring to removed segments are no longer needed
+			for (Segment s : segments) {
+				s.tombstones.values().removeAll(compactable);
+			}
+		}
+	}
+
+	private void recover() throws IOException {
+		// Compacted segments whose deletion was interrupted by a crash
+		String[] deleted = logDir.list((dir, name) -> name.endsWith(SEGMENT_SUFFIX + DELETED_SUFFIX));
+		for (String name : deleted) {
+			new File(logDir, name).delete();
+		}
+
+		String[] names = logDir.list((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		Arrays.sort(names);
+		for (String name : names) {
+			File f = new File(logDir, name);
+			Segment s = new Segment(f, (int) f.length());
+			s.scan(undelivered);
+			nextSegmentNumber = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())) + 1;
+			if (s.recordCnt == 0) {
+				s.delete();
+				continue;
+			}
+			// Recovered segments are never appended to: discard whatever follows the
+			// last valid record (e.g. a record being written while crashing)
+			try {
+				s.truncate();
+			} catch (IOException ioe) {
+				myLogger.log(Logger.WARNING, "Cannot truncate message log segment " + name + " [" + ioe.getMessage() + "]");
+			}
+			segments.add(s);
+		}
+		for (Segment s : segments) {
+			nextId = Math.max(nextId, s.maxId + 1);
+		}
+		// The active segment is created at the first append
+		checkCompaction();
+		if (myLogger.isLoggable(Logger.CONFIG)) {
+			myLogger.log(Logger.CONFIG, "Message log recovered: " + segments.size() + " segments, " + undelivered.size() + " undelivered messages");
+		}
+	}
+
+	private static String segmentName(long n) {
+		StringBuilder sb = new StringBuilder(Long.toString(n));
+		while (sb.length() < 12) {
+			sb.insert(0, '0');
+		}
+		return SEGMENT_PREFIX + sb + SEGMENT_SUFFIX;
+	}
+
+	/**
+	 * Inner class Segment. A memory-mapped log file.
+	 */
+	private static final class Segment {
+		private final File file;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+		private int position;
+		private int forcedPosition;
+		private int recordCnt;
+		private long maxId = -1;
+		// Undelivered messages stored in this segment: id --> offset, in log order
+		private final Map<Long, Integer> undelivered = new LinkedHashMap<>();
+		// Tombstones in this segment for messages stored in older segments: id --> segment
+		private final Map<Long, Segment> tombstones = new HashMap<>();
+
+		private Segment(File file, int size) throws IOException {
+			this.file = file;
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			channel = raf.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		private int remaining() {
+			return buffer.capacity() - position;
+		}
+
+		private int append(byte type, long id, byte[] payload) {
+			int offset = position;
+			int size = RECORD_OVERHEAD + payload.length;
+			CRC32 crc = new CRC32();
+			buffer.put(offset + 4, type);
+			buffer.putLong(offset + 5, id);
+			buffer.put(offset + 13, payload);
+			crc.update(buffer.slice(offset + 4, 9 + payload.length));
+			buffer.putInt(offset + 13 + payload.length, (int) crc.getValue());
+			// Write the length last: a record is valid only once it is complete
+			buffer.putInt(offset, size);
+			position += size;
+			recordCnt++;
+			maxId = Math.max(maxId, id);
+			return offset;
+		}
+
+		private byte[] readPayload(int offset) {
+			int size = buffer.getInt(offset);
+			byte[] payload = new byte[size - RECORD_OVERHEAD];
+			buffer.get(offset + 13, payload);
+			return payload;
+		}
+
+		/**
+		 * Scan the records of this segment updating the given index of undelivered
+		 * messages and setting the append position after the last valid record.
+		 */
+		private void scan(Map<Long, Segment> index) {
+			int offset = 0;
+			while (buffer.capacity() - offset >= RECORD_OVERHEAD) {
+				int size = buffer.getInt(offset);
+				if (size < RECORD_OVERHEAD || size > buffer.capacity() - offset) {
+					break;
+				}
+				CRC32 crc = new CRC32();
+				crc.update(buffer.slice(offset + 4, size - 8));
+				if (buffer.getInt(offset + size - 4) != (int) crc.getValue()) {
+					// Incomplete record written while crashing
+					break;
+				}
+				byte type = buffer.get(offset + 4);
+				long id = buffer.getLong(offset + 5);
+				maxId = Math.max(maxId, id);
+				recordCnt++;
+				if (type == STORE) {
+					undelivered.put(id, offset);
+					Segment s = index.put(id, this);
+					if (s != null && s != this) {
+						// A copy made by a compaction interrupted before the
+						// original segment was removed: keep the copy only
+						s.undelivered.remove(id);
+					}
+				} else if (type == DELETE) {
+					Segment s = index.remove(id);
+					if (s != null) {
+						s.undelivered.remove(id);
+						if (s != this) {
+							tombstones.put(id, s);
+						}
+					}
+				}
+				offset += size;
+			}
+			position = offset;
+			forcedPosition = offset;
+		}
+
+		/**
+		 * Cut the file after the last valid record found by scan()
+		 */
+		private void truncate() throws IOException {
+			channel.truncate(position);
+		}
+
+		private boolean isCompactable() {
+			// Records still needed are undelivered messages and tombstones referring to older segments
+			return undelivered.size() + tombstones.size() < recordCnt * COMPACTION_THRESHOLD;
+		}
+
+		private synchronized void force() {
+			int pos = position;
+			if (pos > forcedPosition) {
+				buffer.force(forcedPosition, pos - forcedPosition);
+				forcedPosition = pos;
+			}
+		}
+
+		private void delete() {
+			try {
+				channel.close();
+			} catch (IOException ioe) {
+				// Just ignore it
+			}
+			// Rename the file first (atomically): if the actual deletion does not
+			// complete, the segment is not recovered at next startup
+			File f = new File(file.getPath() + DELETED_SUFFIX);
+			if (!file.renameTo(f)) {
+				f = file;
+			}
+			if (!f.delete()) {
+				// Some platforms do not allow deleting a file that is still mapped
+				f.deleteOnExit();
+			}
+		}
+	} // END of inner class Segment
+}
@@ -0,0 +1,286 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.messaging;
+
+//#APIDOC_EXCLUDE_FILE
+//#MIDP_EXCLUDE_FILE
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import jade.core.AID;
+import jade.core.exception.IMTPException;
+import jade.core.exception.ServiceException;
+import jade.util.Logger;
+
+/**
+ * A <code>MomMessagingService</code> delivering messages between containers
+ * by means of a <code>MomLog</code>, i.e. a durable log stored in a directory
+ * shared by the containers of a platform running on the same machine (each
+ * container has its own partition of the log).
+ * <br>
+ * Messages for a remote container are appended to the partition of that
+ * container by a writer thread that groups them in batches. A consumer thread
+ * per container delivers the messages appended to its partition and sends back
+ * delivery receipts the same way. Messages still in the log when a container
+ * terminates are delivered when it restarts.
+ * <br>
+ * This service is activated by setting the <code>messaging-service-class</code>
+ * option to <code>jade.core.messaging.LogMomMessagingService</code>. It
+ * accepts the following options:
+ * <ul>
+ * <li><code>jade_core_messaging_LogMomMessagingService_dir</code>: The
+ * directory holding the log (default ./MomLog)</li>
+ * <li><code>jade_core_messaging_LogMomMessagingService_sync</code>: Whether or
+ * not each batch is forced to disk (default true)</li>
+ * <li><code>jade_core_messaging_LogMomMessagingService_pollperiod</code>: The
+ * period in ms the consumer checks its partition for records appended by other
+ * JVMs (default 50)</li>
+ * <li><code>jade_core_messaging_LogMomMessagingService_maxbatchsize</code>:
+ * The maximum number of records appended at once (default 256)</li>
+ * </ul>
+ */
+public class LogMomMessagingService extends MomMessagingService {
+	public static final String PREFIX = "jade_core_messaging_LogMomMessagingService_";
+	public static final String DIR = PREFIX + "dir";
+	public static final String SYNC = PREFIX + "sync";
+	public static final String POLL_PERIOD = PREFIX + "pollperiod";
+	public static final String MAX_BATCH_SIZE = PREFIX + "maxbatchsize";
+
+	private static final long POLL_PERIOD_DEFAULT = 50;
+	private static final int MAX_BATCH_SIZE_DEFAULT = 256;
+
+	// Record types
+	private static final byte MESSAGE = 1;
+	private static final byte RECEIPT = 2;
+
+	private MomLog log;
+	private MomLog.Consumer consumer;
+	private Thread writer;
+	private boolean writerActive;
+	private int maxBatchSize = MAX_BATCH_SIZE_DEFAULT;
+	private final LinkedList<PendingRecord> pendingRecords = new LinkedList<>();
+
+	@Override
+	protected void initMom() {
+		String dir = myProfile.getParameter(DIR, "." + File.separator + "MomLog");
+		log = new MomLog(new File(dir, MomLog.encode(myContainer.getPlatformID())), myProfile.getBooleanProperty(SYNC, true));
+		long pollPeriod = POLL_PERIOD_DEFAULT;
+		try {
+			pollPeriod = Long.parseLong(myProfile.getParameter(POLL_PERIOD, null));
+		} catch (Exception e) {
+			// Ignore and keep default
+		}
+		try {
+			maxBatchSize = Integer.parseInt(myProfile.getParameter(MAX_BATCH_SIZE, null));
+		} catch (Exception e) {
+			// Ignore and keep default
+		}
+
+		writerActive = true;
+		writer = new Thread(this::writeLoop, "MOM-Writer-" + myLocation);
+		writer.setDaemon(true);
+		writer.start();
+
+		consumer = log.new Consumer(myLocation, this::handleRecord, pollPeriod);
+		try {
+			consumer.start();
+			myLogger.log(Logger.CONFIG, "MOM log partition " + log.getPartitionFile(myLocation) + " opened at offset " + consumer.getOffset());
+		} catch (IOException ioe) {
+			myLogger.log(Logger.SEVERE, "Error opening MOM log partition " + log.getPartitionFile(myLocation), ioe);
+			consumer = null;
+		}
+	}
+
+	@Override
+	protected void shutdownMom() {
+		if (consumer != null) {
+			consumer.stop();
+		}
+		// Let the writer append pending records before terminating
+		synchronized (pendingRecords) {
+			writerActive = false;
+			pendingRecords.notifyAll();
+		}
+		try {
+			writer.join(5000);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	protected void sendMessageViaMom(String deliveryID, AID senderID, GenericMessage msg, AID receiverID, String receiverLocation) throws IMTPException {
+		try {
+			ByteArrayOutputStream ostream = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(ostream);
+			out.writeByte(MESSAGE);
+			out.writeUTF(deliveryID);
+			out.writeUTF(myLocation);
+			out.writeObject(senderID);
+			out.writeObject(msg);
+			out.writeObject(receiverID);
+			out.close();
+			byte[] record = ostream.toByteArray();
+			if (record.length > MomLog.MAX_DATA_SIZE) {
+				// Fail this delivery only, rather than the whole batch it would be appended with
+				throw new IMTPException("Message too large for MOM delivery (" + record.length + " bytes)");
+			}
+			enqueue(new PendingRecord(receiverLocation, record, deliveryID));
+		} catch (IOException ioe) {
+			throw new IMTPException("Error serializing message for MOM delivery", ioe);
+		}
+	}
+
+	@Override
+	protected void sendReceiptViaMom(String deliveryID, String messageSenderLocation, Throwable failure) {
+		byte[] record;
+		try {
+			record = serializeReceipt(deliveryID, failure);
+		} catch (IOException ioe) {
+			// The failure is not serializable: just keep its description
+			try {
+				record = serializeReceipt(deliveryID, new ServiceException(failure.toString()));
+			} catch (IOException ioe2) {
+				myLogger.log(Logger.WARNING, "Error serializing receipt for delivery " + deliveryID, ioe2);
+				return;
+			}
+		}
+		enqueue(new PendingRecord(messageSenderLocation, record, null));
+	}
+
+	private byte[] serializeReceipt(String deliveryID, Throwable failure) throws IOException {
+		ByteArrayOutputStream ostream = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(ostream);
+		out.writeByte(RECEIPT);
+		out.writeUTF(deliveryID);
+		out.writeObject(failure);
+		out.close();
+		return ostream.toByteArray();
+	}
+
+	/**
+	 * Consumer thread callback: serve a record appended to the partition of
+	 * this container
+	 */
+	private void handleRecord(byte[] record) {
+		try {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record));
+			byte type = in.readByte();
+			String deliveryID = in.readUTF();
+			if (type == MESSAGE) {
+				String senderLocation = in.readUTF();
+				AID senderID = (AID) in.readObject();
+				GenericMessage msg = (GenericMessage) in.readObject();
+				AID receiverID = (AID) in.readObject();
+				handleMessageFromMom(deliveryID, senderID, msg, receiverID, senderLocation);
+			} else if (type == RECEIPT) {
+				Throwable failure = (Throwable) in.readObject();
+				handleReceiptFromMom(deliveryID, failure);
+			} else {
+				myLogger.log(Logger.WARNING, "Unknown MOM record type " + type);
+			}
+		} catch (Exception e) {
+			myLogger.log(Logger.WARNING, "Error reading MOM record", e);
+		}
+	}
+
+	private void enqueue(PendingRecord r) {
+		synchronized (pendingRecords) {
+			pendingRecords.add(r);
+			pendingRecords.notifyAll();
+		}
+	}
+
+	/**
+	 * Writer thread entry point: append pending records to the log in batches,
+	 * one append per destination partition
+	 */
+	private void writeLoop() {
+		while (true) {
+			List<PendingRecord> batch = new ArrayList<>();
+			synchronized (pendingRecords) {
+				while (pendingRecords.isEmpty() && writerActive) {
+					try {
+						pendingRecords.wait();
+					} catch (InterruptedException ie) {
+						// Just go on
+					}
+				}
+				if (pendingRecords.isEmpty()) {
+					break;
+				}
+				while (!pendingRecords.isEmpty() && batch.size() < maxBatchSize) {
+					batch.add(pendingRecords.removeFirst());
+				}
+			}
+
+			Map<String, List<PendingRecord>> byLocation = new LinkedHashMap<>();
+			for (PendingRecord r : batch) {
+				byLocation.computeIfAbsent(r.location, k -> new ArrayList<>()).add(r);
+			}
+			for (Map.Entry<String, List<PendingRecord>> e : byLocation.entrySet()) {
+				List<byte[]> records = new ArrayList<>(e.getValue().size());
+				for (PendingRecord r : e.getValue()) {
+					records.add(r.data);
+				}
+				try {
+					log.append(e.getKey(), records);
+				} catch (Throwable t) {
+					myLogger.log(Logger.WARNING, "Error appending to MOM log partition of " + e.getKey(), t);
+					for (PendingRecord r : e.getValue()) {
+						if (r.deliveryID != null) {
+							handleDeliveryResult(r.deliveryID, new IMTPException("Error writing to MOM log", t));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Inner class PendingRecord
+	 */
+	private static class PendingRecord {
+		private final String location;
+		private final byte[] data;
+		// The delivery to fail if the record cannot be written (null for receipts)
+		private final String deliveryID;
+
+		PendingRecord(String location, byte[] data, String deliveryID) {
+			this.location = location;
+			this.data = data;
+			this.deliveryID = deliveryID;
+		}
+	} // END of inner class PendingRecord
+}
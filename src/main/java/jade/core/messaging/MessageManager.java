@@ -37,6 +37,7 @@ import jade.core.exception.UnreachableException;
 import jade.core.AID;
 import jade.core.Profile;
 import jade.core.sam.AverageMeasureProviderImpl;
+import jade.core.sam.HistogramMeasureProviderImpl;
 
 /**
  * This class manages the delivery of ACLMessages to remote destinations in an
@@ -56,6 +57,19 @@ final class MessageManager {
 	public interface Channel {
 		void deliverNow(GenericMessage msg, AID receiverID) throws UnreachableException, NotFoundException;
 
+		/**
+		 * Deliver a batch of messages whose receivers were found to live on the same
+		 * node (see <code>getTargetNode()</code>)
+		 */
+		void deliverNow(GenericMessage[] msgs, AID[] receiverIDs) throws UnreachableException, NotFoundException;
+
+		/**
+		 * @return An object identifying the node where the indicated receiver is
+		 *         already known to live, or null if this is unknown or the message
+		 *         must not be delivered as part of a batch
+		 */
+		Object getTargetNode(GenericMessage msg, AID receiverID);
+
 		void notifyFailureToSender(GenericMessage msg, AID receiver, InternalError ie);
 	}
 
@@ -79,6 +93,9 @@ final class MessageManager {
 	private static final int MAX_QUEUE_SIZE_DEFAULT = 100000000;
 	// ms/MByes, -1=no sleep time
 	private static final int SLEEP_TIME_FACTOR_DEFAULT = -1;
+	// 1=no node-level batching
+	private static final int NODE_BATCH_SIZE_DEFAULT = 1;
+	private static final long NODE_BATCH_LINGER_TIME_DEFAULT = 0; // ms
 
 	private OutBox outBox;
 	private Thread[] delivererThreads;
@@ -87,6 +104,8 @@ final class MessageManager {
 	private long deliveryTimeThreshold;
 	private long deliveryTimeThreshold2;
 	private long deliveryStuckTime;
+	private int nodeBatchSize;
+	private long nodeBatchLingerTime;
 
 	private long totSubmittedCnt;
 	private long totServedCnt;
@@ -96,8 +115,14 @@ final class MessageManager {
 
 	// How many times multiple-message-delivery was triggered
 	private long totMultipleDeliveryCnt;
+	// How many times messages for different receivers were delivered in a single node-level batch
+	private long totNodeBatchDeliveryCnt;
 	// Average number of messages delivered in multiple-message-delivery
 	private final AverageMeasureProviderImpl avgMsgCountPerMultipleDelivery = new AverageMeasureProviderImpl();
+	// Time (microseconds) spent by messages in the OutBox before being picked up by a deliverer
+	private final HistogramMeasureProviderImpl queueTimeHistogram = new HistogramMeasureProviderImpl();
+	// Time (microseconds) taken by deliverers to deliver a message (or a block/batch of messages)
+	private final HistogramMeasureProviderImpl deliveryTimeHistogram = new HistogramMeasureProviderImpl();
 
 	private final Logger myLogger = Logger.getMyLogger(getClass().getName());
 
@@ -208,11 +233,38 @@ final class MessageManager {
 			}
 		}
 
+		// NODE_BATCH_SIZE (Max number of messages to different receivers living in the
+		// same node delivered in a single horizontal command)
+		nodeBatchSize = NODE_BATCH_SIZE_DEFAULT;
+		try {
+			tmp = p.getParameter("jade_core_messaging_MessageManager_nodebatchsize", null);
+			nodeBatchSize = Integer.parseInt(tmp);
+		} catch (Exception e) {
+			// Keep default. If a value was specified print a warning
+			if (tmp != null) {
+				myLogger.log(Logger.WARNING, "\"" + tmp
+						+ "\" is not a valid int value for parameter jade_core_messaging_MessageManager_nodebatchsize. Keep default");
+			}
+		}
+
+		// NODE_BATCH_LINGER_TIME (How long to wait for more messages to fill a node-level batch)
+		nodeBatchLingerTime = NODE_BATCH_LINGER_TIME_DEFAULT;
+		try {
+			tmp = p.getParameter("jade_core_messaging_MessageManager_nodebatchlingertime", null);
+			nodeBatchLingerTime = Long.parseLong(tmp);
+		} catch (Exception e) {
+			// Keep default. If a value was specified print a warning
+			if (tmp != null) {
+				myLogger.log(Logger.WARNING, "\"" + tmp
+						+ "\" is not a valid long value for parameter jade_core_messaging_MessageManager_nodebatchlingertime. Keep default");
+			}
+		}
+
 		// MULTIPLE_DELIVERY
 		boolean enableMultipleDelivery = p
 				.getBooleanProperty("jade_core_messaging_MessageManager_enablemultipledelivery", true);
 
-		outBox = new OutBox(warningQueueSize, maxQueueSize, sleepTimeFactor, enableMultipleDelivery, this);
+		outBox = new OutBox(warningQueueSize, maxQueueSize, sleepTimeFactor, enableMultipleDelivery, nodeBatchSize > 1, this);
 
 		try {
 			ResourceManager rm = p.getResourceManager();
@@ -278,6 +330,8 @@ final class MessageManager {
 		if (active) {
 			totSubmittedCnt++;
 			try {
+				// Mark the trace before the message becomes visible to the deliverers
+				MessageTrace.mark(msg, MessageTrace.OUTBOX_ENQUEUE);
 				outBox.addLast(receiverID, msg, ch);
 			} catch (Exception e) {
 				totDiscardedCnt++;
@@ -331,40 +385,48 @@ final class MessageManager {
 				DeliveryTracing.beginTracing();
 
 				lastDeliveryStartTime = System.currentTimeMillis();
+				long deliveryStartNanos = System.nanoTime();
 				GenericMessage msg = pm.getMessage();
 				AID receiverID = pm.getReceiver();
 
 				// Deliver the message
 				Channel ch = pm.getChannel();
 				if (ch != null) {
-					delivering = true;
 					// Ch is null only in the case of dummy messages used to make the deliverers
 					// terminate.
 					// See shutdown() method
-					try {
-						ch.deliverNow(msg, receiverID);
-					} catch (Throwable t) {
-						// deliverNow() never throws exception. This is just a last protection since a
-						// MessageManager deliverer thread must never die
-						myLogger.log(Logger.WARNING, "MessageManager cannot deliver message " + stringify(msg)
-								+ " to agent " + receiverID.getName(), t);
-						ch.notifyFailureToSender(msg, receiverID,
-								new InternalError(ACLMessage.AMS_FAILURE_UNEXPECTED_ERROR + ": " + t));
-					} finally {
-						delivering = false;
-					}
-					int k = msg.getMessagesCnt();
-					servedCnt += k;
-					totServedCnt += k;
-					if (k > 1) {
-						totMultipleDeliveryCnt++;
+					PendingMsg[] batch = nodeBatchSize > 1 ? outBox.getNodeBatch(pm, nodeBatchSize, nodeBatchLingerTime) : null;
+					int k = 0;
+					delivering = true;
+					if (batch == null) {
+						queueTimeHistogram.addSample((deliveryStartNanos - pm.getEnqueueTime()) / 1000);
+						deliver(ch, msg, receiverID);
+						k = msg.getMessagesCnt();
+						if (k > 1) {
+							totMultipleDeliveryCnt++;
 
-						avgMsgCountPerMultipleDelivery.addSample(k);
+							avgMsgCountPerMultipleDelivery.addSample(k);
 
+						}
+						outBox.handleServed(receiverID, k);
+					} else {
+						for (int i = 0; i < batch.length; ++i) {
+							queueTimeHistogram.addSample((deliveryStartNanos - batch[i].getEnqueueTime()) / 1000);
+						}
+						deliver(ch, batch);
+						totNodeBatchDeliveryCnt++;
+						for (int i = 0; i < batch.length; ++i) {
+							int n = batch[i].getMessage().getMessagesCnt();
+							k += n;
+							outBox.handleServed(batch[i].getReceiver(), n);
+						}
 					}
-					outBox.handleServed(receiverID, k);
+					delivering = false;
+					servedCnt += k;
+					totServedCnt += k;
 
 					lastDeliveryEndTime = System.currentTimeMillis();
+					deliveryTimeHistogram.addSample((System.nanoTime() - deliveryStartNanos) / 1000);
 					long deliveryTime = lastDeliveryEndTime - lastDeliveryStartTime;
 					try {
 						if (deliveryTimeThreshold > 0) {
@@ -410,6 +472,40 @@ final class MessageManager {
 			myLogger.log(Logger.CONFIG, "Deliverer Thread " + name + " terminated");
 		}
 
+		private void deliver(Channel ch, GenericMessage msg, AID receiverID) {
+			MessageTrace.mark(msg, MessageTrace.DELIVERER_PICKUP);
+			try {
+				ch.deliverNow(msg, receiverID);
+			} catch (Throwable t) {
+				// deliverNow() never throws exception. This is just a last protection since a
+				// MessageManager deliverer thread must never die
+				myLogger.log(Logger.WARNING, "MessageManager cannot deliver message " + stringify(msg)
+						+ " to agent " + receiverID.getName(), t);
+				ch.notifyFailureToSender(msg, receiverID,
+						new InternalError(ACLMessage.AMS_FAILURE_UNEXPECTED_ERROR + ": " + t));
+			}
+		}
+
+		private void deliver(Channel ch, PendingMsg[] batch) {
+			GenericMessage[] msgs = new GenericMessage[batch.length];
+			AID[] receiverIDs = new AID[batch.length];
+			for (int i = 0; i < batch.length; ++i) {
+				msgs[i] = batch[i].getMessage();
+				receiverIDs[i] = batch[i].getReceiver();
+				MessageTrace.mark(msgs[i], MessageTrace.DELIVERER_PICKUP);
+			}
+			try {
+				ch.deliverNow(msgs, receiverIDs);
+			} catch (Throwable t) {
+				// Same as above
+				myLogger.log(Logger.WARNING, "MessageManager cannot deliver batch of " + batch.length + " messages", t);
+				for (int i = 0; i < batch.length; ++i) {
+					ch.notifyFailureToSender(msgs[i], receiverIDs[i],
+							new InternalError(ACLMessage.AMS_FAILURE_UNEXPECTED_ERROR + ": " + t));
+				}
+			}
+		}
+
 		long getServedCnt() {
 			return servedCnt;
 		}
@@ -440,6 +536,7 @@ final class MessageManager {
 		private final AID receiverID;
 		private final Channel channel;
 		private long deadline;
+		private final long enqueueTime = System.nanoTime();
 
 		public PendingMsg(GenericMessage msg, AID receiverID, Channel channel, long deadline) {
 			this.msg = msg;
@@ -471,6 +568,14 @@ final class MessageManager {
 		public void setDeadline(long deadline) {
 			this.deadline = deadline;
 		}
+
+		/**
+		 * @return The <code>System.nanoTime()</code> when this PendingMsg was
+		 *         created, i.e. when the message was inserted in the OutBox
+		 */
+		public long getEnqueueTime() {
+			return enqueueTime;
+		}
 	} // END of inner class PendingMsg
 
 	/**
@@ -562,15 +667,28 @@ final class MessageManager {
 		return totMultipleDeliveryCnt;
 	}
 
+	long getNodeBatchDeliveryCnt() {
+		return totNodeBatchDeliveryCnt;
+	}
+
 	AverageMeasureProviderImpl getAvgMsgCountPerMultipleDeliveryProvider() {
 		return avgMsgCountPerMultipleDelivery;
 	}
 
+	HistogramMeasureProviderImpl getQueueTimeHistogramProvider() {
+		return queueTimeHistogram;
+	}
+
+	HistogramMeasureProviderImpl getDeliveryTimeHistogramProvider() {
+		return deliveryTimeHistogram;
+	}
+
 	// For debugging purpose
 	String getGlobalInfo() {
 		return "Submitted-messages = " + totSubmittedCnt + ", Served-messages = " + totServedCnt
 				+ ", Discarded-messages = " + totDiscardedCnt + ", Queue-size (byte) = " + outBox.getSize()
-				+ ", Multiple-delivery-occurrences = " + totMultipleDeliveryCnt;
+				+ ", Multiple-delivery-occurrences = " + totMultipleDeliveryCnt
+				+ ", Node-batch-delivery-occurrences = " + totNodeBatchDeliveryCnt;
 	}
 
 	private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
@@ -0,0 +1,168 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core.messaging;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import jade.core.sam.Histogram;
+
+/**
+ * The stage timestamps of a sampled message. A trace is created when a message
+ * enters a stage of its life in this JVM (typically when it is sent) and is
+ * carried along by the <code>GenericMessage</code> and then by the
+ * <code>ACLMessage</code> posted in the receiver queue. Each time the message
+ * reaches a new stage the time elapsed since the previous recorded stage is
+ * added to the latency histogram of that stage. When the message is received
+ * and the trace was started at send time, the end-to-end latency is recorded
+ * too.
+ * <br>
+ * Timestamps are taken with <code>System.nanoTime()</code> and are therefore
+ * meaningful only within a JVM: a message delivered to a container in another
+ * JVM can be sampled again by the receiving side when it is dispatched there.
+ * Histograms are shared by all containers living in the same JVM and hold
+ * values in microseconds.
+ * <br>
+ * Tracing is disabled by default. It is activated by setting a sampling rate N
+ * (1 message out of N on average is traced) so that the overhead on messages
+ * that are not sampled is limited to reading a volatile field.
+ */
+public class MessageTrace {
+
+	public static final int SEND = 0;
+	public static final int OUTGOING_FILTERS = 1;
+	public static final int OUTBOX_ENQUEUE = 2;
+	public static final int DELIVERER_PICKUP = 3;
+	public static final int IMTP_DISPATCH = 4;
+	public static final int DISPATCH_LOCALLY = 5;
+	public static final int POST_MESSAGE = 6;
+	public static final int RECEIVE = 7;
+	/**
+	 * Pseudo-stage whose histogram holds the end-to-end SEND to RECEIVE latency
+	 */
+	public static final int TOTAL = 8;
+
+	private static final String[] STAGE_NAMES = new String[] { "Send", "Outgoing-Filters", "OutBox-Enqueue",
+			"Deliverer-Pickup", "IMTP-Dispatch", "Dispatch-Locally", "Post-Message", "Receive", "Total" };
+
+	private static final Histogram[] histograms = new Histogram[STAGE_NAMES.length];
+	static {
+		for (int i = 0; i < histograms.length; ++i) {
+			histograms[i] = new Histogram();
+		}
+	}
+
+	private static volatile int samplingRate = -1;
+
+	private final int originStage;
+	private final long startTime;
+	private long lastTime;
+
+	private MessageTrace(int originStage) {
+		this.originStage = originStage;
+		startTime = System.nanoTime();
+		lastTime = startTime;
+	}
+
+	/**
+	 * Set the tracing sampling rate: 1 message out of <code>rate</code> is
+	 * traced. A value <= 0 disables tracing.
+	 */
+	public static void setSamplingRate(int rate) {
+		samplingRate = rate;
+	}
+
+	public static int getSamplingRate() {
+		return samplingRate;
+	}
+
+	public static boolean isEnabled() {
+		return samplingRate > 0;
+	}
+
+	/**
+	 * Decide whether or not a message entering the given stage must be traced.
+	 * 
+	 * @return A new trace started at the given stage or null if the message is
+	 *         not sampled
+	 */
+	public static MessageTrace sample(int stage) {
+		int rate = samplingRate;
+		if (rate <= 0) {
+			return null;
+		}
+		if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+			return null;
+		}
+		return new MessageTrace(stage);
+	}
+
+	/**
+	 * @return The latency histogram (in microseconds) of the given stage
+	 */
+	public static Histogram getHistogram(int stage) {
+		return histograms[stage];
+	}
+
+	public static String getStageName(int stage) {
+		return STAGE_NAMES[stage];
+	}
+
+	public static int getStagesCnt() {
+		return STAGE_NAMES.length;
+	}
+
+	/**
+	 * Record that the traced message reached the given stage
+	 */
+	public void mark(int stage) {
+		long now = System.nanoTime();
+		histograms[stage].recordValue((now - lastTime) / 1000);
+		lastTime = now;
+		if (stage == RECEIVE && originStage == SEND) {
+			histograms[TOTAL].recordValue((now - startTime) / 1000);
+		}
+	}
+
+	/**
+	 * Mark the given stage on the trace(s) carried by a
+	 * <code>GenericMessage</code>, if any. In case of a
+	 * <code>MultipleGenericMessage</code> all the carried messages are marked.
+	 */
+	static void mark(GenericMessage msg, int stage) {
+		if (msg instanceof MultipleGenericMessage mgm) {
+			List<GenericMessage> messages = mgm.getMessages();
+			if (messages != null) {
+				for (GenericMessage g : messages) {
+					mark(g, stage);
+				}
+			}
+		} else if (msg != null) {
+			MessageTrace trace = msg.getTrace();
+			if (trace != null) {
+				trace.mark(stage);
+			}
+		}
+	}
+}
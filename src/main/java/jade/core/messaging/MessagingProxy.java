@@ -64,6 +64,7 @@ public class MessagingProxy extends SliceProxy implements MessagingSlice {
 			}			
 			cmd.setPrincipal(msg.getSenderPrincipal());
 			cmd.setCredentials(msg.getSenderCredentials());
+			MessageTrace.mark(msg, MessageTrace.IMTP_DISPATCH);
 			
 			Node n = getNode();
 			Object result = n.accept(cmd);
@@ -87,6 +88,35 @@ public class MessagingProxy extends SliceProxy implements MessagingSlice {
 		}
 	}
 	
+	public String[] dispatchBatch(GenericMessage[] msgs, AID[] receiverIDs) throws IMTPException {
+		try {
+			GenericCommand cmd = new GenericCommand(H_DISPATCHBATCH, NAME, null);
+			for (int i = 0; i < msgs.length; ++i) {
+				GenericMessage msg = msgs[i];
+				cmd.addParam(msg.getSender());
+				cmd.addParam(msg);
+				cmd.addParam(receiverIDs[i]);
+				cmd.addParam(Long.valueOf(msg.getTimeStamp()));
+				MessageTrace.mark(msg, MessageTrace.IMTP_DISPATCH);
+			}
+			
+			Node n = getNode();
+			Object result = n.accept(cmd);
+			if((result != null) && (result instanceof Throwable throwable)) {
+				if(result instanceof IMTPException exception) {
+					throw exception;
+				}
+				else {
+					throw new IMTPException("An undeclared exception was thrown", throwable);
+				}
+			}
+			return (String[]) result;
+		}
+		catch(ServiceException se) {
+			throw new IMTPException("Unable to access remote node", se);
+		}
+	}
+	
 	public void routeOut(Envelope env, byte[] payload,AID receiverID, String address) throws IMTPException, MTPException {
 		try {
 			GenericCommand cmd = new GenericCommand(H_ROUTEOUT, NAME, null);
@@ -63,6 +63,8 @@ import jade.core.replication.MainReplicationHandle;
 
 import jade.core.sam.AbsoluteCounterValueProvider;
 import jade.core.sam.AverageMeasureProviderImpl;
+import jade.core.sam.Histogram;
+import jade.core.sam.HistogramMeasureProvider;
 import jade.core.sam.MeasureProvider;
 import jade.core.sam.MediatedMeasureProvider;
 import jade.core.sam.SAMHelper;
@@ -82,7 +84,7 @@ import jade.mtp.MTPDescriptor;
 import jade.mtp.TransportAddress;
 import jade.mtp.exception.MTPException;
 import jade.security.JADESecurityException;
-import jade.util.HashCache;
+import jade.util.ConcurrentHashCache;
 import jade.util.Logger;
 
 /**
@@ -118,8 +120,12 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 	public static final int DELIVERY_TIME_MEASUREMENT_RATE_DEFAULT = -1; // Delivery time measurement disabled by
 																			// default. Set it to N to measure delivery
 																			// time 1 out of N delivered messages
+	public static final String MESSAGE_TRACING_RATE = "jade_core_messaging_MessagingService_messagetracingrate";
+	public static final int MESSAGE_TRACING_RATE_DEFAULT = -1; // Message tracing disabled by default. Set it to N
+																// to trace the stages of 1 out of N messages
 	public static final String ENABLE_POSTED_MESSAGE_COUNT = "jade_core_messaging_MessagingService_enablepostedmessagecount";
 	public static final String ENABLE_MESSAGE_MANAGER_METRICS = "jade_core_messaging_MessagingService_enablemessagemanagermetrics";
+	public static final String ENABLE_CACHE_METRICS = "jade_core_messaging_MessagingService_enablecachemetrics";
 
 	// The profile passed to this object
 	protected Profile myProfile;
@@ -149,7 +155,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 	private IncomingEncodingFilter encInFilter;
 
 	// The cached AID -> MessagingSlice associations
-	protected Map cachedSlices;
+	protected ConcurrentHashCache<AID, MessagingSlice> cachedSlices;
 
 	// The routing table mapping MTP addresses to their hosting slice
 	private RoutingTable routes;
@@ -222,7 +228,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 		} catch (Exception e) {
 			// Keep default
 		}
-		cachedSlices = new HashCache(size);
+		cachedSlices = new ConcurrentHashCache<>(size);
 
 		routes = new RoutingTable(myProfile.getBooleanProperty(ATTACH_PLATFORM_INFO, false));
 
@@ -381,6 +387,22 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 					samHelper.addEntityMeasureProvider("Message-Delivery-Time", deliveryTimeMeasureProvider);
 				}
 
+				// MESSAGE TRACING: per-stage latency histograms (microseconds) of sampled messages
+				int messageTracingRate = MESSAGE_TRACING_RATE_DEFAULT;
+				try {
+					messageTracingRate = Integer.parseInt(myProfile.getParameter(MESSAGE_TRACING_RATE, null));
+				} catch (Exception e) {
+					// Keep default
+				}
+				if (messageTracingRate > 0) {
+					MessageTrace.setSamplingRate(messageTracingRate);
+					// The SEND stage is where traces start: it has no latency of its own
+					for (int i = MessageTrace.SEND + 1; i < MessageTrace.getStagesCnt(); ++i) {
+						samHelper.addEntityMeasureProvider("Message-Trace-" + MessageTrace.getStageName(i),
+								createTraceMeasureProvider(i));
+					}
+				}
+
 				// POSTED MESSAGE COUNT: Number of messages posted to the agents' queues
 				// (received by agents in this container)
 				boolean enablePostedMessageCount = "true"
@@ -481,6 +503,48 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 					samHelper.addEntityMeasureProvider(
 							"Message-Manager-avg-msg-count-per-multiple-delivery#" + myContainer.getID().getName(),
 							myMessageManager.getAvgMsgCountPerMultipleDeliveryProvider());
+					samHelper.addEntityMeasureProvider(
+							"Message-Manager-queue-time#" + myContainer.getID().getName(),
+							myMessageManager.getQueueTimeHistogramProvider());
+					samHelper.addEntityMeasureProvider(
+							"Message-Manager-delivery-time#" + myContainer.getID().getName(),
+							myMessageManager.getDeliveryTimeHistogramProvider());
+					samHelper.addCounterValueProvider(
+							"Message-Manager-node-batch-delivery-count#" + myContainer.getID().getName(),
+							new AbsoluteCounterValueProvider() {
+								@Override
+								public long getValue() {
+									return myMessageManager.getNodeBatchDeliveryCnt();
+								}
+							});
+				}
+
+				// SLICE CACHE METRICS: hits, misses and evictions of the AID -> MessagingSlice cache
+				boolean enableCacheMetrics = "true"
+						.equalsIgnoreCase(myProfile.getParameter(ENABLE_CACHE_METRICS, "false"));
+				if (enableCacheMetrics) {
+					samHelper.addCounterValueProvider("Messaging-cache-hit-count#" + myContainer.getID().getName(),
+							new AbsoluteCounterValueProvider() {
+								@Override
+								public long getValue() {
+									return cachedSlices.getHitCnt();
+								}
+							});
+					samHelper.addCounterValueProvider("Messaging-cache-miss-count#" + myContainer.getID().getName(),
+							new AbsoluteCounterValueProvider() {
+								@Override
+								public long getValue() {
+									return cachedSlices.getMissCnt();
+								}
+							});
+					samHelper.addCounterValueProvider(
+							"Messaging-cache-eviction-count#" + myContainer.getID().getName(),
+							new AbsoluteCounterValueProvider() {
+								@Override
+								public long getValue() {
+									return cachedSlices.getEvictionCnt();
+								}
+							});
 				}
 			}
 		} catch (ServiceNotActiveException snae) {
@@ -900,6 +964,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 			msg.setSenderPrincipal(cmd.getPrincipal());
 			msg.setSenderCredentials(cmd.getCredentials());
 			msg.setSender(sender);
+			MessageTrace.mark(msg, MessageTrace.OUTGOING_FILTERS);
 			checkTracing(msg);
 			if (msg.getTraceID() != null) {
 				myLogger.log(Logger.INFO,
@@ -1089,6 +1154,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 										+ receiverID.getLocalName());
 					}
 					ACLMessage msg = g.getACLMessage();
+					msg.setTrace(g.getTrace());
 					if (!msg.getSender().equals(g.getSender()) && g.getSender() != null) {
 						myLogger.log(Logger.FINE,
 								"Attaching real-sender user defined parameter: " + g.getSender().getName());
@@ -1121,6 +1187,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 				myLogger.log(Logger.INFO, gMsg.getTraceID()
 						+ " - MessagingService target sink posting message to receiver " + receiverID.getLocalName());
 			}
+			gMsg.getACLMessage().setTrace(gMsg.getTrace());
 			postMessage(senderID, gMsg.getACLMessage(), receiverID);
 			
 			postedMessageCounter++;
@@ -1464,6 +1531,12 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 					if (params.length == 4) {
 						msg.setTimeStamp(((Long) params[3]).longValue());
 					}
+					if (msg.getTrace() != null) {
+						msg.getTrace().mark(MessageTrace.DISPATCH_LOCALLY);
+					} else {
+						// Received from another JVM (or not sampled on the sender side)
+						msg.setTrace(MessageTrace.sample(MessageTrace.DISPATCH_LOCALLY));
+					}
 					if (msg.getTraceID() != null) {
 						myLogger.log(Logger.INFO,
 								"MessagingService-slice: received message " + MessageManager.stringify(msg)
@@ -1474,6 +1547,32 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 					gCmd.addParam(msg);
 					gCmd.addParam(receiverID);
 					result = gCmd;
+				} else if (MessagingSlice.H_DISPATCHBATCH.equals(cmdName)) {
+					// Each message is served exactly as if it was received by means of an
+					// individual H_DISPATCHLOCALLY command
+					Node localNode = getLocalNode();
+					String[] results = new String[params.length / 4];
+					for (int i = 0; i < results.length; ++i) {
+						GenericCommand single = new GenericCommand(MessagingSlice.H_DISPATCHLOCALLY, MessagingSlice.NAME, null);
+						single.addParam(params[4 * i]);
+						single.addParam(params[4 * i + 1]);
+						single.addParam(params[4 * i + 2]);
+						Long timeStamp = (Long) params[4 * i + 3];
+						if (timeStamp.longValue() > 0) {
+							single.addParam(timeStamp);
+						}
+						single.setPrincipal(cmd.getPrincipal());
+						single.setCredentials(cmd.getCredentials());
+						try {
+							Object ret = localNode.accept(single);
+							if (ret instanceof Throwable) {
+								results[i] = ret.toString();
+							}
+						} catch (IMTPException imtpe) {
+							results[i] = imtpe.toString();
+						}
+					}
+					cmd.setReturnValue(results);
 				} else if (MessagingSlice.H_GETAGENTLOCATION.equals(cmdName)) {
 					AID agentID = (AID) params[0];
 
@@ -1613,6 +1712,17 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 
 	} // End of ServiceComponent class
 
+	private static HistogramMeasureProvider createTraceMeasureProvider(final int stage) {
+		return new HistogramMeasureProvider() {
+			@Override
+			public Histogram getValue() {
+				// Histograms are shared by all containers in this JVM: the first poll drains
+				// them and the others get empty histograms
+				return MessageTrace.getHistogram(stage).snapshotAndReset();
+			}
+		};
+	}
+
 	void stamp(GenericMessage gmsg) {
 		
 		if (samActive) {
@@ -1711,6 +1821,80 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 		}
 	}
 
+	// Entry point for the delivery of a batch of messages whose receivers live on the same node.
+	// Messages that could not be delivered as part of the batch go through the normal path
+	public void deliverNow(GenericMessage[] msgs, AID[] receiverIDs) {
+		String[] results = null;
+		MessagingSlice targetSlice = cachedSlices.get(receiverIDs[0]);
+		if (targetSlice != null) {
+			try {
+				results = targetSlice.dispatchBatch(msgs, receiverIDs);
+			} catch (IMTPException imtpe) {
+				if (myLogger.isLoggable(Logger.FINE)) {
+					myLogger.log(Logger.FINE, "Batch delivery of " + msgs.length + " messages failed [" + imtpe
+							+ "]. Deliver them one by one");
+				}
+			}
+		}
+		for (int i = 0; i < msgs.length; ++i) {
+			if (results == null || results[i] != null) {
+				if (results != null && myLogger.isLoggable(Logger.FINE)) {
+					myLogger.log(Logger.FINE, "Batch delivery to receiver " + receiverIDs[i].getName() + " failed ["
+							+ results[i] + "]. Retry alone");
+				}
+				// The cached slice (if any) is no longer valid for this receiver
+				cachedSlices.remove(receiverIDs[i]);
+				deliverNow(msgs[i], receiverIDs[i]);
+			}
+		}
+	}
+
+	/**
+	 * Return the name of the container where a given agent is known to live without any remote
+	 * lookup (i.e. using the GADT on the main container and the slice cache elsewhere), or null if unknown.
+	 */
+	String getKnownLocation(AID receiverID) {
+		if (myContainer.isLocalAgent(receiverID)) {
+			return myContainer.getID().getName();
+		}
+		if (myContainer.getMain() != null) {
+			try {
+				return getAgentLocation(receiverID).getName();
+			} catch (Exception e) {
+				return null;
+			}
+		}
+		// Just a routing hint: the actual delivery looks the slice up again (and counts the hit/miss)
+		MessagingSlice cachedSlice = cachedSlices.peek(receiverID);
+		if (cachedSlice != null) {
+			try {
+				return cachedSlice.getNode().getName();
+			} catch (ServiceException se) {
+				// Should never happen since getNode() is a local call
+			}
+		}
+		return null;
+	}
+
+	public Object getTargetNode(GenericMessage msg, AID receiverID) {
+		// Only messages to local-platform receivers whose location is cached can be batched.
+		// Messages carrying security information need their own horizontal command.
+		if (msg.hasForeignReceiver() || msg.getSenderPrincipal() != null || msg.getSenderCredentials() != null
+				|| myContainer.getMain() != null) {
+			return null;
+		}
+		// Just a routing hint: the actual delivery looks the slice up again (and counts the hit/miss)
+		MessagingSlice cachedSlice = cachedSlices.peek(receiverID);
+		if (cachedSlice != null) {
+			try {
+				return cachedSlice.getNode().getName();
+			} catch (ServiceException se) {
+				// Should never happen since getNode() is a local call
+			}
+		}
+		return null;
+	}
+
 	private boolean isPersistentDeliveryRetry(GenericMessage msg) {
 		boolean ret = false;
 		
@@ -1747,7 +1931,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 			}
 		} else {
 			// Try first with the cached <AgentID;MessagingSlice> pairs
-			MessagingSlice cachedSlice = (MessagingSlice) cachedSlices.get(receiverID);
+			MessagingSlice cachedSlice = cachedSlices.get(receiverID);
 			if (cachedSlice != null) { // Cache hit :-)
 				try {
 					if (msg.getTraceID() != null) {
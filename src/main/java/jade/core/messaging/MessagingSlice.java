@@ -106,8 +106,16 @@ public interface MessagingSlice extends Service.Slice {
 	static final String H_DEADALIAS = "11";
 	static final String H_CURRENTALIASES = "12";
 	static final String H_TRANSFERLOCALALIASES = "13";
+	static final String H_DISPATCHBATCH = "14";
 
 	void dispatchLocally(AID senderAID, GenericMessage msg, AID receiverID) throws IMTPException, NotFoundException, JADESecurityException;
+	/**
+	   Dispatch a batch of messages, possibly addressed to different receivers living on this slice's node, 
+	   in a single horizontal command.
+	   @return An array with an entry for each message: <code>null</code> if the message was delivered, 
+	   a description of the problem otherwise
+	 */
+	String[] dispatchBatch(GenericMessage[] msgs, AID[] receiverIDs) throws IMTPException;
 	void routeOut(Envelope env, byte[] payload, AID receiverID, String address) throws IMTPException, MTPException;
 	ContainerID getAgentLocation(AID agentID) throws IMTPException, NotFoundException;
 
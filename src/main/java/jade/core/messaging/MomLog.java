@@ -0,0 +1,406 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.messaging;
+
+//#APIDOC_EXCLUDE_FILE
+//#MIDP_EXCLUDE_FILE
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import jade.util.Logger;
+
+/**
+ * A durable log split into partitions, one per container location, stored as
+ * files in a directory shared by all containers of a platform running on the
+ * same machine.
+ * <ul>
+ * <li>Any container appends records to the partition of the destination
+ * location. Appends are done in batches holding an exclusive lock on the
+ * partition file (that also works across JVMs) and, optionally, forced to disk
+ * once per batch.</li>
+ * <li>Only the owner of a partition consumes it, by means of a
+ * <code>Consumer</code> thread. The consumed offset is persisted so that a
+ * restarted container goes on from where it stopped. Records are consumed at
+ * least once: the ones consumed just before a crash may be consumed again.</li>
+ * <li>When all records have been consumed the partition file is truncated.</li>
+ * </ul>
+ */
+class MomLog {
+
+	private static final String PARTITION_SUFFIX = ".log";
+	private static final String OFFSET_SUFFIX = ".offset";
+
+	// Record layout: length (4), payload, CRC of payload (4)
+	private static final int RECORD_OVERHEAD = 8;
+	private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+	// The maximum size of the data a record can carry
+	static final int MAX_DATA_SIZE = MAX_RECORD_SIZE - RECORD_OVERHEAD;
+
+	// A consumed partition is truncated when its size exceeds this value
+	private static final long TRUNCATE_THRESHOLD = 1024 * 1024;
+
+	// Locks preventing threads of this JVM from locking the same file twice
+	// (that would result in an OverlappingFileLockException): path --> lock
+	private static final Map<String, Object> jvmLocks = new HashMap<>();
+	// Consumers running in this JVM: path --> Consumer
+	private static final Map<String, Consumer> localConsumers = new HashMap<>();
+
+	private final Logger myLogger = Logger.getMyLogger(getClass().getName());
+
+	private final File dir;
+	private final boolean syncWrites;
+
+	MomLog(File dir, boolean syncWrites) {
+		this.dir = dir;
+		this.syncWrites = syncWrites;
+		if (!dir.exists()) {
+			dir.mkdirs();
+		}
+	}
+
+	/**
+	 * Append a batch of records to the partition of a given location
+	 * @throws IOException if a record exceeds the maximum record size: the
+	 * consumer would consider it corrupted and never get past it
+	 */
+	void append(String location, List<byte[]> records) throws IOException {
+		long size = 0;
+		for (byte[] r : records) {
+			if (r.length > MAX_DATA_SIZE) {
+				throw new IOException("Record size " + r.length + " exceeds the maximum allowed size " + MAX_DATA_SIZE);
+			}
+			size += RECORD_OVERHEAD + r.length;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Batch size " + size + " too large");
+		}
+		ByteBuffer bb = ByteBuffer.allocate((int) size);
+		CRC32 crc = new CRC32();
+		for (byte[] r : records) {
+			crc.reset();
+			crc.update(r);
+			bb.putInt(RECORD_OVERHEAD + r.length);
+			bb.put(r);
+			bb.putInt((int) crc.getValue());
+		}
+		bb.flip();
+
+		File f = getPartitionFile(location);
+		synchronized (getJvmLock(f)) {
+			try (RandomAccessFile raf = new RandomAccessFile(f, "rw"); FileLock lock = raf.getChannel().lock()) {
+				FileChannel ch = raf.getChannel();
+				long position = ch.size();
+				while (bb.hasRemaining()) {
+					position += ch.write(bb, position);
+				}
+				if (syncWrites) {
+					ch.force(false);
+				}
+			}
+		}
+		Consumer c;
+		synchronized (localConsumers) {
+			c = localConsumers.get(f.getPath());
+		}
+		if (c != null) {
+			// The consumer lives in this JVM: no need to wait for its next poll
+			c.wakeup();
+		}
+	}
+
+	File getPartitionFile(String location) {
+		return new File(dir, encode(location) + PARTITION_SUFFIX);
+	}
+
+	static String encode(String name) {
+		return URLEncoder.encode(name, StandardCharsets.UTF_8);
+	}
+
+	private static Object getJvmLock(File f) {
+		synchronized (jvmLocks) {
+			return jvmLocks.computeIfAbsent(f.getPath(), k -> new Object());
+		}
+	}
+
+	/**
+	 * The callback interface used by a Consumer to pass consumed records
+	 */
+	interface RecordHandler {
+		void handle(byte[] record);
+	}
+
+	/**
+	 * Inner class Consumer. A thread passing the records appended to the
+	 * partition of a location to a RecordHandler in log order.
+	 */
+	class Consumer implements Runnable {
+		private final String location;
+		private final RecordHandler handler;
+		private final long pollPeriod;
+		private final File partitionFile;
+		private final File offsetFile;
+		private final Thread myThread;
+		private RandomAccessFile partition;
+		private volatile long offset;
+		private boolean active;
+		private boolean dataAvailable;
+
+		Consumer(String location, RecordHandler handler, long pollPeriod) {
+			this.location = location;
+			this.handler = handler;
+			this.pollPeriod = pollPeriod;
+			partitionFile = getPartitionFile(location);
+			offsetFile = new File(dir, encode(location) + OFFSET_SUFFIX);
+			myThread = new Thread(this, "MOM-Consumer-" + location);
+			myThread.setDaemon(true);
+		}
+
+		void start() throws IOException {
+			partition = new RandomAccessFile(partitionFile, "rw");
+			offset = readOffset();
+			if (offset > partition.length()) {
+				// The partition was truncated after the offset was saved
+				offset = 0;
+			}
+			active = true;
+			synchronized (localConsumers) {
+				localConsumers.put(partitionFile.getPath(), this);
+			}
+			myThread.start();
+		}
+
+		void stop() {
+			synchronized (localConsumers) {
+				localConsumers.remove(partitionFile.getPath());
+			}
+			synchronized (this) {
+				active = false;
+				notifyAll();
+			}
+			if (Thread.currentThread() != myThread) {
+				try {
+					myThread.join(5000);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			try {
+				partition.close();
+			} catch (IOException ioe) {
+				// Just ignore it
+			}
+		}
+
+		synchronized void wakeup() {
+			dataAvailable = true;
+			notifyAll();
+		}
+
+		long getOffset() {
+			return offset;
+		}
+
+		public void run() {
+			while (true) {
+				synchronized (this) {
+					if (!dataAvailable && active) {
+						try {
+							wait(pollPeriod);
+						} catch (InterruptedException ie) {
+							// Just go on
+						}
+					}
+					if (!active) {
+						break;
+					}
+					dataAvailable = false;
+				}
+				try {
+					consume();
+				} catch (Throwable t) {
+					myLogger.log(Logger.WARNING, "Error consuming MOM partition of " + location, t);
+				}
+			}
+		}
+
+		/**
+		 * Pass all complete records appended after the current offset to the handler
+		 */
+		private void consume() throws IOException {
+			long consumed = offset;
+			List<byte[]> records = new ArrayList<>();
+			while (readRecords(records)) {
+				for (byte[] r : records) {
+					try {
+						handler.handle(r);
+					} catch (Throwable t) {
+						myLogger.log(Logger.WARNING, "Error handling MOM record in partition of " + location, t);
+					}
+				}
+				records.clear();
+			}
+			if (offset != consumed) {
+				writeOffset(offset);
+				if (offset >= TRUNCATE_THRESHOLD) {
+					truncateIfConsumed();
+				}
+			}
+		}
+
+		/**
+		 * Read the records following the current offset and move the offset after
+		 * them.
+		 * @return true if at least one record was read
+		 */
+		private boolean readRecords(List<byte[]> records) throws IOException {
+			FileChannel ch = partition.getChannel();
+			long size = ch.size();
+			long pos = offset;
+			while (size - pos >= RECORD_OVERHEAD) {
+				byte[] r = readRecord(ch, pos, size);
+				if (r == null) {
+					if (records.isEmpty()) {
+						// Either an append is in progress or a writer crashed while
+						// appending: find out holding the lock
+						pos = recover(ch, pos);
+						size = ch.size();
+						continue;
+					}
+					break;
+				}
+				records.add(r);
+				pos += RECORD_OVERHEAD + r.length;
+			}
+			offset = pos;
+			return !records.isEmpty();
+		}
+
+		private byte[] readRecord(FileChannel ch, long pos, long size) throws IOException {
+			ByteBuffer lengthBuf = ByteBuffer.allocate(4);
+			readFully(ch, lengthBuf, pos);
+			int length = lengthBuf.getInt(0);
+			if (length < RECORD_OVERHEAD || length > MAX_RECORD_SIZE || length > size - pos) {
+				return null;
+			}
+			ByteBuffer bb = ByteBuffer.allocate(length - 4);
+			readFully(ch, bb, pos + 4);
+			byte[] r = new byte[length - RECORD_OVERHEAD];
+			bb.get(0, r);
+			CRC32 crc = new CRC32();
+			crc.update(r);
+			if (bb.getInt(r.length) != (int) crc.getValue()) {
+				return null;
+			}
+			return r;
+		}
+
+		/**
+		 * Called when the data at a given position are not a valid record. Once
+		 * pending appends are completed, if there is still no valid record at that
+		 * position, it was left incomplete by a crashed writer: skip to the next
+		 * valid record.
+		 * @return The position of the next valid record (or the end of the
+		 * partition)
+		 */
+		private long recover(FileChannel ch, long pos) throws IOException {
+			synchronized (getJvmLock(partitionFile)) {
+				try (FileLock lock = ch.lock()) {
+					long size = ch.size();
+					if (readRecord(ch, pos, size) != null) {
+						// Just an append in progress
+						return pos;
+					}
+					for (long p = pos + 1; size - p >= RECORD_OVERHEAD; ++p) {
+						if (readRecord(ch, p, size) != null) {
+							myLogger.log(Logger.SEVERE, "Skipped " + (p - pos) + " corrupted bytes in MOM partition of " + location);
+							return p;
+						}
+					}
+					return skipTail(pos, size);
+				}
+			}
+		}
+
+		private long skipTail(long pos, long size) {
+			myLogger.log(Logger.SEVERE, "Skipped " + (size - pos) + " corrupted bytes at the end of MOM partition of " + location);
+			return size;
+		}
+
+		private void truncateIfConsumed() throws IOException {
+			FileChannel ch = partition.getChannel();
+			synchronized (getJvmLock(partitionFile)) {
+				try (FileLock lock = ch.lock()) {
+					if (ch.size() == offset) {
+						// Save the offset first: a crash in between results in duplicates
+						// rather than lost records
+						writeOffset(0);
+						ch.truncate(0);
+						offset = 0;
+					}
+				}
+			}
+		}
+
+		private long readOffset() {
+			if (offsetFile.exists()) {
+				try (RandomAccessFile raf = new RandomAccessFile(offsetFile, "r")) {
+					return raf.readLong();
+				} catch (IOException ioe) {
+					myLogger.log(Logger.WARNING, "Error reading MOM offset of " + location + ". Start from the beginning", ioe);
+				}
+			}
+			return 0;
+		}
+
+		private void writeOffset(long value) throws IOException {
+			try (RandomAccessFile raf = new RandomAccessFile(offsetFile, "rw")) {
+				raf.writeLong(value);
+				if (syncWrites) {
+					raf.getChannel().force(false);
+				}
+			}
+		}
+	} // END of inner class Consumer
+
+	private static void readFully(FileChannel ch, ByteBuffer bb, long pos) throws IOException {
+		while (bb.hasRemaining()) {
+			int n = ch.read(bb, pos + bb.position());
+			if (n < 0) {
+				throw new IOException("Unexpected end of MOM partition");
+			}
+		}
+	}
+}
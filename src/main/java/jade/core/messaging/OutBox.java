@@ -1,6 +1,8 @@
 package jade.core.messaging;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,7 @@ class OutBox {
 	private final int maxSize;
 	private final int sleepTimeFactor;
 	private final boolean enableMultipleDelivery;
+	private final boolean enableNodeBatching;
 	private boolean overWarningSize;
 
 	private final MessageManager manager;
@@ -46,11 +49,12 @@ class OutBox {
 
 	private final Logger myLogger;
 
-	OutBox(int warningSize, int maxSize, int sleepTimeFactor, boolean enableMultipleDelivery, MessageManager manager) {
+	OutBox(int warningSize, int maxSize, int sleepTimeFactor, boolean enableMultipleDelivery, boolean enableNodeBatching, MessageManager manager) {
 		this.warningSize = warningSize;
 		this.maxSize = maxSize;
 		this.sleepTimeFactor = sleepTimeFactor;
 		this.enableMultipleDelivery = enableMultipleDelivery;
+		this.enableNodeBatching = enableNodeBatching;
 		this.manager = manager;
 		myLogger = Logger.getMyLogger(getClass().getName());
 	}
@@ -105,8 +109,10 @@ class OutBox {
 				myLogger.log(Logger.FINER,msgDebug);
 			}
 			if (b == null){
-				// There is no Box of messages for this receiver yet. Create a new one 
-				b = new Box(receiverID);
+				// There is no Box of messages for this receiver yet. Create a new one.
+				// The target node is resolved once here so that getNodeBatch() does not
+				// need to query the channel for every box while holding the monitor
+				b = new Box(receiverID, enableNodeBatching ? ch.getTargetNode(msg, receiverID) : null);
 				messagesByReceiver.put(receiverID, b);
 				messagesByOrder.add(b);
 				if (logActivated) {
@@ -208,6 +214,61 @@ class OutBox {
 
 
 
+	/**
+	 * Collect, together with an already extracted message, the first messages of 
+	 * other idle receivers living on the same node, so that they can be delivered
+	 * by means of a single horizontal command. If less than maxSize messages are
+	 * available, wait at most lingerTime ms for more to come.
+	 * This is executed by a Deliverer thread just after get(). The Boxes of all
+	 * receivers included in the batch are marked busy.
+	 * @return the batch of messages or null if no other message could be 
+	 * coalesced with the given one
+	 */
+	final synchronized PendingMsg[] getNodeBatch(PendingMsg first, int maxSize, long lingerTime) {
+		Channel ch = first.getChannel();
+		Box firstBox = (Box) messagesByReceiver.get(first.getReceiver());
+		Object node = firstBox != null ? firstBox.getTargetNode() : null;
+		if (node == null) {
+			return null;
+		}
+		List<PendingMsg> batch = new ArrayList<>();
+		batch.add(first);
+		long deadline = System.currentTimeMillis() + lingerTime;
+		while (true) {
+			Iterator<Object> it = messagesByOrder.iterator();
+			while (it.hasNext() && batch.size() < maxSize) {
+				Box b = (Box) it.next();
+				if (!b.isBusy() && !b.isEmpty()) {
+					PendingMsg pm = b.getFirst();
+					if (pm.getChannel() == ch && node.equals(b.getTargetNode())) {
+						b.setBusy(true);
+						b.removeFirst();
+						decreaseSize(pm.getMessage().length());
+						batch.add(pm);
+					}
+				}
+			}
+			long wait = deadline - System.currentTimeMillis();
+			if (batch.size() >= maxSize || wait <= 0) {
+				break;
+			}
+			try {
+				wait(wait);
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		if (batch.size() == 1) {
+			return null;
+		}
+		if (myLogger.isLoggable(Logger.FINER)) {
+			myLogger.log(Logger.FINER, "Deliverer "+Thread.currentThread()+" coalesced "+batch.size()+" messages for node "+node);
+		}
+		return batch.toArray(new PendingMsg[batch.size()]);
+	}
+
 	/**
 	 * Get the Box of messages for the first idle (i.e. not busy) receiver.
 	 * @return null if all receivers are currently busy
@@ -310,12 +371,15 @@ class OutBox {
 	 */
 	private class Box {
 		private final AID receiver;
+		// The node hosting the receiver (null if unknown or batching is disabled)
+		private final Object targetNode;
 		private boolean busy;
 		private String owner;
 		private final List messages;
 
-		public Box(AID r) {
+		public Box(AID r, Object node) {
 			receiver = r;
+			targetNode = node;
 			busy = false;
 			messages = new LinkedList<>(); 
 		}
@@ -324,6 +388,10 @@ class OutBox {
 			return receiver;
 		}
 
+		private Object getTargetNode() {
+			return targetNode;
+		}
+
 		private void setBusy(boolean b){
 			busy = b;
 			
@@ -343,6 +411,10 @@ class OutBox {
 			messages.add(pm);
 		}
 
+		private PendingMsg getFirst() {
+			return (PendingMsg) messages.get(0);
+		}
+
 		private PendingMsg removeFirst() {
 			return (PendingMsg) messages.remove(0);
 		}
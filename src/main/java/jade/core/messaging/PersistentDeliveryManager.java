@@ -61,10 +61,12 @@ final class PersistentDeliveryManager {
 	private static final long DEFAULT_SENDFAILUREPERIOD = 60*1000; // One minute
 	
 	private static final String FILE_STORAGE_SHORTCUT = "file";
+	private static final String LOG_STORAGE_SHORTCUT = "log";
 
 	// Default storage class
 	private static final String DEFAULT_STORAGE = "jade.core.messaging.PersistentDeliveryManager$DummyStorage";
 	private static final String FILE_STORAGE = "jade.core.messaging.FileMessageStorage";
+	private static final String LOG_STORAGE = "jade.core.messaging.LogMessageStorage";
 
 	private static class DeliveryItem {
 
@@ -179,6 +181,9 @@ final class PersistentDeliveryManager {
 			if (FILE_STORAGE_SHORTCUT.equalsIgnoreCase(storageClass)) {
 				storageClass = FILE_STORAGE;
 			}
+			else if (LOG_STORAGE_SHORTCUT.equalsIgnoreCase(storageClass)) {
+				storageClass = LOG_STORAGE;
+			}
 			storage = (MessageStorage)Class.forName(storageClass).getDeclaredConstructor().newInstance();
 			storage.init(p);
 
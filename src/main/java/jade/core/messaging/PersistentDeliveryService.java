@@ -93,6 +93,8 @@ public class PersistentDeliveryService extends BaseService {
      The supported values for this parameter are:
      <ul>
      <li><b>file</b> - A directory tree on the local filesystem is used.</li>
+     <li><b>log</b> - An append-only log made of memory-mapped segment
+     files on the local filesystem is used.</li>
      </ul>
      If this property is not specified undelivered ACL messages are
      kept in memory and not persisted at all.
@@ -102,11 +104,26 @@ public class PersistentDeliveryService extends BaseService {
 	/**
      This constant is the name of the property whose value contains
      the root of the directory tree that is used to persist
-     undelivered ACL messages when the <i>file</i> storage
+     undelivered ACL messages when the <i>file</i> or <i>log</i> storage
      method is selected.
 	 */
 	public static final String PERSISTENT_DELIVERY_BASEDIR = "persistent-delivery-basedir";
 
+	/**
+     This constant is the name of the property whose value contains
+     the size in bytes of the segment files used when the <i>log</i>
+     storage method is selected. Default is 16 MB.
+	 */
+	public static final String PERSISTENT_DELIVERY_LOGSEGMENTSIZE = "persistent-delivery-logsegmentsize";
+
+	/**
+     This constant is the name of the property whose value specifies
+     whether, when the <i>log</i> storage method is selected, storing an
+     undelivered ACL message waits for it to be forced to disk
+     (<code>true</code>, default) or not (<code>false</code>).
+	 */
+	public static final String PERSISTENT_DELIVERY_LOGSYNC = "persistent-delivery-logsync";
+
 
 	static final String ACL_USERDEF_DUE_DATE = "JADE-persistentdelivery-duedate";
 
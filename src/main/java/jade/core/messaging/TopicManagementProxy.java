@@ -79,4 +79,28 @@ public class TopicManagementProxy extends SliceProxy implements TopicManagementS
 			throw new IMTPException("Unable to access remote node", se);
 		}
 	}
+	
+	public boolean deliver(AID sender, GenericMessage msg, AID[] receivers) throws IMTPException {	
+		try {
+			GenericCommand cmd = new GenericCommand(H_DELIVER, TopicManagementService.NAME, null);
+			cmd.addParam(sender);
+			cmd.addParam(msg);
+			cmd.addParam(receivers);
+			
+			Node n = getNode();
+			Object result = n.accept(cmd);
+			if((result != null) && (result instanceof Throwable throwable)) {
+				if(result instanceof IMTPException exception) {
+					throw exception;
+				}
+				else {
+					throw new IMTPException("An undeclared exception was thrown", throwable);
+				}
+			}
+			return Boolean.TRUE.equals(result);
+		}
+		catch(ServiceException se) {
+			throw new IMTPException("Unable to access remote node", se);
+		}
+	}
 }
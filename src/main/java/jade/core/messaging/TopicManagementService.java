@@ -28,18 +28,25 @@ package jade.core.messaging;
 
 import jade.core.*;
 import jade.core.exception.IMTPException;
+import jade.core.exception.NotFoundException;
 import jade.core.exception.ProfileException;
 import jade.core.exception.ServiceException;
 import jade.core.messaging.MessagingService;
 import jade.core.messaging.MessagingSlice;
 import jade.core.messaging.GenericMessage;
 import jade.core.management.AgentManagementSlice;
+import jade.domain.FIPAAgentManagement.InternalError;
+import jade.lang.acl.ACLCodec;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.LEAPACLCodec;
 import jade.util.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * TopicManagement service main class
@@ -47,6 +54,13 @@ import java.util.Iterator;
  */
 public class TopicManagementService extends BaseService {
 	public static final String NAME = TopicManagementHelper.SERVICE_NAME;
+	
+	/**
+	 * If true (default) a message about a topic is encoded once and delivered to each remote container 
+	 * hosting more than one interested agent by means of a single horizontal command. The container 
+	 * then dispatches it locally to the interested agents.
+	 */
+	public static final String NODE_FANOUT = "jade_core_messaging_TopicManagementService_nodefanout";
 		
 	private AgentContainer myContainer;
 	private MainContainer myMain;
@@ -57,6 +71,8 @@ public class TopicManagementService extends BaseService {
 
 	private final TopicTable topicTable = new TopicTable();
 	private MessagingService theMessagingService;
+	private MessageManager myMessageManager;
+	private boolean nodeFanOut;
 	private boolean shutdownInProgress;
 	
 	public void init(AgentContainer ac, Profile p) throws ProfileException {
@@ -69,6 +85,8 @@ public class TopicManagementService extends BaseService {
 		incFilter = new CommandIncomingFilter();
 		// Create local slice
 		localSlice = new ServiceComponent();
+		
+		nodeFanOut = p.getBooleanProperty(NODE_FANOUT, true);
 	}
 	
 	public void boot(Profile p) throws ServiceException {
@@ -78,6 +96,7 @@ public class TopicManagementService extends BaseService {
 				throw new ServiceException("The TopicManagementService cannot be used within a platform called with the reserved name "+TopicManagementHelper.TOPIC_SUFFIX);
 			}
 			theMessagingService = (MessagingService) myContainer.getServiceFinder().findService(MessagingService.NAME);
+			myMessageManager = MessageManager.instance(p);
 		}
 		catch (IMTPException imtpe) {
 			// Should never happen since this is a local call
@@ -157,14 +176,9 @@ public class TopicManagementService extends BaseService {
 						// Note that if no agents are currently listening to this topic, the message is simply swallowed
 						msg.addUserDefinedParameter(ACLMessage.IGNORE_FAILURE, "true");
 						gMsg.setModifiable(false);
-						Iterator it = interestedAgents.iterator();
-						while (it.hasNext()) {
-							AID target = (AID) it.next();
-							if (myLogger.isLoggable(Logger.FINE)) {
-								myLogger.log(Logger.FINE, "Forwarding message to agent "+target.getName());
-							}
-							sendMessage(sender, gMsg, target);
-						}
+						// Messages carrying security information must be sent to each receiver separately
+						boolean fanOut = nodeFanOut && cmd.getPrincipal() == null && cmd.getCredentials() == null && msg.getEnvelope() == null;
+						dispatch(sender, gMsg, topic, interestedAgents, fanOut);
 					}
 					// Veto the original SEND_MESSAGE command
 					return false;
@@ -181,6 +195,146 @@ public class TopicManagementService extends BaseService {
 	} // END of inner class CommandOutgoingFilter
 	
 	
+	/**
+	 * Forward a message about a topic to all interested agents. If fanOut is true, agents known to 
+	 * live in a remote container are always served by the NodeFanOut delivery of that container 
+	 * (even if they are the only interested agent there). All other agents get the message by means 
+	 * of an individual SEND_MESSAGE command.
+	 * Since each receiver is consistently reached through the same MessageManager queue (the one of 
+	 * its container for the topic), messages about a topic are delivered in order. Order is not 
+	 * guaranteed only across a change of path, i.e. when the location of a receiver becomes known 
+	 * or the receiver moves to another container.
+	 */
+	private void dispatch(AID sender, GenericMessage gMsg, AID topic, Collection interestedAgents, boolean fanOut) {
+		Map<String, List<AID>> receiversByContainer = new HashMap<>();
+		Iterator it = interestedAgents.iterator();
+		while (it.hasNext()) {
+			AID target = (AID) it.next();
+			String location = null;
+			if (fanOut && !myContainer.isLocalAgent(target)) {
+				location = theMessagingService.getKnownLocation(target);
+			}
+			if (location != null) {
+				receiversByContainer.computeIfAbsent(location, k -> new ArrayList<>()).add(target);
+			}
+			else {
+				if (myLogger.isLoggable(Logger.FINE)) {
+					myLogger.log(Logger.FINE, "Forwarding message to agent "+target.getName());
+				}
+				sendMessage(sender, gMsg, target);
+			}
+		}
+		
+		if (!receiversByContainer.isEmpty()) {
+			// Encode the message only once for all containers. Keep the ACLMessage too, as the 
+			// encoding filter does, so that failures can be handled locally
+			ACLMessage msg = gMsg.getACLMessage();
+			if (msg.getSender() == null || msg.getSender().getName().length() < 1) {
+				msg.setSender(sender);
+			}
+			byte[] payload = new LEAPACLCodec().encode(msg, null);
+			for (Map.Entry<String, List<AID>> entry : receiversByContainer.entrySet()) {
+				String container = entry.getKey();
+				List<AID> receivers = entry.getValue();
+				FanOutMessage fom = new FanOutMessage(payload, receivers.toArray(new AID[receivers.size()]));
+				fom.setACLMessage(msg);
+				fom.setSender(sender);
+				fom.setTraceID(gMsg.getTraceID());
+				fom.setModifiable(false);
+				theMessagingService.stamp(fom);
+				if (myLogger.isLoggable(Logger.FINE)) {
+					myLogger.log(Logger.FINE, "Forwarding message to "+receivers.size()+" agents in container "+container);
+				}
+				AID fanOutID = new AID(topic.getLocalName()+"%"+container, AID.ISGUID);
+				myMessageManager.deliver(fom, fanOutID, new NodeFanOut(container));
+			}
+		}
+	}
+	
+	
+	/**
+	 * Inner class FanOutMessage.
+	 * An encoded message about a topic together with the interested agents living in the container 
+	 * it is directed to. The receivers travel with the message (rather than with the channel) since 
+	 * the MessageManager may merge several pending messages into a MultipleGenericMessage.
+	 */
+	private static class FanOutMessage extends GenericMessage {
+		private static final long serialVersionUID = 1L;
+		
+		private final transient AID[] receivers;
+		
+		private FanOutMessage(byte[] payload, AID[] receivers) {
+			super(null, payload);
+			this.receivers = receivers;
+		}
+	} // END of inner class FanOutMessage
+	
+	
+	/**
+	 * Inner class NodeFanOut.
+	 * The MessageManager channel used to deliver encoded messages about a topic to all interested 
+	 * agents living in a given remote container. If that is not possible, each message is delivered to 
+	 * each agent separately.
+	 */
+	private class NodeFanOut implements MessageManager.Channel {
+		private final String container;
+		
+		private NodeFanOut(String container) {
+			this.container = container;
+		}
+		
+		public void deliverNow(GenericMessage msg, AID receiverID) {
+			if (msg instanceof MultipleGenericMessage mgm) {
+				// Messages merged by the MessageManager: preserve their order
+				for (GenericMessage g : mgm.getMessages()) {
+					deliverNow(g, receiverID);
+				}
+				return;
+			}
+			AID[] receivers = ((FanOutMessage) msg).receivers;
+			try {
+				TopicManagementSlice slice = (TopicManagementSlice) getSlice(container);
+				boolean done;
+				try {
+					done = slice.deliver(msg.getSender(), msg, receivers);
+				}
+				catch (IMTPException imtpe) {
+					// Try to get a newer slice and repeat...
+					slice = (TopicManagementSlice) getFreshSlice(container);
+					done = slice.deliver(msg.getSender(), msg, receivers);
+				}
+				if (done) {
+					return;
+				}
+				myLogger.log(Logger.FINE, "Topic-management-slice on container "+container+" cannot deliver messages to a set of receivers");
+			}
+			catch (Throwable t) {
+				myLogger.log(Logger.FINE, "Error delivering message to container "+container+" ["+t+"]");
+			}
+			// Deliver to each receiver separately. Do that synchronously: queueing the message to 
+			// each receiver would let the next message about the topic overtake it
+			for (int i = 0; i < receivers.length; ++i) {
+				theMessagingService.deliverNow(msg, receivers[i]);
+			}
+		}
+		
+		public void deliverNow(GenericMessage[] msgs, AID[] receiverIDs) {
+			for (int i = 0; i < msgs.length; ++i) {
+				deliverNow(msgs[i], receiverIDs[i]);
+			}
+		}
+		
+		public Object getTargetNode(GenericMessage msg, AID receiverID) {
+			return null;
+		}
+		
+		public void notifyFailureToSender(GenericMessage msg, AID receiver, InternalError ie) {
+			// Failures are ignored for messages about topics
+			myLogger.log(Logger.FINE, "Message to container "+container+" not delivered: "+ie.getMessage());
+		}
+	} // END of inner class NodeFanOut
+	
+	
 	private final void sendMessage(AID sender, GenericMessage gMsg, AID receiver) {
 		GenericCommand cmd = new GenericCommand(MessagingSlice.SEND_MESSAGE, MessagingService.NAME, null);
 		cmd.addParam(sender);
@@ -343,6 +497,13 @@ public class TopicManagementService extends BaseService {
 					}					
 					deregister(aid, topic);
 				}
+				else if(TopicManagementSlice.H_DELIVER.equals(cmdName)) {
+					AID sender = (AID) params[0];
+					GenericMessage msg = (GenericMessage) params[1];
+					AID[] receivers = (AID[]) params[2];
+					deliver(sender, msg, receivers);
+					cmd.setReturnValue(Boolean.TRUE);
+				}
 			}
 			catch (Throwable t) {
 				cmd.setReturnValue(t);
@@ -357,6 +518,35 @@ public class TopicManagementService extends BaseService {
 		private void deregister(AID aid, AID topic) {
 			topicTable.deregister(aid, topic);
 		}
+		
+		private void deliver(AID sender, GenericMessage msg, AID[] receivers) throws IMTPException {
+			Node localNode = TopicManagementService.this.getLocalNode();
+			for (int i = 0; i < receivers.length; ++i) {
+				// Dispatch a copy of the message to each receiver exactly as if it was received 
+				// from the sender container
+				GenericMessage copy = new GenericMessage(msg.getEnvelope(), msg.getPayload());
+				copy.setTraceID(msg.getTraceID());
+				GenericCommand cmd = new GenericCommand(MessagingSlice.H_DISPATCHLOCALLY, MessagingSlice.NAME, null);
+				cmd.addParam(sender);
+				cmd.addParam(copy);
+				cmd.addParam(receivers[i]);
+				Object ret = localNode.accept(cmd);
+				if (ret instanceof NotFoundException) {
+					// The receiver does not live here anymore (e.g. it moved) --> Let the MessagingService find it
+					try {
+						GenericMessage gMsg = new GenericMessage(new LEAPACLCodec().decode(msg.getPayload(), null));
+						gMsg.setModifiable(false);
+						sendMessage(sender, gMsg, receivers[i]);
+					}
+					catch (ACLCodec.CodecException ce) {
+						myLogger.log(Logger.WARNING, "Cannot decode message about topic for receiver "+receivers[i].getName(), ce);
+					}
+				}
+				else if (ret instanceof Throwable) {
+					myLogger.log(Logger.WARNING, "Error delivering message about topic to receiver "+receivers[i].getName()+" ["+ret+"]");
+				}
+			}
+		}
 	} // END of inner class ServiceComponent
 	
 	/**
@@ -35,8 +35,16 @@ public interface TopicManagementSlice extends Service.Slice {
 	// Horizontal commands
 	static final String H_REGISTER = "R";
 	static final String H_DEREGISTER = "D";
+	static final String H_DELIVER = "F";
 	
 	void register(AID aid, AID topic) throws IMTPException;
 	
 	void deregister(AID aid, AID topic) throws IMTPException;
+	
+	/**
+	 * Deliver an already encoded message about a topic to a set of receivers living in this slice's node.
+	 * @return false if the message could not be handled (e.g. the slice does not support this operation)
+	 * and must be delivered to receivers separately.
+	 */
+	boolean deliver(AID sender, GenericMessage msg, AID[] receivers) throws IMTPException;
 }
@@ -29,13 +29,12 @@ import jade.lang.acl.ACLMessage;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Topics can have the form x.y.z... and agents can register to "topic templates" like x.y.* meaning that they 
@@ -47,6 +46,8 @@ import java.util.StringTokenizer;
  * - The list of agents interested in the TTNode topic
  * - The list of agents interested in the TTNode as a template 
  * - A list of child TTNode
+ * The tree is made of concurrent collections: modifications (register/deregister) are serialized, while lookups
+ * never lock, so that messages to topics can be dispatched concurrently.
  * @author Giovanni Caire - TILAB
  */
 class TopicTable {
@@ -71,7 +72,7 @@ class TopicTable {
 	/**
 	 * Retrieve all agents that are interested in receiving a given message directed to a given topic
 	 */
-	final synchronized Collection getInterestedAgents(AID topic, ACLMessage msg) {
+	final Collection getInterestedAgents(AID topic, ACLMessage msg) {
 		RegistrationInfo info = new RegistrationInfo(null, topic);
 		Set s = new HashSet();
 		root.fillInterestedAgents(info, s);
@@ -81,7 +82,7 @@ class TopicTable {
 	/**
 	 * Retrieve the list of all TopicRegistration objects
 	 */
-	final synchronized List getAllRegistrations() {
+	final List getAllRegistrations() {
 		List l = new ArrayList<>();
 		root.fillRegistrations(l);
 		return l;
@@ -90,7 +91,7 @@ class TopicTable {
 	/**
 	 * Retrieve the list of topics a given agent is interested in
 	 */
-	final synchronized List getRelevantTopics(AID aid) {
+	final List getRelevantTopics(AID aid) {
 		List l = new ArrayList<>();
 		root.fillRelevantTopics(aid, l);
 		return l;
@@ -154,9 +155,9 @@ class TopicTable {
 	 */
 	private final class TTNode {
 		private String name;
-		private List interestedAgents = new LinkedList();
-		private List templateInterestedAgents = new LinkedList();
-		private Map children = new HashMap<>();
+		private final Set<AID> interestedAgents = ConcurrentHashMap.newKeySet();
+		private final Set<AID> templateInterestedAgents = ConcurrentHashMap.newKeySet();
+		private final Map<String, TTNode> children = new ConcurrentHashMap<>();
 		private TTNode parent;
 		
 		private TTNode(String name, TTNode parent) {
@@ -224,16 +225,14 @@ class TopicTable {
 			String topicName = getTopicName();
 			if (!interestedAgents.isEmpty()) {
 				AID topic = TopicUtility.createTopic(topicName);
-				for (int i = 0; i < interestedAgents.size(); ++i) {
-					AID aid = (AID) interestedAgents.get(i);
+				for (AID aid : interestedAgents) {
 					allRegistrations.add(new TopicRegistration(aid, topic));
 				}
 			}
 			if (!templateInterestedAgents.isEmpty()) {
 				String templateTopicName = topicName.length() > 0 ? topicName+'.'+TopicManagementHelper.TOPIC_TEMPLATE_WILDCARD : TopicManagementHelper.TOPIC_TEMPLATE_WILDCARD;
 				AID topic = TopicUtility.createTopic(templateTopicName);
-				for (int i = 0; i < templateInterestedAgents.size(); ++i) {
-					AID aid = (AID) templateInterestedAgents.get(i);
+				for (AID aid : templateInterestedAgents) {
 					allRegistrations.add(new TopicRegistration(aid, topic));
 				}
 			}
@@ -43,6 +43,7 @@ class DefaultSAMInfoHandlerImpl implements SAMInfoHandler {
 	private static final String SAM_PREFIX = "SAM_";
 
 	private final Map<String, PrintStream> entityFiles = new HashMap<>();
+	private final Map<String, PrintStream> histogramFiles = new HashMap<>();
 	// For counters we need to keep the total value together with the Stream used to write the CSV file
 	private final Map<String, CounterInfo> counters = new HashMap<>();
 
@@ -97,6 +98,9 @@ class DefaultSAMInfoHandlerImpl implements SAMInfoHandler {
 		for (PrintStream ps : entityFiles.values()) {
 			ps.close();
 		}
+		for (PrintStream ps : histogramFiles.values()) {
+			ps.close();
+		}
 		for (CounterInfo ci : counters.values()) {
 			ci.stream.close();
 		}
@@ -146,6 +150,39 @@ class DefaultSAMInfoHandlerImpl implements SAMInfoHandler {
 			}
 		}
 		
+		// Histograms
+		Map<String, Histogram> histogramMeasures = info.getHistogramMeasures();
+		for (String entityName : histogramMeasures.keySet()) {
+			myLogger.log(Logger.FINE, "Handling histogram of entity "+entityName);
+			try {
+				Histogram h = histogramMeasures.get(entityName);
+				PrintStream stream = histogramFiles.get(entityName);
+				if (stream == null) {
+					// This is the first time we get a histogram for this entity --> Initialize the file
+					myLogger.log(Logger.INFO, "Creating CSV file for histograms of entity "+entityName);
+					File f = createFile(entityName);
+					stream = new PrintStream(f);
+					stream.println("Time-stamp"+csvSeparator+"N-samples"+csvSeparator+"Average-value"+csvSeparator+"P50"+csvSeparator+"P90"+csvSeparator+"P99"+csvSeparator+"P999"+csvSeparator+"Max");
+					histogramFiles.put(entityName, stream);
+				}
+				long p99 = h.getValueAtPercentile(99);
+				stream.println(timeStampStr+csvSeparator+h.getTotalCount()+csvSeparator+h.getMean()+csvSeparator+h.getValueAtPercentile(50)+csvSeparator+h.getValueAtPercentile(90)+csvSeparator+p99+csvSeparator+h.getValueAtPercentile(99.9)+csvSeparator+h.getMax());
+				
+				if (summaryFields != null) {
+					int k = summaryFields.indexOf(entityName);
+					if (k >= 0) {
+						// This entity is part of the summary: the tail latency is what matters most
+						summaryValues.set(k, String.valueOf(p99));
+					}
+				}
+			}
+			catch (Exception e) {
+				myLogger.log(Logger.WARNING, "Error writing to CSV file of entity "+entityName, e);
+				// Likely someone removed the CSV file in the meanwhile. Reset everything so that at next round the file will be re-created  
+				histogramFiles.remove(entityName);
+			}
+		}
+		
 		// Counters
 		Map<String, Long> counterValues = info.getCounterValues();
 		for (String counterName : counterValues.keySet()) {
@@ -0,0 +1,267 @@
+/*****************************************************************
+ JADE - Java Agent DEvelopment Framework is a framework to develop
+ multi-agent systems in compliance with the FIPA specifications.
+ Copyright (C) 2000 CSELT S.p.A.
+ 
+ GNU Lesser General Public License
+ 
+ This library is free software; you can redistribute it and/or
+ modify it under the terms of the GNU Lesser General Public
+ License as published by the Free Software Foundation, 
+ version 2.1 of the License. 
+ 
+ This library is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ Lesser General Public License for more details.
+ 
+ You should have received a copy of the GNU Lesser General Public
+ License along with this library; if not, write to the
+ Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core.sam;
+
+//#DOTNET_EXCLUDE_FILE
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative long values with log-linear buckets, in the
+ * style of HdrHistogram. Values below 32 are counted exactly, while larger
+ * values are grouped in 32 sub-buckets per power of 2 so that the relative
+ * error of a reported value never exceeds 1/32 (about 3%) whatever the
+ * magnitude. The memory footprint is fixed (1888 counters) and values can be
+ * recorded concurrently without locking.
+ * <br>
+ * Histograms can be merged by means of the <code>add()</code> method.
+ * When serialized only non-empty buckets are written.
+ */
+public class Histogram implements Serializable {
+
+	@Serial
+	private static final long serialVersionUID = 6120946395620127041L;
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+	static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private transient AtomicLongArray counts;
+	private transient AtomicLong sum;
+	private transient AtomicLong max;
+	private transient AtomicLong min;
+
+	public Histogram() {
+		init();
+	}
+
+	private void init() {
+		counts = new AtomicLongArray(BUCKET_COUNT);
+		sum = new AtomicLong();
+		max = new AtomicLong(-1);
+		min = new AtomicLong(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Record a value. Negative values are recorded as 0.
+	 */
+	public void recordValue(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(indexOf(value));
+		sum.addAndGet(value);
+		long m = max.get();
+		while (value > m && !max.compareAndSet(m, value)) {
+			m = max.get();
+		}
+		m = min.get();
+		while (value < m && !min.compareAndSet(m, value)) {
+			m = min.get();
+		}
+	}
+
+	/**
+	 * Add all values recorded in another histogram to this histogram
+	 */
+	public void add(Histogram other) {
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			long c = other.counts.get(i);
+			if (c != 0) {
+				counts.addAndGet(i, c);
+			}
+		}
+		sum.addAndGet(other.sum.get());
+		long otherMax = other.max.get();
+		long m = max.get();
+		while (otherMax > m && !max.compareAndSet(m, otherMax)) {
+			m = max.get();
+		}
+		long otherMin = other.min.get();
+		m = min.get();
+		while (otherMin < m && !min.compareAndSet(m, otherMin)) {
+			m = min.get();
+		}
+	}
+
+	/**
+	 * Atomically move the values recorded so far into a new histogram and reset
+	 * this one. Values recorded concurrently end up either in the returned
+	 * snapshot or in this histogram (the sum, minimum and maximum may be off by
+	 * the values being recorded at the time of the call).
+	 */
+	public Histogram snapshotAndReset() {
+		Histogram snapshot = new Histogram();
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			if (counts.get(i) != 0) {
+				snapshot.counts.set(i, counts.getAndSet(i, 0));
+			}
+		}
+		snapshot.sum.set(sum.getAndSet(0));
+		snapshot.max.set(max.getAndSet(-1));
+		snapshot.min.set(min.getAndSet(Long.MAX_VALUE));
+		return snapshot;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			counts.set(i, 0);
+		}
+		sum.set(0);
+		max.set(-1);
+		min.set(Long.MAX_VALUE);
+	}
+
+	public long getTotalCount() {
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * @return The highest recorded value or -1 if the histogram is empty
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return The lowest recorded value or -1 if the histogram is empty
+	 */
+	public long getMin() {
+		long m = min.get();
+		return m == Long.MAX_VALUE ? -1 : m;
+	}
+
+	/**
+	 * @return The mean of the recorded values or <code>Double.NaN</code> if the
+	 *         histogram is empty
+	 */
+	public double getMean() {
+		long total = getTotalCount();
+		return total > 0 ? ((double) sum.get()) / total : Double.NaN;
+	}
+
+	/**
+	 * Return the value below which the given percentage of the recorded values
+	 * fall. The returned value is the highest value equivalent to the bucket
+	 * the percentile falls in, capped to the recorded maximum.
+	 * 
+	 * @param percentile The percentile in the range [0, 100]
+	 * @return The value at the given percentile or -1 if the histogram is empty
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = getTotalCount();
+		if (total == 0) {
+			return -1;
+		}
+		double p = Math.min(Math.max(percentile, 0.0), 100.0);
+		long target = Math.max(1, (long) Math.ceil((p / 100.0) * total));
+		long cumulative = 0;
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			cumulative += counts.get(i);
+			if (cumulative >= target) {
+				return Math.min(highestEquivalentValue(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+		return ((exp - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub;
+	}
+
+	static long lowestEquivalentValue(int index) {
+		if (index < 2 * SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		return ((long) (SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK))) << shift;
+	}
+
+	static long highestEquivalentValue(int index) {
+		if (index < 2 * SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		return lowestEquivalentValue(index) + (1L << shift) - 1;
+	}
+
+	public String toString() {
+		return "(count=" + getTotalCount() + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50)
+				+ ", p99=" + getValueAtPercentile(99) + ", max=" + getMax() + ")";
+	}
+
+	@Serial
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		int nonEmpty = 0;
+		long[] snapshot = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			snapshot[i] = counts.get(i);
+			if (snapshot[i] != 0) {
+				nonEmpty++;
+			}
+		}
+		out.writeLong(sum.get());
+		out.writeLong(max.get());
+		out.writeLong(min.get());
+		out.writeInt(nonEmpty);
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			if (snapshot[i] != 0) {
+				out.writeShort(i);
+				out.writeLong(snapshot[i]);
+			}
+		}
+	}
+
+	@Serial
+	private void readObject(ObjectInputStream in) throws IOException {
+		init();
+		sum.set(in.readLong());
+		max.set(in.readLong());
+		min.set(in.readLong());
+		int nonEmpty = in.readInt();
+		for (int i = 0; i < nonEmpty; ++i) {
+			int index = in.readShort();
+			if (index < 0 || index >= BUCKET_COUNT) {
+				throw new IOException("Invalid histogram bucket " + index);
+			}
+			counts.set(index, in.readLong());
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*****************************************************************
+ JADE - Java Agent DEvelopment Framework is a framework to develop
+ multi-agent systems in compliance with the FIPA specifications.
+ Copyright (C) 2000 CSELT S.p.A.
+ 
+ GNU Lesser General Public License
+ 
+ This library is free software; you can redistribute it and/or
+ modify it under the terms of the GNU Lesser General Public
+ License as published by the Free Software Foundation, 
+ version 2.1 of the License. 
+ 
+ This library is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ Lesser General Public License for more details.
+ 
+ You should have received a copy of the GNU Lesser General Public
+ License along with this library; if not, write to the
+ Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core.sam;
+
+//#DOTNET_EXCLUDE_FILE
+
+/**
+ * A Provider of latency distributions for a given entity. Unlike
+ * <code>AverageMeasure</code>-s, histograms collected from different providers
+ * are merged so that percentiles (and not only averages) can be computed
+ * platform-wide.
+ */
+public interface HistogramMeasureProvider extends Provider {
+	/**
+	 * @return The values collected since the previous invocation in the form of a
+	 *         <code>Histogram</code> instance
+	 */
+	Histogram getValue();
+}
@@ -0,0 +1,45 @@
+/*****************************************************************
+ JADE - Java Agent DEvelopment Framework is a framework to develop
+ multi-agent systems in compliance with the FIPA specifications.
+ Copyright (C) 2000 CSELT S.p.A.
+ 
+ GNU Lesser General Public License
+ 
+ This library is free software; you can redistribute it and/or
+ modify it under the terms of the GNU Lesser General Public
+ License as published by the Free Software Foundation, 
+ version 2.1 of the License. 
+ 
+ This library is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ Lesser General Public License for more details.
+ 
+ You should have received a copy of the GNU Lesser General Public
+ License along with this library; if not, write to the
+ Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core.sam;
+
+//#DOTNET_EXCLUDE_FILE
+
+/**
+ * A default ready-made implementation of the HistogramMeasureProvider interface that offers 
+ * methods to add measure samples and returns the <code>Histogram</code> of the samples
+ * added since the previous call when the <code>getValue()</code> method is called.
+ * Samples can be added concurrently without locking. 
+ */
+public class HistogramMeasureProviderImpl implements HistogramMeasureProvider {
+
+	private final Histogram histogram = new Histogram();
+
+	public void addSample(long value) {
+		histogram.recordValue(value);
+	}
+
+	public Histogram getValue() {
+		return histogram.snapshotAndReset();
+	}
+}
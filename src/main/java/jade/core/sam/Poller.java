@@ -143,6 +143,7 @@ class Poller extends Thread {
 						myLogger.log(Logger.FINER, "SAMService poller - Retrieving SAM information from node " + nodeName);
 					}
 					SAMInfo sliceInfo = s.getSAMInfo();
+					globalInfo.addNodeInfo(nodeName, sliceInfo);
 					globalInfo.update(sliceInfo);
 					if (myLogger.isLoggable(Logger.FINEST)) {
 						myLogger.log(Logger.FINEST, "SAMService poller - SAM information successfully retrieved from node " + nodeName);
@@ -0,0 +1,469 @@
+/*****************************************************************
+ JADE - Java Agent DEvelopment Framework is a framework to develop
+ multi-agent systems in compliance with the FIPA specifications.
+ Copyright (C) 2000 CSELT S.p.A.
+ 
+ GNU Lesser General Public License
+ 
+ This library is free software; you can redistribute it and/or
+ modify it under the terms of the GNU Lesser General Public
+ License as published by the Free Software Foundation, 
+ version 2.1 of the License. 
+ 
+ This library is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ Lesser General Public License for more details.
+ 
+ You should have received a copy of the GNU Lesser General Public
+ License along with this library; if not, write to the
+ Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core.sam;
+
+//#DOTNET_EXCLUDE_FILE
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jade.core.Profile;
+import jade.util.Logger;
+
+/**
+ * A <code>SAMInfoHandler</code> that makes the information collected by the SAM
+ * Service available to monitoring systems that scrape it rather than having it
+ * pushed. At each polling time the collected information is turned into an
+ * immutable snapshot that is then served, without any interaction with the
+ * SAM Service poller, both
+ * <ul>
+ * <li>in Prometheus text format by a local HTTP endpoint (by default
+ * <code>http://127.0.0.1:9464/metrics</code>) and</li>
+ * <li>as the attributes of a JMX MBean (<code>jade.core.sam:type=SAM</code>
+ * by default).</li>
+ * </ul>
+ * The following metric families are exported (prefix <code>jade_sam</code>
+ * by default):
+ * <ul>
+ * <li><code>jade_sam_measure</code> and <code>jade_sam_measure_samples</code>:
+ * the average value and number of samples of each entity in the last polling
+ * period</li>
+ * <li><code>jade_sam_counter_total</code>: the value of each counter cumulated
+ * since this handler was started</li>
+ * <li><code>jade_sam_histogram</code> (summary): the p50, p90, p99 and p999 of
+ * each histogram entity in the last polling period together with cumulated
+ * count and sum. The maximum is exported as
+ * <code>jade_sam_histogram_max</code></li>
+ * </ul>
+ * Each sample has an <code>entity</code> label. Entities whose name has the
+ * form <code>a#b</code> are exported with <code>entity="a"</code> and a
+ * <code>container="b"</code> label if <code>b</code> is the name of a
+ * container or an <code>agent="b"</code> label otherwise. Entities with a plain
+ * name are exported both with their platform-wide value and with the value
+ * collected from each container (<code>container</code> label).
+ * <br>
+ * Configuration parameters:
+ * <ul>
+ * <li><code>jade_core_sam_PrometheusSAMInfoHandlerImpl_host</code>: the local
+ * address the HTTP endpoint binds to (default the loopback address). Set it
+ * to <code>0.0.0.0</code> to let remote monitoring systems scrape the
+ * metrics</li>
+ * <li><code>jade_core_sam_PrometheusSAMInfoHandlerImpl_port</code>: the port
+ * of the HTTP endpoint (default 9464). A negative value disables the
+ * endpoint</li>
+ * <li><code>jade_core_sam_PrometheusSAMInfoHandlerImpl_path</code>: the path
+ * of the HTTP endpoint (default <code>/metrics</code>)</li>
+ * <li><code>jade_core_sam_PrometheusSAMInfoHandlerImpl_jmx</code>: whether or
+ * not to register the JMX MBean (default true)</li>
+ * <li><code>jade_core_sam_PrometheusSAMInfoHandlerImpl_objectname</code>: the
+ * name of the JMX MBean</li>
+ * <li><code>jade_core_sam_PrometheusSAMInfoHandlerImpl_prefix</code>: the
+ * prefix of the metric names (default <code>jade_sam</code>)</li>
+ * </ul>
+ */
+public class PrometheusSAMInfoHandlerImpl implements SAMInfoHandler {
+
+	public static final String PREFIX = "jade_core_sam_PrometheusSAMInfoHandlerImpl_";
+	public static final String HOST = PREFIX + "host";
+	public static final String PORT = PREFIX + "port";
+	public static final int PORT_DEFAULT = 9464;
+	public static final String PATH = PREFIX + "path";
+	public static final String PATH_DEFAULT = "/metrics";
+	public static final String JMX = PREFIX + "jmx";
+	public static final String OBJECT_NAME = PREFIX + "objectname";
+	public static final String OBJECT_NAME_DEFAULT = "jade.core.sam:type=SAM";
+	public static final String METRIC_PREFIX = PREFIX + "prefix";
+	public static final String METRIC_PREFIX_DEFAULT = "jade_sam";
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	private static final double[] QUANTILES = new double[] { 0.5, 0.9, 0.99, 0.999 };
+	// Metric families in output order: name, type and the series belonging to the family
+	private static final String[][] FAMILIES = new String[][] { 
+		{ "measure", "gauge", "measure" },
+		{ "measure_samples", "gauge", "measure_samples" }, 
+		{ "counter_total", "counter", "counter_total" },
+		{ "histogram", "summary", "histogram", "histogram_sum", "histogram_count" },
+		{ "histogram_max", "gauge", "histogram_max" },
+		{ "last_poll_timestamp_seconds", "gauge", "last_poll_timestamp_seconds" } };
+
+	private String prefix;
+	private HttpServer server;
+	private ObjectName objectName;
+
+	// The snapshot served to scrapers. Replaced as a whole at each polling time
+	private volatile Snapshot snapshot = new Snapshot(new LinkedHashMap<>(), new byte[0]);
+
+	// Cumulated values. Only accessed by the SAM Service poller thread
+	private final Map<String, Long> counterTotals = new HashMap<>();
+	private final Map<String, long[]> histogramTotals = new HashMap<>();
+	private final Map<String, double[]> histogramSums = new HashMap<>();
+
+	private final Logger myLogger = Logger.getMyLogger(getClass().getName());
+
+	public void initialize(Profile p) throws Exception {
+		prefix = p.getParameter(METRIC_PREFIX, METRIC_PREFIX_DEFAULT);
+
+		int port = PORT_DEFAULT;
+		try {
+			port = Integer.parseInt(p.getParameter(PORT, null));
+		} catch (Exception e) {
+			// Keep default
+		}
+		if (port >= 0) {
+			String host = p.getParameter(HOST, null);
+			// Only local scrapers by default: the endpoint has no access control
+			InetSocketAddress address = host != null ? new InetSocketAddress(host, port) : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+			server = HttpServer.create(address, 0);
+			server.createContext(p.getParameter(PATH, PATH_DEFAULT), this::serve);
+			// Requests are served by the server dispatcher thread: they only write the current snapshot
+			server.setExecutor(null);
+			server.start();
+			myLogger.log(Logger.CONFIG, "SAM metrics available at http://" + address.getHostString() + ":"
+					+ server.getAddress().getPort() + p.getParameter(PATH, PATH_DEFAULT));
+		}
+
+		if ("true".equalsIgnoreCase(p.getParameter(JMX, "true"))) {
+			MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(p.getParameter(OBJECT_NAME, OBJECT_NAME_DEFAULT));
+			if (mbs.isRegistered(name)) {
+				myLogger.log(Logger.WARNING, "MBean " + name + " already registered. SAM JMX view not available");
+			} else {
+				mbs.registerMBean(new SnapshotMBean(), name);
+				objectName = name;
+			}
+		}
+	}
+
+	public void shutdown() {
+		if (server != null) {
+			server.stop(0);
+			server = null;
+		}
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (Exception e) {
+				myLogger.log(Logger.WARNING, "Error unregistering MBean " + objectName, e);
+			}
+			objectName = null;
+		}
+	}
+
+	/**
+	 * @return The port the HTTP endpoint is listening on or -1 if the endpoint is
+	 *         not active
+	 */
+	public int getPort() {
+		return server != null ? server.getAddress().getPort() : -1;
+	}
+
+	public void handle(Date timeStamp, SAMInfo info) {
+		Set<String> containers = info.getNodeInfos().keySet();
+		Map<String, List<Sample>> series = new HashMap<>();
+
+		// Entity measures: platform-wide values and per-container values of plain entities
+		for (Map.Entry<String, AverageMeasure> e : new TreeMap<>(info.getEntityMeasures()).entrySet()) {
+			String labels = entityLabels(e.getKey(), containers);
+			addMeasure(series, labels, e.getValue());
+		}
+		for (Map.Entry<String, SAMInfo> n : new TreeMap<>(info.getNodeInfos()).entrySet()) {
+			for (Map.Entry<String, AverageMeasure> e : new TreeMap<>(n.getValue().getEntityMeasures()).entrySet()) {
+				if (SAMInfo.getAggregationInfo(e.getKey(), SAMInfo.AVG_AGGREGATION) == null) {
+					String labels = labels("entity", e.getKey(), "container", n.getKey());
+					addMeasure(series, labels, e.getValue());
+				}
+			}
+		}
+
+		// Counters: cumulated since start
+		for (Map.Entry<String, Long> e : new TreeMap<>(info.getCounterValues()).entrySet()) {
+			String labels = entityLabels(e.getKey(), containers);
+			long total = counterTotals.getOrDefault(labels, 0L) + e.getValue();
+			counterTotals.put(labels, total);
+			add(series, "counter_total", labels, total);
+		}
+
+		// Histograms
+		for (Map.Entry<String, Histogram> e : new TreeMap<>(info.getHistogramMeasures()).entrySet()) {
+			addHistogram(series, entityLabels(e.getKey(), containers), e.getValue());
+		}
+		for (Map.Entry<String, SAMInfo> n : new TreeMap<>(info.getNodeInfos()).entrySet()) {
+			for (Map.Entry<String, Histogram> e : new TreeMap<>(n.getValue().getHistogramMeasures()).entrySet()) {
+				if (SAMInfo.getAggregationInfo(e.getKey(), SAMInfo.AVG_AGGREGATION) == null) {
+					addHistogram(series, labels("entity", e.getKey(), "container", n.getKey()), e.getValue());
+				}
+			}
+		}
+
+		add(series, "last_poll_timestamp_seconds", "", timeStamp.getTime() / 1000.0);
+
+		snapshot = render(series);
+	}
+
+	private void addMeasure(Map<String, List<Sample>> series, String labels, AverageMeasure m) {
+		add(series, "measure", labels, m.getValue());
+		add(series, "measure_samples", labels, m.getNSamples());
+	}
+
+	private void addHistogram(Map<String, List<Sample>> series, String labels, Histogram h) {
+		long count = h.getTotalCount();
+		if (count > 0) {
+			for (double q : QUANTILES) {
+				String ql = labels + (labels.length() > 0 ? "," : "") + "quantile=\"" + q + "\"";
+				add(series, "histogram", ql, h.getValueAtPercentile(q * 100));
+			}
+			add(series, "histogram_max", labels, h.getMax());
+		}
+		long[] totalCount = histogramTotals.computeIfAbsent(labels, k -> new long[1]);
+		double[] totalSum = histogramSums.computeIfAbsent(labels, k -> new double[1]);
+		totalCount[0] += count;
+		if (count > 0) {
+			totalSum[0] += h.getMean() * count;
+		}
+		add(series, "histogram_sum", labels, totalSum[0]);
+		add(series, "histogram_count", labels, totalCount[0]);
+	}
+
+	private static void add(Map<String, List<Sample>> series, String name, String labels, double value) {
+		series.computeIfAbsent(name, k -> new ArrayList<>()).add(new Sample(labels, value));
+	}
+
+	private Snapshot render(Map<String, List<Sample>> series) {
+		StringBuilder sb = new StringBuilder();
+		Map<String, Double> values = new LinkedHashMap<>();
+		for (String[] family : FAMILIES) {
+			boolean typeWritten = false;
+			for (int i = 2; i < family.length; ++i) {
+				List<Sample> samples = series.get(family[i]);
+				if (samples == null) {
+					continue;
+				}
+				if (!typeWritten) {
+					sb.append("# TYPE ").append(prefix).append('_').append(family[0]).append(' ').append(family[1]).append('\n');
+					typeWritten = true;
+				}
+				for (Sample smp : samples) {
+					String name = family[i] + (smp.labels.length() > 0 ? "{" + smp.labels + "}" : "");
+					sb.append(prefix).append('_').append(name).append(' ').append(format(smp.value)).append('\n');
+					values.put(name, smp.value);
+				}
+			}
+		}
+		return new Snapshot(values, sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String format(double value) {
+		if (Double.isNaN(value)) {
+			return "NaN";
+		}
+		if (Double.isInfinite(value)) {
+			return value > 0 ? "+Inf" : "-Inf";
+		}
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return String.valueOf((long) value);
+		}
+		return String.valueOf(value);
+	}
+
+	/**
+	 * Map a SAM entity (or counter) name to the labels of the corresponding samples
+	 */
+	static String entityLabels(String name, Set<String> containers) {
+		SAMInfo.AggregationInfo ai = SAMInfo.getAggregationInfo(name, SAMInfo.AVG_AGGREGATION);
+		if (ai == null) {
+			return labels("entity", name, null, null);
+		}
+		String entity = ai.getAggregatedName();
+		String component = name.substring(entity.length() + 1);
+		return labels("entity", entity, containers.contains(component) ? "container" : "agent", component);
+	}
+
+	private static String labels(String name1, String value1, String name2, String value2) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(name1).append("=\"").append(escape(value1)).append('"');
+		if (name2 != null) {
+			sb.append(',').append(name2).append("=\"").append(escape(value2)).append('"');
+		}
+		return sb.toString();
+	}
+
+	static String escape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	Map<String, Double> getSnapshotValues() {
+		return snapshot.values;
+	}
+
+	byte[] getSnapshotText() {
+		return snapshot.text;
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+			if (!"GET".equals(method) && !"HEAD".equals(method)) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = snapshot.text;
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			if ("HEAD".equals(method)) {
+				exchange.sendResponseHeaders(200, -1);
+			} else {
+				exchange.sendResponseHeaders(200, body.length > 0 ? body.length : -1);
+				if (body.length > 0) {
+					try (OutputStream out = exchange.getResponseBody()) {
+						out.write(body);
+					}
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+
+	/**
+	 * Inner class Sample
+	 */
+	private static class Sample {
+		final String labels;
+		final double value;
+
+		Sample(String labels, double value) {
+			this.labels = labels;
+			this.value = value;
+		}
+	} // END of inner class Sample
+
+
+	/**
+	 * Inner class Snapshot.
+	 * The immutable view of the information collected at a polling time
+	 */
+	private static class Snapshot {
+		final Map<String, Double> values;
+		final byte[] text;
+
+		Snapshot(Map<String, Double> values, byte[] text) {
+			this.values = Collections.unmodifiableMap(values);
+			this.text = text;
+		}
+	} // END of inner class Snapshot
+
+
+	/**
+	 * Inner class SnapshotMBean.
+	 * A read-only DynamicMBean exposing an attribute for each sample of the current 
+	 * snapshot. Attribute names are the Prometheus series without the prefix.
+	 */
+	private class SnapshotMBean implements DynamicMBean {
+
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Double value = snapshot.values.get(attribute);
+			if (value == null) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			return value;
+		}
+
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Attribute " + attribute.getName() + " is read-only");
+		}
+
+		public AttributeList getAttributes(String[] attributes) {
+			Map<String, Double> values = snapshot.values;
+			AttributeList list = new AttributeList();
+			for (String name : attributes) {
+				Double value = values.get(name);
+				if (value != null) {
+					list.add(new Attribute(name, value));
+				}
+			}
+			return list;
+		}
+
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		public Object invoke(String actionName, Object[] params, String[] signature) {
+			throw new UnsupportedOperationException(actionName);
+		}
+
+		public MBeanInfo getMBeanInfo() {
+			Set<String> names = snapshot.values.keySet();
+			MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+			int i = 0;
+			for (String name : names) {
+				attributes[i++] = new MBeanAttributeInfo(name, Double.class.getName(), "SAM sample " + name, true, false, false);
+			}
+			return new MBeanInfo(PrometheusSAMInfoHandlerImpl.class.getName(), "JADE SAM information collected at the last polling time",
+					attributes, null, null, null);
+		}
+	} // END of inner class SnapshotMBean
+}
@@ -66,6 +66,17 @@ public interface SAMHelper extends ServiceHelper {
 	 */
 	void addEntityMeasureProvider(String entityName, AverageMeasureProvider provider);
 	
+	/**
+	 * Register a provider of histogram measures for a given entity. Histograms of the 
+	 * same entity generated by different providers are merged so that percentiles 
+	 * can be computed over all of them.
+	 * @param entityName The name of the entity the registered provider will provide measures for
+	 * @param provider The provider of histogram measures
+	 * @see HistogramMeasureProvider
+	 * @see HistogramMeasureProviderImpl
+	 */
+	void addEntityMeasureProvider(String entityName, HistogramMeasureProvider provider);
+	
 	/**
 	 * Register a provider to get values of a given counter
 	 * @param counterName The name of the counter the registered provider will get values of
@@ -51,15 +51,25 @@ public class SAMInfo implements Serializable {
 
 	private Map<String, AverageMeasure> entityMeasures;
 	private Map<String, Long> counterValues;
+	// May be null if this SAMInfo was received from a node running an older JADE version 
+	private Map<String, Histogram> histogramMeasures;
+	// The information collected from each node, indexed by node name. Only filled on 
+	// the Main Container by the SAM Service poller 
+	private transient Map<String, SAMInfo> nodeInfos;
 	
 	
 	SAMInfo() {
-		this(new HashMap<>(), new HashMap<>());
+		this(new HashMap<>(), new HashMap<>(), new HashMap<>());
 	}
 	
 	SAMInfo(Map<String, AverageMeasure> entityMeasures, Map<String, Long> counterValues) {
+		this(entityMeasures, counterValues, new HashMap<>());
+	}
+	
+	SAMInfo(Map<String, AverageMeasure> entityMeasures, Map<String, Long> counterValues, Map<String, Histogram> histogramMeasures) {
 		this.entityMeasures = entityMeasures;
 		this.counterValues = counterValues;
+		this.histogramMeasures = histogramMeasures;
 	}
 	
 	/**
@@ -78,21 +88,64 @@ public class SAMInfo implements Serializable {
 		return counterValues;
 	}
 	
+	/**
+	 * Provides the histograms of all entities monitored by means of 
+	 * <code>HistogramMeasureProvider</code>-s in form of a Map.
+	 * @return A Map mapping monitored entity names to the histograms of their values
+	 */
+	public Map<String, Histogram> getHistogramMeasures() {
+		if (histogramMeasures == null) {
+			histogramMeasures = new HashMap<>();
+		}
+		return histogramMeasures;
+	}
+	
+	/**
+	 * Provides the information collected from each node (before it was merged into this 
+	 * SAMInfo) in form of a Map.
+	 * @return A Map mapping node names to the information collected from them. The Map 
+	 * is empty if per-node information is not available
+	 */
+	public Map<String, SAMInfo> getNodeInfos() {
+		if (nodeInfos == null) {
+			nodeInfos = new HashMap<>();
+		}
+		return nodeInfos;
+	}
+	
+	void addNodeInfo(String nodeName, SAMInfo info) {
+		getNodeInfos().put(nodeName, info);
+	}
+	
 	void update(SAMInfo info) {
 		// Update entity measures
 		Map<String, AverageMeasure> mm = info.getEntityMeasures();
 		for (String entityName : mm.keySet()) {
 			AverageMeasure newM = mm.get(entityName);
-			// If this is a new entity --> add it. Otherwise update the measure we have internally
+			// If this is a new entity --> add it. Otherwise update the measure we have internally.
+			// Never keep the other's measure as it is: we update it in place later on
 			AverageMeasure m = entityMeasures.get(entityName);
 			if (m == null) {
-				entityMeasures.put(entityName, newM);
+				entityMeasures.put(entityName, new AverageMeasure(newM.getValue(), newM.getNSamples()));
 			}
 			else {
 				m.update(newM);
 			}
 		}
 		
+		// Update histogram measures
+		Map<String, Histogram> hh = info.getHistogramMeasures();
+		for (String entityName : hh.keySet()) {
+			Histogram newH = hh.get(entityName);
+			// If this is a new entity --> add it. Otherwise merge the histogram we have internally
+			Histogram h = getHistogramMeasures().get(entityName);
+			if (h == null) {
+				h = new Histogram();
+				getHistogramMeasures().put(entityName, h);
+			}
+			h.add(newH);
+		}
+		
 		// Update counter values
 		Map<String, Long> vv = info.getCounterValues();
 		for (String counterName : vv.keySet()) {
@@ -120,6 +173,13 @@ public class SAMInfo implements Serializable {
 			aggregatedMeasures = oneShotComputeAggregatedMeasures(aggregatedMeasures);
 		}
 		
+		// Aggregate histograms
+		Map<String, Histogram> aggregatedHistograms = oneShotComputeAggregatedHistograms(getHistogramMeasures());
+		while (aggregatedHistograms.size() > 0) {
+			addAllHistograms(aggregatedHistograms, histogramMeasures);
+			aggregatedHistograms = oneShotComputeAggregatedHistograms(aggregatedHistograms);
+		}
+		
 		// Aggregate counters
 		Map<String, Long> aggregatedCounters = oneShotComputeAggregatedCounters(counterValues);
 		while (aggregatedCounters.size() > 0) {
@@ -160,6 +220,37 @@ public class SAMInfo implements Serializable {
 		}
 	}
 	
+	private static Map<String, Histogram> oneShotComputeAggregatedHistograms(Map<String, Histogram> histograms) {
+		Map<String, Histogram> aggregatedHistograms = new HashMap<>();
+		for (String entityName : histograms.keySet()) {
+			// Histograms are always merged, whatever the aggregation separator
+			AggregationInfo ai = getAggregationInfo(entityName, AVG_AGGREGATION);
+			if (ai != null) {
+				String aggregatedEntityName = ai.aggregatedName;
+				Histogram agH = aggregatedHistograms.get(aggregatedEntityName);
+				if (agH == null) {
+					agH = new Histogram();
+					aggregatedHistograms.put(aggregatedEntityName, agH);
+				}
+				agH.add(histograms.get(entityName));
+			}
+		}
+		return aggregatedHistograms;
+	}
+	
+	private static void addAllHistograms(Map<String, Histogram> hh1, Map<String, Histogram> hh2) {
+		for (String entityName : hh1.keySet()) {
+			Histogram h = hh1.get(entityName);
+			Histogram old = hh2.get(entityName);
+			if (old != null) {
+				old.add(h);
+			}
+			else {
+				hh2.put(entityName, h);
+			}
+		}
+	}
+	
 	private static Map<String, Long> oneShotComputeAggregatedCounters(Map<String, Long> counters) {
 		Map<String, CounterAggregator> aggregatedCounters = new HashMap<>();
 		for (String counterName : counters.keySet()) {
@@ -230,6 +321,14 @@ public class SAMInfo implements Serializable {
 		AggregationInfo(int aggregation) {
 			this.aggregation = aggregation;
 		}
+		
+		public int getAggregation() {
+			return aggregation;
+		}
+		
+		public String getAggregatedName() {
+			return aggregatedName;
+		}
 	} // END of inner class AggregationInfo
 	
 	
@@ -40,6 +40,7 @@ import jade.core.AgentContainer;
 import jade.core.BaseService;
 import jade.core.Filter;
 import jade.core.HorizontalCommand;
+import jade.core.IMTPManager;
 import jade.core.Node;
 import jade.core.Profile;
 import jade.core.Service;
@@ -51,6 +52,7 @@ import jade.core.exception.ProfileException;
 import jade.core.exception.ServiceException;
 import jade.core.management.AgentManagementSlice;
 import jade.core.replication.MainReplicationSlice;
+import jade.mtp.TransportAddress;
 import jade.util.Logger;
 
 /**
@@ -66,8 +68,13 @@ public class SAMService extends BaseService {
 
 	public static final String AGENTS_TO_MONITOR = "jade_core_sam_SAMService_agentstomonitor";
 
+	public static final String ENABLE_IMTP_METRICS = "jade_core_sam_SAMService_enableimtpmetrics";
+
+	private static final String IMTP_DISPATCH_TIME = "IMTP-dispatch-time";
+
 	private final List<EntityInfo> monitoredEntities = new ArrayList<>();
 	private final List<CounterInfo> monitoredCounters = new ArrayList<>();
+	private final List<HistogramInfo> monitoredHistograms = new ArrayList<>();
 
 	private Poller poller;
 
@@ -191,6 +198,36 @@ public class SAMService extends BaseService {
 		} catch (ProfileException pe) {
 			myLogger.log(Logger.WARNING, "Error processing " + AGENTS_TO_MONITOR + " configuration property", pe);
 		}
+
+		// IMTP METRICS: round-trip time of the commands dispatched by the IMTP
+		if ("true".equalsIgnoreCase(myProfile.getParameter(ENABLE_IMTP_METRICS, "false"))) {
+			IMTPManager imtpManager = getIMTPManager();
+			HistogramMeasureProvider provider = imtpManager.getDispatchTimeProvider();
+			if (provider != null) {
+				// The provider may be shared by all containers in this JVM: name the entity
+				// after the JVM so that the samples polled by each of them end up merged
+				// in the same entity on the Main Container
+				try {
+					myHelper.addEntityMeasureProvider(IMTP_DISPATCH_TIME + "#" + getJVMName(imtpManager), provider);
+				} catch (IMTPException imtpe) {
+					myLogger.log(Logger.WARNING, "Error retrieving local IMTP addresses. IMTP metrics disabled", imtpe);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return A name identifying this JVM: the first address where the IMTP is
+	 *         waiting for intra-platform calls, or the name of the local container
+	 *         if no address is available
+	 */
+	private String getJVMName(IMTPManager imtpManager) throws IMTPException {
+		List<TransportAddress> addresses = imtpManager.getLocalAddresses();
+		if (addresses != null && !addresses.isEmpty()) {
+			TransportAddress ta = addresses.get(0);
+			return ta.getHost() + "_" + ta.getPort();
+		}
+		return myContainer.getID().getName();
 	}
 
 	private void startPolling() throws ServiceException {
@@ -273,6 +310,17 @@ public class SAMService extends BaseService {
 		}
 	}
 
+	private Map<String, Histogram> getHistogramMeasures() {
+		// Mutual exclusion with modifications of entities/providers
+		synchronized (myHelper) {
+			Map<String, Histogram> histogramMeasures = new HashMap<>();
+			for (HistogramInfo info : monitoredHistograms) {
+				histogramMeasures.put(info.getName(), info.getMeasure());
+			}
+			return histogramMeasures;
+		}
+	}
+
 	private Map<String, Long> getCounterValues() {
 		// Mutual exclusion with modifications of counters/providers
 		synchronized (myHelper) {
@@ -309,6 +357,11 @@ public class SAMService extends BaseService {
 			info.addProvider(provider);
 		}
 
+		public synchronized void addEntityMeasureProvider(String entityName, HistogramMeasureProvider provider) {
+			HistogramInfo info = getHistogramInfo(entityName);
+			info.addProvider(provider);
+		}
+
 		public synchronized void addCounterValueProvider(String counterName, CounterValueProvider provider) {
 			CounterInfo info = getCounterInfo(counterName);
 			info.addProvider(provider);
@@ -361,7 +414,7 @@ public class SAMService extends BaseService {
 				String cmdName = cmd.getName();
 				if (SAMSlice.H_GETSAMINFO.equals(cmdName)) {
 					// Collect all SAM information from the local node
-					SAMInfo info = new SAMInfo(getEntityMeasures(), getCounterValues());
+					SAMInfo info = new SAMInfo(getEntityMeasures(), getCounterValues(), getHistogramMeasures());
 					cmd.setReturnValue(info);
 				}
 			} catch (Throwable t) {
@@ -417,6 +470,49 @@ public class SAMService extends BaseService {
 		return info;
 	}
 
+	/**
+	 * Inner class HistogramInfo
+	 */
+	private class HistogramInfo {
+		private String name;
+		private List<HistogramMeasureProvider> providers = new ArrayList<>();
+
+		HistogramInfo(String name) {
+			this.name = name;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		void addProvider(HistogramMeasureProvider provider) {
+			providers.add(provider);
+		}
+
+		Histogram getMeasure() {
+			Histogram result = new Histogram();
+			for (HistogramMeasureProvider p : providers) {
+				Histogram h = p.getValue();
+				if (h != null) {
+					result.add(h);
+				}
+			}
+			return result;
+		}
+	} // END of inner class HistogramInfo
+
+	private HistogramInfo getHistogramInfo(String entityName) {
+		for (HistogramInfo info : monitoredHistograms) {
+			if (info.getName().equals(entityName)) {
+				return info;
+			}
+		}
+		// Entity not found --> create it
+		HistogramInfo info = new HistogramInfo(entityName);
+		monitoredHistograms.add(info);
+		return info;
+	}
+
 	/**
 	 * Inner class CounterInfo
 	 */
@@ -0,0 +1,216 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.domain;
+
+//#MIDP_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jade.core.AID;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.Property;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+
+/**
+ * An in-memory DF knowledge base that, in addition to the registered
+ * <code>DFAgentDescription</code>s, maintains inverted indexes on agent
+ * protocols, ontologies and languages and on the type, name, ontologies,
+ * languages, protocols and properties of registered services.
+ * <br>
+ * A search first intersects the posting lists of all the index keys derived
+ * from the template (starting from the shortest one) and then applies the
+ * full <code>DFMemKB.compare()</code> matching only to the resulting
+ * candidates. Templates that do not specify any indexed element are served by
+ * a full scan as in <code>DFMemKB</code>.
+ * 
+ * @see IndexedDFKBFactory
+ */
+public class DFIndexedMemKB extends DFMemKB {
+	
+	// Index key prefixes
+	private static final String PROTOCOL = "p:";
+	private static final String ONTOLOGY = "o:";
+	private static final String LANGUAGE = "l:";
+	private static final String SERVICE_TYPE = "st:";
+	private static final String SERVICE_NAME = "sn:";
+	private static final String SERVICE_PROTOCOL = "sp:";
+	private static final String SERVICE_ONTOLOGY = "so:";
+	private static final String SERVICE_LANGUAGE = "sl:";
+	private static final String PROPERTY_NAME = "pn:";
+	private static final String PROPERTY_VALUE = "pv:";
+
+	// Index key --> Set of names of the registered facts including that key
+	private final Map<String, Set<Object>> index = new HashMap<>();
+
+	public DFIndexedMemKB(int maxResultLimit) {
+		super(maxResultLimit);
+	}
+
+	protected Object insert(Object name, Object fact) {
+		Object previous = super.insert(name, fact);
+		if (previous != null) {
+			unindex(name, previous);
+		}
+		for (String key : getKeys((DFAgentDescription) fact)) {
+			index.computeIfAbsent(key, k -> new HashSet<>()).add(name);
+		}
+		return previous;
+	}
+
+	protected Object remove(Object name) {
+		Object fact = super.remove(name);
+		if (fact != null) {
+			unindex(name, fact);
+		}
+		return fact;
+	}
+
+	private void unindex(Object name, Object fact) {
+		for (String key : getKeys((DFAgentDescription) fact)) {
+			Set<Object> names = index.get(key);
+			if (names != null) {
+				names.remove(name);
+				if (names.isEmpty()) {
+					index.remove(key);
+				}
+			}
+		}
+	}
+
+	public List search(Object template, int maxResults) {
+		if (!(template instanceof DFAgentDescription)) {
+			return super.search(template, maxResults);
+		}
+		DFAgentDescription dfdTemplate = (DFAgentDescription) template;
+		Iterator candidates;
+		AID id = dfdTemplate.getName();
+		if (id != null && id.getName() != null) {
+			// The fact name is the key of the facts table: no need to use the indexes
+			candidates = Arrays.asList(id).iterator();
+		} else {
+			Set<String> keys = getKeys(dfdTemplate);
+			if (keys.isEmpty()) {
+				// Nothing to index on
+				return super.search(template, maxResults);
+			}
+			candidates = intersect(keys).iterator();
+		}
+
+		List result = new ArrayList<>();
+		int found = 0;
+		while (candidates.hasNext() && ((maxResults < 0) || (found < maxResults))) {
+			Object fact = facts.get(candidates.next());
+			// Apply full matching for the residual predicates
+			if (fact != null && match(template, fact)) {
+				result.add(fact);
+				found++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the names of the facts that include all the given index keys.
+	 */
+	private List<Object> intersect(Set<String> keys) {
+		List<Set<Object>> postings = new ArrayList<>(keys.size());
+		for (String key : keys) {
+			Set<Object> names = index.get(key);
+			if (names == null) {
+				return new ArrayList<>();
+			}
+			postings.add(names);
+		}
+		postings.sort(Comparator.comparingInt(Set::size));
+
+		Set<Object> shortest = postings.get(0);
+		List<Object> result = new ArrayList<>(shortest.size());
+		for (Object name : shortest) {
+			boolean inAll = true;
+			for (int i = 1; i < postings.size() && inAll; ++i) {
+				inAll = postings.get(i).contains(name);
+			}
+			if (inAll) {
+				result.add(name);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Build the index keys of a DFAgentDescription. The same method is used both
+	 * for registered facts and for templates: since each template element must
+	 * be matched by an element of the fact, the keys of a template are always a
+	 * subset of the keys of a matching fact. Case-insensitive elements are
+	 * indexed in lower case.
+	 */
+	private static Set<String> getKeys(DFAgentDescription dfd) {
+		Set<String> keys = new HashSet<>();
+		addKeys(keys, PROTOCOL, dfd.getAllProtocols());
+		addKeys(keys, ONTOLOGY, dfd.getAllOntologies());
+		addKeys(keys, LANGUAGE, dfd.getAllLanguages());
+		Iterator it = dfd.getAllServices();
+		while (it.hasNext()) {
+			ServiceDescription sd = (ServiceDescription) it.next();
+			addKey(keys, SERVICE_TYPE, sd.getType());
+			addKey(keys, SERVICE_NAME, sd.getName());
+			addKeys(keys, SERVICE_PROTOCOL, sd.getAllProtocols());
+			addKeys(keys, SERVICE_ONTOLOGY, sd.getAllOntologies());
+			addKeys(keys, SERVICE_LANGUAGE, sd.getAllLanguages());
+			Iterator itProps = sd.getAllProperties();
+			while (itProps.hasNext()) {
+				Property p = (Property) itProps.next();
+				if (p.getName() != null) {
+					// Property names are matched in a case-sensitive way
+					keys.add(PROPERTY_NAME + p.getName());
+					if (p.getValue() instanceof String) {
+						keys.add(PROPERTY_VALUE + p.getName() + '=' + ((String) p.getValue()).toLowerCase());
+					}
+				}
+			}
+		}
+		return keys;
+	}
+
+	private static void addKeys(Set<String> keys, String prefix, Iterator it) {
+		while (it.hasNext()) {
+			addKey(keys, prefix, (String) it.next());
+		}
+	}
+
+	private static void addKey(Set<String> keys, String prefix, String value) {
+		if (value != null) {
+			keys.add(prefix + value.toLowerCase());
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * JADE - Java Agent DEvelopment Framework is a framework to develop
+ * multi-agent systems in compliance with the FIPA specifications.
+ * Copyright (C) 2000 CSELT S.p.A.
+ *
+ * GNU Lesser General Public License
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation,
+ * version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ */
+package jade.domain;
+
+//#APIDOC_EXCLUDE_FILE
+
+import jade.domain.KBManagement.MemKB;
+
+/**
+ * A <code>DFKBFactory</code> that makes the DF keep its volatile catalogue in
+ * an indexed in-memory knowledge base, so that searches do not need to scan
+ * all registrations. To use it, start the DF with
+ * <code>-jade_domain_df_kb-factory jade.domain.IndexedDFKBFactory</code>.
+ * 
+ * @see DFIndexedMemKB
+ */
+public class IndexedDFKBFactory extends DFKBFactory {
+
+	@Override
+	protected MemKB getDFMemKB(int maxResultLimit) {
+		return new DFIndexedMemKB(maxResultLimit);
+	}
+}
@@ -153,7 +153,9 @@ import jade.content.onto.basic.*;
  * <td><code>jade_domain_df_kb-factory</code></td>
  * <td>Indicates the name of the factory class that should be used to create the
  * knowledge base objects for the DF. The class has to be a sub class of
- * jade.domain.DFKBFactory.</td>
+ * jade.domain.DFKBFactory. Specify jade.domain.IndexedDFKBFactory to keep
+ * the volatile catalogue in an indexed knowledge base that speeds up searches
+ * when many agents are registered.</td>
  * </tr>
  * <tr>
  * <td><code>jade_domain_df_poolsize</code></td>
@@ -47,6 +47,8 @@ import java.util.Map;
 import jade.core.Profile;
 import jade.core.exception.IMTPException;
 import jade.core.exception.UnreachableException;
+import jade.core.sam.HistogramMeasureProvider;
+import jade.core.sam.HistogramMeasureProviderImpl;
 import jade.imtp.leap.exception.DispatcherException;
 import jade.imtp.leap.exception.ICPException;
 import jade.imtp.leap.exception.LEAPSerializationException;
@@ -150,6 +152,12 @@ final class CommandDispatcher implements StubHelper, ICP.Listener {
 	 */
 	private PlatformManager thePlatformManager;
 
+	/**
+	 * The provider of the round-trip time (microseconds) of dispatched commands.
+	 * Null until some component asks for it so that no time is measured otherwise.
+	 */
+	private volatile HistogramMeasureProviderImpl dispatchTimeProvider;
+
 	private final Logger myLogger = Logger.getMyLogger(getClass().getName());
 
 	static {
@@ -329,6 +337,8 @@ final class CommandDispatcher implements StubHelper, ICP.Listener {
 		// TransportAddress ta = (TransportAddress) destTAs.get(0);
 		// System.out.println("Dispatching command of type " + command.getCode() + " to
 		// "+ta.getHost()+":"+ta.getPort());
+		HistogramMeasureProviderImpl timeProvider = dispatchTimeProvider;
+		long startTime = timeProvider != null ? System.nanoTime() : 0;
 		Command response = null;
 		if (isLocal(destTAs)) {
 			Integer id = Integer.valueOf(command.getObjectID());
@@ -352,9 +362,25 @@ final class CommandDispatcher implements StubHelper, ICP.Listener {
 		if (command.getCode() == Command.ADD_NODE && DEFAULT_NAME.equals(name)) {
 			name = (String) response.getParamAt(0);
 		}
+		if (timeProvider != null) {
+			timeProvider.addSample((System.nanoTime() - startTime) / 1000);
+		}
 		return response;
 	}
 
+	/**
+	 * Activate (if not already active) the measurement of the round-trip time of
+	 * commands successfully dispatched by means of <code>dispatchCommand()</code>
+	 * 
+	 * @return The provider of the round-trip time histogram (microseconds)
+	 */
+	synchronized HistogramMeasureProvider getDispatchTimeProvider() {
+		if (dispatchTimeProvider == null) {
+			dispatchTimeProvider = new HistogramMeasureProviderImpl();
+		}
+		return dispatchTimeProvider;
+	}
+
 	private boolean isLocal(List<TransportAddress> destTAs) {
 		try {
 			TransportAddress ta1 = addresses.get(0);
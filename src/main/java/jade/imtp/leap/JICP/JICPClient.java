@@ -46,6 +46,10 @@ import jade.util.Logger;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class declaration
@@ -59,16 +63,28 @@ class JICPClient {
 	private final ConnectionFactory connFactory;
 	private final ConnectionPool pool;
 	private final int readTimeout;
+	private final boolean multiplexed;
+	// Multiplexed connections (one per destination)
+	private final Map<String, MultiplexedConnection> mxConnections = new ConcurrentHashMap<>();
+	// Destinations that do not support the multiplexed mode
+	private final Set<String> classicOnly = ConcurrentHashMap.newKeySet();
 	private static final Logger log = Logger.getMyLogger(JICPClient.class.getName());
 
+	private static final long MX_CONNECTION_MAX_IDLE_TIME = 120000;
+
 	/**
 	 * Constructor declaration
 	 */
 	public JICPClient(TransportProtocol tp, ConnectionFactory f, int max, int rt) {
+		this(tp, f, max, rt, false);
+	} 
+
+	public JICPClient(TransportProtocol tp, ConnectionFactory f, int max, int rt, boolean multiplexed) {
 		protocol = tp;
 		connFactory = f;
 		pool = new ConnectionPool(protocol, connFactory, max);
 		readTimeout = rt;
+		this.multiplexed = multiplexed;
 	} 
 
 	/**
@@ -81,6 +97,17 @@ class JICPClient {
 	 * @throws ICPException
 	 */
 	public byte[] send(TransportAddress ta, byte dataType, byte[] data, boolean requireFreshConnection) throws ICPException {
+		if (multiplexed && dataType == JICPProtocol.COMMAND_TYPE && ta.getFile() == null) {
+			String url = protocol.addrToString(ta);
+			if (!classicOnly.contains(url)) {
+				byte[] rsp = sendMultiplexed(ta, url, data, requireFreshConnection);
+				if (rsp != null) {
+					return rsp;
+				}
+				// The destination does not support the multiplexed mode --> go on in classic mode
+			}
+		}
+
 		ConnectionWrapper cw = null;
 		boolean done = false;
 
@@ -162,6 +189,108 @@ class JICPClient {
 		}
 	} 
 	
+	/**
+	 * Send a command over the multiplexed connection towards a given destination,
+	 * creating it if necessary.
+	 * @return the response data or null if the destination does not support
+	 * the multiplexed mode
+	 */
+	private byte[] sendMultiplexed(TransportAddress ta, String url, byte[] data, boolean requireFreshConnection) throws ICPException {
+		if (requireFreshConnection) {
+			// The destination may be no longer valid --> don't trust the current connection (if any)
+			MultiplexedConnection old = mxConnections.remove(url);
+			if (old != null) {
+				old.close();
+			}
+		}
+
+		while (true) {
+			MultiplexedConnection mxc = getMultiplexedConnection(ta, url);
+			if (mxc == null) {
+				return null;
+			}
+			boolean reused = mxc.isReused();
+			try {
+				JICPPacket request = new JICPPacket(JICPProtocol.COMMAND_TYPE, JICPProtocol.DEFAULT_INFO, null, data);
+				long start = System.currentTimeMillis();
+				JICPPacket reply = mxc.send(request, readTimeout);
+
+				DeliveryTracing.setTracingInfo("Network-waiting-time", System.currentTimeMillis() - start);
+				DeliveryTracing.setTracingInfo("Reused-connection", reused);
+
+				if (reply.getType() == JICPProtocol.ERROR_TYPE) {
+					throw new ICPException(new String(reply.getData()));
+				}
+				byte[] bb = reply.getData();
+				if (bb == null) {
+					throw new ICPException("Null response from server");
+				}
+				return bb;
+			}
+			catch (IOException ioe) {
+				mxConnections.remove(url, mxc);
+				if (!reused) {
+					throw new ICPException("I/O error sending/receiving data to "+ta.getHost()+":"+ta.getPort(), ioe);
+				}
+				// The connection was broken while idle: retry on a new one
+				log.log(Logger.FINE, "Multiplexed connection to "+url+" lost. Retrying on a new one");
+			}
+		}
+	}
+
+	private MultiplexedConnection getMultiplexedConnection(TransportAddress ta, String url) throws ICPException {
+		MultiplexedConnection mxc = mxConnections.get(url);
+		if (mxc != null && !mxc.isClosed()) {
+			return mxc;
+		}
+
+		synchronized (mxConnections) {
+			// Check again: another thread may have created it in the meanwhile
+			mxc = mxConnections.get(url);
+			if (mxc != null && !mxc.isClosed()) {
+				return mxc;
+			}
+			if (classicOnly.contains(url)) {
+				return null;
+			}
+
+			Connection c = null;
+			try {
+				c = connFactory.createConnection(ta);
+				if (!(c instanceof JICPConnection connection)) {
+					// Only stream based connections can be multiplexed (e.g. HTTP ones cannot)
+					c.close();
+					classicOnly.add(url);
+					return null;
+				}
+				if (readTimeout > 0) {
+					// Do not wait forever for the negotiation response
+					connection.setReadTimeout(readTimeout);
+				}
+				mxc = new MultiplexedConnection(c, ta);
+				if (!mxc.negotiate()) {
+					classicOnly.add(url);
+					return null;
+				}
+				// Timeouts are now managed per request: the reader thread must block indefinitely
+				connection.setReadTimeout(0);
+				mxConnections.put(url, mxc);
+				return mxc;
+			}
+			catch (IOException ioe) {
+				if (c != null) {
+					try {
+						c.close();
+					}
+					catch (IOException ioe1) {
+						// Just ignore it
+					}
+				}
+				throw new ICPException("Error creating multiplexed connection to "+ta.getHost()+":"+ta.getPort(), ioe);
+			}
+		}
+	}
+
 	private void manageReadTimeout(ConnectionWrapper cw) {
 		if (cw.isReused()) {
 			Connection c = cw.getConnection();
@@ -183,6 +312,11 @@ class JICPClient {
 
 	public void shutdown() {
 		pool.shutdown();
+		Iterator<MultiplexedConnection> it = mxConnections.values().iterator();
+		while (it.hasNext()) {
+			it.next().close();
+			it.remove();
+		}
 	}
 
 	/**
@@ -190,5 +324,11 @@ class JICPClient {
 	 */
 	public void tick(long currentTime) {
 		pool.clearExpiredConnections(currentTime);
+		Iterator<MultiplexedConnection> it = mxConnections.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().closeIfExpired(currentTime, MX_CONNECTION_MAX_IDLE_TIME)) {
+				it.remove();
+			}
+		}
 	}
 }
@@ -61,6 +61,12 @@ public class JICPPacket {
 	 */
 	private byte   sessionID = -1;
 
+	/**
+	 * An optional identifier used to match responses with requests when
+	 * many requests are outstanding on the same multiplexed connection
+	 */
+	private int    requestID = -1;
+
 	/**
 	 * An optional field indicating the actual recipient for this JICPPacket. 
 	 * - A JICPServer receiving a JICPPacket from a remote container
@@ -168,6 +174,28 @@ public class JICPPacket {
 		}
 	} 
 
+	/**
+	 * @return The requestID of this packet.
+	 */
+	public int getRequestID() {
+		return requestID;
+	} 
+
+	/**
+	 * Set the requestID of this packet and adjust the info field
+	 * accordingly. This must only be used on multiplexed connections.
+	 */
+	public void setRequestID(int id) {
+		requestID = id;
+
+		if (requestID >= 0) {
+			info |= JICPProtocol.REQUEST_ID_PRESENT_INFO;
+		}
+		else {
+			info &= ~JICPProtocol.REQUEST_ID_PRESENT_INFO;
+		}
+	} 
+
 	/**
 	 * @return The recipientID of this packet.
 	 */
@@ -226,6 +254,25 @@ public class JICPPacket {
 	 * package.
 	 */
 	public int writeTo(OutputStream out) throws IOException {
+		int cnt = writeHeaderTo(out);
+		// Payload
+		if (data != null && data.length > 0) {
+			out.write(data, 0, data.length);
+			cnt += data.length;
+		}
+		// DEBUG
+		//System.out.println(getLength()+" bytes written");
+		return cnt;
+	}
+
+	/**
+	 * Writes the packet header (i.e. everything but the payload bytes returned
+	 * by <code>getData()</code>) into the provided <code>OutputStream</code>.
+	 * This allows writing the payload separately without copying it.
+	 *
+	 * @return the number of bytes written
+	 */
+	public int writeHeaderTo(OutputStream out) throws IOException {
 		int cnt = 2;
 		// Write the packet type
 		out.write(type);
@@ -239,6 +286,15 @@ public class JICPPacket {
 			cnt++;
 		}
 
+		// Write the request ID if present
+		if ((info & JICPProtocol.REQUEST_ID_PRESENT_INFO) != 0) {
+			out.write(requestID);
+			out.write(requestID >> 8);
+			out.write(requestID >> 16);
+			out.write(requestID >> 24);
+			cnt += 4;
+		}
+
 		// Write recipient ID only if != null
 		if ((info & JICPProtocol.RECIPIENT_ID_PRESENT_INFO) != 0) {
 			out.write(recipientID.length());
@@ -246,7 +302,7 @@ public class JICPPacket {
 			cnt += 1 + recipientID.length();
 		} 
 
-		// Write data only if != null
+		// Write data size only if data != null
 		if (data != null) {
 			// Size
 			int size = data.length;
@@ -255,14 +311,7 @@ public class JICPPacket {
 			out.write(size >> 16);      	
 			out.write(size >> 24);      	
 			cnt += 4;
-			// Payload
-			if (size > 0) {
-				out.write(data, 0, size);
-				cnt += size;
-			}
 		}
-		// DEBUG
-		//System.out.println(getLength()+" bytes written");
 		return cnt;
 	} 
 
@@ -290,6 +339,15 @@ public class JICPPacket {
 			p.sessionID = read(in);
 		}
 
+		// Read request ID if present
+		if ((p.info & JICPProtocol.REQUEST_ID_PRESENT_INFO) != 0) {
+			int b1 = read(in);
+			int b2 = read(in);
+			int b3 = read(in);
+			int b4 = read(in);
+			p.requestID = ((b4 << 24) & 0xff000000) | ((b3 << 16) & 0x00ff0000) | ((b2 << 8) & 0x0000ff00) | (b1 & 0x000000ff);
+		}
+
 		// Read recipient ID if present
 		if ((p.info & JICPProtocol.RECIPIENT_ID_PRESENT_INFO) != 0) {
 			int size = read(in) & 0x000000ff;
@@ -350,6 +408,9 @@ public class JICPPacket {
 		if ((info & JICPProtocol.SESSION_ID_PRESENT_INFO) != 0) {
 			cnt++;
 		}
+		if ((info & JICPProtocol.REQUEST_ID_PRESENT_INFO) != 0) {
+			cnt += 4;
+		}
 		if ((info & JICPProtocol.RECIPIENT_ID_PRESENT_INFO) != 0) {
 			cnt += 1 + recipientID.getBytes().length;
 		}
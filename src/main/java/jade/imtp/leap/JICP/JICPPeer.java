@@ -65,6 +65,13 @@ public class JICPPeer implements ICP, ProtocolManager {
 
 	public static final String CONNECTION_TIMEOUT = "jade_imtp_leap_JICP_JICPPeer_connectiontimeout";
 	public static final String READ_TIMEOUT = "jade_imtp_leap_JICP_JICPPeer_readtimeout";
+	/**
+	 * If set to true, commands towards a given destination are all sent over a
+	 * single connection without waiting for the responses to the previous ones.
+	 * Destinations that do not support this mode are automatically served in the
+	 * classic one-request-per-connection mode. Default is false.
+	 */
+	public static final String MULTIPLEXED = "jade_imtp_leap_JICP_JICPPeer_multiplexed";
 	/**
 	 * Start listening for internal platform messages on the specified port
 	 */
@@ -73,9 +80,10 @@ public class JICPPeer implements ICP, ProtocolManager {
 
 		connectionTimeout = Integer.parseInt(p.getParameter(CONNECTION_TIMEOUT, "20000"));
 		int readTimeout = Integer.parseInt(p.getParameter(READ_TIMEOUT, "30000"));
+		boolean multiplexed = p.getBooleanProperty(MULTIPLEXED, false);
 
 		// Start the client
-		client = new JICPClient(getProtocol(), getConnectionFactory(), POOL_SIZE, readTimeout);
+		client = new JICPClient(getProtocol(), getConnectionFactory(), POOL_SIZE, readTimeout, multiplexed);
 
 		// Start the server listening for connections
 		server = new JICPServer(p, this, l, getConnectionFactory(), POOL_SIZE);
@@ -73,6 +73,9 @@ public class JICPProtocol extends TransportProtocol {
 	public static final byte          CONNECT_MEDIATOR_TYPE = 23;
 	/** ID code for packets carrying requests to retrieve the current server time */
 	public static final byte          GET_SERVER_TIME_TYPE = 24;
+
+	/** ID code for packets carrying requests to switch a connection to the multiplexed mode */
+	public static final byte          MULTIPLEX_TYPE = 25;
 	/** ID code for packets carrying requests to drop-down the connection with the mediator */
 	public static final byte          DROP_DOWN_TYPE = 30;
 	/** ID code for packets carrying JICP protocol errors */
@@ -90,6 +93,7 @@ public class JICPProtocol extends TransportProtocol {
 	public static final byte RECONNECT_INFO = 16;               // bit 5 == 1 
 	public static final byte OK_INFO = 32;                      // bit 6 == 1
 	public static final byte TERMINATED_INFO = 64;              // bit 7 == 1
+	public static final byte REQUEST_ID_PRESENT_INFO = (byte) 128; // bit 8 == 1 (multiplexed connections only)
 	// Always distinguished from the context
 	//public static final byte BLOCKING_IMTP_PING_INFO = RECONNECT_INFO;
 	//public static final byte NON_BLOCKING_IMTP_PING_INFO = OK_INFO;  
@@ -50,6 +50,11 @@ import java.net.*;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class declaration
@@ -72,6 +77,11 @@ public class JICPServer extends Thread
 
 	public static final String ACCEPT_LOCAL_HOST_ONLY = "jade_imtp_leap_JICP_JICPServer_acceptlocalhostonly";
 	public static final String UNCHECK_LOCAL_HOST = "jade_imtp_leap_JICP_JICPServer_unchecklocalhost";
+	public static final String MULTIPLEX_POOL_SIZE = "jade_imtp_leap_JICP_JICPServer_multiplexpoolsize";
+
+	private static final int DEFAULT_MULTIPLEX_POOL_SIZE = 20;
+	// Commands waiting for a multiplex handler thread (per thread)
+	private static final int MULTIPLEX_QUEUE_SIZE_PER_THREAD = 10;
 
 	private static final int LISTENING = 0;
 	private static final int TERMINATING = 1;
@@ -98,6 +108,10 @@ public class JICPServer extends Thread
 
 	private final ConnectionFactory connFactory;
 
+	// Serves the commands received over multiplexed connections (lazily created)
+	private ExecutorService multiplexExecutor;
+	private int multiplexPoolSize = DEFAULT_MULTIPLEX_POOL_SIZE;
+
 	private final Logger myLogger;
 
 	/**
@@ -111,6 +125,12 @@ public class JICPServer extends Thread
 		maxHandlers = max;
 		myLogger = Logger.getMyLogger(getClass().getName());
 
+		try {
+			multiplexPoolSize = Integer.parseInt(p.getParameter(MULTIPLEX_POOL_SIZE, null));
+		} catch (Exception e) {
+			// Keep default
+		}
+
 		StringBuilder sb = null;
 		int idLength;
 		String peerID = myPeer.getID();
@@ -370,6 +390,35 @@ public class JICPServer extends Thread
 		}
 		mediators.clear();
 
+		synchronized (this) {
+			if (multiplexExecutor != null) {
+				multiplexExecutor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * The executor serving multiplexed commands has a bounded number of threads and
+	 * a bounded queue. When both are exhausted the command is served by the thread
+	 * reading from the connection, that stops reading further commands in the
+	 * meanwhile.
+	 */
+	private synchronized ExecutorService getMultiplexExecutor() {
+		if (multiplexExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(multiplexPoolSize, multiplexPoolSize, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(multiplexPoolSize * MULTIPLEX_QUEUE_SIZE_PER_THREAD), new ThreadFactory() {
+						private int cnt = 0;
+
+						public synchronized Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "JICP-MX-Handler-" + cnt++);
+							t.setDaemon(true);
+							return t;
+						}
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+			executor.allowCoreThreadTimeOut(true);
+			multiplexExecutor = executor;
+		}
+		return multiplexExecutor;
 	}
 
 	/**
@@ -398,6 +447,7 @@ public class JICPServer extends Thread
 		private boolean loop;
 		private int status = INIT;
 		private boolean closeConnection = true;
+		private boolean multiplexed = false;
 
 		/**
 		 * Constructor declaration
@@ -487,7 +537,10 @@ public class JICPServer extends Thread
 						} else {
 							// The recipient is my ICP.Listener (the local CommandDispatcher)
 							loop = true;
-							if (type == JICPProtocol.COMMAND_TYPE) {
+							if (type == JICPProtocol.COMMAND_TYPE && multiplexed) {
+								// Serve the command asynchronously and go back reading the next one
+								serveMultiplexed(pkt);
+							} else if (type == JICPProtocol.COMMAND_TYPE) {
 								if (myLogger.isLoggable(Logger.FINEST)) {
 									myLogger.log(Logger.FINEST, "Passing incoming COMMAND to local listener");
 								}
@@ -509,6 +562,17 @@ public class JICPServer extends Thread
 						}
 						break;
 
+					case JICPProtocol.MULTIPLEX_TYPE:
+						// Switch this connection to the multiplexed mode: from now on commands
+						// carry a request-id and responses may be sent back in any order
+						if (myLogger.isLoggable(Logger.FINE)) {
+							myLogger.log(Logger.FINE, "Connection with " + addr + ":" + port + " switched to multiplexed mode");
+						}
+						multiplexed = true;
+						loop = true;
+						reply = new JICPPacket(JICPProtocol.RESPONSE_TYPE, JICPProtocol.DEFAULT_INFO, null);
+						break;
+
 					case JICPProtocol.GET_ADDRESS_TYPE:
 						// Respond sending back the caller address
 						if (myLogger.isLoggable(Logger.INFO)) {
@@ -671,7 +735,9 @@ public class JICPServer extends Thread
 					// Send the actual response data
 					if (reply != null) {
 						// reply.writeTo(out);
-						c.writePacket(reply);
+						synchronized (c) {
+							c.writePacket(reply);
+						}
 					}
 					status = RESPONSE_SENT;
 				} while (loop);
@@ -746,6 +812,28 @@ public class JICPServer extends Thread
 				}
 			}
 		}
+
+		private void serveMultiplexed(final JICPPacket pkt) {
+			getMultiplexExecutor().execute(() -> {
+				JICPPacket rsp;
+				try {
+					rsp = new JICPPacket(JICPProtocol.RESPONSE_TYPE, JICPProtocol.DEFAULT_INFO, cmdListener.handleCommand(pkt.getData()));
+				} catch (Exception e) {
+					myLogger.log(Logger.SEVERE, "Error handling incoming multiplexed command", e);
+					rsp = new JICPPacket("Unexpected error", e);
+				}
+				rsp.setRequestID(pkt.getRequestID());
+				try {
+					synchronized (c) {
+						c.writePacket(rsp);
+					}
+				} catch (IOException ioe) {
+					if (myLogger.isLoggable(Logger.FINE)) {
+						myLogger.log(Logger.FINE, "Communication error writing multiplexed response to " + addr + ":" + port + " [" + ioe + "]");
+					}
+				}
+			});
+		}
 	} // END of inner class ConnectionHandler
 
 	/**
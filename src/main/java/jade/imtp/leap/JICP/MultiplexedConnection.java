@@ -0,0 +1,232 @@
+/*
+ * **************************************************************
+ * JADE - Java Agent DEvelopment Framework is a framework to develop
+ * multi-agent systems in compliance with the FIPA specifications.
+ * Copyright (C) 2000 CSELT S.p.A.
+ *
+ * GNU Lesser General Public License
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation,
+ * version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ * **************************************************************
+ */
+
+package jade.imtp.leap.JICP;
+
+//#MIDP_EXCLUDE_FILE
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jade.imtp.leap.exception.ICPException;
+import jade.mtp.TransportAddress;
+import jade.util.Logger;
+
+/**
+ * A client-side JICP connection shared by many concurrent requests. Each
+ * request packet carries a request-id and a dedicated reader thread matches
+ * incoming responses with the pending requests, so that a request does not
+ * need to wait for the completion of the previous ones.
+ * <br>
+ * A connection is switched to the multiplexed mode by means of a
+ * <code>MULTIPLEX</code> packet sent immediately after its creation. Servers
+ * that do not support this mode reply with an error and the caller falls back
+ * to the classic one-request-at-a-time mode.
+ */
+class MultiplexedConnection implements Runnable {
+	private final Connection myConnection;
+	private final TransportAddress destAddr;
+	private final Map<Integer, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+	private final Object writeLock = new Object();
+	private int requestCnt;
+	private boolean reused;
+	private volatile boolean closed;
+	private volatile long lastUsage;
+	private Thread reader;
+
+	private static final Logger myLogger = Logger.getMyLogger(MultiplexedConnection.class.getName());
+
+	MultiplexedConnection(Connection c, TransportAddress ta) {
+		myConnection = c;
+		destAddr = ta;
+		lastUsage = System.currentTimeMillis();
+	}
+
+	/**
+	 * Negotiate the multiplexed mode with the server.
+	 * @return true if the server accepted the multiplexed mode. In this case the
+	 * reader thread is started. If the server does not support the multiplexed
+	 * mode the underlying connection is closed.
+	 */
+	boolean negotiate() throws IOException {
+		myConnection.writePacket(new JICPPacket(JICPProtocol.MULTIPLEX_TYPE, JICPProtocol.DEFAULT_INFO, null));
+		JICPPacket reply = myConnection.readPacket();
+		if (reply.getType() != JICPProtocol.RESPONSE_TYPE) {
+			myLogger.log(Logger.CONFIG, "Multiplexed mode not supported by " + destAddr + ". Using classic mode");
+			myConnection.close();
+			return false;
+		}
+		reader = new Thread(this);
+		reader.setDaemon(true);
+		reader.setName("JICP-MX-Reader-" + destAddr.getHost() + ":" + destAddr.getPort());
+		reader.start();
+		return true;
+	}
+
+	final TransportAddress getDestAddress() {
+		return destAddr;
+	}
+
+	final boolean isClosed() {
+		return closed;
+	}
+
+	final synchronized boolean isReused() {
+		return reused;
+	}
+
+	/**
+	 * Send a packet and wait for the matching response.
+	 * @param timeout The maximum time to wait for the response. 0 means wait forever.
+	 */
+	JICPPacket send(JICPPacket request, long timeout) throws IOException, ICPException {
+		PendingRequest pr = new PendingRequest();
+		int id;
+		synchronized (this) {
+			id = requestCnt;
+			requestCnt = (requestCnt + 1) & Integer.MAX_VALUE;
+			reused = true;
+		}
+		request.setRequestID(id);
+		pendingRequests.put(id, pr);
+		try {
+			synchronized (writeLock) {
+				if (closed) {
+					throw new IOException("Connection closed");
+				}
+				myConnection.writePacket(request);
+			}
+			lastUsage = System.currentTimeMillis();
+			return pr.waitForResponse(timeout, id);
+		} catch (IOException ioe) {
+			close();
+			throw ioe;
+		} finally {
+			pendingRequests.remove(id);
+		}
+	}
+
+	/**
+	 * Reader thread entry point: dispatch incoming responses to the pending
+	 * requests.
+	 */
+	public void run() {
+		IOException cause = null;
+		try {
+			while (!closed) {
+				JICPPacket reply = myConnection.readPacket();
+				PendingRequest pr = pendingRequests.get(reply.getRequestID());
+				if (pr != null) {
+					pr.setResponse(reply);
+				} else {
+					myLogger.log(Logger.WARNING, "Response for unknown request " + reply.getRequestID() + " received from " + destAddr);
+				}
+			}
+		} catch (IOException ioe) {
+			cause = ioe;
+		}
+
+		if (!closed) {
+			myLogger.log(Logger.FINE, "Multiplexed connection to " + destAddr + " lost. " + cause);
+		}
+		close();
+		// Fail all the requests still waiting for a response
+		Iterator<PendingRequest> it = pendingRequests.values().iterator();
+		while (it.hasNext()) {
+			it.next().setFailure(cause != null ? cause : new IOException("Connection closed"));
+		}
+	}
+
+	/**
+	 * @return true if this connection has no outstanding request and was not
+	 * used for more than the given time. In this case it is also closed.
+	 */
+	boolean closeIfExpired(long currentTime, long maxIdleTime) {
+		if (pendingRequests.isEmpty() && (currentTime - lastUsage) > maxIdleTime) {
+			close();
+			return true;
+		}
+		return false;
+	}
+
+	void close() {
+		synchronized (writeLock) {
+			if (!closed) {
+				closed = true;
+				try {
+					myConnection.close();
+				} catch (Exception e) {
+					// Just ignore it
+				}
+			}
+		}
+	}
+
+	public String toString() {
+		return "[MXC: dest=" + destAddr + ", pending=" + pendingRequests.size() + ", lastUsage=" + lastUsage + "]";
+	}
+
+	/**
+	 * Inner class PendingRequest
+	 */
+	private static final class PendingRequest {
+		private JICPPacket response;
+		private IOException failure;
+
+		private synchronized void setResponse(JICPPacket p) {
+			response = p;
+			notifyAll();
+		}
+
+		private synchronized void setFailure(IOException e) {
+			failure = e;
+			notifyAll();
+		}
+
+		private synchronized JICPPacket waitForResponse(long timeout, int id) throws IOException, ICPException {
+			long deadline = System.currentTimeMillis() + timeout;
+			while (response == null && failure == null) {
+				long toWait = 0;
+				if (timeout > 0) {
+					toWait = deadline - System.currentTimeMillis();
+					if (toWait <= 0) {
+						throw new ICPException("Timeout expired waiting for response to request " + id);
+					}
+				}
+				try {
+					wait(toWait);
+				} catch (InterruptedException ie) {
+					throw new ICPException("Interrupted while waiting for response to request " + id);
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return response;
+		}
+	} // END of inner class PendingRequest
+}
@@ -49,6 +49,7 @@ import jade.core.exception.IMTPException;
 import jade.core.exception.ProfileException;
 import jade.core.exception.ServiceException;
 import jade.core.exception.UnreachableException;
+import jade.core.sam.HistogramMeasureProvider;
 import jade.imtp.leap.JICP.JICPProtocol;
 import jade.imtp.leap.exception.DispatcherException;
 import jade.mtp.TransportAddress;
@@ -286,6 +287,18 @@ public class LEAPIMTPManager implements IMTPManager {
 		return theDispatcher.getLocalTAs();
 	}
 
+	/**
+	 * Activate the measurement of the round-trip time of the commands dispatched
+	 * by the command dispatcher of this JVM. Note that such dispatcher is shared by
+	 * all containers living in the same JVM.
+	 * 
+	 * @return The provider of the round-trip time histogram (microseconds)
+	 */
+	@Override
+	public HistogramMeasureProvider getDispatchTimeProvider() {
+		return theDispatcher.getDispatchTimeProvider();
+	}
+
 	///////////////////////////
 	// PRIVATE METHODS
 	///////////////////////////
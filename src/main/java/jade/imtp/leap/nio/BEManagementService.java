@@ -53,6 +53,11 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Vector;
 import java.util.Enumeration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 // FIXME: Aggiornare il Javadoc a fronte dell'introduzione dell'opzione di accept
 /**
@@ -93,6 +98,13 @@ class
  * file to be used by this server.</li>
  * <li><ode>serverid_poolsize</code>: Specifies the number of threads used by
  * this server to manage IO events.</li>
+ * <li><code>serverid_servingpoolsize</code>: Specifies the number of threads
+ * used by this server to serve incoming JICP packets. If this is greater than 0
+ * the threads managing IO events only read and frame packets and pass them to
+ * these threads, serving the packets of each connection in order. Reading from
+ * a connection is suspended while too many of its packets are waiting to be
+ * served. By default (0) packets are served directly by the threads managing
+ * IO events.</li>
  * <ul>
  * 
  * @author Giovanni Caire - TILAB
@@ -112,6 +124,11 @@ public class BEManagementService extends BaseService {
 
 	private static final int DEFAULT_PORT = 2099;
 	private static final int DEFAULT_POOL_SIZE = 5;
+	private static final int MAX_SERVED_IN_A_ROW = 16;
+	// Reading from a connection is suspended while this number of its packets is waiting to be served
+	private static final int MAX_PENDING_PACKETS = 64;
+	// Connections waiting for a serving thread (per thread) before the reading threads serve packets themselves
+	private static final int SERVING_QUEUE_SIZE_PER_THREAD = 64;
 	private static final int INIT_STATE = 0;
 	private static final int ACTIVE_STATE = 1;
 	private static final int TERMINATING_STATE = 2;
@@ -128,6 +145,17 @@ public class BEManagementService extends BaseService {
 	 * need to be increased
 	 */
 	public static final String BUFFERINCREASE = "bufferincrease";
+	/**
+	 * this property can be used to set the maximum number of bytes kept idle in
+	 * the pool of direct buffers shared by all nio connections
+	 */
+	public static final String BUFFERPOOLMAXIDLE = "bufferpoolmaxidle";
+	/**
+	 * this property can be used to enable tracking of direct buffers not given
+	 * back to the pool: buffers in use for more than the indicated number of ms
+	 * are reported at each tick
+	 */
+	public static final String BUFFERLEAKTHRESHOLD = "bufferleakthreshold";
 
 	private static final String[] OWNED_COMMANDS = new String[] { INCOMING_CONNECTION };
 
@@ -160,8 +188,8 @@ public class BEManagementService extends BaseService {
 	private long incomingCommandCounter;
 	private long keepAliveCounter;
 	private long dropDownCounter;
-	private long processingTimeGT1SecCounter;
-	private long processingTimeGT10SecCounter;
+	private final AtomicLong processingTimeGT1SecCounter = new AtomicLong();
+	private final AtomicLong processingTimeGT10SecCounter = new AtomicLong();
 	private long incomingPacketServingErrorCounter;
 	private long incomingPacketReadingErrorCounter;
 	private AverageMeasureProviderImpl dataProcessingTimeProvider;
@@ -311,6 +339,14 @@ public class BEManagementService extends BaseService {
 			bufferIncreaseSize = Integer.parseInt(p.getParameter(PREFIX + BUFFERINCREASE, null));
 		} catch (Exception ex) {
 		}
+		try {
+			DirectBufferPool.getInstance().setMaxIdleBytes(Long.parseLong(p.getParameter(PREFIX + BUFFERPOOLMAXIDLE, null)));
+		} catch (Exception ex) {
+		}
+		try {
+			DirectBufferPool.getInstance().setLeakThreshold(Long.parseLong(p.getParameter(PREFIX + BUFFERLEAKTHRESHOLD, null)));
+		} catch (Exception ex) {
+		}
 		myTicker = new Ticker(tickTime);
 		myTicker.start();
 
@@ -336,7 +372,7 @@ public class BEManagementService extends BaseService {
 				// sec
 				samHelper.addCounterValueProvider("Processing_Time_GT1Sec_Count", new CounterValueProvider() {
 					public long getValue() {
-						return processingTimeGT1SecCounter;
+						return processingTimeGT1SecCounter.get();
 					}
 
 					public boolean isDifferential() {
@@ -347,7 +383,7 @@ public class BEManagementService extends BaseService {
 				// Counter of packets whose processing required more than 10 sec
 				samHelper.addCounterValueProvider("Processing_Time_GT10Sec_Count", new CounterValueProvider() {
 					public long getValue() {
-						return processingTimeGT10SecCounter;
+						return processingTimeGT10SecCounter.get();
 					}
 
 					public boolean isDifferential() {
@@ -454,6 +490,50 @@ public class BEManagementService extends BaseService {
 						return false;
 					}
 				});
+
+				// Direct buffers in use and idle in the pool
+				final DirectBufferPool pool = DirectBufferPool.getInstance();
+				samHelper.addEntityMeasureProvider("Direct_Buffers_In_Use", new MeasureProvider() {
+					public Number getValue() {
+						return pool.getInUseCount();
+					}
+				});
+				samHelper.addEntityMeasureProvider("Direct_Buffer_Bytes_In_Use", new MeasureProvider() {
+					public Number getValue() {
+						return pool.getInUseBytes();
+					}
+				});
+				samHelper.addEntityMeasureProvider("Direct_Buffer_Bytes_Idle", new MeasureProvider() {
+					public Number getValue() {
+						return pool.getIdleBytes();
+					}
+				});
+				samHelper.addCounterValueProvider("Direct_Buffer_Allocation_Count", new CounterValueProvider() {
+					public long getValue() {
+						return pool.getAllocatedCount();
+					}
+
+					public boolean isDifferential() {
+						return false;
+					}
+				});
+
+				// Queue depth and average serving time of the packets read by each
+				// LoopManager of servers having serving threads
+				for (IOEventServer srv : servers.values()) {
+					if (srv.servingPool != null) {
+						for (LoopManager lm : srv.loopers) {
+							final AtomicInteger queueDepth = lm.servingQueueDepth;
+							String lmName = lm.displayId + "-LM" + lm.myIndex;
+							samHelper.addEntityMeasureProvider(lmName + "_Serving_Queue_Depth", new MeasureProvider() {
+								public Number getValue() {
+									return queueDepth.get();
+								}
+							});
+							samHelper.addEntityMeasureProvider(lmName + "_Avg_Serving_Time", lm.servingTimeProvider);
+						}
+					}
+				}
 			}
 		} catch (ServiceNotActiveException snae) {
 			// SAMService not active --> just do nothing
@@ -519,6 +599,9 @@ public class BEManagementService extends BaseService {
 		private TransportProtocol myProtocol;
 		private ConnectionFactory myConnectionFactory;
 		private LoopManager[] loopers;
+		// The threads serving incoming packets. Null if packets are served by the
+		// LoopManager threads
+		private ThreadPoolExecutor servingPool;
 
 		/**
 		 * Initialize this IOEventServer according to the Profile
@@ -617,6 +700,27 @@ public class BEManagementService extends BaseService {
 			for (int i = 0; i < loopers.length; ++i) {
 				loopers[i] = new LoopManager(this, i);
 			}
+
+			// Serving pool size
+			int servingPoolSize = 0;
+			String strServingPoolSize = p.getParameter(id + '_' + "servingpoolsize", null);
+			try {
+				servingPoolSize = Integer.parseInt(strServingPoolSize);
+			} catch (Exception e) {
+				// Keep default
+			}
+			if (servingPoolSize > 0) {
+				String threadPrefix = loopers[0].displayId + "-S";
+				AtomicInteger cnt = new AtomicInteger();
+				servingPool = new ThreadPoolExecutor(servingPoolSize, servingPoolSize, 60, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<>(servingPoolSize * SERVING_QUEUE_SIZE_PER_THREAD), r -> {
+							Thread th = new Thread(r, threadPrefix + cnt.getAndIncrement());
+							th.setDaemon(true);
+							return th;
+						});
+				servingPool.allowCoreThreadTimeOut(true);
+				myLogger.log(Logger.CONFIG, myLogPrefix + "Incoming packets served by " + servingPoolSize + " threads");
+			}
 		}
 
 		/**
@@ -734,6 +838,18 @@ public class BEManagementService extends BaseService {
 				myLogger.log(Logger.WARNING, myLogPrefix + "Interrupted while waiting for LoopManager to termnate", ie);
 			}
 
+			// Let the packets already read be served
+			if (servingPool != null) {
+				servingPool.shutdown();
+				try {
+					if (!servingPool.awaitTermination(5000, TimeUnit.MILLISECONDS)) {
+						myLogger.log(Logger.WARNING, myLogPrefix + "Serving threads did not terminate when requested to do so");
+					}
+				} catch (InterruptedException ie) {
+					myLogger.log(Logger.WARNING, myLogPrefix + "Interrupted while waiting for serving threads to terminate", ie);
+				}
+			}
+
 			// Close all mediators
 			synchronized (mediators) {
 				for (NIOMediator m : mediators.values()) {
@@ -1332,11 +1448,16 @@ public class BEManagementService extends BaseService {
 		private NIOJICPConnectionWrapper connection;
 		private NIOMediator mediator;
 		private IOEventServer server;
+		// Packets (and reading errors) waiting to be served in order by the serving
+		// threads. Null if the IOEventServer has no serving threads
+		private final ConnectionTaskQueue pendingTasks;
+		private volatile boolean closing;
 
 		public KeyManager(SelectionKey k, NIOJICPConnectionWrapper c, IOEventServer s) {
 			key = k;
 			connection = c;
 			server = s;
+			pendingTasks = s.servingPool != null ? new ConnectionTaskQueue(s.servingPool, MAX_PENDING_PACKETS, MAX_SERVED_IN_A_ROW, this::suspendReading, this::resumeReading) : null;
 		}
 
 		public final NIOMediator getMediator() {
@@ -1357,14 +1478,21 @@ public class BEManagementService extends BaseService {
 
 		/**
 		 * Read some data from the connection associated to the managed key and let the
-		 * IOEventServer serve it
+		 * IOEventServer serve it. If the IOEventServer has serving threads, this only
+		 * reads the available packets and queues them for serving.
 		 */
-		public final void read() {
+		public final void read(LoopManager lm) {
 
 			try {
 				do {
 					JICPPacket pkt = connection.readPacket();
-					server.servePacket(this, pkt);
+					if (pendingTasks != null) {
+						if (pkt != null) {
+							serveLater(lm, pkt, null);
+						}
+					} else {
+						server.servePacket(this, pkt);
+					}
 				} while (connection.moreDataAvailable());
 			} catch (PacketIncompleteException pie) {
 				// The data ready to be read is not enough to complete
@@ -1374,7 +1502,71 @@ public class BEManagementService extends BaseService {
 							+ connection + ". Wait for more data..");
 				}
 			} catch (Exception e) {
-				server.serveException(this, e);
+				if (pendingTasks != null) {
+					// The connection will be closed once the packets already read have been
+					// served. Stop selecting it in the meanwhile.
+					closing = true;
+					try {
+						key.interestOps(0);
+					} catch (CancelledKeyException cke) {
+						// Already closed
+					}
+					serveLater(lm, null, e);
+				} else {
+					server.serveException(this, e);
+				}
+			}
+		}
+
+		private void serveLater(LoopManager lm, final JICPPacket pkt, final Exception e) {
+			final AtomicInteger queueDepth = lm.servingQueueDepth;
+			final AverageMeasureProviderImpl servingTimeProvider = lm.servingTimeProvider;
+			final String prefix = server.getLogPrefix() + "LM-" + lm.myIndex + ": ";
+			queueDepth.incrementAndGet();
+			pendingTasks.add(() -> {
+				long start = System.currentTimeMillis();
+				boolean isNewConnection = mediator == null;
+				try {
+					if (pkt != null) {
+						server.servePacket(this, pkt);
+					} else {
+						server.serveException(this, e);
+					}
+				} catch (Throwable t) {
+					myLogger.log(Logger.WARNING, prefix + "Unexpected error serving incoming packet. ", t);
+				} finally {
+					queueDepth.decrementAndGet();
+					long elapsedTime = System.currentTimeMillis() - start;
+					servingTimeProvider.addSample(elapsedTime);
+					checkServeTime(prefix, elapsedTime, isNewConnection);
+				}
+			});
+		}
+
+		/**
+		 * Too many packets of this connection are waiting to be served: stop reading
+		 * from it
+		 */
+		private void suspendReading() {
+			try {
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+				if (myLogger.isLoggable(Logger.FINE)) {
+					myLogger.log(Logger.FINE, server.getLogPrefix() + "Reading from connection " + connection + " suspended");
+				}
+			} catch (CancelledKeyException cke) {
+				// Already closed
+			}
+		}
+
+		private void resumeReading() {
+			if (!closing) {
+				try {
+					key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+					// Let the selector take the new interest set into account
+					key.selector().wakeup();
+				} catch (CancelledKeyException cke) {
+					// Already closed
+				}
 			}
 		}
 	} // END of inner class KeyManager
@@ -1397,12 +1589,19 @@ public class BEManagementService extends BaseService {
 		private long readStartTime = -1;
 		private boolean stuck;
 
+		// Packets read by this LoopManager and not yet served and related serving time
+		// (meaningful only if the IOEventServer has serving threads)
+		private final AtomicInteger servingQueueDepth;
+		private final AverageMeasureProviderImpl servingTimeProvider;
+
 		public LoopManager(IOEventServer server, int index) {
 			myServer = server;
 			myIndex = index;
 			String id = myServer.getID();
 			displayId = "BEManagementService" + (PREFIX.startsWith(id) ? "" : "-" + id);
 			replaceCnt = 0;
+			servingQueueDepth = new AtomicInteger();
+			servingTimeProvider = new AverageMeasureProviderImpl();
 
 			try {
 				mySelector = Selector.open();
@@ -1418,6 +1617,8 @@ public class BEManagementService extends BaseService {
 			pendingChannelPresent = lm.pendingChannelPresent;
 			pendingChannels = lm.pendingChannels;
 			replaceCnt = lm.replaceCnt + 1;
+			servingQueueDepth = lm.servingQueueDepth;
+			servingTimeProvider = lm.servingTimeProvider;
 
 			try {
 				mySelector = Selector.open();
@@ -1589,25 +1790,14 @@ public class BEManagementService extends BaseService {
 					myLogger.log(Logger.INFO,
 							prefix + "Connection " + c + " created and associated to KeyManager " + mgr);
 				}
-				mgr.read();
+				mgr.read(this);
 			} finally {
 				long elapsedTime = System.currentTimeMillis() - readStartTime;
 				readStartTime = -1;
 				if (dataProcessingTimeProvider != null) {
 					dataProcessingTimeProvider.addSample(elapsedTime);
 				}
-				if (elapsedTime > 1000) {
-					if (!isNewConnection || elapsedTime > 10000) {
-						// If this is the first packet of a new connection (CREATE or CONNECT MEDIATOR)
-						// print the warning only if the elapsed time is VERY high
-						myLogger.log(Logger.WARNING, prefix + " *** Serve time = " + elapsedTime);
-					}
-					if (elapsedTime > 10000) {
-						processingTimeGT10SecCounter++;
-					} else {
-						processingTimeGT1SecCounter++;
-					}
-				}
+				checkServeTime(prefix, elapsedTime, isNewConnection);
 			}
 		}
 
@@ -1696,6 +1886,7 @@ public class BEManagementService extends BaseService {
 							for (int i = 0; i < ss.length; ++i) {
 								((IOEventServer) ss[i]).tick(currentTime);
 							}
+							DirectBufferPool.getInstance().checkLeaks(currentTime);
 							if (myLogger.isLoggable(Logger.FINE)) {
 								myLogger.log(Logger.FINE, "Ticker: Tick end. Current time = " + currentTime);
 							}
@@ -1763,6 +1954,21 @@ public class BEManagementService extends BaseService {
 		}
 	}
 
+	private void checkServeTime(String prefix, long elapsedTime, boolean isNewConnection) {
+		if (elapsedTime > 1000) {
+			if (!isNewConnection || elapsedTime > 10000) {
+				// If this is the first packet of a new connection (CREATE or CONNECT MEDIATOR)
+				// print the warning only if the elapsed time is VERY high
+				myLogger.log(Logger.WARNING, prefix + " *** Serve time = " + elapsedTime);
+			}
+			if (elapsedTime > 10000) {
+				processingTimeGT10SecCounter.incrementAndGet();
+			} else {
+				processingTimeGT1SecCounter.incrementAndGet();
+			}
+		}
+	}
+
 	private void waitABit(long t) {
 		try {
 			Thread.sleep(t);
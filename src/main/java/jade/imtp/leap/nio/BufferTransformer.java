@@ -31,5 +31,19 @@ public interface BufferTransformer {
      */
     public ByteBuffer preprocessBufferToWrite(ByteBuffer dataToSend) throws IOException;
 
+    /**
+     * called by the connection when the buffer returned by the last {@link #postprocessBufferRead(java.nio.ByteBuffer) } call
+     * has been fully consumed (or the connection was closed). Implementers using pooled buffers can release them here.
+     */
+    default void readCompleted() {
+    }
+
+    /**
+     * called by the connection when the buffer returned by the last {@link #preprocessBufferToWrite(java.nio.ByteBuffer) } call
+     * has been written (or writing it failed). Implementers using pooled buffers can release them here.
+     */
+    default void writeCompleted() {
+    }
+
 
 }
@@ -0,0 +1,142 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+package jade.imtp.leap.nio;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The tasks (i.e. the packets to serve) of a single connection, executed in
+ * order by a pool of threads shared by all connections.
+ * <ul>
+ * <li>At most one thread at a time serves a given connection. After
+ * <code>maxServedInARow</code> tasks it gives other connections a chance to be
+ * served.</li>
+ * <li>When <code>maxPending</code> tasks are waiting, the <code>onFull</code>
+ * callback is executed so that the caller stops reading from the connection.
+ * The <code>onDrained</code> callback is executed once half of them have been
+ * served.</li>
+ * <li>If the pool rejects a connection because all its threads are busy and
+ * its queue is full, the tasks are served by the calling thread.</li>
+ * </ul>
+ * Callbacks are executed while holding the lock of this queue: they must not
+ * block.
+ */
+class ConnectionTaskQueue {
+	private final ExecutorService executor;
+	private final int maxPending;
+	private final int maxServedInARow;
+	private final Runnable onFull;
+	private final Runnable onDrained;
+
+	private final LinkedList<Runnable> tasks = new LinkedList<>();
+	private boolean serving;
+	private boolean full;
+
+	ConnectionTaskQueue(ExecutorService executor, int maxPending, int maxServedInARow, Runnable onFull, Runnable onDrained) {
+		this.executor = executor;
+		this.maxPending = maxPending;
+		this.maxServedInARow = maxServedInARow;
+		this.onFull = onFull;
+		this.onDrained = onDrained;
+	}
+
+	void add(Runnable task) {
+		synchronized (tasks) {
+			tasks.add(task);
+			if (!full && tasks.size() >= maxPending) {
+				full = true;
+				onFull.run();
+			}
+			if (serving) {
+				// The task will be executed by the thread currently serving this connection
+				return;
+			}
+			serving = true;
+		}
+		if (!submit()) {
+			serve();
+		}
+	}
+
+	int size() {
+		synchronized (tasks) {
+			return tasks.size();
+		}
+	}
+
+	boolean isFull() {
+		synchronized (tasks) {
+			return full;
+		}
+	}
+
+	/**
+	 * Ask the pool to serve this connection.
+	 * @return false if the pool is saturated and the calling thread must serve
+	 * this connection itself
+	 */
+	private boolean submit() {
+		try {
+			executor.execute(this::serve);
+			return true;
+		} catch (RejectedExecutionException ree) {
+			if (executor.isShutdown()) {
+				synchronized (tasks) {
+					tasks.clear();
+					serving = false;
+				}
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Serve the pending tasks in order. After a few tasks give other connections
+	 * a chance to be served.
+	 */
+	private void serve() {
+		while (true) {
+			for (int i = 0; i < maxServedInARow; ++i) {
+				Runnable task;
+				synchronized (tasks) {
+					task = tasks.poll();
+					if (task == null) {
+						serving = false;
+						return;
+					}
+					if (full && tasks.size() <= maxPending / 2) {
+						full = false;
+						onDrained.run();
+					}
+				}
+				task.run();
+			}
+			if (submit()) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package jade.imtp.leap.nio;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pool of direct ByteBuffers shared by all NIO connections. Buffers are
+ * grouped in size classes (powers of 2 from <code>MIN_CLASS_SIZE</code> to
+ * <code>MAX_CLASS_SIZE</code>) so that a buffer released by a connection can be
+ * reused by any other one. Larger buffers are not pooled. At most
+ * <code>maxIdleBytes</code> bytes are kept idle in the pool: released buffers
+ * exceeding that limit are left to the garbage collector.
+ * <br>
+ * Connections are expected to acquire buffers only while a packet is in flight
+ * and release them as soon as they are no longer used. When leak tracking is
+ * enabled the pool records where each buffer was acquired and
+ * <code>checkLeaks()</code> reports buffers that have not been released for
+ * longer than the leak threshold.
+ *
+ * @see NIOJICPConnection
+ */
+public final class DirectBufferPool {
+	public static final int MIN_CLASS_SIZE = 1024;
+	public static final int MAX_CLASS_SIZE = 1024 * 1024;
+	public static final long DEFAULT_MAX_IDLE_BYTES = 64L * 1024 * 1024;
+
+	private static final int MIN_CLASS_SHIFT = Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+	private static final int CLASS_CNT = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE) - MIN_CLASS_SHIFT + 1;
+
+	private static final DirectBufferPool theInstance = new DirectBufferPool();
+
+	private final ConcurrentLinkedQueue<ByteBuffer>[] idleBuffers;
+	private final AtomicLong idleBytes = new AtomicLong();
+	private final AtomicInteger inUseCnt = new AtomicInteger();
+	private final AtomicLong inUseBytes = new AtomicLong();
+	private final AtomicLong allocatedCnt = new AtomicLong();
+	private volatile long maxIdleBytes = DEFAULT_MAX_IDLE_BYTES;
+
+	// Leak tracking: acquisition info of the buffers currently in use. Buffers are
+	// compared by identity since ByteBuffer.equals() compares the content
+	private volatile long leakThreshold = -1;
+	private final Map<ByteBuffer, Acquisition> acquisitions = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	private static final Logger log = Logger.getLogger(DirectBufferPool.class.getName());
+
+	public static DirectBufferPool getInstance() {
+		return theInstance;
+	}
+
+	@SuppressWarnings("unchecked")
+	DirectBufferPool() {
+		idleBuffers = new ConcurrentLinkedQueue[CLASS_CNT];
+		for (int i = 0; i < CLASS_CNT; ++i) {
+			idleBuffers[i] = new ConcurrentLinkedQueue<>();
+		}
+	}
+
+	/**
+	 * Set the maximum number of bytes kept idle in the pool
+	 */
+	public void setMaxIdleBytes(long maxIdleBytes) {
+		this.maxIdleBytes = maxIdleBytes;
+		while (idleBytes.get() > maxIdleBytes && trimOne()) {
+		}
+	}
+
+	/**
+	 * Enable leak tracking. Buffers not released after <code>threshold</code>
+	 * ms are reported by <code>checkLeaks()</code>. A negative threshold disables
+	 * leak tracking.
+	 */
+	public void setLeakThreshold(long threshold) {
+		leakThreshold = threshold;
+		if (threshold < 0) {
+			acquisitions.clear();
+		}
+	}
+
+	/**
+	 * Get a cleared direct buffer whose capacity is at least <code>size</code>
+	 * bytes.
+	 */
+	public ByteBuffer acquire(int size) {
+		ByteBuffer b = null;
+		int index = classIndex(size);
+		if (index < CLASS_CNT) {
+			b = idleBuffers[index].poll();
+			if (b != null) {
+				idleBytes.addAndGet(-b.capacity());
+				b.clear();
+			} else {
+				b = allocate(MIN_CLASS_SIZE << index);
+			}
+		} else {
+			b = allocate(size);
+		}
+		inUseCnt.incrementAndGet();
+		inUseBytes.addAndGet(b.capacity());
+		if (leakThreshold >= 0) {
+			acquisitions.put(b, new Acquisition());
+		}
+		return b;
+	}
+
+	/**
+	 * Give back a buffer obtained by <code>acquire()</code>. The caller must not
+	 * use the buffer anymore.
+	 */
+	public void release(ByteBuffer b) {
+		if (b == null || b == NIOHelper.EMPTY_BUFFER) {
+			return;
+		}
+		if (leakThreshold >= 0 && acquisitions.remove(b) == null) {
+			log.log(Level.WARNING, "Releasing a buffer not acquired from the pool or already released",
+					new Exception("Release stack trace"));
+			return;
+		}
+		inUseCnt.decrementAndGet();
+		inUseBytes.addAndGet(-b.capacity());
+
+		int capacity = b.capacity();
+		int index = classIndex(capacity);
+		if (index < CLASS_CNT && capacity == (MIN_CLASS_SIZE << index)) {
+			if (idleBytes.addAndGet(capacity) <= maxIdleBytes) {
+				idleBuffers[index].offer(b);
+			} else {
+				// Pool full: let the garbage collector free the buffer
+				idleBytes.addAndGet(-capacity);
+			}
+		}
+	}
+
+	/**
+	 * Get a buffer holding the data between position and limit of <code>b</code>
+	 * with room for at least <code>extraSpace</code> more bytes. <code>b</code> is
+	 * released.
+	 */
+	public ByteBuffer enlarge(ByteBuffer b, int extraSpace) {
+		ByteBuffer bigger = acquire(b.capacity() + extraSpace);
+		bigger.put(b);
+		release(b);
+		return bigger;
+	}
+
+	/**
+	 * Log a warning for each buffer in use since more than the leak threshold.
+	 * Each buffer is reported once.
+	 *
+	 * @return The number of newly reported buffers
+	 */
+	public int checkLeaks(long currentTime) {
+		long threshold = leakThreshold;
+		if (threshold < 0) {
+			return 0;
+		}
+		Acquisition[] aa = null;
+		synchronized (acquisitions) {
+			aa = acquisitions.values().toArray(new Acquisition[0]);
+		}
+		int cnt = 0;
+		for (Acquisition a : aa) {
+			if (!a.reported && currentTime - a.time > threshold) {
+				a.reported = true;
+				cnt++;
+				log.log(Level.WARNING, "Direct buffer in use since " + (currentTime - a.time) + " ms. Possible leak", a.trace);
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * @return The number of buffers acquired and not yet released
+	 */
+	public int getInUseCount() {
+		return inUseCnt.get();
+	}
+
+	/**
+	 * @return The total capacity of the buffers acquired and not yet released
+	 */
+	public long getInUseBytes() {
+		return inUseBytes.get();
+	}
+
+	/**
+	 * @return The total capacity of the buffers idle in the pool
+	 */
+	public long getIdleBytes() {
+		return idleBytes.get();
+	}
+
+	/**
+	 * @return The number of direct buffers allocated so far by the pool
+	 */
+	public long getAllocatedCount() {
+		return allocatedCnt.get();
+	}
+
+	private ByteBuffer allocate(int size) {
+		allocatedCnt.incrementAndGet();
+		return ByteBuffer.allocateDirect(size);
+	}
+
+	private boolean trimOne() {
+		for (int i = CLASS_CNT - 1; i >= 0; --i) {
+			ByteBuffer b = idleBuffers[i].poll();
+			if (b != null) {
+				idleBytes.addAndGet(-b.capacity());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int classIndex(int size) {
+		if (size <= MIN_CLASS_SIZE) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CLASS_SHIFT;
+	}
+
+	/**
+	 * Inner class Acquisition
+	 */
+	private static class Acquisition {
+		private final long time = System.currentTimeMillis();
+		private final Exception trace = new Exception("Acquisition stack trace");
+		private boolean reported;
+	} // END of inner class Acquisition
+}
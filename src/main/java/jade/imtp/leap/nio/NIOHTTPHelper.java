@@ -40,19 +40,15 @@ public class NIOHTTPHelper extends HTTPHelper implements BufferTransformer {
 		if ("GET".equals(request.getMethod())) {
 			String recipientID = request.getField(RECIPIENT_ID_FIELD);
 			JICPPacket pkt = new JICPPacket(JICPProtocol.CONNECT_MEDIATOR_TYPE, JICPProtocol.DEFAULT_INFO, recipientID, null);
-			ByteBuffer b = ByteBuffer.allocateDirect(pkt.getLength());
+			ByteBuffer b = ByteBuffer.allocate(pkt.getLength());
 			MyOut out = new MyOut(b);
 			pkt.writeTo(out);
 			b.flip();
 			return b;
 		} else {
 			// Read the JICPPacket from the HTTP request payload
-			byte[] a = request.getPayload();
-			ByteBuffer b = ByteBuffer.allocateDirect(a.length);
-			MyOut out = new MyOut(b);
-			out.write(a, 0, a.length);
-			b.flip();
-			return b;
+			// No need to copy it into a direct buffer: it is just copied into the packet payload
+			return ByteBuffer.wrap(request.getPayload());
 		}
 	}
 	public NIOHTTPHelper(NIOJICPConnection connection) {
@@ -25,7 +25,10 @@ public class NIOJICPConnection extends Connection {
 	// TODO 1k, why? configurable?
 	public static final int INITIAL_BUFFER_SIZE = 1024;
 	
+	private static final DirectBufferPool pool = DirectBufferPool.getInstance();
+
 	private SocketChannel myChannel;
+	// Buffers are taken from the DirectBufferPool only while a packet is in flight
 	private ByteBuffer socketData; 
 	private ByteBuffer payloadBuf;
 	private ByteBuffer unmanagedJicpData;
@@ -43,8 +46,6 @@ public class NIOJICPConnection extends Connection {
 	private static final Logger log = Logger.getLogger(NIOJICPConnection.class.getName());
 
 	public NIOJICPConnection() {
-		socketData = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE); 
-		payloadBuf = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
 		transformers = new LinkedList<>();
 	}
 	
@@ -68,35 +69,38 @@ public class NIOJICPConnection extends Connection {
     fully read the packet.
 	 */
 	public synchronized JICPPacket readPacket() throws IOException {
-		ByteBuffer jicpData = null;
-		if (unmanagedJicpData == null) { 
-			// No JICP data to be processed from previous round --> Read new data from the network
-			read();
-			jicpData = transformAfterRead(socketData);
-			// NOTE: Transformers are expected to transform ALL (not just the first one) units they
-			// are able to manage --> At this point we have:
-			// - socketData empty!
-			// - unprocessedData inside transformers (see the BufferTransformerInfo inner class) 
-			// possibly containing some bytes representing a portion of a transformation unit (more 
-			// data from the network is necessary to transform them)
-			// - jicpData containing one of the following:
-			//   1) Nothing (no bytes were fully transformed)
-			//   2) The first part of a JICPPacket (Header plus a portion of the payload)
-			//   3) Exactly 1 JICPPacket or the remaining part of the payload in case at previous 
-			//      round we fell in case 2 or 4.b 
-			//   4) Case 3 plus 0 or more complete JICPPacket plus, optionally, the first part of a JICPPacket (case 4.b) 
-			// In case 1 and 2 the method throws PacketIncompleteException.
-			// In case 3 the method returns the reconstructed JICPPacket.
-			// In case 4 the method returns the first reconstructed packet and store remaining JICP
-			// data. When that occurs the moreDataAvailable() method returns true to indicate that 
-			// the readPacket() method must be called again before going back to wait for network data.
-		}
-		else {
-			// Some JICP data still need to be processed from previous round --> do it.
-			jicpData = unmanagedJicpData;
+		if (closed) {
+			throw new EOFException("Connection closed");
 		}
-		
+		ByteBuffer jicpData = null;
 		try {
+			if (unmanagedJicpData == null) { 
+				// No JICP data to be processed from previous round --> Read new data from the network
+				read();
+				jicpData = transformAfterRead(socketData);
+				// NOTE: Transformers are expected to transform ALL (not just the first one) units they
+				// are able to manage --> At this point we have:
+				// - socketData empty!
+				// - unprocessedData inside transformers (see the BufferTransformerInfo inner class) 
+				// possibly containing some bytes representing a portion of a transformation unit (more 
+				// data from the network is necessary to transform them)
+				// - jicpData containing one of the following:
+				//   1) Nothing (no bytes were fully transformed)
+				//   2) The first part of a JICPPacket (Header plus a portion of the payload)
+				//   3) Exactly 1 JICPPacket or the remaining part of the payload in case at previous 
+				//      round we fell in case 2 or 4.b 
+				//   4) Case 3 plus 0 or more complete JICPPacket plus, optionally, the first part of a JICPPacket (case 4.b) 
+				// In case 1 and 2 the method throws PacketIncompleteException.
+				// In case 3 the method returns the reconstructed JICPPacket.
+				// In case 4 the method returns the first reconstructed packet and store remaining JICP
+				// data. When that occurs the moreDataAvailable() method returns true to indicate that 
+				// the readPacket() method must be called again before going back to wait for network data.
+			}
+			else {
+				// Some JICP data still need to be processed from previous round --> do it.
+				jicpData = unmanagedJicpData;
+			}
+			
 			if (jicpData.hasRemaining()) {
 				// JICP data actually available after transformations
 				if (!headerReceived) {
@@ -168,6 +172,18 @@ public class NIOJICPConnection extends Connection {
 				// so that we are sure to read bytes from the network at next round
 				unmanagedJicpData  = null;
 			}
+			if (unmanagedJicpData == null) {
+				// All data read from the network have been processed
+				releaseReadBuffers();
+			}
+		}
+	}
+
+	private void releaseReadBuffers() {
+		pool.release(socketData);
+		socketData = null;
+		for (BufferTransformerInfo info : transformers) {
+			info.getTransformer().readCompleted();
 		}
 	}
 	
@@ -176,13 +192,16 @@ public class NIOJICPConnection extends Connection {
 	}
 
 	private void read() throws IOException {
+		if (socketData == null) {
+			socketData = pool.acquire(INITIAL_BUFFER_SIZE);
+		}
 		socketData.clear();
 		readFromChannel(socketData);
 		while (!socketData.hasRemaining()) {
 			// We read exactly how many bytes how socketData can contain. VERY likely there are 
 			// more bytes to read from the channel --> Enlarge socketData and read again
 			socketData.flip();
-			socketData = NIOHelper.enlargeAndFillBuffer(socketData, BEManagementService.getBufferIncreaseSize(), "socketData");
+			socketData = pool.enlarge(socketData, BEManagementService.getBufferIncreaseSize());
 			try {
 				readFromChannel(socketData);
 			}
@@ -247,24 +266,27 @@ public class NIOJICPConnection extends Connection {
 
 
 	private void resizePayloadBuffer(int payloadLength) {
-		if (payloadLength > payloadBuf.capacity()) {
-			payloadBuf = NIOHelper.enlargeBuffer(payloadBuf, payloadLength - payloadBuf.capacity(), "payLoad",true);
-		} else {
-			payloadBuf.limit(payloadLength);
-		}
+		payloadBuf = pool.acquire(payloadLength);
+		payloadBuf.limit(payloadLength);
 	}
 
 	private JICPPacket buildPacket(ByteBuffer jicpData) {
-		payloadBuf.flip();
-		byte[] payload = new byte[payloadBuf.remaining()];
-		payloadBuf.get(payload, 0, payload.length);
+		byte[] payload = null;
+		if (payloadBuf != null) {
+			payloadBuf.flip();
+			payload = new byte[payloadBuf.remaining()];
+			payloadBuf.get(payload, 0, payload.length);
+			pool.release(payloadBuf);
+			payloadBuf = null;
+		} else {
+			payload = new byte[0];
+		}
 		JICPPacket pkt = new JICPPacket(type, info, recipientID, payload);
 		pkt.setSessionID(sessionID);
 
 		// Reset internal fields to properly manage next JICP packet
 		headerReceived = false;
 		recipientID = null;
-		payloadBuf.clear();
 		
 		// Before returning the reconstructed packet check if some JICP data still need
 		// to be processed and store it in that case
@@ -279,36 +301,63 @@ public class NIOJICPConnection extends Connection {
 	/**
 	 * Write a JICPPacket on the connection, first calls {@link #preprocessBufferToWrite(java.nio.ByteBuffer) }.
 	 * When the buffer returned by {@link #preprocessBufferToWrite(java.nio.ByteBuffer) }, no write will be performed.
+	 * If there are no transformers the packet header and payload are written with a single gathering write
+	 * without copying the payload.
 	 * @return number of application bytes written to the socket
 	 */
 	public synchronized int writePacket(JICPPacket pkt) throws IOException {
-		ByteBuffer bb = null;
-		int totalToWrite = 0;
-		ByteArrayOutputStream os = new ByteArrayOutputStream();
-		int n = pkt.writeTo(os);
+		ByteArrayOutputStream os = new ByteArrayOutputStream(MAX_HEADER_SIZE + 4);
+		int headerLength = pkt.writeHeaderTo(os);
+		byte[] payload = pkt.getData();
+		int payloadLength = payload != null ? payload.length : 0;
 		if (log.isLoggable(Level.FINE)) {
-			log.fine("writePacket: number of bytes before preprocessing: " + n);
+			log.fine("writePacket: number of bytes before preprocessing: " + (headerLength + payloadLength));
+		}
+		if (transformers.isEmpty()) {
+			ByteBuffer[] bbs = payloadLength > 0
+					? new ByteBuffer[] { ByteBuffer.wrap(os.toByteArray()), ByteBuffer.wrap(payload) }
+					: new ByteBuffer[] { ByteBuffer.wrap(os.toByteArray()) };
+			return writeFully(bbs, headerLength + payloadLength);
+		}
+
+		ByteBuffer toSend = pool.acquire(headerLength + payloadLength);
+		try {
+			os.writeTo(new ByteBufferOutputStream(toSend));
+			if (payloadLength > 0) {
+				toSend.put(payload);
+			}
+			toSend.flip();
+			ByteBuffer bb = transformBeforeWrite(toSend);
+			if (toSend.hasRemaining()) {
+				// the transformers must transform all data from the packet before sending
+				throw new IOException("still need to transform: " + toSend.remaining());
+			}
+			pool.release(toSend);
+			toSend = null;
+			return writeFully(new ByteBuffer[] { bb }, bb.remaining());
 		}
-		ByteBuffer toSend = ByteBuffer.wrap(os.toByteArray());
-		bb = transformBeforeWrite(toSend);
-		if (toSend.hasRemaining() && !transformers.isEmpty()) {
-			// for direct JICPConnections the data from the packet are used directly
-			// for subclasses the subsequent transformers must transform all data from the packet before sending
-			throw new IOException("still need to transform: " + toSend.remaining());
+		finally {
+			pool.release(toSend);
+			for (BufferTransformerInfo info : transformers) {
+				info.getTransformer().writeCompleted();
+			}
 		}
+	}
+
+	private int writeFully(ByteBuffer[] bbs, int totalToWrite) throws IOException {
+		ByteBuffer last = bbs[bbs.length - 1];
 		int totalWritten = 0;
-		totalToWrite = bb.remaining();
 		boolean bigPacket = false;
 		if (totalToWrite > 100000) {
 			log.log(Level.INFO, this+".writePacket(): writing \"BIG\" packet. Size = "+totalToWrite);
 			bigPacket = true;
 		}
 		int roundsCnt = 0;
-		while (bb.hasRemaining()) {
-			int written = writeToChannel(bb);
+		while (last.hasRemaining()) {
+			int written = bbs.length == 1 ? writeToChannel(last) : (int) writeToChannel(bbs);
 			totalWritten += written;
 			roundsCnt++;
-			int stillToWrite = bb.remaining();
+			int stillToWrite = totalToWrite - totalWritten;
 			if (log.isLoggable(Level.FINE)) {
 				log.log(Level.FINE, this+"writePacket: " + written + " bytes written. " + stillToWrite + " bytes still to write");
 			}
@@ -346,14 +395,43 @@ public class NIOJICPConnection extends Connection {
 		return myChannel.write(bb);
 	}
 
+	/**
+	 * writes data from a sequence of buffers to the channel with a single gathering write
+	 * @param bbs
+	 * @return the number of bytes written to the channel
+	 * @throws IOException
+	 */
+	public long writeToChannel(ByteBuffer[] bbs) throws IOException {
+		return myChannel.write(bbs);
+	}
+
 
 	/**
     Close the connection
 	 */
 	public void close() throws IOException {
 		closed = true;
-		myChannel.close();
-		Connection.socketCnt--;
+		try {
+			myChannel.close();
+		}
+		finally {
+			Connection.socketCnt--;
+			// Closing the channel makes a reader blocked on it (if any) exit readPacket()
+			synchronized (this) {
+				releaseBuffers();
+			}
+		}
+	}
+
+	private void releaseBuffers() {
+		unmanagedJicpData = null;
+		pool.release(payloadBuf);
+		payloadBuf = null;
+		headerReceived = false;
+		for (BufferTransformerInfo info : transformers) {
+			info.releaseData();
+		}
+		releaseReadBuffers();
 	}
 
 	// In some cases we may receive some data (often a socket closed by peer indication) while 
@@ -397,6 +475,8 @@ public class NIOJICPConnection extends Connection {
 	private class BufferTransformerInfo {
 		private BufferTransformer transformer;
 		private ByteBuffer unprocessedData;
+		// Pooled buffer holding unprocessed data plus new data while they are transformed
+		private ByteBuffer attachedData;
 
 		BufferTransformerInfo(BufferTransformer transformer) {
 			this.transformer = transformer;
@@ -407,29 +487,63 @@ public class NIOJICPConnection extends Connection {
 		}
 
 		public void storeUnprocessedData(ByteBuffer transformationInput) {
+			ByteBuffer stored = null;
 			if (transformationInput.hasRemaining()) {
 				//System.out.println("######## Storing "+transformationInput.remaining()+" bytes for next round");
-				unprocessedData = ByteBuffer.allocateDirect(transformationInput.remaining());
-				NIOHelper.copyAsMuchAsFits(unprocessedData, transformationInput);
-				unprocessedData.flip();
-			}
-			else {
-				// No un-processed data to store
-				unprocessedData = null;
+				stored = pool.acquire(transformationInput.remaining());
+				NIOHelper.copyAsMuchAsFits(stored, transformationInput);
+				stored.flip();
 			}
+			// The input buffer built by attachUnprocessedData() (if any) is no longer used
+			pool.release(attachedData);
+			attachedData = null;
+			unprocessedData = stored;
 		}
 
 		public ByteBuffer attachUnprocessedData(ByteBuffer transformationInput) {
 			ByteBuffer actualTransformationInput = transformationInput;
 			if (unprocessedData != null && unprocessedData.hasRemaining()) {
 				//System.out.println("######## Attaching "+unprocessedData.remaining()+" unprocessed bytes");
-				actualTransformationInput = NIOHelper.enlargeAndFillBuffer(unprocessedData, transformationInput.remaining(), "unprocessedData");
-				NIOHelper.copyAsMuchAsFits(actualTransformationInput, transformationInput);
+				actualTransformationInput = pool.acquire(unprocessedData.remaining() + transformationInput.remaining());
+				actualTransformationInput.put(unprocessedData);
+				actualTransformationInput.put(transformationInput);
 				actualTransformationInput.flip();
+				pool.release(unprocessedData);
+				unprocessedData = null;
+				attachedData = actualTransformationInput;
 			}
 			return actualTransformationInput;
 		}
+
+		void releaseData() {
+			pool.release(unprocessedData);
+			unprocessedData = null;
+			pool.release(attachedData);
+			attachedData = null;
+		}
 	} // END of inner class BufferTransformerInfo
 
+	/**
+	 * Inner class ByteBufferOutputStream
+	 * An OutputStream writing into a ByteBuffer
+	 */
+	private static class ByteBufferOutputStream extends java.io.OutputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferOutputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void write(int b) {
+			buffer.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			buffer.put(b, off, len);
+		}
+	} // END of inner class ByteBufferOutputStream
+
 }
 
@@ -31,8 +31,13 @@ public final class SSLEngineHelper implements BufferTransformer {
 
 	public static final ByteBuffer EMPTY_BUFFER = NIOHelper.EMPTY_BUFFER;
 
+	private static final DirectBufferPool pool = DirectBufferPool.getInstance();
+
 	private SSLEngine ssle;
 
+	// Buffers are taken from the DirectBufferPool only while data are being wrapped/unwrapped
+	private int wrapDataSize;
+	private int unwrapDataSize;
 	private ByteBuffer wrapData;
 	private ByteBuffer unwrapData;
 
@@ -68,11 +73,10 @@ public final class SSLEngineHelper implements BufferTransformer {
 
 	private void setBufferSizes() {
 		SSLSession session = ssle.getSession();
-		unwrapData = ByteBuffer.allocateDirect(session.getApplicationBufferSize());
-		wrapData = ByteBuffer.allocateDirect(session.getPacketBufferSize());
+		unwrapDataSize = session.getApplicationBufferSize();
+		wrapDataSize = session.getPacketBufferSize();
 		if (log.isLoggable(Level.FINE)) {
-			NIOHelper.logBuffer(wrapData, "wrapData", Level.FINE);
-			NIOHelper.logBuffer(unwrapData, "unwrapData", Level.FINE);
+			log.fine("wrapData size " + wrapDataSize + ", unwrapData size " + unwrapDataSize);
 		}
 	}
 
@@ -251,7 +255,7 @@ public final class SSLEngineHelper implements BufferTransformer {
 			}
 			log.info("Buffer overflow. Enlarge buffer and retry [" + getRemoteHost() + "]");
 			unwrapData.flip();
-			unwrapData = NIOHelper.enlargeAndFillBuffer(unwrapData, BEManagementService.getBufferIncreaseSize(), "unwrapData");
+			unwrapData = pool.enlarge(unwrapData, BEManagementService.getBufferIncreaseSize());
 			return decrypt(socketData);
 		}
 		// If the socketData buffer contains unprocessed data, manage them
@@ -271,32 +275,40 @@ public final class SSLEngineHelper implements BufferTransformer {
 	 * @throws IOException
 	 */
 	private int wrapAndSend() throws SSLException, IOException {
-		wrapData.clear();
-		int n = 0;
-		SSLEngineResult result = ssle.wrap(EMPTY_BUFFER,wrapData);
-		if (log.isLoggable(Level.FINE)) {
-			log.fine("wrapped " + result);
-		}
-		if (result.bytesProduced() > 0) {
-			wrapData.flip();
-			n = writeToChannel(wrapData);
-
-			if (result.getHandshakeStatus().equals(HandshakeStatus.NEED_WRAP)) {
-				n += wrapAndSend();
+		// Use a dedicated buffer: wrapData may still be in use by a writer
+		ByteBuffer handshakeData = pool.acquire(wrapDataSize);
+		try {
+			int n = 0;
+			SSLEngineResult result = ssle.wrap(EMPTY_BUFFER,handshakeData);
+			if (log.isLoggable(Level.FINE)) {
+				log.fine("wrapped " + result);
+			}
+			if (result.bytesProduced() > 0) {
+				handshakeData.flip();
+				n = writeToChannel(handshakeData);
+	
+				if (result.getHandshakeStatus().equals(HandshakeStatus.NEED_WRAP)) {
+					n += wrapAndSend();
+				}
+				return n;
+			} else {
+				log.warning("wrap produced no data " + getRemoteHost());
 			}
 			return n;
-		} else {
-			log.warning("wrap produced no data " + getRemoteHost());
 		}
-		return n;
+		finally {
+			pool.release(handshakeData);
+		}
 	}
 
 	public synchronized ByteBuffer preprocessBufferToWrite(ByteBuffer dataToSend) throws IOException {
-		wrapData.clear();
-		
 		if (ssle == null) {
 			throw new IllegalStateException("SSLEngine previously closed. The connection must be reestablished.");
 		}
+		if (wrapData == null) {
+			wrapData = pool.acquire(wrapDataSize);
+		}
+		wrapData.clear();
 		
 		while (dataToSend.hasRemaining()) {
 			SSLEngineResult res = ssle.wrap(dataToSend,wrapData);
@@ -305,7 +317,7 @@ public final class SSLEngineHelper implements BufferTransformer {
 			}
 			if (res.getStatus().equals(Status.BUFFER_OVERFLOW)) {
 				wrapData.flip();
-				wrapData = NIOHelper.enlargeAndFillBuffer(wrapData,BEManagementService.getBufferIncreaseSize(),"wrapData");
+				wrapData = pool.enlarge(wrapData, BEManagementService.getBufferIncreaseSize());
 			}
 		}
 		wrapData.flip();
@@ -314,16 +326,32 @@ public final class SSLEngineHelper implements BufferTransformer {
 
 	public synchronized ByteBuffer postprocessBufferRead(ByteBuffer socketData) throws PacketIncompleteException, IOException {
 		//needMoreSocketData = false;
+		if (unwrapData == null) {
+			unwrapData = pool.acquire(unwrapDataSize);
+		}
 		unwrapData.clear();
 		int n = decrypt(socketData);
 		if (n > 0) {
 			unwrapData.flip();
 			return unwrapData;
 		} else {
+			readCompleted();
 			return EMPTY_BUFFER;
 		}
 	}
 
+	@Override
+	public synchronized void readCompleted() {
+		pool.release(unwrapData);
+		unwrapData = null;
+	}
+
+	@Override
+	public synchronized void writeCompleted() {
+		pool.release(wrapData);
+		wrapData = null;
+	}
+
 	public boolean needSocketData() {
 		return false;
 	}
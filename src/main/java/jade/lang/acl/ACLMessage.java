@@ -37,6 +37,9 @@ import java.util.ArrayList;
 import jade.util.leap.Properties;
 import jade.util.leap.EmptyIterator;
 import jade.core.AID;
+//#APIDOC_EXCLUDE_BEGIN
+import jade.core.messaging.MessageTrace;
+//#APIDOC_EXCLUDE_END
 //#CUSTOM_EXCLUDE_BEGIN
 import jade.domain.FIPAAgentManagement.Envelope;
 
@@ -291,6 +294,10 @@ public class ACLMessage implements Cloneable, Serializable {
 
 	private long postTimeStamp = -1;
 
+	//#APIDOC_EXCLUDE_BEGIN
+	private transient MessageTrace trace;
+	//#APIDOC_EXCLUDE_END
+
 	// #CUSTOM_EXCLUDE_BEGIN
 	private Envelope messageEnvelope;
 	// #CUSTOM_EXCLUDE_END
@@ -970,6 +977,25 @@ public class ACLMessage implements Cloneable, Serializable {
 		return postTimeStamp;
 	}
 
+	//#APIDOC_EXCLUDE_BEGIN
+	/**
+	 * Attach the latency trace of a sampled message. This is used by the JADE
+	 * runtime to trace the message from the time it is posted to the time it is
+	 * received and should not be called by application code.
+	 */
+	public void setTrace(MessageTrace trace) {
+		this.trace = trace;
+	}
+
+	/**
+	 * @return The latency trace of this message or null if this message is not
+	 *         sampled
+	 */
+	public MessageTrace getTrace() {
+		return trace;
+	}
+	//#APIDOC_EXCLUDE_END
+
 //	#CUSTOM_EXCLUDE_BEGIN
 	/**
 	 * Attaches an envelope to this message. The envelope is used by the
@@ -1067,6 +1093,9 @@ public class ACLMessage implements Cloneable, Serializable {
 
 		try {
 			result = (ACLMessage) super.clone();
+			//#APIDOC_EXCLUDE_BEGIN
+			result.trace = null;
+			//#APIDOC_EXCLUDE_END
 			// result.persistentID = null;
 			if (source != null) {
 				result.source = (AID) source.clone();
@@ -1172,6 +1201,9 @@ public class ACLMessage implements Cloneable, Serializable {
 		}
 
 		postTimeStamp = -1;
+		//#APIDOC_EXCLUDE_BEGIN
+		trace = null;
+		//#APIDOC_EXCLUDE_END
 	}
 
 	/**
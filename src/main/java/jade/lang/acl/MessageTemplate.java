@@ -807,6 +807,59 @@ public class MessageTemplate implements Serializable {
 		return toMatch.match(msg);
 	}
 
+	//#APIDOC_EXCLUDE_BEGIN
+	/**
+	 * Retrieve the conversation-id a message must have to match this template.
+	 * This is the case when this template was created by means of
+	 * <code>MatchConversationId()</code> or is an <b>and</b> combination including
+	 * such a template. Message queues can use this information to avoid scanning
+	 * all queued messages.
+	 *
+	 * @return The required conversation-id or <code>null</code> if this template
+	 *         does not constrain the conversation-id.
+	 */
+	public String getRequiredConversationId() {
+		Literal l = findLiteral(toMatch, CONVERSATION_ID);
+		return l != null ? (String) l.matchValue : null;
+	}
+
+	/**
+	 * Retrieve the in-reply-to a message must have to match this template.
+	 *
+	 * @return The required in-reply-to or <code>null</code> if this template does
+	 *         not constrain the in-reply-to.
+	 * @see #getRequiredConversationId()
+	 */
+	public String getRequiredInReplyTo() {
+		Literal l = findLiteral(toMatch, IN_REPLY_TO);
+		return l != null ? (String) l.matchValue : null;
+	}
+
+	/**
+	 * Retrieve the performative a message must have to match this template.
+	 *
+	 * @return The required performative or <code>null</code> if this template
+	 *         does not constrain the performative.
+	 * @see #getRequiredConversationId()
+	 */
+	public Integer getRequiredPerformative() {
+		Literal l = findLiteral(toMatch, PERFORMATIVE);
+		return l != null ? Integer.valueOf(l.perfValue) : null;
+	}
+
+	private static Literal findLiteral(MatchExpression e, int slotName) {
+		if (e instanceof Literal l) {
+			return l.slotName == slotName ? l : null;
+		}
+		if (e instanceof AndExpression and) {
+			Literal l = findLiteral(and.op1, slotName);
+			return l != null ? l : findLiteral(and.op2, slotName);
+		}
+		// OR and NOT expressions do not constrain any slot to a single value
+		return null;
+	}
+	//#APIDOC_EXCLUDE_END
+
 	public void setID(String id) {
 		this.id = id;
 	}
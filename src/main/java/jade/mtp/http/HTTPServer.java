@@ -150,7 +150,7 @@ public class HTTPServer extends Thread {
 	}
 
 	// #DOTNET_EXCLUDE_BEGIN
-	private String getSaxParserName(String s) {
+	static String getSaxParserName(String s) {
 		if (s != null) {
 			// SAXParser specified by means of the jade_mtp_http_parser JADE option
 			return s;
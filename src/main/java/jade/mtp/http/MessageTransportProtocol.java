@@ -66,11 +66,20 @@ public class MessageTransportProtocol implements MTP {
 	private static final String POLICY = "conservative"; // conservative or aggressive
 	private static final String PREFIX = "jade_mtp_http_";
 	private static final String TIMEOUT = "60000"; // 60 seconds
+	private static final String NIO_WORKERS = "10";
+	private static final String NIO_QUEUE_SIZE = "100";
+	private static final String NIO_MAX_HEADER_SIZE = String.valueOf(NIOHTTPServer.DEFAULT_MAX_HEADER_SIZE);
+	private static final String NIO_MAX_BODY_SIZE = String.valueOf(NIOHTTPServer.DEFAULT_MAX_BODY_SIZE);
 
 	private int numKA;
 	private String proxyHost;
 	private int proxyPort;
 	private int timeout;
+	private boolean nio;
+	private int nioWorkers;
+	private int nioQueueSize;
+	private int nioMaxHeaderSize;
+	private int nioMaxBodySize;
 	// private int proxyKATimeout;
 	private boolean policy;
 	private boolean keepAlive;
@@ -155,6 +164,16 @@ public class MessageTransportProtocol implements MTP {
 	 * documentation for details).</LI>
 	 * <LI><B>timeout</B>: Timeout for keep-alive connections. Default value is 1
 	 * min. 0 means infinite.</LI>
+	 * <LI><B>nio</B>: Whether to use the selector based server. Default value is
+	 * false.</LI>
+	 * <LI><B>nioWorkers</B>: Number of threads parsing and dispatching the
+	 * requests received by the selector based server. Default value is 10.</LI>
+	 * <LI><B>nioQueueSize</B>: Number of requests waiting for a free worker
+	 * thread. Default value is 100.</LI>
+	 * <LI><B>nioMaxHeaderSize</B>: Maximum size in bytes of the header of a
+	 * request received by the selector based server. Default value is 64 KB.</LI>
+	 * <LI><B>nioMaxBodySize</B>: Maximum size in bytes of the body of a request
+	 * received by the selector based server. Default value is 16 MB.</LI>
 	 * </UL>
 	 * Note that all these parameters must be prefixed with "jade_mtp_http_".
 	 */
@@ -221,6 +240,16 @@ public class MessageTransportProtocol implements MTP {
 
 			timeout = Integer.parseInt(p.getParameter(PREFIX + "timeout", TIMEOUT));
 
+			nio = p.getBooleanProperty(PREFIX + "nio", false);
+			if (nio && "https".equalsIgnoreCase(hta.getProto())) {
+				// The NIO server does not support HTTPS
+				nio = false;
+			}
+			nioWorkers = Integer.parseInt(p.getParameter(PREFIX + "nioWorkers", NIO_WORKERS));
+			nioQueueSize = Integer.parseInt(p.getParameter(PREFIX + "nioQueueSize", NIO_QUEUE_SIZE));
+			nioMaxHeaderSize = Integer.parseInt(p.getParameter(PREFIX + "nioMaxHeaderSize", NIO_MAX_HEADER_SIZE));
+			nioMaxBodySize = Integer.parseInt(p.getParameter(PREFIX + "nioMaxBodySize", NIO_MAX_BODY_SIZE));
+
 			// #PJAVA_EXCLUDE_BEGIN
 			try {
 				HTTPSocketFactory.getInstance().configure(p, hta);
@@ -245,8 +274,18 @@ public class MessageTransportProtocol implements MTP {
 		// Creation of the Server
 		try {
 			// Create object server
-			HTTPServer srv = new HTTPServer(interfaceAddress, port, disp, numKA, saxClass, timeout, changePortIfBusy);
-			int actualPort = srv.getLocalPort();
+			Thread srv;
+			int actualPort;
+			if (nio) {
+				NIOHTTPServer nioSrv = new NIOHTTPServer(interfaceAddress, port, disp, numKA, saxClass, timeout, changePortIfBusy, nioWorkers, nioQueueSize, nioMaxHeaderSize, nioMaxBodySize);
+				actualPort = nioSrv.getLocalPort();
+				srv = nioSrv;
+			}
+			else {
+				HTTPServer httpSrv = new HTTPServer(interfaceAddress, port, disp, numKA, saxClass, timeout, changePortIfBusy);
+				actualPort = httpSrv.getLocalPort();
+				srv = httpSrv;
+			}
 			if (actualPort != port) {
 				// The selected port is busy and a new one was selected --> Update the transport
 				// address
@@ -273,10 +312,15 @@ public class MessageTransportProtocol implements MTP {
 
 	public void deactivate(TransportAddress ta) throws MTPException {
 		// Shutdown HTTP Server
-		HTTPServer srv = (HTTPServer) addr2srv.get(ta.toString());
+		Object srv = addr2srv.get(ta.toString());
 		if (srv != null) {
 			addr2srv.remove(ta.toString());
-			srv.desactivate();
+			if (srv instanceof NIOHTTPServer) {
+				((NIOHTTPServer) srv).desactivate();
+			}
+			else {
+				((HTTPServer) srv).desactivate();
+			}
 			// srv.interrupt();
 		}
 		else {
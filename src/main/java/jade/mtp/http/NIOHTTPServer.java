@@ -0,0 +1,600 @@
+/*****************************************************************
+ JADE - Java Agent DEvelopment Framework is a framework to develop
+ multi-agent systems in compliance with the FIPA specifications.
+ Copyright (C) 2000 CSELT S.p.A.
+
+ GNU Lesser General Public License
+
+ This library is free software; you can redistribute it and/or
+ modify it under the terms of the GNU Lesser General Public
+ License as published by the Free Software Foundation,
+ version 2.1 of the License.
+
+ This library is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ Lesser General Public License for more details.
+
+ You should have received a copy of the GNU Lesser General Public
+ License along with this library; if not, write to the
+ Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.mtp.http;
+
+//#MIDP_EXCLUDE_FILE
+//#DOTNET_EXCLUDE_FILE
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jade.core.Profile;
+import jade.domain.FIPAAgentManagement.Envelope;
+import jade.mtp.InChannel;
+import jade.util.Logger;
+
+/**
+ * Selector based alternative to <code>HTTPServer</code>. A single thread
+ * accepts connections and reads requests in non-blocking mode. When a request
+ * has been completely received (as indicated by its Content-Length header or,
+ * if missing, by the closing MIME boundary) it is passed to a bounded pool of
+ * worker threads that parse the multipart envelope and dispatch the message.
+ * Responses are written back by the selector thread. Keep-alive connections
+ * do not hold any thread while idle.
+ * <br>
+ * When all workers are busy and their queue is full, completed requests are
+ * kept aside and the server stops accepting new connections: since no
+ * further data is read from the connections whose request is pending, TCP
+ * flow control pushes back on senders.
+ * <br>
+ * Requests are not parsed incrementally: the selector thread only scans the
+ * header and buffers the whole request, that is then parsed by a worker. The
+ * size of the buffered header and body is therefore bounded: requests
+ * exceeding the maximum sizes are answered with <code>431</code> or
+ * <code>413</code> and their connection is closed.
+ * <br>
+ * This server does not support HTTPS.
+ */
+public class NIOHTTPServer extends Thread {
+	public static final int DEFAULT_MAX_HEADER_SIZE = 64 * 1024;
+	public static final int DEFAULT_MAX_BODY_SIZE = 16 * 1024 * 1024;
+	private static final String HEADER_TOO_LARGE = "431 Request Header Fields Too Large";
+	private static final String BODY_TOO_LARGE = "413 Payload Too Large";
+	private static final int READ_BUFFER_SIZE = 8 * 1024;
+	private static final byte[] HEADER_END = { '\r', '\n', '\r', '\n' };
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	// logging
+	private static final Logger logger = Logger.getMyLogger(NIOHTTPServer.class.getName());
+
+	// XMLCodec are not thread safe: each worker thread has its own one
+	private static final ThreadLocal<XMLCodec> codecs = new ThreadLocal<>();
+
+	private final int port;
+	private final InChannel.Dispatcher dispatcher;
+	private final int maxKA;
+	private final int timeout;
+	private final int maxHeaderSize;
+	private final int maxBodySize;
+	private final ServerSocketChannel server;
+	private final SelectionKey serverKey;
+	private final Selector selector;
+	private final ThreadPoolExecutor workers;
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+	// Connections whose response is ready (filled by worker threads)
+	private final ConcurrentLinkedQueue<Connection> served = new ConcurrentLinkedQueue<>();
+	// Connections whose request could not be passed to the workers yet
+	private final LinkedList<Connection> backlog = new LinkedList<>();
+	private int kaCnt;
+	private long lastTimeoutCheck;
+
+	// the flag that shows if the server is active or not
+	private volatile boolean active = true;
+
+	/** Constructor: Store the information and open the server channel */
+	public NIOHTTPServer(String interfaceAddress, int p, InChannel.Dispatcher d, int m, String s, int t,
+			boolean changePortIfBusy, int poolSize, int queueSize) throws IOException {
+		this(interfaceAddress, p, d, m, s, t, changePortIfBusy, poolSize, queueSize, DEFAULT_MAX_HEADER_SIZE, DEFAULT_MAX_BODY_SIZE);
+	}
+
+	/**
+	 * Constructor: Store the information and open the server channel
+	 * 
+	 * @param maxHeaderSize The maximum size in bytes of the header of a request
+	 * @param maxBodySize   The maximum size in bytes of the body of a request
+	 */
+	public NIOHTTPServer(String interfaceAddress, int p, InChannel.Dispatcher d, int m, String s, int t,
+			boolean changePortIfBusy, int poolSize, int queueSize, int maxHeaderSize, int maxBodySize) throws IOException {
+		dispatcher = d;
+		this.maxHeaderSize = maxHeaderSize;
+		this.maxBodySize = maxBodySize;
+		maxKA = m;
+		HTTPServer.CODEC = HTTPServer.getSaxParserName(s);
+		if (HTTPServer.CODEC == null) {
+			throw new IOException("NO XML Parser specified");
+		}
+		logger.log(Logger.INFO, "HTTP-MTP Using XML parser " + HTTPServer.CODEC);
+		timeout = t;
+
+		InetAddress ifAddr = interfaceAddress == null || Profile.LOCALHOST_CONSTANT.equals(interfaceAddress) ? null
+				: InetAddress.getByName(interfaceAddress);
+		server = ServerSocketChannel.open();
+		try {
+			server.bind(new InetSocketAddress(ifAddr, p));
+		} catch (BindException be) {
+			if (changePortIfBusy) {
+				// The specified port is busy. Let the system find a free one
+				server.bind(new InetSocketAddress(ifAddr, 0));
+				if (logger.isLoggable(Logger.WARNING)) {
+					logger.log(Logger.WARNING, "Port " + p + " is already in used, selected another one");
+				}
+			} else {
+				server.close();
+				throw be;
+			}
+		}
+		port = server.socket().getLocalPort();
+		server.configureBlocking(false);
+		selector = Selector.open();
+		serverKey = server.register(selector, SelectionKey.OP_ACCEPT);
+
+		AtomicInteger cnt = new AtomicInteger();
+		workers = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(queueSize, 1)), r -> {
+					Thread th = new Thread(r, "HTTP-MTP-Worker-" + port + "-" + cnt.incrementAndGet());
+					th.setDaemon(true);
+					return th;
+				});
+		workers.allowCoreThreadTimeOut(true);
+		setName("HTTP-MTP-Selector-" + port);
+	}
+
+	/**
+	 * Desactivate the server: close all connections and stop the worker threads
+	 **/
+	public void desactivate() {
+		active = false;
+		selector.wakeup();
+	}
+
+	int getLocalPort() {
+		return port;
+	}
+
+	/**
+	 * Entry point for the selector thread
+	 */
+	public void run() {
+		try {
+			while (active) {
+				selector.select(Math.min(timeout > 0 ? timeout : 1000, 1000));
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						handleAccept();
+					} else {
+						Connection c = (Connection) key.attachment();
+						try {
+							if (key.isReadable()) {
+								handleRead(c);
+							} else if (key.isWritable()) {
+								handleWrite(c);
+							}
+						} catch (IOException ioe) {
+							close(c);
+						}
+					}
+				}
+				handleServed();
+				submitBacklog();
+				checkTimeouts();
+			}
+		} catch (Exception e) {
+			if (active) {
+				if (logger.isLoggable(Logger.WARNING)) {
+					logger.log(Logger.WARNING, "HTTP Server closed on port " + port, e);
+				}
+			}
+		} finally {
+			active = false;
+			for (SelectionKey key : selector.keys()) {
+				if (key.attachment() instanceof Connection) {
+					close((Connection) key.attachment());
+				}
+			}
+			try {
+				server.close();
+				selector.close();
+			} catch (IOException ioe) {
+				// Does nothing as we asked to close
+			}
+			workers.shutdown();
+		}
+	}
+
+	private void handleAccept() throws IOException {
+		SocketChannel sc = server.accept();
+		if (sc != null) {
+			sc.configureBlocking(false);
+			Connection c = new Connection(sc);
+			c.key = sc.register(selector, SelectionKey.OP_READ, c);
+		}
+	}
+
+	private void handleRead(Connection c) throws IOException {
+		readBuffer.clear();
+		int n = c.channel.read(readBuffer);
+		if (n < 0) {
+			close(c);
+			return;
+		}
+		c.lastActivity = System.currentTimeMillis();
+		c.append(readBuffer.array(), n);
+		processIfComplete(c);
+	}
+
+	private void processIfComplete(Connection c) throws IOException {
+		int end = c.requestEnd(maxHeaderSize, maxBodySize);
+		if (end > 0) {
+			// Do not read anything else until the response has been sent
+			c.key.interestOps(0);
+			c.request = c.take(end);
+			backlog.add(c);
+			submitBacklog();
+		} else if (end == Connection.MALFORMED) {
+			logger.log(Logger.WARNING, "Malformed HTTP request header from " + c.channel.socket().getRemoteSocketAddress());
+			close(c);
+		} else if (end != Connection.INCOMPLETE) {
+			String responseMsg = end == Connection.HEADER_TOO_LARGE ? HEADER_TOO_LARGE : BODY_TOO_LARGE;
+			logger.log(Logger.WARNING, "HTTP request from " + c.channel.socket().getRemoteSocketAddress() + " rejected: " + responseMsg);
+			// Drop what was buffered, answer and close the connection
+			c.key.interestOps(0);
+			c.discard();
+			c.responseMsg = responseMsg;
+			c.type = HTTPIO.CLOSE;
+			served.add(c);
+		}
+	}
+
+	private void submitBacklog() {
+		while (!backlog.isEmpty()) {
+			Connection c = backlog.getFirst();
+			try {
+				workers.execute(() -> serve(c));
+				backlog.removeFirst();
+			} catch (RejectedExecutionException ree) {
+				// Workers saturated. Stop accepting new connections until some space is available
+				if (serverKey.interestOps() != 0) {
+					serverKey.interestOps(0);
+					if (logger.isLoggable(Logger.FINE)) {
+						logger.log(Logger.FINE, "HTTP-MTP workers saturated on port " + port);
+					}
+				}
+				return;
+			}
+		}
+		if (serverKey.isValid() && serverKey.interestOps() == 0) {
+			serverKey.interestOps(SelectionKey.OP_ACCEPT);
+		}
+	}
+
+	/**
+	 * Executed by a worker thread: parse the request, dispatch the message and
+	 * prepare the response.
+	 */
+	private void serve(Connection c) {
+		try {
+			XMLCodec codec = codecs.get();
+			if (codec == null) {
+				codec = new XMLCodec(HTTPServer.CODEC);
+				codecs.set(codec);
+			}
+			StringBuffer envelope = new StringBuffer(40);
+			ByteArrayOutputStream payload = new ByteArrayOutputStream(40);
+			StringBuffer connection = new StringBuffer();
+			String responseMsg = HTTPIO.readAll(new ByteArrayInputStream(c.request), envelope, payload, connection);
+			c.request = null;
+			String type = connection.toString();
+			if (HTTPIO.OK.equals(responseMsg)) {
+				Envelope env = codec.parse(new StringReader(envelope.toString()));
+				// Post the Message to Jade platform
+				synchronized (dispatcher) {
+					if (logger.isLoggable(Logger.WARNING)) {
+						// check payload size
+						if ((env.getPayloadLength() != null) && (env.getPayloadLength().intValue() >= 0)
+								&& (env.getPayloadLength().intValue() != payload.size())) {
+							logger.log(Logger.WARNING, "Payload size does not match envelope information");
+						}
+					}
+					dispatcher.dispatchMessage(env, payload.toByteArray());
+				}
+			}
+			c.responseMsg = responseMsg;
+			c.type = type;
+		} catch (Exception e) {
+			if (logger.isLoggable(Logger.WARNING)) {
+				logger.log(Logger.WARNING, "HTTPServer error : " + e);
+			}
+			// The connection will be closed without any response
+			c.responseMsg = null;
+		}
+		served.add(c);
+		selector.wakeup();
+	}
+
+	private void handleServed() {
+		Connection c;
+		while ((c = served.poll()) != null) {
+			if (!c.channel.isOpen()) {
+				continue;
+			}
+			if (c.responseMsg == null) {
+				close(c);
+				continue;
+			}
+			String type = c.type;
+			if (HTTPIO.KA.equalsIgnoreCase(type)) {
+				if (!c.keepAlive) {
+					// This connection is not known yet
+					if (kaCnt < maxKA) {
+						// There is space left for a new KA
+						c.keepAlive = true;
+						kaCnt++;
+					} else {
+						// This is a to-be-closed connection
+						type = HTTPIO.CLOSE;
+					}
+				}
+			}
+			c.closeAfterWrite = !HTTPIO.KA.equalsIgnoreCase(type);
+			byte[] response = HTTPIO.createHTTPResponse(c.responseMsg, type);
+			c.output = ByteBuffer.allocate(response.length + CRLF.length);
+			c.output.put(response).put(CRLF).flip();
+			try {
+				handleWrite(c);
+			} catch (IOException ioe) {
+				close(c);
+			}
+		}
+	}
+
+	private void handleWrite(Connection c) throws IOException {
+		c.channel.write(c.output);
+		if (c.output.hasRemaining()) {
+			c.key.interestOps(SelectionKey.OP_WRITE);
+			return;
+		}
+		c.output = null;
+		c.lastActivity = System.currentTimeMillis();
+		if (c.closeAfterWrite) {
+			close(c);
+		} else {
+			c.key.interestOps(SelectionKey.OP_READ);
+			// The client may have already sent the next request
+			processIfComplete(c);
+		}
+	}
+
+	private void checkTimeouts() {
+		long now = System.currentTimeMillis();
+		if (timeout <= 0 || now - lastTimeoutCheck < 1000) {
+			return;
+		}
+		lastTimeoutCheck = now;
+		List<Connection> expired = new ArrayList<>();
+		for (SelectionKey key : selector.keys()) {
+			Connection c = (Connection) key.attachment();
+			if (c != null && key.isValid() && key.interestOps() == SelectionKey.OP_READ && now - c.lastActivity > timeout) {
+				expired.add(c);
+			}
+		}
+		for (Connection c : expired) {
+			close(c);
+		}
+	}
+
+	private void close(Connection c) {
+		if (c.key != null) {
+			c.key.cancel();
+		}
+		try {
+			c.channel.close();
+		} catch (IOException ioe) {
+			// Nothing important can happen here
+		}
+		if (c.keepAlive) {
+			c.keepAlive = false;
+			kaCnt--;
+		}
+	}
+
+	/**
+	 * Inner class Connection. The status of a connection with a remote platform.
+	 * All fields are accessed by the selector thread only, with the exception of
+	 * request, responseMsg and type that are handed over to and back from a
+	 * worker thread through the executor and the served queue.
+	 */
+	private static class Connection {
+		private static final int INCOMPLETE = 0;
+		private static final int MALFORMED = -1;
+		private static final int HEADER_TOO_LARGE = -2;
+		private static final int BODY_TOO_LARGE = -3;
+
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private byte[] input = new byte[READ_BUFFER_SIZE];
+		private int inputLength;
+		private int headerEnd = -1;
+		private int scanned;
+		private int contentLength;
+		private byte[] terminator;
+		private long lastActivity = System.currentTimeMillis();
+
+		private byte[] request;
+		private String responseMsg;
+		private String type;
+		private ByteBuffer output;
+		private boolean keepAlive;
+		private boolean closeAfterWrite;
+
+		private Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		private void append(byte[] bb, int length) {
+			if (inputLength == 0) {
+				// Skip blank lines preceding a request
+				int skip = 0;
+				while (skip < length && (bb[skip] == '\r' || bb[skip] == '\n')) {
+					skip++;
+				}
+				bb = Arrays.copyOfRange(bb, skip, length);
+				length -= skip;
+			}
+			if (inputLength + length > input.length) {
+				input = Arrays.copyOf(input, Math.max(input.length * 2, inputLength + length));
+			}
+			System.arraycopy(bb, 0, input, inputLength, length);
+			inputLength += length;
+		}
+
+		/**
+		 * @return The length of the request once completely received,
+		 *         <code>INCOMPLETE</code> if more data is needed,
+		 *         <code>MALFORMED</code> if the request header is malformed,
+		 *         <code>HEADER_TOO_LARGE</code> or <code>BODY_TOO_LARGE</code> if
+		 *         the request exceeds the given sizes
+		 */
+		private int requestEnd(int maxHeaderSize, int maxBodySize) {
+			if (headerEnd < 0) {
+				int pos = indexOf(input, inputLength, HEADER_END, Math.max(0, scanned - HEADER_END.length + 1));
+				if (pos < 0) {
+					scanned = inputLength;
+					return inputLength > maxHeaderSize ? HEADER_TOO_LARGE : INCOMPLETE;
+				}
+				headerEnd = pos + HEADER_END.length;
+				if (headerEnd > maxHeaderSize) {
+					return HEADER_TOO_LARGE;
+				}
+				parseHeader(new String(input, 0, headerEnd, StandardCharsets.ISO_8859_1));
+				scanned = headerEnd;
+			}
+			if (contentLength >= 0) {
+				if (contentLength > maxBodySize) {
+					// Reject it before buffering anything
+					return BODY_TOO_LARGE;
+				}
+				return inputLength >= headerEnd + contentLength ? headerEnd + contentLength : INCOMPLETE;
+			}
+			if (terminator != null) {
+				int pos = indexOf(input, inputLength, terminator, Math.max(headerEnd, scanned - terminator.length + 1));
+				scanned = inputLength;
+				if (pos < 0) {
+					return inputLength - headerEnd > maxBodySize ? BODY_TOO_LARGE : INCOMPLETE;
+				}
+				return pos + terminator.length;
+			}
+			// Neither length nor boundary: let HTTPIO report the error
+			return headerEnd;
+		}
+
+		private void parseHeader(String header) {
+			contentLength = -1;
+			terminator = null;
+			for (String line : header.split("\r\n")) {
+				String lowerCaseLine = line.toLowerCase();
+				if (lowerCaseLine.startsWith("content-length:")) {
+					try {
+						contentLength = Integer.parseInt(line.substring(15).trim());
+					} catch (NumberFormatException nfe) {
+						// Rely on the boundary
+					}
+				} else if (lowerCaseLine.startsWith("content-type:") || lowerCaseLine.trim().startsWith("boundary")) {
+					int pos = lowerCaseLine.indexOf("boundary");
+					if (pos >= 0) {
+						String b = line.substring(pos + "boundary".length());
+						int start = b.indexOf('"');
+						int end = start >= 0 ? b.indexOf('"', start + 1) : -1;
+						if (end > start) {
+							terminator = ("--" + b.substring(start + 1, end) + "--").getBytes(StandardCharsets.ISO_8859_1);
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Remove the first length bytes of input and return them
+		 */
+		private byte[] take(int length) {
+			byte[] bb = Arrays.copyOf(input, length);
+			inputLength -= length;
+			System.arraycopy(input, length, input, 0, inputLength);
+			headerEnd = -1;
+			scanned = 0;
+			if (inputLength > 0) {
+				// Skip blank lines preceding the next request
+				int skip = 0;
+				while (skip < inputLength && (input[skip] == '\r' || input[skip] == '\n')) {
+					skip++;
+				}
+				inputLength -= skip;
+				System.arraycopy(input, skip, input, 0, inputLength);
+			}
+			return bb;
+		}
+
+		/**
+		 * Drop all buffered data
+		 */
+		private void discard() {
+			input = new byte[0];
+			inputLength = 0;
+			headerEnd = -1;
+			scanned = 0;
+		}
+
+		private static int indexOf(byte[] bb, int length, byte[] pattern, int from) {
+			for (int i = from; i <= length - pattern.length; ++i) {
+				int j = 0;
+				while (j < pattern.length && bb[i + j] == pattern[j]) {
+					j++;
+				}
+				if (j == pattern.length) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	} // END of inner class Connection
+
+}// End of NIOHTTPServer class
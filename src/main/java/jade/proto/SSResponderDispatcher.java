@@ -55,7 +55,7 @@ public abstract class SSResponderDispatcher extends CyclicBehaviour {
 			}
 		}
 		else {
-			block();
+			block(template);
 		}
 	}
 	
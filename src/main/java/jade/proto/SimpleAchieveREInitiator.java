@@ -292,12 +292,12 @@ public class SimpleAchieveREInitiator extends SimpleBehaviour {
 						state = ALL_REPLIES_RECEIVED_STATE;
 					}
 					else { // timeout not yet expired.
-						block(blockTime);
+						block(mt, blockTime);
 					}
 
 				}
 				else { // request without timeout.
-					block();
+					block(mt);
 				}
 
 				break;
@@ -337,7 +337,7 @@ public class SimpleAchieveREInitiator extends SimpleBehaviour {
 				}
 				break;
 			} else {
-				block();
+				block(mt);
 				break;
 			}
 		}
@@ -136,7 +136,7 @@ public class SimpleAchieveREResponder extends SimpleBehaviour implements FIPANam
 				state = PREPARE_RESPONSE_STATE;
 			}
 			else {
-				block();
+				block(template);
 			}
 			break;
 		}
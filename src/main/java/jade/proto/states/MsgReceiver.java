@@ -130,11 +130,11 @@ public class MsgReceiver extends SimpleBehaviour {
 					ret = TIMEOUT_EXPIRED;
 					handleMessage(null);
 				}else{
-					block(blockTime);
+					block(template, blockTime);
 				}
 			}
 			else {
-				block();
+				block(template);
 			}
 		}
 	}
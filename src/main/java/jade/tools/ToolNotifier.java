@@ -450,7 +450,7 @@ public class ToolNotifier extends ToolAgent implements MessageListener, AgentLis
 				removePendingEvent(jev);
 				finished = true;
 			} else {
-				block();
+				block(template);
 			}
 		}
 
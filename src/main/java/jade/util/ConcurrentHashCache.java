@@ -0,0 +1,238 @@
+/*****************************************************************
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.util;
+
+import java.util.AbstractMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+//#APIDOC_EXCLUDE_FILE
+
+/**
+ * A bounded LRU cache that can be safely accessed by many threads at the same
+ * time. Differently from <code>HashCache</code>, keys are spread over a number
+ * of independently locked stripes, each one keeping its entries in access
+ * order, so that both lookups and LRU updates take constant time and threads
+ * working on different keys do not contend for the same lock.
+ * <br>
+ * The LRU policy is applied per stripe: when a stripe is full its least
+ * recently used entry is evicted. The cache also keeps hit, miss and eviction
+ * counters that can be exported as monitoring information.
+ *
+ * @see HashCache
+ */
+public class ConcurrentHashCache<K, V> extends AbstractMap<K, V> {
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private final Stripe<K, V>[] stripes;
+	private final int mask;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Constructs a new, empty ConcurrentHashCache with the specified size and the
+	 * default concurrency level.
+	 *
+	 * @param cacheSize The maximum number of entries this cache can hold
+	 */
+	public ConcurrentHashCache(int cacheSize) {
+		this(cacheSize, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Constructs a new, empty ConcurrentHashCache with the specified size.
+	 *
+	 * @param cacheSize        The maximum number of entries this cache can hold
+	 * @param concurrencyLevel The estimated number of threads concurrently
+	 *                         accessing the cache. This is rounded up to a power
+	 *                         of two and bounded so that each stripe can hold at
+	 *                         least one entry.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentHashCache(int cacheSize, int concurrencyLevel) {
+		if (cacheSize <= 0) {
+			throw new IllegalArgumentException("Illegal cache size " + cacheSize);
+		}
+		int n = 1;
+		while (n < concurrencyLevel && n * 2 <= cacheSize) {
+			n *= 2;
+		}
+		stripes = new Stripe[n];
+		int stripeSize = (cacheSize + n - 1) / n;
+		for (int i = 0; i < n; ++i) {
+			stripes[i] = new Stripe<>(stripeSize);
+		}
+		mask = n - 1;
+	}
+
+	private Stripe<K, V> stripeFor(Object key) {
+		int h = key.hashCode();
+		// Spread higher bits downwards as done by java.util.HashMap
+		h ^= (h >>> 16);
+		return stripes[h & mask];
+	}
+
+	/**
+	 * Retrieves a cached element. The retrieved element is also marked as the last
+	 * used one in its stripe.
+	 */
+	@Override
+	public V get(Object key) {
+		V value = stripeFor(key).get(key);
+		if (value != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Retrieves a cached element as <code>get()</code> does, but without
+	 * updating the hit and miss counters. This is meant for lookups that just
+	 * check whether an element is cached before actually retrieving it, so that
+	 * the same access is not counted twice.
+	 */
+	public V peek(Object key) {
+		return stripeFor(key).get(key);
+	}
+
+	/**
+	 * Adds a key-value pair to this cache. If the stripe the key belongs to is
+	 * full, its least recently used entry is evicted.
+	 *
+	 * @return The value previously associated to the key, if any.
+	 */
+	@Override
+	public V put(K key, V value) {
+		return stripeFor(key).put(key, value, evictions);
+	}
+
+	@Override
+	public V remove(Object key) {
+		return stripeFor(key).remove(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return stripeFor(key).containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Stripe<K, V> s : stripes) {
+			size += s.size();
+		}
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (Stripe<K, V> s : stripes) {
+			s.clear();
+		}
+	}
+
+	/**
+	 * @return A snapshot of the entries currently in the cache. Changes to the
+	 *         returned set are not reflected into the cache.
+	 */
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> result = new HashSet<>();
+		for (Stripe<K, V> s : stripes) {
+			s.copyTo(result);
+		}
+		return result;
+	}
+
+	public long getHitCnt() {
+		return hits.sum();
+	}
+
+	public long getMissCnt() {
+		return misses.sum();
+	}
+
+	public long getEvictionCnt() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Inner class Stripe. A portion of the cache protected by its own lock.
+	 */
+	private static final class Stripe<K, V> {
+		private final LinkedHashMap<K, V> map;
+		private final int maxSize;
+
+		private Stripe(int maxSize) {
+			this.maxSize = maxSize;
+			// accessOrder = true --> get() moves the entry to the tail in O(1)
+			map = new LinkedHashMap<>(16, 0.75f, true);
+		}
+
+		private synchronized V get(Object key) {
+			return map.get(key);
+		}
+
+		private synchronized V put(K key, V value, LongAdder evictions) {
+			V old = map.put(key, value);
+			if (old == null && map.size() > maxSize) {
+				// Remove the eldest (LRU-wise) entry
+				K eldest = map.keySet().iterator().next();
+				map.remove(eldest);
+				evictions.increment();
+			}
+			return old;
+		}
+
+		private synchronized V remove(Object key) {
+			return map.remove(key);
+		}
+
+		private synchronized boolean containsKey(Object key) {
+			return map.containsKey(key);
+		}
+
+		private synchronized int size() {
+			return map.size();
+		}
+
+		private synchronized void clear() {
+			map.clear();
+		}
+
+		private synchronized void copyTo(Set<Map.Entry<K, V>> s) {
+			for (Map.Entry<K, V> e : map.entrySet()) {
+				s.add(new SimpleImmutableEntry<>(e.getKey(), e.getValue()));
+			}
+		}
+	} // END of inner class Stripe
+}
@@ -0,0 +1,88 @@
+package jade.wrapper.gateway;
+
+import java.io.Serial;
+import java.util.concurrent.CompletableFuture;
+
+import jade.util.Event;
+
+//#ANDROID_EXCLUDE_FILE
+
+/**
+ * The <code>Event</code> a <code>DynamicJadeGateway</code> passes to its
+ * gateway agent(s) to request the execution of a command. Besides supporting
+ * the synchronous <code>waitUntilProcessed()</code> mechanism, it completes a
+ * <code>CompletableFuture</code> when the command is released and records how
+ * long the command waited in the queue and was processed.
+ */
+class CommandEvent extends Event {
+
+	@Serial
+	private static final long serialVersionUID = 2419378154302386275L;
+
+	private final transient CompletableFuture<Object> future = new CompletableFuture<>();
+	private final transient DynamicJadeGateway gateway;
+	private final long submissionTime = System.nanoTime();
+	private long startTime;
+	private boolean started;
+	private boolean released;
+
+	CommandEvent(Object command, DynamicJadeGateway gateway) {
+		super(-1, command);
+		this.gateway = gateway;
+	}
+
+	CompletableFuture<Object> getFuture() {
+		return future;
+	}
+
+	/**
+	 * Called by the <code>GatewayBehaviour</code> when it starts processing the
+	 * command
+	 */
+	synchronized void processingStarted() {
+		startTime = System.nanoTime();
+		started = true;
+		if (gateway != null) {
+			gateway.commandStarted(startTime - submissionTime);
+		}
+	}
+
+	@Override
+	public void notifyProcessed(Object result) {
+		release(result, null);
+	}
+
+	/**
+	 * Called when the gateway agent terminates before the command is released.
+	 * Threads blocked in <code>waitUntilProcessed()</code> are released as
+	 * usual, while the future completes exceptionally.
+	 */
+	void abort(Throwable cause) {
+		release(null, cause);
+	}
+
+	private void release(Object result, Throwable cause) {
+		boolean completed;
+		long processingTime;
+		synchronized (this) {
+			completed = !released;
+			released = true;
+			// -1 means the command was never picked up by the gateway agent
+			processingTime = started ? System.nanoTime() - startTime : -1;
+			super.notifyProcessed(result);
+		}
+		if (completed) {
+			if (gateway != null) {
+				gateway.commandCompleted(processingTime);
+			}
+			// Complete the future outside the lock (dependent actions run in this thread)
+			// and only once the gateway counters are up to date
+			if (cause != null) {
+				future.completeExceptionally(cause);
+			}
+			else {
+				future.complete(getSource());
+			}
+		}
+	}
+}
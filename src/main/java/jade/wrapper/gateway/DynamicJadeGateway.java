@@ -5,13 +5,19 @@ package jade.wrapper.gateway;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jade.core.AID;
 import jade.core.Agent;
 import jade.core.Profile;
 import jade.core.ProfileImpl;
 import jade.core.Runtime;
-import jade.util.Event;
+import jade.core.exception.ServiceNotActiveException;
+import jade.core.sam.AverageMeasureProvider;
+import jade.core.sam.AverageMeasureProviderImpl;
+import jade.core.sam.MeasureProvider;
+import jade.core.sam.SAMHelper;
 import jade.util.Logger;
 import jade.util.leap.Properties;
 import jade.wrapper.AgentController;
@@ -35,6 +41,18 @@ public class DynamicJadeGateway {
 	Object[] agentArguments;
 	
 	int gatewayAgentState = UNKNOWN;
+	// Number of gateway agents commands are dispatched to
+	int poolSize = 1;
+	// The gateway agents beyond the first one (myAgent) when poolSize > 1
+	AgentController[] poolAgents;
+	private final AtomicInteger nextAgent = new AtomicInteger();
+	
+	// Command statistics (times in ms)
+	private final AverageMeasureProviderImpl queueTime = new AverageMeasureProviderImpl();
+	private final AverageMeasureProviderImpl processingTime = new AverageMeasureProviderImpl();
+	private final AtomicInteger pendingCommands = new AtomicInteger();
+	// The container whose SAM service the command statistics are registered to
+	private ContainerController measuresContainer;
 	//#DOTNET_EXCLUDE_BEGIN
 	private final List<GatewayListener> listeners = new ArrayList<>();
 	private volatile GatewayListener[] listenersArray = new GatewayListener[0];
@@ -81,26 +99,92 @@ public class DynamicJadeGateway {
 	 * @see jade.wrapper.AgentController#putO2AObject(Object, boolean)
 	 **/
 	public final void execute(Object command, long timeout) throws StaleProxyException,ControllerException,InterruptedException {
-		Event e = null;
+		CommandEvent e = submit(null, command);
+		// wait until the answer is ready
+		e.waitUntilProcessed(timeout);
+	}
+	
+	/**
+	 * Execute a command without blocking the calling thread.
+	 * This method first check if the executor Agent is alive (if not it
+	 * creates container and agent), then it forwards the execution
+	 * request to the agent and returns immediately.
+	 * @param command the command to be executed
+	 * @return a future that completes with the command itself when it has been 
+	 * executed (i.e. the method <code>releaseCommand</code> is called by the executor 
+	 * agent), or exceptionally if the command could not be forwarded to the agent 
+	 * or the agent terminated before executing it. In case the command is a behaviour,
+	 * its results can be retrieved from the behaviour object when the future completes.
+	 * @see #executeAsync(Object, Object)
+	 **/
+	public final <T> CompletableFuture<T> executeAsync(T command) {
+		return executeAsync(null, command);
+	}
+	
+	/**
+	 * Execute a command without blocking the calling thread.
+	 * When the gateway is backed by a pool of agents (see <code>setPoolSize()</code>),
+	 * all commands submitted with equal keys are executed by the same agent
+	 * (and therefore in submission order). Commands submitted with a null key
+	 * are distributed among the agents in a round robin fashion.
+	 * @param key the key used to select the agent executing the command. It may be null.
+	 * @param command the command to be executed
+	 * @return a future that completes with the command itself when it has been executed
+	 * @see #executeAsync(Object)
+	 **/
+	@SuppressWarnings("unchecked")
+	public final <T> CompletableFuture<T> executeAsync(Object key, T command) {
+		try {
+			return (CompletableFuture<T>) submit(key, command).getFuture();
+		}
+		catch (ControllerException ce) {
+			return CompletableFuture.failedFuture(ce);
+		}
+	}
+	
+	private CommandEvent submit(Object key, Object command) throws StaleProxyException,ControllerException {
+		// incapsulate the command into an Event
+		CommandEvent e = new CommandEvent(command, this);
 		synchronized (this) {
 			checkJADE();
-			// incapsulate the command into an Event
-			e = new Event(-1, command);
+			if (myLogger.isLoggable(Logger.INFO)) {
+				myLogger.log(Logger.INFO, "Requesting execution of command " + command);
+			}
+			pendingCommands.incrementAndGet();
 			try {
-				if (myLogger.isLoggable(Logger.INFO)) {
-					myLogger.log(Logger.INFO, "Requesting execution of command " + command);
-				}
-				myAgent.putO2AObject(e, AgentController.ASYNC);
+				selectAgent(key).putO2AObject(e, AgentController.ASYNC);
 			} catch (StaleProxyException exc) {
 				exc.printStackTrace();
 				// in case an exception was thrown, restart JADE
 				// and then reexecute the command
-				restartJADE();
-				myAgent.putO2AObject(e, AgentController.ASYNC);
+				try {
+					restartJADE();
+					selectAgent(key).putO2AObject(e, AgentController.ASYNC);
+				}
+				catch (ControllerException ce) {
+					pendingCommands.decrementAndGet();
+					throw ce;
+				}
 			}
 		}
-		// wait until the answer is ready
-		e.waitUntilProcessed(timeout);
+		return e;
+	}
+	
+	private AgentController selectAgent(Object key) {
+		AgentController[] pa = poolAgents;
+		if (pa == null) {
+			return myAgent;
+		}
+		int index;
+		if (key != null) {
+			index = Math.floorMod(key.hashCode(), pa.length + 1);
+		}
+		else {
+			index = Math.floorMod(nextAgent.getAndIncrement(), pa.length + 1);
+		}
+		AgentController ac = index == 0 ? myAgent : pa[index - 1];
+		// A pool agent that just terminated is re-created at next checkJADE()
+		return ac != null ? ac : myAgent;
 	}
 	
 	/**
@@ -118,36 +202,85 @@ public class DynamicJadeGateway {
 			}
 		}
 		if (myAgent == null) {
-			try {
-				Agent a = (Agent) Class.forName(agentType).getDeclaredConstructor().newInstance();
-				if (a instanceof GatewayAgent agent) {
-					//#DOTNET_EXCLUDE_BEGIN
-					agent.setListener(new GatewayListenerImpl());
-					//#DOTNET_EXCLUDE_END
-					
-					// We are able to detect the GatewayAgent state only if the internal agent is a GatewayAgent instance
-					gatewayAgentState = NOT_ACTIVE;
-				}
-				a.setArguments(agentArguments);
-				if (agentName == null) {
-					agentName = "Control"+myContainer.getContainerName();
+			if (agentName == null) {
+				agentName = "Control"+myContainer.getContainerName();
+			}
+			myAgent = startGatewayAgent(agentName, new GatewayListenerImpl(), true);
+		}
+		if (poolSize > 1) {
+			if (poolAgents == null) {
+				poolAgents = new AgentController[poolSize - 1];
+			}
+			for (int i = 0; i < poolAgents.length; ++i) {
+				if (poolAgents[i] == null) {
+					poolAgents[i] = startGatewayAgent(agentName + "-" + (i + 1), new PoolAgentListener(poolAgents, i), false);
 				}
-				myAgent = myContainer.acceptNewAgent(agentName, a);
+			}
+		}
+	}
+	
+	// Only the state of the first gateway agent is monitored
+	private AgentController startGatewayAgent(String name, GatewayListener listener, boolean monitored) throws StaleProxyException,ControllerException {
+		try {
+			Agent a = (Agent) Class.forName(agentType).getDeclaredConstructor().newInstance();
+			if (a instanceof GatewayAgent agent) {
+				//#DOTNET_EXCLUDE_BEGIN
+				agent.setListener(listener);
+				//#DOTNET_EXCLUDE_END
 				
-				if (gatewayAgentState == NOT_ACTIVE) {
-					// Set the ACTIVE state synchronously so that when checkJADE() completes isGatewayActive() certainly returns true 
-					gatewayAgentState = ACTIVE;
+				// We are able to detect the GatewayAgent state only if the internal agent is a GatewayAgent instance
+				if (monitored) {
+					gatewayAgentState = NOT_ACTIVE;
 				}
-				myAgent.start();
 			}
-			catch (StaleProxyException spe) {
-				// Just let it through
-				throw spe;
+			a.setArguments(agentArguments);
+			AgentController ac = myContainer.acceptNewAgent(name, a);
+			if (monitored) {
+				registerMeasures(a);
 			}
-			catch (Exception e) {
-				throw new ControllerException("Error creating GatewayAgent [" + e + "]");
+			
+			if (monitored && gatewayAgentState == NOT_ACTIVE) {
+				// Set the ACTIVE state synchronously so that when checkJADE() completes isGatewayActive() certainly returns true 
+				gatewayAgentState = ACTIVE;
 			}
+			ac.start();
+			return ac;
+		}
+		catch (StaleProxyException spe) {
+			// Just let it through
+			throw spe;
+		}
+		catch (Exception e) {
+			throw new ControllerException("Error creating GatewayAgent [" + e + "]");
+		}
+	}
+	
+	/**
+	 * Register the command statistics to the SAM service (if active) of the
+	 * gateway container by means of the given (not yet started) agent.
+	 * This is done once per container as the first gateway agent may be re-created.
+	 */
+	private void registerMeasures(Agent a) {
+		//#DOTNET_EXCLUDE_BEGIN
+		if (measuresContainer == myContainer) {
+			return;
 		}
+		measuresContainer = myContainer;
+		try {
+			SAMHelper samHelper = (SAMHelper) a.getHelper(SAMHelper.SERVICE_NAME);
+			samHelper.addEntityMeasureProvider(agentName + "-Command-Queue-Avg-Time", queueTime);
+			samHelper.addEntityMeasureProvider(agentName + "-Command-Processing-Avg-Time", processingTime);
+			samHelper.addEntityMeasureProvider(agentName + "-Pending-Commands", new MeasureProvider() {
+				public Number getValue() {
+					return pendingCommands.get();
+				}
+			});
+		} catch (ServiceNotActiveException snae) {
+			// SAM Service not active
+		} catch (Exception e) {
+			myLogger.log(Logger.WARNING, "Error initializing SAM providers", e);
+		}
+		//#DOTNET_EXCLUDE_END
 	}
 	
 	/** Restart JADE.
@@ -187,6 +320,17 @@ public class DynamicJadeGateway {
 		}
 		
 		agentArguments = agentArgs;
+		
+		if (jadeProps != null) {
+			String poolSizeStr = jadeProps.getProperty(JadeGateway.POOL_SIZE);
+			if (poolSizeStr != null) {
+				try {
+					setPoolSize(Integer.parseInt(poolSizeStr.trim()));
+				} catch (NumberFormatException nfe) {
+					myLogger.log(Logger.WARNING, "Wrong " + JadeGateway.POOL_SIZE + " value " + poolSizeStr + ". Using a single gateway agent");
+				}
+			}
+		}
 	}
 	
 	/**
@@ -221,6 +365,7 @@ public class DynamicJadeGateway {
 			}
 		} catch (Exception e) {
 		}
+		killPoolAgents();
 		try { // try to kill, but neglect any exception thrown
 			if (myContainer != null) {
 				myContainer.kill();
@@ -231,6 +376,75 @@ public class DynamicJadeGateway {
 		myContainer = null;
 	}
 	
+	final void killPoolAgents() {
+		if (poolAgents != null) {
+			for (int i = 0; i < poolAgents.length; ++i) {
+				try { // try to kill, but neglect any exception thrown
+					if (poolAgents[i] != null) {
+						poolAgents[i].kill();
+					}
+				} catch (Exception e) {
+				}
+			}
+			poolAgents = null;
+		}
+	}
+	
+	/**
+	 * Set the number of gateway agents commands are dispatched to (default 1).
+	 * This can also be specified by means of the <code>JadeGateway.POOL_SIZE</code> 
+	 * property in the profile passed to the <code>init()</code> method and takes 
+	 * effect the next time gateway agents are created. 
+	 * Pools are not supported by the split-container gateway.
+	 * @see #executeAsync(Object, Object)
+	 */
+	public void setPoolSize(int poolSize) {
+		this.poolSize = Math.max(1, poolSize);
+	}
+	
+	public int getPoolSize() {
+		return poolSize;
+	}
+	
+	/**
+	 * @return The provider of the average time (ms) commands waited for a gateway agent 
+	 * to start processing them. If the SAM service is active in the gateway container 
+	 * this is registered as <code>&lt;agentName&gt;-Command-Queue-Avg-Time</code>.
+	 */
+	public AverageMeasureProvider getQueueTimeProvider() {
+		return queueTime;
+	}
+	
+	/**
+	 * @return The provider of the average time (ms) gateway agents took to process commands,
+	 * i.e. to call <code>releaseCommand()</code> after starting processing them. 
+	 * If the SAM service is active in the gateway container this is registered as 
+	 * <code>&lt;agentName&gt;-Command-Processing-Avg-Time</code>.
+	 */
+	public AverageMeasureProvider getProcessingTimeProvider() {
+		return processingTime;
+	}
+	
+	/**
+	 * @return The number of commands submitted and not yet executed. If the SAM service 
+	 * is active in the gateway container this is registered as 
+	 * <code>&lt;agentName&gt;-Pending-Commands</code>.
+	 */
+	public int getPendingCommandsCount() {
+		return pendingCommands.get();
+	}
+	
+	void commandStarted(long nanos) {
+		queueTime.addSample(nanos / 1000000.0);
+	}
+	
+	void commandCompleted(long nanos) {
+		pendingCommands.decrementAndGet();
+		if (nanos >= 0) {
+			processingTime.addSample(nanos / 1000000.0);
+		}
+	}
+	
 	/**
 	 * Return the state of JadeGateway
 	 * @return true if the container and the gateway agent are active, false otherwise
@@ -304,5 +518,26 @@ public class DynamicJadeGateway {
 			t.start();
 		}
 	} // END of inner class GatewayListenerImpl
+	
+	/**
+	 * Inner class PoolAgentListener.
+	 * Keeps track of the termination of the gateway agents beyond the first one
+	 */
+	class PoolAgentListener implements GatewayListener {
+		private final AgentController[] pool;
+		private final int index;
+		
+		PoolAgentListener(AgentController[] pool, int index) {
+			this.pool = pool;
+			this.index = index;
+		}
+		
+		public void handleGatewayConnected() {
+		}
+		
+		public void handleGatewayDisconnected() {
+			pool[index] = null;
+		}
+	} // END of inner class PoolAgentListener
 	//#DOTNET_EXCLUDE_END
 }
@@ -127,7 +127,15 @@ public class GatewayAgent extends Agent {
 		}
 	}
 
+	/*
+	 * Those classes that extends this takeDown method of the GatewayAgent MUST
+	 * call <code>super.takeDown()</code> otherwise commands not yet released are
+	 * never notified.
+	 */
 	protected void takeDown() {
+		if (myB != null) {
+			myB.abortPendingCommands();
+		}
 		if (listener != null) {
 			listener.handleGatewayDisconnected();
 		}
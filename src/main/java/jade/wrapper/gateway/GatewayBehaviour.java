@@ -9,6 +9,7 @@ import java.util.Iterator;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.util.Event;
 import jade.util.Logger;
+import jade.wrapper.ControllerException;
 
 /**
  * This is a cyclic behaviour that processes the commands received via
@@ -47,6 +48,9 @@ public abstract class GatewayBehaviour extends CyclicBehaviour {
 		}
 		// put the event into the command Queue
 		commandQueue.put(e.getSource(), e);
+		if (e instanceof CommandEvent ce) {
+			ce.processingStarted();
+		}
 		if (myLogger.isLoggable(Logger.INFO)) {
 			myLogger.log(Logger.INFO, myAgent.getLocalName() + " started execution of command " + e.getSource());
 		}
@@ -96,10 +100,35 @@ public abstract class GatewayBehaviour extends CyclicBehaviour {
 		if (myLogger.isLoggable(Logger.INFO)) {
 			myLogger.log(Logger.INFO, myAgent.getLocalName() + " terminated GatewayBehaviour");
 		}
+		abortPendingCommands();
+		return super.onEnd();
+	}
+
+	/**
+	 * Release all commands that are being processed or still queued: callers
+	 * would otherwise never be notified. This is called when this behaviour
+	 * terminates and when the agent terminates (in which case
+	 * <code>onEnd()</code> is not invoked).
+	 */
+	void abortPendingCommands() {
 		for (Iterator<Event> i = commandQueue.values().iterator();i.hasNext();) {
-			i.next().notifyProcessed(null);
+			abort(i.next());
+		}
+		commandQueue.clear();
+		Object o;
+		while ((o = myAgent.getO2AObject()) != null) {
+			if (o instanceof Event e) {
+				abort(e);
+			}
 		}
-		return super.onEnd();
 	}
 
+	private void abort(Event e) {
+		if (e instanceof CommandEvent ce) {
+			ce.abort(new ControllerException("Gateway agent " + myAgent.getLocalName() + " terminated"));
+		}
+		else {
+			e.notifyProcessed(null);
+		}
+	}
 }
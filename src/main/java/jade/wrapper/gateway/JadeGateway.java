@@ -3,6 +3,8 @@ package jade.wrapper.gateway;
 
 //#ANDROID_EXCLUDE_FILE
 
+import java.util.concurrent.CompletableFuture;
+
 import jade.util.leap.Properties;
 import jade.wrapper.ControllerException;
 import jade.wrapper.StaleProxyException;
@@ -46,6 +48,7 @@ import jade.wrapper.StaleProxyException;
 public final class JadeGateway {
 	
 	public static final String SPLIT_CONTAINER = "split-container";
+	public static final String POOL_SIZE = "gateway-pool-size";
 	
 	private static DynamicJadeGateway jadeGateway;
 	//#DOTNET_EXCLUDE_BEGIN
@@ -110,6 +113,26 @@ public final class JadeGateway {
 		getGateway().execute(command, timeout);
 	}
 	
+	/**
+	 * Execute a command without blocking the calling thread.
+	 * @return a future that completes with the command itself when it has been executed
+	 * @see DynamicJadeGateway#executeAsync(Object)
+	 **/
+	public static <T> CompletableFuture<T> executeAsync(T command) {
+		return getGateway().executeAsync(command);
+	}
+	
+	/**
+	 * Execute a command without blocking the calling thread. If the gateway is backed
+	 * by a pool of agents (see the <code>POOL_SIZE</code> property), commands with 
+	 * equal keys are executed by the same agent.
+	 * @return a future that completes with the command itself when it has been executed
+	 * @see DynamicJadeGateway#executeAsync(Object, Object)
+	 **/
+	public static <T> CompletableFuture<T> executeAsync(Object key, T command) {
+		return getGateway().executeAsync(key, command);
+	}
+	
 	/**
 	 * This method checks if both the container, and the agent, are up and running.
 	 * If not, then the method is responsible for renewing myContainer.
@@ -30,5 +30,6 @@ public class LocalJadeGateway extends DynamicJadeGateway {
 		} catch (Exception e) {
 		}
 		myAgent = null;
+		killPoolAgents();
 	}
 }
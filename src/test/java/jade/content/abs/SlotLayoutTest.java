@@ -0,0 +1,122 @@
+package jade.content.abs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import jade.content.onto.BasicOntology;
+import jade.content.onto.Ontology;
+import jade.content.schema.ConceptSchema;
+import jade.content.schema.PrimitiveSchema;
+
+public class SlotLayoutTest {
+
+	private static ConceptSchema createSchema() throws Exception {
+		Ontology onto = new Ontology("test", BasicOntology.getInstance());
+		ConceptSchema person = new ConceptSchema("person");
+		onto.add(person);
+		PrimitiveSchema string = (PrimitiveSchema) onto.getSchema(BasicOntology.STRING);
+		person.add("name", string);
+		person.add("age", (PrimitiveSchema) onto.getSchema(BasicOntology.INTEGER));
+		person.add("address", string);
+		return person;
+	}
+
+	@Test
+	public void testLayoutFollowsSchema() throws Exception {
+		ConceptSchema person = createSchema();
+		SlotLayout layout = person.getSlotLayout();
+		assertEquals(3, layout.size());
+		assertEquals(1, layout.indexOf("AGE"));
+		assertEquals(-1, layout.indexOf("surname"));
+		assertSame(layout, person.getSlotLayout());
+
+		ConceptSchema employee = new ConceptSchema("employee");
+		employee.addSuperSchema(person);
+		employee.add("company", (PrimitiveSchema) BasicOntology.getInstance().getSchema(BasicOntology.STRING));
+		assertEquals(3, employee.getSlotLayout().indexOf("company"));
+
+		// Slots added after the layout was built are taken into account
+		person.add("email", (PrimitiveSchema) BasicOntology.getInstance().getSchema(BasicOntology.STRING));
+		assertEquals(4, person.getSlotLayout().size());
+		assertEquals(3, employee.getSlotLayout().indexOf("email"));
+	}
+
+	@Test
+	public void testBehavesAsPlainDescriptor() throws Exception {
+		AbsConcept compiled = (AbsConcept) createSchema().newInstance();
+		AbsConcept plain = new AbsConcept("person");
+		for (AbsConcept c : new AbsConcept[] { compiled, plain }) {
+			c.set("address", "Via Roma");
+			c.set("Name", "John");
+			c.set("nickname", "Johnny");
+			c.set("age", 42);
+			c.set("NAME", "Jack");
+			c.set("hobby", "chess");
+			c.set("nickname", (AbsTerm) null);
+		}
+		assertEquals(Arrays.asList("address", "Name", "age", "hobby"), Arrays.asList(compiled.getNames()));
+		assertEquals(Arrays.asList(plain.getNames()), Arrays.asList(compiled.getNames()));
+		assertEquals(4, compiled.getCount());
+		assertEquals("Jack", compiled.getString("name"));
+		assertEquals("chess", compiled.getString("HOBBY"));
+		assertNull(compiled.getAbsObject("nickname"));
+		assertEquals(plain, compiled);
+		assertEquals(plain.hashCode(), compiled.hashCode());
+
+		compiled.set("age", (AbsTerm) null);
+		assertEquals(Arrays.asList("address", "Name", "hobby"), Arrays.asList(compiled.getNames()));
+		assertTrue(compiled.isGrounded());
+	}
+
+	@Test
+	public void testPredicateOrderedAccess() {
+		AbsPredicate p = new AbsPredicate("p", new SlotLayout(new String[] { "b", "a" }));
+		p.set("a", "first");
+		p.set("x", "second");
+		p.set("b", "third");
+		assertEquals(AbsPrimitive.wrap("first"), p.getAbsObject(0));
+		assertEquals(AbsPrimitive.wrap("second"), p.getAbsObject(1));
+		assertEquals(AbsPrimitive.wrap("third"), p.getAbsObject(2));
+		assertEquals(3, p.getValues().length);
+	}
+
+	@Test
+	public void testSerializedFormUnchanged() throws Exception {
+		// The serialized fields are the ones of descriptors backed by a map
+		ObjectStreamClass osc = ObjectStreamClass.lookup(AbsObjectImpl.class);
+		assertEquals(-5723008914669583458L, osc.getSerialVersionUID());
+		assertTrue(osc.getField("elements") != null && osc.getField("orderedKeys") != null);
+		assertTrue(osc.getField("typeName") != null && osc.getField("changed") != null && osc.getField("hashCode") != null);
+		assertEquals(5, osc.getFields().length);
+
+		AbsConcept c = (AbsConcept) createSchema().newInstance();
+		c.set("address", "Via Roma");
+		c.set("hobby", "chess");
+		c.set("Name", "John");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(c);
+		}
+		AbsConcept copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (AbsConcept) in.readObject();
+		}
+		assertEquals(Arrays.asList("address", "hobby", "Name"), Arrays.asList(copy.getNames()));
+		assertEquals("John", copy.getString("NAME"));
+		assertEquals(c, copy);
+		assertEquals(c.hashCode(), copy.hashCode());
+		copy.set("age", 42);
+		assertEquals(4, copy.getCount());
+	}
+}
@@ -0,0 +1,302 @@
+package jade.content.lang.leap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.content.Concept;
+import jade.content.ContentManager;
+import jade.content.Predicate;
+import jade.content.onto.BeanOntology;
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+
+public class LEAPBeanCodecTest {
+	private static final String ONTOLOGY = "Bean-fast-path";
+
+	public enum Color {
+		RED, GREEN
+	}
+
+	public static class Named implements Concept {
+		private String name;
+		private Date created;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Date getCreated() {
+			return created;
+		}
+
+		public void setCreated(Date created) {
+			this.created = created;
+		}
+	}
+
+	public static class Supplier extends Named {
+		private Color color;
+
+		public Color getColor() {
+			return color;
+		}
+
+		public void setColor(Color color) {
+			this.color = color;
+		}
+	}
+
+	public static class Product extends Named {
+		private int quantity;
+		private long code;
+		private double price;
+		private Boolean discounted;
+		private byte[] data;
+		private Supplier mainSupplier;
+		private List<Supplier> suppliers;
+		private Set<String> labels;
+		private List<String> notes;
+		private int[] sizes;
+		private Object extra;
+
+		public int getQuantity() {
+			return quantity;
+		}
+
+		public void setQuantity(int quantity) {
+			this.quantity = quantity;
+		}
+
+		public long getCode() {
+			return code;
+		}
+
+		public void setCode(long code) {
+			this.code = code;
+		}
+
+		public double getPrice() {
+			return price;
+		}
+
+		public void setPrice(double price) {
+			this.price = price;
+		}
+
+		public Boolean getDiscounted() {
+			return discounted;
+		}
+
+		public void setDiscounted(Boolean discounted) {
+			this.discounted = discounted;
+		}
+
+		public byte[] getData() {
+			return data;
+		}
+
+		public void setData(byte[] data) {
+			this.data = data;
+		}
+
+		public Supplier getMainSupplier() {
+			return mainSupplier;
+		}
+
+		public void setMainSupplier(Supplier mainSupplier) {
+			this.mainSupplier = mainSupplier;
+		}
+
+		public List<Supplier> getSuppliers() {
+			return suppliers;
+		}
+
+		public void setSuppliers(List<Supplier> suppliers) {
+			this.suppliers = suppliers;
+		}
+
+		public Set<String> getLabels() {
+			return labels;
+		}
+
+		public void setLabels(Set<String> labels) {
+			this.labels = labels;
+		}
+
+		public List<String> getNotes() {
+			return notes;
+		}
+
+		public void setNotes(List<String> notes) {
+			this.notes = notes;
+		}
+
+		public int[] getSizes() {
+			return sizes;
+		}
+
+		public void setSizes(int[] sizes) {
+			this.sizes = sizes;
+		}
+
+		public Object getExtra() {
+			return extra;
+		}
+
+		public void setExtra(Object extra) {
+			this.extra = extra;
+		}
+	}
+
+	public static class Offered implements Predicate {
+		private Product product;
+		private String seller;
+
+		public Product getProduct() {
+			return product;
+		}
+
+		public void setProduct(Product product) {
+			this.product = product;
+		}
+
+		public String getSeller() {
+			return seller;
+		}
+
+		public void setSeller(String seller) {
+			this.seller = seller;
+		}
+	}
+
+	private BeanOntology onto;
+	private LEAPCodec codec;
+	private ContentManager regular;
+	private ContentManager fast;
+
+	@Before
+	public void setUp() throws Exception {
+		onto = new BeanOntology(ONTOLOGY);
+		onto.add(Color.class);
+		onto.add(Named.class);
+		onto.add(Supplier.class);
+		onto.add(Product.class);
+		onto.add(Offered.class);
+		codec = new LEAPCodec();
+		regular = new ContentManager();
+		fast = new ContentManager();
+		for (ContentManager cm : new ContentManager[] { regular, fast }) {
+			cm.registerLanguage(codec);
+			cm.registerOntology(onto);
+		}
+		fast.setValidationMode(false);
+	}
+
+	private static Supplier supplier(String name, Color color) {
+		Supplier s = new Supplier();
+		s.setName(name);
+		s.setColor(color);
+		s.setCreated(new Date(1000000L));
+		return s;
+	}
+
+	private static Offered createOffer() {
+		Product p = new Product();
+		p.setName("widget");
+		p.setCreated(new Date(123456789L));
+		p.setQuantity(7);
+		p.setCode(-42L);
+		p.setPrice(9.5);
+		p.setDiscounted(Boolean.TRUE);
+		p.setData(new byte[] { 1, 2, 3 });
+		p.setMainSupplier(supplier("acme", Color.RED));
+		p.setSuppliers(new ArrayList<>(Arrays.asList(supplier("acme", Color.RED), supplier("widget", Color.GREEN))));
+		p.setLabels(new HashSet<>(Arrays.asList("widget", "blue")));
+		p.setNotes(new ArrayList<>());
+		p.setSizes(new int[] { 3, 5 });
+		Offered o = new Offered();
+		o.setProduct(p);
+		o.setSeller("acme");
+		return o;
+	}
+
+	private byte[] fill(ContentManager cm, Predicate content) throws Exception {
+		ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+		msg.setLanguage(LEAPCodec.NAME);
+		msg.setOntology(ONTOLOGY);
+		cm.fillContent(msg, content);
+		return msg.getByteSequenceContent();
+	}
+
+	@Test
+	public void testSameBytesAsRegularPath() throws Exception {
+		Offered offer = createOffer();
+		assertNotNull(codec.encodeBean(onto, offer));
+		byte[] expected = fill(regular, offer);
+		assertTrue(Arrays.equals(expected, fill(fast, offer)));
+		assertTrue(Arrays.equals(expected, codec.encodeBean(onto, offer)));
+	}
+
+	@Test
+	public void testDecode() throws Exception {
+		byte[] bytes = fill(regular, createOffer());
+		Offered copy = (Offered) codec.decodeBean(onto, bytes);
+		assertNotNull(copy);
+		Product p = copy.getProduct();
+		assertEquals("widget", p.getName());
+		assertEquals(123456789L, p.getCreated().getTime());
+		assertEquals(7, p.getQuantity());
+		assertEquals(-42L, p.getCode());
+		assertEquals(Boolean.TRUE, p.getDiscounted());
+		assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, p.getData()));
+		assertEquals(Color.RED, p.getMainSupplier().getColor());
+		assertEquals(2, p.getSuppliers().size());
+		assertEquals(Color.GREEN, p.getSuppliers().get(1).getColor());
+		assertEquals(new HashSet<>(Arrays.asList("widget", "blue")), p.getLabels());
+		assertNull(p.getNotes());
+		assertTrue(Arrays.equals(new int[] { 3, 5 }, p.getSizes()));
+
+		// The decoded bean is encoded back to the very same bytes
+		assertTrue(Arrays.equals(bytes, fill(regular, copy)));
+
+		ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+		msg.setLanguage(LEAPCodec.NAME);
+		msg.setOntology(ONTOLOGY);
+		msg.setByteSequenceContent(bytes);
+		assertTrue(Arrays.equals(bytes, fill(regular, (Offered) fast.extractContent(msg))));
+	}
+
+	@Test
+	public void testFallback() throws Exception {
+		Offered offer = createOffer();
+		// AIDs are not beans of the ontology: the regular path is used
+		offer.getProduct().setExtra(new AID("seller", AID.ISGUID));
+		assertNull(codec.encodeBean(onto, offer));
+		byte[] bytes = fill(fast, offer);
+		assertTrue(Arrays.equals(fill(regular, offer), bytes));
+		assertNull(codec.decodeBean(onto, bytes));
+
+		ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+		msg.setLanguage(LEAPCodec.NAME);
+		msg.setOntology(ONTOLOGY);
+		msg.setByteSequenceContent(bytes);
+		Offered copy = (Offered) fast.extractContent(msg);
+		assertEquals(new AID("seller", AID.ISGUID), copy.getProduct().getExtra());
+	}
+}
@@ -0,0 +1,97 @@
+package jade.content.lang.leap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import jade.content.abs.AbsAggregate;
+import jade.content.abs.AbsContentElement;
+import jade.content.abs.AbsPredicate;
+import jade.content.abs.AbsPrimitive;
+import jade.content.lang.Codec.CodecException;
+import jade.content.onto.BasicOntology;
+import jade.content.onto.Ontology;
+import jade.content.lang.sl.SL0Vocabulary;
+
+public class LEAPCodecTest {
+
+	private static AbsContentElement createContent(int n) {
+		AbsPredicate p = new AbsPredicate(SL0Vocabulary.EQUALS);
+		p.set(SL0Vocabulary.EQUALS_LEFT, AbsPrimitive.wrap("left-" + n));
+		AbsAggregate agg = new AbsAggregate(BasicOntology.SEQUENCE);
+		for (int i = 0; i < 20; i++) {
+			// Repeated strings are encoded as references
+			agg.add(AbsPrimitive.wrap("value-" + (i % 4)));
+			agg.add(AbsPrimitive.wrap(i * n));
+		}
+		p.set(SL0Vocabulary.EQUALS_RIGHT, agg);
+		return p;
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		LEAPCodec codec = new LEAPCodec();
+		Ontology onto = BasicOntology.getInstance();
+		AbsContentElement content = createContent(3);
+		byte[] bb = codec.encode(content);
+		AbsContentElement decoded = codec.decode(onto, bb);
+		assertEquals(content.toString(), decoded.toString());
+		assertTrue(Arrays.equals(bb, codec.encode(decoded)));
+	}
+
+	@Test
+	public void testEncodeIntoBuffer() throws Exception {
+		LEAPCodec codec = new LEAPCodec();
+		AbsContentElement content = createContent(5);
+		byte[] expected = codec.encode(content);
+		byte[] buffer = new byte[expected.length + 10];
+		int size = codec.encode(content, buffer, 10);
+		assertEquals(expected.length, size);
+		byte[] actual = new byte[size];
+		System.arraycopy(buffer, 10, actual, 0, size);
+		assertTrue(Arrays.equals(expected, actual));
+
+		try {
+			codec.encode(content, new byte[expected.length - 1], 0);
+			assertTrue("Buffer too small not detected", false);
+		} catch (CodecException ce) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testConcurrentUsage() throws Exception {
+		final LEAPCodec codec = new LEAPCodec();
+		final Ontology onto = BasicOntology.getInstance();
+		final List<Throwable> errors = new ArrayList<>();
+		Thread[] tt = new Thread[8];
+		for (int i = 0; i < tt.length; i++) {
+			final int n = i;
+			tt[i] = new Thread(() -> {
+				try {
+					AbsContentElement content = createContent(n);
+					byte[] expected = new LEAPCodec().encode(content);
+					for (int j = 0; j < 500; j++) {
+						byte[] bb = codec.encode(content);
+						assertTrue(Arrays.equals(expected, bb));
+						assertEquals(content.toString(), codec.decode(onto, bb).toString());
+					}
+				} catch (Throwable t) {
+					synchronized (errors) {
+						errors.add(t);
+					}
+				}
+			});
+			tt[i].start();
+		}
+		for (Thread t : tt) {
+			t.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+	}
+}
@@ -0,0 +1,141 @@
+package jade.content.lang.sl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import jade.content.abs.AbsAggregate;
+import jade.content.abs.AbsConcept;
+import jade.content.abs.AbsContentElement;
+import jade.content.abs.AbsPredicate;
+import jade.content.abs.AbsPrimitive;
+import jade.content.abs.AbsTerm;
+import jade.content.lang.Codec.CodecException;
+import jade.content.onto.BasicOntology;
+
+public class SLCodecTest {
+	// Backslashes are left out as SimpleSLTokenizer.quoteString() does not escape them
+	// and question marks as strings starting with "??" are encoded as meta symbols
+	private static final String CHARS = "abcXYZ019 -_!:()\"'#.\t";
+
+	private static String randomString(Random r) {
+		StringBuilder sb = new StringBuilder();
+		int len = 1 + r.nextInt(8);
+		for (int i = 0; i < len; i++) {
+			sb.append(CHARS.charAt(r.nextInt(CHARS.length())));
+		}
+		return sb.toString();
+	}
+
+	private static AbsTerm randomTerm(Random r, int depth) {
+		switch (depth > 2 ? r.nextInt(3) : r.nextInt(5)) {
+		case 0:
+			return AbsPrimitive.wrap(randomString(r));
+		case 1:
+			return AbsPrimitive.wrap((long) r.nextInt());
+		case 2:
+			return AbsPrimitive.wrap(r.nextBoolean());
+		case 3:
+			AbsAggregate agg = new AbsAggregate(BasicOntology.SEQUENCE);
+			for (int i = r.nextInt(4); i > 0; i--) {
+				agg.add(randomTerm(r, depth + 1));
+			}
+			return agg;
+		default:
+			AbsConcept c = new AbsConcept("c" + r.nextInt(5));
+			for (int i = r.nextInt(4); i > 0; i--) {
+				c.set("s" + i, randomTerm(r, depth + 1));
+			}
+			return c;
+		}
+	}
+
+	private static AbsContentElement randomContent(Random r) {
+		// Without an ontology the slots of a predicate are decoded as unnamed ones
+		AbsPredicate p = new AbsPredicate("p" + r.nextInt(5));
+		for (int i = 0, n = 1 + r.nextInt(4); i < n; i++) {
+			p.set(SLCodec.UNNAMEDPREFIX + i, randomTerm(r, 0));
+		}
+		return p;
+	}
+
+	@Test
+	public void testRandomRoundTrip() throws Exception {
+		SLCodec codec = new SLCodec();
+		Random r = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			AbsContentElement content = randomContent(r);
+			String encoded = codec.encode(content);
+			// A fresh codec has no pooled parser: the content is decoded by a brand new one
+			AbsContentElement decoded = new SLCodec().decode(encoded);
+			assertEquals(encoded, content, decoded);
+			// The pooled parsers of the shared codec produce the same result
+			assertEquals(encoded, decoded, codec.decode(encoded));
+			assertEquals(encoded, codec.encode(decoded));
+		}
+	}
+
+	@Test
+	public void testConcurrentUseMatchesSequential() throws Exception {
+		final SLCodec shared = new SLCodec();
+		Random r = new Random(7);
+		final List<AbsContentElement> contents = new ArrayList<>();
+		final List<String> expected = new ArrayList<>();
+		SLCodec reference = new SLCodec();
+		for (int i = 0; i < 200; i++) {
+			AbsContentElement content = randomContent(r);
+			contents.add(content);
+			expected.add(reference.encode(content));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				final int offset = t;
+				results.add(executor.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						int checked = 0;
+						for (int k = 0; k < 10; k++) {
+							for (int i = 0; i < contents.size(); i++) {
+								int j = (i + offset * 25) % contents.size();
+								String encoded = shared.encode(contents.get(j));
+								assertEquals(expected.get(j), encoded);
+								assertEquals(contents.get(j), shared.decode(encoded));
+								checked++;
+							}
+						}
+						return checked;
+					}
+				}));
+			}
+			for (Future<Integer> f : results) {
+				assertEquals(2000, f.get().intValue());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testParserReusableAfterError() throws Exception {
+		SLCodec codec = new SLCodec();
+		try {
+			codec.decode("((p :s1 \"unterminated)");
+			fail("Unterminated string decoded without errors");
+		} catch (CodecException ce) {
+			// Expected
+		}
+		String content = "((p (c :s1 \"a b\" :s2 (sequence 1 2))))";
+		assertEquals(new SLCodec().decode(content), codec.decode(content));
+	}
+}
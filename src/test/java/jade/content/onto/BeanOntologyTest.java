@@ -0,0 +1,79 @@
+package jade.content.onto;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import jade.content.Concept;
+import jade.content.abs.AbsConcept;
+import jade.content.abs.AbsObject;
+
+public class BeanOntologyTest {
+
+	public static class Item implements Concept {
+		private String name;
+		private int quantity;
+		private boolean available;
+		private List<String> tags;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+
+		public void setQuantity(int quantity) {
+			this.quantity = quantity;
+		}
+
+		public boolean isAvailable() {
+			return available;
+		}
+
+		public void setAvailable(boolean available) {
+			this.available = available;
+		}
+
+		public List<String> getTags() {
+			return tags;
+		}
+
+		public void setTags(List<String> tags) {
+			this.tags = tags;
+		}
+	}
+
+	@Test
+	public void testFromAndToObject() throws Exception {
+		BeanOntology onto = new BeanOntology("Test-ontology");
+		onto.add(Item.class);
+
+		Item item = new Item();
+		item.setName("book");
+		item.setQuantity(3);
+		item.setAvailable(true);
+		List<String> tags = new ArrayList<>();
+		tags.add("paper");
+		tags.add("used");
+		item.setTags(tags);
+
+		AbsObject abs = onto.fromObject(item);
+		assertEquals("book", ((AbsConcept) abs).getString("name"));
+		assertEquals(3, ((AbsConcept) abs).getInteger("quantity"));
+
+		Item copy = (Item) onto.toObject(abs);
+		assertEquals(item.getName(), copy.getName());
+		assertEquals(item.getQuantity(), copy.getQuantity());
+		assertEquals(item.isAvailable(), copy.isAvailable());
+		assertEquals(item.getTags(), copy.getTags());
+	}
+}
@@ -0,0 +1,156 @@
+package jade.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+
+public class AgentPoolTest {
+	private static final int POOL_SIZE = 2;
+
+	private AgentPool pool;
+	private final List<Agent> agents = new ArrayList<>();
+
+	@Before
+	public void createPool() {
+		pool = new AgentPool("Test-pool", POOL_SIZE, POOL_SIZE, 4, Thread.NORM_PRIORITY);
+	}
+
+	@After
+	public void shutdownPool() {
+		for (Agent a : agents) {
+			a.doDelete();
+			a.join();
+		}
+		pool.shutdown();
+	}
+
+	@Test
+	public void testParkAndUnparkOnMessage() throws Exception {
+		Receiver r = start(new Receiver(), "receiver");
+		assertTrue(r.started.await(5, TimeUnit.SECONDS));
+		awaitParked(r);
+
+		for (int i = 0; i < 3; ++i) {
+			r.postMessage(createMessage("m" + i));
+			assertEquals("m" + i, r.received.poll(5, TimeUnit.SECONDS));
+			// Once the message is served the agent gives its worker back
+			awaitParked(r);
+		}
+		assertTrue(r.isAlive());
+	}
+
+	@Test
+	public void testFairnessWithMoreAgentsThanWorkers() throws Exception {
+		int n = 4 * POOL_SIZE;
+		List<Spinner> spinners = new ArrayList<>();
+		for (int i = 0; i < n; ++i) {
+			spinners.add(start(new Spinner(), "spinner" + i));
+		}
+		// Agents never block: they can all progress only if they yield their worker
+		long deadline = System.currentTimeMillis() + 10000;
+		for (Spinner s : spinners) {
+			while (s.cnt.get() < 1000 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertTrue(s.getLocalName() + " starved: " + s.cnt.get(), s.cnt.get() >= 1000);
+		}
+		assertTrue(pool.getPoolSize() <= POOL_SIZE);
+	}
+
+	@Test
+	public void testTerminationWhileParked() throws Exception {
+		Receiver r = start(new Receiver(), "receiver");
+		assertTrue(r.started.await(5, TimeUnit.SECONDS));
+		awaitParked(r);
+
+		r.doDelete();
+		assertTrue(r.join());
+		assertFalse(r.isAlive());
+		assertTrue(r.takenDown.await(5, TimeUnit.SECONDS));
+		assertNull(r.getThread());
+		// A message arriving later does not resurrect the agent
+		r.postMessage(createMessage("late"));
+		assertNull(r.received.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	private <T extends Agent> T start(T a, String name) {
+		a.powerUp(new AID(name + "@Test-platform", AID.ISGUID), pool);
+		agents.add(a);
+		return a;
+	}
+
+	private static void awaitParked(Agent a) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while ((a.getState() != Agent.AP_IDLE || a.getThread() != null) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(Agent.AP_IDLE, a.getState());
+		assertNull("Parked agent holding a worker", a.getThread());
+	}
+
+	private static ACLMessage createMessage(String content) {
+		ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+		msg.setContent(content);
+		return msg;
+	}
+
+	private static class Receiver extends Agent {
+		private static final long serialVersionUID = 1L;
+
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch takenDown = new CountDownLatch(1);
+		private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+		protected void setup() {
+			addBehaviour(new CyclicBehaviour(this) {
+				private static final long serialVersionUID = 1L;
+
+				public void action() {
+					started.countDown();
+					ACLMessage msg = myAgent.receive();
+					if (msg != null) {
+						received.add(msg.getContent());
+					} else {
+						block();
+					}
+				}
+			});
+		}
+
+		protected void takeDown() {
+			takenDown.countDown();
+		}
+	}
+
+	private static class Spinner extends Agent {
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicLong cnt = new AtomicLong();
+
+		protected void setup() {
+			addBehaviour(new CyclicBehaviour(this) {
+				private static final long serialVersionUID = 1L;
+
+				public void action() {
+					cnt.incrementAndGet();
+				}
+			});
+		}
+	}
+}
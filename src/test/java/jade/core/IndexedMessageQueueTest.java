@@ -0,0 +1,94 @@
+package jade.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+public class IndexedMessageQueueTest {
+	private static final int[] PERFORMATIVES = new int[]{ACLMessage.INFORM, ACLMessage.REQUEST, ACLMessage.AGREE};
+
+	private MessageQueue indexed;
+	private MessageQueue plain;
+
+	@Before
+	public void createTestData() {
+		indexed = new IndexedMessageQueue();
+		plain = new InternalMessageQueue();
+		for (int i = 0; i < 300; i++) {
+			ACLMessage msg = new ACLMessage(PERFORMATIVES[i % PERFORMATIVES.length]);
+			msg.setConversationId("Conv-" + (i % 7));
+			if (i % 2 == 0) {
+				msg.setInReplyTo("R" + (i % 5));
+			}
+			msg.setContent(String.valueOf(i));
+			indexed.addLast(msg);
+			plain.addLast(msg);
+		}
+	}
+
+	private void assertSameResult(MessageTemplate template) {
+		ACLMessage expected;
+		do {
+			expected = plain.receive(template);
+			assertSame(expected, indexed.receive(template));
+		} while (expected != null);
+		assertEquals(plain.size(), indexed.size());
+	}
+
+	@Test
+	public void testReceive() {
+		// Conversation-id and in-reply-to are matched ignoring case
+		assertSameResult(MessageTemplate.MatchConversationId("conv-3"));
+		assertSameResult(MessageTemplate.and(MessageTemplate.MatchInReplyTo("r1"),
+				MessageTemplate.MatchPerformative(ACLMessage.REQUEST)));
+		assertSameResult(MessageTemplate.and(MessageTemplate.MatchConversationId("Conv-1"),
+				MessageTemplate.and(MessageTemplate.MatchInReplyTo("R2"), MessageTemplate.MatchPerformative(ACLMessage.AGREE))));
+		assertSameResult(MessageTemplate.or(MessageTemplate.MatchConversationId("Conv-2"),
+				MessageTemplate.MatchPerformative(ACLMessage.INFORM)));
+		assertSameResult(MessageTemplate.not(MessageTemplate.MatchPerformative(ACLMessage.AGREE)));
+		assertNull(indexed.receive(MessageTemplate.MatchConversationId("unknown")));
+		assertSameResult(null);
+		assertTrue(indexed.isEmpty());
+	}
+
+	@Test
+	public void testReceiveMany() {
+		MessageTemplate template = MessageTemplate.MatchPerformative(ACLMessage.INFORM);
+		List<ACLMessage> expected = plain.receive(template, 10);
+		assertEquals(expected, indexed.receive(template, 10));
+		expected = plain.receive(template, 1000);
+		assertEquals(expected, indexed.receive(template, 1000));
+		assertNull(indexed.receive(template, 1000));
+	}
+
+	@Test
+	public void testOrderAndMaxSize() {
+		ACLMessage msg = new ACLMessage(ACLMessage.CFP);
+		msg.setConversationId("Conv-0");
+		indexed.addFirst(msg);
+		assertSame(msg, indexed.receive(MessageTemplate.MatchConversationId("Conv-0")));
+
+		MessageQueue q = new IndexedMessageQueue(3, null);
+		for (int i = 0; i < 5; i++) {
+			ACLMessage m = new ACLMessage(ACLMessage.INFORM);
+			m.setContent(String.valueOf(i));
+			q.addLast(m);
+		}
+		List<ACLMessage> l = new ArrayList<>();
+		q.copyTo(l);
+		assertEquals(3, l.size());
+		// The eldest messages were discarded
+		assertEquals("2", l.get(0).getContent());
+		assertEquals("4", l.get(2).getContent());
+	}
+}
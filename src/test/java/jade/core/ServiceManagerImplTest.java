@@ -0,0 +1,90 @@
+package jade.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.exception.ServiceException;
+import jade.core.messaging.TopicManagementService;
+import jade.wrapper.AgentContainer;
+
+public class ServiceManagerImplTest {
+	private static final String[] CONTAINERS = new String[] { "Main-Container", "P1", "P2" };
+
+	// The service instance booted in each container
+	private static final Map<String, BaseService> services = new ConcurrentHashMap<>();
+
+	private final List<AgentContainer> containers = new ArrayList<>();
+
+	@Before
+	public void startPlatform() throws Exception {
+		services.clear();
+		int port;
+		try (ServerSocket ss = new ServerSocket(0)) {
+			port = ss.getLocalPort();
+		}
+		Runtime.instance().setCloseVM(false);
+		containers.add(Runtime.instance().createMainContainer(createProfile(true, port, CONTAINERS[0])));
+		for (int i = 1; i < CONTAINERS.length; ++i) {
+			containers.add(Runtime.instance().createAgentContainer(createProfile(false, port, CONTAINERS[i])));
+		}
+	}
+
+	@After
+	public void stopPlatform() throws Exception {
+		// Peripheral containers first
+		for (int i = containers.size() - 1; i >= 0; --i) {
+			try {
+				containers.get(i).kill();
+			} catch (Exception e) {
+				// Already dead
+			}
+		}
+	}
+
+	@Test
+	public void testFindAllSlices() throws Exception {
+		Set<String> expected = new HashSet<>(Arrays.asList(CONTAINERS));
+		assertEquals(expected, services.keySet());
+		// Both the Main (local Platform Manager) and peripheral containers (remote one) see all slices
+		for (Map.Entry<String, BaseService> e : services.entrySet()) {
+			List<Service.Slice> slices = e.getValue().getAllSlices();
+			Set<String> nodes = new HashSet<>();
+			for (Service.Slice s : slices) {
+				nodes.add(s.getNode().getName());
+			}
+			assertEquals(e.getKey(), expected, nodes);
+		}
+	}
+
+	private static Profile createProfile(boolean isMain, int port, String name) {
+		Profile p = new ProfileImpl(isMain);
+		p.setParameter(Profile.MAIN_HOST, "localhost");
+		p.setParameter(Profile.MAIN_PORT, String.valueOf(port));
+		p.setParameter(Profile.NO_MTP, "true");
+		p.setParameter(Profile.SERVICES, RecordingService.class.getName());
+		p.setParameter(Profile.CONTAINER_NAME, name);
+		return p;
+	}
+
+	/**
+	 * A service that keeps track of the container it was booted in.
+	 */
+	public static class RecordingService extends TopicManagementService {
+		public void boot(Profile p) throws ServiceException {
+			super.boot(p);
+			services.put(p.getParameter(Profile.CONTAINER_NAME, null), this);
+		}
+	}
+}
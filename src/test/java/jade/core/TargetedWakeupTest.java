@@ -0,0 +1,146 @@
+package jade.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.behaviours.Behaviour;
+import jade.core.behaviours.ParallelBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+public class TargetedWakeupTest {
+	private static final MessageTemplate INFORM = MessageTemplate.MatchPerformative(ACLMessage.INFORM);
+	private static final MessageTemplate REQUEST = MessageTemplate.MatchPerformative(ACLMessage.REQUEST);
+
+	private Agent agent;
+
+	@Before
+	public void createAgent() {
+		agent = new Agent();
+		agent.setTargetedWakeup(true);
+	}
+
+	@Test
+	public void restartsOnlyMatchingBehaviours() {
+		Behaviour informWaiter = addIdle();
+		Behaviour requestWaiter = addIdle();
+		Behaviour undeclared = addIdle();
+		informWaiter.block(INFORM);
+		requestWaiter.block(REQUEST);
+		undeclared.block();
+
+		agent.postMessage(new ACLMessage(ACLMessage.REQUEST));
+
+		assertFalse(informWaiter.isRunnable());
+		assertTrue(requestWaiter.isRunnable());
+		assertTrue(undeclared.isRunnable());
+
+		// Once restarted the declared template is forgotten
+		requestWaiter.block();
+		agent.postMessage(new ACLMessage(ACLMessage.AGREE));
+		assertFalse(informWaiter.isRunnable());
+		assertTrue(requestWaiter.isRunnable());
+	}
+
+	@Test
+	public void restartsAllWhenDisabled() {
+		agent.setTargetedWakeup(false);
+		Behaviour informWaiter = addIdle();
+		informWaiter.block(INFORM);
+
+		agent.postMessage(new ACLMessage(ACLMessage.REQUEST));
+
+		assertTrue(informWaiter.isRunnable());
+	}
+
+	@Test
+	public void restartsCompositeWhenAChildMatches() {
+		ParallelBehaviour pb = new ParallelBehaviour(ParallelBehaviour.WHEN_ALL);
+		Behaviour informWaiter = new IdleBehaviour();
+		Behaviour agreeWaiter = new IdleBehaviour();
+		pb.addSubBehaviour(informWaiter);
+		pb.addSubBehaviour(agreeWaiter);
+		agent.addBehaviour(pb);
+		informWaiter.block(INFORM);
+		agreeWaiter.block(MessageTemplate.MatchPerformative(ACLMessage.AGREE));
+		assertFalse(pb.isRunnable());
+
+		agent.postMessage(new ACLMessage(ACLMessage.REQUEST));
+		assertFalse(pb.isRunnable());
+
+		agent.postMessage(new ACLMessage(ACLMessage.INFORM));
+		assertTrue(pb.isRunnable());
+		assertTrue(informWaiter.isRunnable());
+		// Only the matching child is restarted
+		assertFalse(agreeWaiter.isRunnable());
+	}
+
+	@Test
+	public void doesNotLoseMessagesArrivedBeforeBlocking() throws Exception {
+		final CountDownLatch received = new CountDownLatch(1);
+		ParallelBehaviour pb = new ParallelBehaviour(ParallelBehaviour.WHEN_ALL);
+		pb.addSubBehaviour(new Behaviour() {
+			private static final long serialVersionUID = 1L;
+			private boolean posted = false;
+
+			public void action() {
+				ACLMessage msg = myAgent.receive(INFORM);
+				if (msg != null) {
+					received.countDown();
+				} else {
+					if (!posted) {
+						// The message arrives after the failed receive() but before block():
+						// the restart of this (still runnable) child must not get lost
+						posted = true;
+						myAgent.postMessage(new ACLMessage(ACLMessage.INFORM));
+					}
+					block(INFORM);
+				}
+			}
+
+			public boolean done() {
+				return received.getCount() == 0;
+			}
+		});
+		// Keep the parallel alive once the message is received
+		pb.addSubBehaviour(new IdleBehaviour() {
+			private static final long serialVersionUID = 1L;
+
+			public void action() {
+				block();
+			}
+		});
+		agent.addBehaviour(pb);
+
+		agent.powerUp(new AID("race@Test-platform", AID.ISGUID), new Thread(agent));
+		try {
+			assertTrue("Message not received", received.await(5, TimeUnit.SECONDS));
+		} finally {
+			agent.doDelete();
+			agent.join();
+		}
+	}
+
+	private Behaviour addIdle() {
+		Behaviour b = new IdleBehaviour();
+		agent.addBehaviour(b);
+		return b;
+	}
+
+	private static class IdleBehaviour extends Behaviour {
+		private static final long serialVersionUID = 1L;
+
+		public void action() {
+		}
+
+		public boolean done() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package jade.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingWheelTimerDispatcherTest {
+
+	private TimingWheelTimerDispatcher dispatcher;
+	private final List<Timer> fired = Collections.synchronizedList(new ArrayList<>());
+	private final List<Long> fireTimes = Collections.synchronizedList(new ArrayList<>());
+
+	private final TimerListener listener = t -> {
+		synchronized (fired) {
+			fired.add(t);
+			fireTimes.add(System.currentTimeMillis());
+			fired.notifyAll();
+		}
+	};
+
+	@Before
+	public void setUp() {
+		// Small wheel so that timers span several rounds
+		dispatcher = new TimingWheelTimerDispatcher(5, 4, 2);
+	}
+
+	@After
+	public void tearDown() {
+		dispatcher.stop();
+	}
+
+	private void waitFor(int expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		synchronized (fired) {
+			while (fired.size() < expected && System.currentTimeMillis() < deadline) {
+				fired.wait(100);
+			}
+		}
+	}
+
+	@Test
+	public void testSameExpiration() throws Exception {
+		long when = System.currentTimeMillis() + 50;
+		List<Timer> timers = new ArrayList<>();
+		for (int i = 0; i < 100; ++i) {
+			Timer t = new Timer(when, listener);
+			timers.add(dispatcher.add(t));
+		}
+		waitFor(100);
+		assertEquals(100, fired.size());
+		for (Timer t : timers) {
+			// No shift on collisions
+			assertTrue(t.expirationTime() == when);
+		}
+		for (Long l : fireTimes) {
+			assertTrue("Fired too early", l.longValue() >= when);
+		}
+		assertTrue(dispatcher.getPendingCount() == 0);
+	}
+
+	@Test
+	public void testOrderAndLaterRounds() throws Exception {
+		long now = System.currentTimeMillis();
+		// 4 buckets of 5 ms: these timers are 2 to 6 rounds ahead
+		Timer t3 = dispatcher.add(new Timer(now + 120, listener));
+		Timer t1 = dispatcher.add(new Timer(now + 40, listener));
+		Timer t2 = dispatcher.add(new Timer(now + 80, listener));
+		waitFor(3);
+		assertEquals(3, fired.size());
+		assertTrue(fired.get(0) == t1);
+		assertTrue(fired.get(1) == t2);
+		assertTrue(fired.get(2) == t3);
+		assertTrue("Fired too early", fireTimes.get(2).longValue() >= now + 120);
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		long now = System.currentTimeMillis();
+		Timer removed = dispatcher.add(new Timer(now + 30, listener));
+		Timer kept = dispatcher.add(new Timer(now + 60, listener));
+		dispatcher.remove(removed);
+		// Removing twice has no effect
+		dispatcher.remove(removed);
+		waitFor(1);
+		Thread.sleep(50);
+		assertEquals(1, fired.size());
+		assertTrue(fired.get(0) == kept);
+	}
+
+	@Test
+	public void testExpiredTimer() throws Exception {
+		dispatcher.add(new Timer(System.currentTimeMillis() - 1000, listener));
+		waitFor(1);
+		assertEquals(1, fired.size());
+	}
+}
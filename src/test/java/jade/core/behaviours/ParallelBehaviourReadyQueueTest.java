@@ -0,0 +1,140 @@
+package jade.core.behaviours;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.Agent;
+
+public class ParallelBehaviourReadyQueueTest {
+
+	private Agent agent;
+	private final List<Behaviour> executed = new ArrayList<>();
+
+	@Before
+	public void createAgent() {
+		agent = new Agent();
+	}
+
+	private ParallelBehaviour createParallel(int nChildren, int nSteps) {
+		ParallelBehaviour pb = new ParallelBehaviour(ParallelBehaviour.WHEN_ALL);
+		pb.setReadyQueueScheduling(true);
+		for (int i = 0; i < nChildren; ++i) {
+			pb.addSubBehaviour(new StepBehaviour(nSteps));
+		}
+		agent.addBehaviour(pb);
+		return pb;
+	}
+
+	@Test
+	public void testOnlyRunnableChildrenScheduled() {
+		ParallelBehaviour pb = createParallel(1000, Integer.MAX_VALUE);
+		List<Behaviour> children = new ArrayList<>(pb.getChildren());
+		for (int i = 0; i < children.size(); ++i) {
+			if (i % 100 != 0) {
+				children.get(i).block();
+			}
+		}
+		assertTrue(pb.isRunnable());
+
+		for (int i = 0; i < 30; ++i) {
+			pb.action();
+		}
+		assertEquals(30, executed.size());
+		for (int i = 0; i < 30; ++i) {
+			// Round robin among the 10 runnable children
+			assertTrue(executed.get(i) == children.get((i % 10) * 100));
+		}
+
+		// Block all remaining runnable children: the parallel behaviour blocks too
+		for (int i = 0; i < children.size(); i += 100) {
+			children.get(i).block();
+		}
+		assertFalse(pb.isRunnable());
+
+		// A restarted child is scheduled again
+		Behaviour b = children.get(555);
+		b.restart();
+		assertTrue(pb.isRunnable());
+		executed.clear();
+		pb.action();
+		pb.action();
+		assertEquals(2, executed.size());
+		assertTrue(executed.get(0) == b);
+		assertTrue(executed.get(1) == b);
+	}
+
+	@Test
+	public void testTermination() {
+		ParallelBehaviour pb = createParallel(100, 3);
+		int steps = 0;
+		while (!pb.done() && steps < 1000) {
+			pb.action();
+			steps++;
+		}
+		assertTrue(pb.done());
+		assertEquals(300, executed.size());
+		assertEquals(0, pb.getChildren().size());
+		assertEquals(100, pb.getTerminatedChildren().size());
+
+		// Reset restores all children in ready queue
+		pb.reset();
+		assertEquals(100, pb.getChildren().size());
+		executed.clear();
+		while (!pb.done() && steps < 2000) {
+			pb.action();
+			steps++;
+		}
+		assertTrue(pb.done());
+		assertEquals(300, executed.size());
+	}
+
+	@Test
+	public void testSwitchMode() {
+		ParallelBehaviour pb = new ParallelBehaviour(ParallelBehaviour.WHEN_ALL);
+		StepBehaviour b1 = new StepBehaviour(1);
+		StepBehaviour b2 = new StepBehaviour(1);
+		pb.addSubBehaviour(b1);
+		pb.addSubBehaviour(b2);
+		agent.addBehaviour(pb);
+		b1.block();
+		pb.setReadyQueueScheduling(true);
+		pb.action();
+		assertTrue(executed.get(0) == b2);
+		assertFalse(pb.done());
+		b1.restart();
+		pb.action();
+		assertTrue(executed.get(1) == b1);
+		assertTrue(pb.done());
+	}
+
+	private class StepBehaviour extends Behaviour {
+		private static final long serialVersionUID = 1L;
+		private final int nSteps;
+		private int cnt;
+
+		StepBehaviour(int nSteps) {
+			this.nSteps = nSteps;
+		}
+
+		public void action() {
+			executed.add(this);
+			cnt++;
+		}
+
+		public boolean done() {
+			return cnt >= nSteps;
+		}
+
+		public void reset() {
+			cnt = 0;
+			super.reset();
+		}
+	}
+}
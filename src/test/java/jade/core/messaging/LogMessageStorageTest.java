@@ -0,0 +1,169 @@
+package jade.core.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.AID;
+import jade.core.ProfileImpl;
+import jade.lang.acl.ACLCodec;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.LEAPACLCodec;
+
+public class LogMessageStorageTest {
+
+	private File baseDir;
+
+	@Before
+	public void createBaseDir() throws Exception {
+		baseDir = File.createTempFile("jade-log-storage", "");
+		baseDir.delete();
+		baseDir.mkdirs();
+		baseDir.deleteOnExit();
+	}
+
+	private LogMessageStorage createStorage(int segmentSize) {
+		ProfileImpl p = new ProfileImpl();
+		p.setParameter(PersistentDeliveryService.PERSISTENT_DELIVERY_BASEDIR, baseDir.getAbsolutePath());
+		p.setParameter(PersistentDeliveryService.PERSISTENT_DELIVERY_LOGSEGMENTSIZE, String.valueOf(segmentSize));
+		LogMessageStorage storage = new LogMessageStorage();
+		storage.init(p);
+		return storage;
+	}
+
+	private static GenericMessage createMessage(int i) {
+		ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+		msg.setContent("Message-" + i);
+		return new GenericMessage(msg);
+	}
+
+	private static List<String> loadContents(MessageStorage storage) throws Exception {
+		final List<String> contents = new ArrayList<>();
+		storage.loadAll(new MessageStorage.LoadListener() {
+			public void loadStarted(String storeName) {
+			}
+
+			public void itemLoaded(String storeName, GenericMessage msg, AID receiver) {
+				assertEquals("receiver", receiver.getLocalName());
+				try {
+					// Messages are restored in their encoded form
+					contents.add(new LEAPACLCodec().decode(msg.getPayload(), null).getContent());
+				} catch (ACLCodec.CodecException ce) {
+					throw new RuntimeException(ce);
+				}
+			}
+
+			public void loadEnded(String storeName) {
+			}
+		});
+		return contents;
+	}
+
+	@Test
+	public void testStoreDeleteAndRecover() throws Exception {
+		LogMessageStorage storage = createStorage(1024 * 1024);
+		AID receiver = new AID("receiver@platform", AID.ISGUID);
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			names.add(storage.store(createMessage(i), receiver));
+		}
+		for (int i = 0; i < 10; i += 2) {
+			storage.delete(names.get(i), receiver);
+		}
+		List<String> expected = new ArrayList<>();
+		for (int i = 1; i < 10; i += 2) {
+			expected.add("Message-" + i);
+		}
+		assertEquals(expected, loadContents(storage));
+
+		// A new storage on the same directory recovers undelivered messages only
+		LogMessageStorage recovered = createStorage(1024 * 1024);
+		assertEquals(expected, loadContents(recovered));
+		// Store names issued after recovery do not clash with the old ones
+		assertTrue(!names.contains(recovered.store(createMessage(10), receiver)));
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+		LogMessageStorage storage = createStorage(8 * 1024);
+		AID receiver = new AID("receiver@platform", AID.ISGUID);
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			String name = storage.store(createMessage(i), receiver);
+			if (i % 20 == 0) {
+				expected.add("Message-" + i);
+			} else {
+				storage.delete(name, receiver);
+			}
+		}
+		File logDir = new File(baseDir, "MessageLog");
+		// Compaction is carried out asynchronously
+		long deadline = System.currentTimeMillis() + 5000;
+		while (logDir.list().length > 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertTrue("Segments not compacted: " + logDir.list().length, logDir.list().length <= 2);
+		assertEquals(expected, loadContents(storage));
+		assertEquals(expected, loadContents(createStorage(8 * 1024)));
+	}
+
+	@Test
+	public void testTruncateAfterLastValidRecord() throws Exception {
+		LogMessageStorage storage = createStorage(1024 * 1024);
+		AID receiver = new AID("receiver@platform", AID.ISGUID);
+		for (int i = 0; i < 3; i++) {
+			storage.store(createMessage(i), receiver);
+		}
+		File segment = new File(new File(baseDir, "MessageLog"), "SEG-000000000000.log");
+		createStorage(1024 * 1024);
+		long validLength = segment.length();
+		assertTrue(validLength < 1024 * 1024);
+
+		// Simulate a record being written while crashing
+		try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+			raf.seek(validLength);
+			raf.writeInt(100);
+			raf.write(new byte[] {1, 1, 2, 3, 4, 5, 6, 7});
+		}
+		LogMessageStorage recovered = createStorage(1024 * 1024);
+		assertEquals(validLength, segment.length());
+		recovered.store(createMessage(3), receiver);
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			expected.add("Message-" + i);
+		}
+		assertEquals(expected, loadContents(createStorage(1024 * 1024)));
+	}
+
+	@Test
+	public void testRecoverInterruptedCompaction() throws Exception {
+		LogMessageStorage storage = createStorage(1024 * 1024);
+		AID receiver = new AID("receiver@platform", AID.ISGUID);
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			names.add(storage.store(createMessage(i), receiver));
+		}
+		storage.delete(names.get(1), receiver);
+
+		// A crash after the undelivered messages were copied to a later segment,
+		// but before the compacted one was removed
+		File logDir = new File(baseDir, "MessageLog");
+		Files.copy(new File(logDir, "SEG-000000000000.log").toPath(), new File(logDir, "SEG-000000000001.log").toPath());
+		// A crash after the compacted segment was renamed, but before it was deleted
+		Files.copy(new File(logDir, "SEG-000000000000.log").toPath(), new File(logDir, "SEG-000000000002.log.del").toPath());
+
+		List<String> expected = new ArrayList<>();
+		expected.add("Message-0");
+		expected.add("Message-2");
+		assertEquals(expected, loadContents(createStorage(1024 * 1024)));
+		assertTrue(!new File(logDir, "SEG-000000000002.log.del").exists());
+	}
+}
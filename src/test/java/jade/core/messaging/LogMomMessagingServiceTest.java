@@ -0,0 +1,144 @@
+package jade.core.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.core.ServiceFinder;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+
+public class LogMomMessagingServiceTest {
+	private static final String PERIPHERAL = "Peripheral";
+
+	private static final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+	private File baseDir;
+	private AgentContainer main;
+	private AgentContainer peripheral;
+	private TestProfile peripheralProfile;
+
+	@Before
+	public void startPlatform() throws Exception {
+		baseDir = File.createTempFile("jade-mom-service", "");
+		baseDir.delete();
+		baseDir.mkdirs();
+		baseDir.deleteOnExit();
+		received.clear();
+
+		int port;
+		try (ServerSocket ss = new ServerSocket(0)) {
+			port = ss.getLocalPort();
+		}
+		Runtime.instance().setCloseVM(false);
+		TestProfile mainProfile = new TestProfile(true, port);
+		main = Runtime.instance().createMainContainer(mainProfile);
+		peripheralProfile = new TestProfile(false, port);
+		peripheralProfile.setParameter(Profile.CONTAINER_NAME, PERIPHERAL);
+		peripheral = Runtime.instance().createAgentContainer(peripheralProfile);
+
+		// Containers in the same JVM normally bypass the log: make them use it
+		LocalJVMMessageRouter router = LocalJVMMessageRouter.getRouter(main.getPlatformName());
+		router.deregister(main.getContainerName());
+		router.deregister(PERIPHERAL);
+	}
+
+	@After
+	public void stopPlatform() throws Exception {
+		if (peripheral != null) {
+			peripheral.kill();
+		}
+		if (main != null) {
+			main.kill();
+		}
+	}
+
+	@Test
+	public void testDeliveryAndReplay() throws Exception {
+		AgentController receiver = peripheral.createNewAgent("receiver", Collector.class.getName(), null);
+		receiver.start();
+		Agent sender = new Agent();
+		main.acceptNewAgent("sender", sender).start();
+		AID receiverID = new AID(receiver.getName(), AID.ISGUID);
+
+		sender.send(createMessage(receiverID, "m1"));
+		assertEquals("m1", received.poll(10, TimeUnit.SECONDS));
+		File partition = new File(new File(baseDir, MomLog.encode(main.getPlatformName())), MomLog.encode(PERIPHERAL) + ".log");
+		assertTrue("Message not delivered through the log", partition.length() > 0);
+
+		// Messages appended while the consumer of the peripheral container is
+		// down are delivered, in order, when it restarts
+		MomMessagingService svc = (MomMessagingService) peripheralProfile.getServiceFinder().findService(MessagingSlice.NAME);
+		svc.shutdownMom();
+		sender.send(createMessage(receiverID, "m2"));
+		sender.send(createMessage(receiverID, "m3"));
+		assertNull(received.poll(500, TimeUnit.MILLISECONDS));
+		svc.initMom();
+		assertEquals("m2", received.poll(10, TimeUnit.SECONDS));
+		assertEquals("m3", received.poll(10, TimeUnit.SECONDS));
+		// Already consumed records are not delivered again
+		assertNull(received.poll(500, TimeUnit.MILLISECONDS));
+	}
+
+	private static ACLMessage createMessage(AID receiverID, String content) {
+		ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+		msg.addReceiver(receiverID);
+		msg.setContent(content);
+		return msg;
+	}
+
+	private class TestProfile extends ProfileImpl {
+		TestProfile(boolean isMain, int port) {
+			super(isMain);
+			setParameter(Profile.MAIN_HOST, "localhost");
+			setParameter(Profile.MAIN_PORT, String.valueOf(port));
+			setParameter(Profile.NO_MTP, "true");
+			setParameter("messaging-service-class", LogMomMessagingService.class.getName());
+			setParameter(LogMomMessagingService.DIR, baseDir.getAbsolutePath());
+		}
+
+		protected ServiceFinder getServiceFinder() {
+			try {
+				return super.getServiceFinder();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	public static class Collector extends Agent {
+		private static final long serialVersionUID = 1L;
+
+		protected void setup() {
+			addBehaviour(new CyclicBehaviour(this) {
+				private static final long serialVersionUID = 1L;
+
+				public void action() {
+					ACLMessage msg = myAgent.receive();
+					if (msg != null) {
+						received.add(msg.getContent());
+					} else {
+						block();
+					}
+				}
+			});
+		}
+	}
+}
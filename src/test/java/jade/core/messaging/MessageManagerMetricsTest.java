@@ -0,0 +1,90 @@
+package jade.core.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.AID;
+import jade.core.ProfileImpl;
+import jade.core.messaging.MessageManager.Channel;
+import jade.core.sam.Histogram;
+import jade.core.sam.HistogramMeasureProviderImpl;
+import jade.domain.FIPAAgentManagement.InternalError;
+import jade.lang.acl.ACLMessage;
+
+public class MessageManagerMetricsTest {
+	private static final long DELIVERY_TIME = 50;
+
+	private final Channel channel = new Channel() {
+		public void deliverNow(GenericMessage msg, AID receiverID) {
+			try {
+				Thread.sleep(DELIVERY_TIME);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		public void deliverNow(GenericMessage[] msgs, AID[] receiverIDs) {
+		}
+
+		public Object getTargetNode(GenericMessage msg, AID receiverID) {
+			return null;
+		}
+
+		public void notifyFailureToSender(GenericMessage msg, AID receiver, InternalError ie) {
+		}
+	};
+
+	private MessageManager manager;
+
+	@Before
+	public void startManager() throws Exception {
+		Constructor<MessageManager> c = MessageManager.class.getDeclaredConstructor();
+		c.setAccessible(true);
+		manager = c.newInstance();
+		ProfileImpl p = new ProfileImpl();
+		p.setParameter("jade_core_messaging_MessageManager_poolsize", "1");
+		p.setParameter("jade_core_messaging_MessageManager_enablemultipledelivery", "false");
+		manager.initialize(p);
+	}
+
+	@After
+	public void stopManager() throws Exception {
+		Method m = MessageManager.class.getDeclaredMethod("shutdown");
+		m.setAccessible(true);
+		m.invoke(manager);
+	}
+
+	@Test
+	public void testQueueAndDeliveryTimeRecorded() throws Exception {
+		AID receiver = new AID("receiver", AID.ISGUID);
+		for (int i = 0; i < 3; ++i) {
+			manager.deliver(new GenericMessage(new ACLMessage(ACLMessage.INFORM)), receiver, channel);
+		}
+
+		Histogram deliveryTime = collect(manager.getDeliveryTimeHistogramProvider(), 3);
+		Histogram queueTime = collect(manager.getQueueTimeHistogramProvider(), 3);
+		assertEquals(3L, deliveryTime.getTotalCount());
+		assertEquals(3L, queueTime.getTotalCount());
+		// Values are in microseconds
+		assertTrue("Delivery time " + deliveryTime.getMin(), deliveryTime.getMin() >= DELIVERY_TIME * 900);
+		// With a single deliverer the last message waits for the other two
+		assertTrue("Queue time " + queueTime.getMax(), queueTime.getMax() >= 2 * DELIVERY_TIME * 900);
+	}
+
+	private static Histogram collect(HistogramMeasureProviderImpl provider, long expectedCnt) throws Exception {
+		Histogram total = new Histogram();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (total.getTotalCount() < expectedCnt && System.currentTimeMillis() < deadline) {
+			total.add(provider.getValue());
+			Thread.sleep(10);
+		}
+		return total;
+	}
+}
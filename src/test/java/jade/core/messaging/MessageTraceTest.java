@@ -0,0 +1,88 @@
+package jade.core.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.lang.acl.ACLMessage;
+
+public class MessageTraceTest {
+
+	@Before
+	public void resetHistograms() {
+		for (int i = 0; i < MessageTrace.getStagesCnt(); ++i) {
+			MessageTrace.getHistogram(i).reset();
+		}
+	}
+
+	@After
+	public void disableTracing() {
+		MessageTrace.setSamplingRate(-1);
+	}
+
+	@Test
+	public void testSampling() {
+		MessageTrace.setSamplingRate(-1);
+		assertNull(MessageTrace.sample(MessageTrace.SEND));
+		MessageTrace.setSamplingRate(1);
+		assertNotNull(MessageTrace.sample(MessageTrace.SEND));
+
+		MessageTrace.setSamplingRate(10);
+		int sampled = 0;
+		for (int i = 0; i < 100000; ++i) {
+			if (MessageTrace.sample(MessageTrace.SEND) != null) {
+				sampled++;
+			}
+		}
+		// 10000 expected on average
+		assertEquals(10000, sampled, 1000);
+	}
+
+	@Test
+	public void testStages() {
+		MessageTrace.setSamplingRate(1);
+		GenericMessage gmsg = new GenericMessage(new ACLMessage(ACLMessage.INFORM));
+		gmsg.setTrace(MessageTrace.sample(MessageTrace.SEND));
+		MessageTrace.mark(gmsg, MessageTrace.OUTGOING_FILTERS);
+		MessageTrace.mark(gmsg, MessageTrace.OUTBOX_ENQUEUE);
+		MessageTrace.mark(gmsg, MessageTrace.DELIVERER_PICKUP);
+		gmsg.getTrace().mark(MessageTrace.RECEIVE);
+
+		assertEquals(0L, MessageTrace.getHistogram(MessageTrace.SEND).getTotalCount());
+		assertEquals(1L, MessageTrace.getHistogram(MessageTrace.OUTGOING_FILTERS).getTotalCount());
+		assertEquals(1L, MessageTrace.getHistogram(MessageTrace.DELIVERER_PICKUP).getTotalCount());
+		assertEquals(0L, MessageTrace.getHistogram(MessageTrace.IMTP_DISPATCH).getTotalCount());
+		assertEquals(1L, MessageTrace.getHistogram(MessageTrace.RECEIVE).getTotalCount());
+		assertEquals(1L, MessageTrace.getHistogram(MessageTrace.TOTAL).getTotalCount());
+
+		// Traces not started at send time do not contribute to the end-to-end latency
+		MessageTrace remote = MessageTrace.sample(MessageTrace.DISPATCH_LOCALLY);
+		remote.mark(MessageTrace.POST_MESSAGE);
+		remote.mark(MessageTrace.RECEIVE);
+		assertEquals(2L, MessageTrace.getHistogram(MessageTrace.RECEIVE).getTotalCount());
+		assertEquals(1L, MessageTrace.getHistogram(MessageTrace.TOTAL).getTotalCount());
+	}
+
+	@Test
+	public void testMultipleGenericMessage() {
+		MessageTrace.setSamplingRate(1);
+		List<GenericMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 3; ++i) {
+			GenericMessage g = new GenericMessage(new ACLMessage(ACLMessage.INFORM));
+			// Only the first two messages are sampled
+			g.setTrace(i < 2 ? MessageTrace.sample(MessageTrace.SEND) : null);
+			messages.add(g);
+		}
+		MultipleGenericMessage mgm = new MultipleGenericMessage(0);
+		mgm.setMessages(messages);
+		MessageTrace.mark(mgm, MessageTrace.DELIVERER_PICKUP);
+		assertEquals(2L, MessageTrace.getHistogram(MessageTrace.DELIVERER_PICKUP).getTotalCount());
+	}
+}
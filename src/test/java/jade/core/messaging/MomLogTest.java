@@ -0,0 +1,174 @@
+package jade.core.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MomLogTest {
+
+	private File baseDir;
+
+	@Before
+	public void createBaseDir() throws Exception {
+		baseDir = File.createTempFile("jade-mom-log", "");
+		baseDir.delete();
+		baseDir.mkdirs();
+		baseDir.deleteOnExit();
+	}
+
+	private static List<byte[]> createRecords(int from, int to) {
+		List<byte[]> records = new ArrayList<>();
+		for (int i = from; i < to; ++i) {
+			records.add(("Record-" + i).getBytes(StandardCharsets.UTF_8));
+		}
+		return records;
+	}
+
+	private static void waitFor(List<String> received, int expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (System.currentTimeMillis() < deadline) {
+			synchronized (received) {
+				if (received.size() >= expected) {
+					return;
+				}
+				received.wait(100);
+			}
+		}
+	}
+
+	private static MomLog.RecordHandler collector(final List<String> received) {
+		return record -> {
+			synchronized (received) {
+				received.add(new String(record, StandardCharsets.UTF_8));
+				received.notifyAll();
+			}
+		};
+	}
+
+	@Test
+	public void testBatchesConsumedInOrder() throws Exception {
+		// Two logs on the same directory, as two containers would do
+		MomLog log1 = new MomLog(baseDir, false);
+		MomLog log2 = new MomLog(baseDir, false);
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		MomLog.Consumer c = log2.new Consumer("Container-2", collector(received), 20);
+		c.start();
+		try {
+			log1.append("Container-2", createRecords(0, 10));
+			log1.append("Container-3", createRecords(100, 105));
+			log1.append("Container-2", createRecords(10, 20));
+			waitFor(received, 20);
+			assertEquals(20, received.size());
+			for (int i = 0; i < 20; ++i) {
+				assertEquals("Record-" + i, received.get(i));
+			}
+		} finally {
+			c.stop();
+		}
+	}
+
+	@Test
+	public void testOffsetSurvivesRestart() throws Exception {
+		MomLog log = new MomLog(baseDir, true);
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		MomLog.Consumer c = log.new Consumer("Container-1", collector(received), 20);
+		c.start();
+		log.append("Container-1", createRecords(0, 5));
+		waitFor(received, 5);
+		c.stop();
+
+		// Records appended while the consumer is down are delivered on restart
+		log.append("Container-1", createRecords(5, 8));
+		c = log.new Consumer("Container-1", collector(received), 20);
+		c.start();
+		try {
+			waitFor(received, 8);
+			Thread.sleep(100);
+			assertEquals(8, received.size());
+			for (int i = 0; i < 8; ++i) {
+				assertEquals("Record-" + i, received.get(i));
+			}
+		} finally {
+			c.stop();
+		}
+	}
+
+	@Test
+	public void testTruncateWhenConsumed() throws Exception {
+		MomLog log = new MomLog(baseDir, false);
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		MomLog.Consumer c = log.new Consumer("Container-1", collector(received), 20);
+		c.start();
+		try {
+			List<byte[]> big = new ArrayList<>();
+			for (int i = 0; i < 20; ++i) {
+				big.add(new byte[64 * 1024]);
+			}
+			log.append("Container-1", big);
+			waitFor(received, 20);
+			long deadline = System.currentTimeMillis() + 10000;
+			while (log.getPartitionFile("Container-1").length() > 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20);
+			}
+			assertEquals(0L, log.getPartitionFile("Container-1").length());
+
+			log.append("Container-1", createRecords(0, 1));
+			waitFor(received, 21);
+			assertEquals("Record-0", received.get(20));
+		} finally {
+			c.stop();
+		}
+	}
+
+	@Test
+	public void testSkipCorruptedData() throws Exception {
+		MomLog log = new MomLog(baseDir, false);
+		log.append("Container-1", createRecords(0, 2));
+		// Garbage left by a writer that crashed while appending
+		File f = log.getPartitionFile("Container-1");
+		try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+			raf.seek(raf.length());
+			raf.write(new byte[] {0, 0, 0, 50, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+		}
+		log.append("Container-1", createRecords(2, 4));
+
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		MomLog.Consumer c = log.new Consumer("Container-1", collector(received), 20);
+		c.start();
+		try {
+			waitFor(received, 4);
+			assertEquals(4, received.size());
+			for (int i = 0; i < 4; ++i) {
+				assertEquals("Record-" + i, received.get(i));
+			}
+			assertTrue(c.getOffset() == f.length());
+		} finally {
+			c.stop();
+		}
+	}
+
+	@Test
+	public void testRejectOversizedRecord() throws Exception {
+		MomLog log = new MomLog(baseDir, false);
+		List<byte[]> records = createRecords(0, 1);
+		records.add(new byte[MomLog.MAX_DATA_SIZE + 1]);
+		try {
+			log.append("Container-1", records);
+			fail("Oversized record accepted");
+		} catch (IOException ioe) {
+			// Expected: nothing must have been written
+		}
+		assertEquals(0L, log.getPartitionFile("Container-1").length());
+	}
+}
@@ -0,0 +1,120 @@
+package jade.core.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.AID;
+import jade.core.messaging.MessageManager.Channel;
+import jade.core.messaging.MessageManager.PendingMsg;
+import jade.domain.FIPAAgentManagement.InternalError;
+import jade.lang.acl.ACLMessage;
+
+public class OutBoxNodeBatchTest {
+	private final Map<AID, String> locations = new HashMap<>();
+	private int lookupCnt;
+	private final Channel channel = new Channel() {
+		public void deliverNow(GenericMessage msg, AID receiverID) {
+		}
+
+		public void deliverNow(GenericMessage[] msgs, AID[] receiverIDs) {
+		}
+
+		public Object getTargetNode(GenericMessage msg, AID receiverID) {
+			lookupCnt++;
+			return locations.get(receiverID);
+		}
+
+		public void notifyFailureToSender(GenericMessage msg, AID receiver, InternalError ie) {
+		}
+	};
+
+	private OutBox outBox;
+
+	@Before
+	public void createOutBox() throws Exception {
+		Constructor<MessageManager> c = MessageManager.class.getDeclaredConstructor();
+		c.setAccessible(true);
+		outBox = new OutBox(10000000, 100000000, -1, true, true, c.newInstance());
+	}
+
+	@Test
+	public void coalescesReceiversOnTheSameNode() {
+		AID r1 = submit("r1", "Node-1");
+		AID r2 = submit("r2", "Node-2");
+		AID r3 = submit("r3", "Node-1");
+		AID r4 = submit("r4", null);
+
+		Set<AID> batched = new HashSet<>();
+		int batches = 0;
+		for (int i = 0; i < 4 && outBox.getPendingCnt() > 0; ++i) {
+			PendingMsg pm = outBox.get();
+			PendingMsg[] batch = outBox.getNodeBatch(pm, 10, 0);
+			if (batch != null) {
+				batches++;
+				for (int j = 0; j < batch.length; ++j) {
+					batched.add(batch[j].getReceiver());
+					outBox.handleServed(batch[j].getReceiver(), 1);
+				}
+			} else {
+				outBox.handleServed(pm.getReceiver(), 1);
+			}
+		}
+		assertEquals(1, batches);
+		assertEquals(2, batched.size());
+		assertTrue(batched.contains(r1));
+		assertTrue(batched.contains(r3));
+		assertTrue(!batched.contains(r2) && !batched.contains(r4));
+		assertEquals(0, outBox.getPendingCnt());
+		// The target node is resolved once per box, not on every scan
+		assertEquals(4, lookupCnt);
+	}
+
+	@Test
+	public void respectsMaxBatchSize() {
+		for (int i = 0; i < 5; ++i) {
+			submit("r" + i, "Node-1");
+		}
+		PendingMsg[] batch = outBox.getNodeBatch(outBox.get(), 3, 0);
+		assertEquals(3, batch.length);
+		assertEquals(2, outBox.getPendingCnt());
+		// Receivers of the first batch are busy: the remaining two form the next one
+		batch = outBox.getNodeBatch(outBox.get(), 3, 0);
+		assertEquals(2, batch.length);
+		assertNull(outBox.getNodeBatch(new PendingMsg(new GenericMessage(), new AID("x", AID.ISGUID), channel, -1), 3, 0));
+	}
+
+	@Test
+	public void restoresInterruptStatusWhileLingering() {
+		submit("r1", "Node-1");
+		submit("r2", "Node-1");
+		PendingMsg pm = outBox.get();
+		Thread.currentThread().interrupt();
+		try {
+			PendingMsg[] batch = outBox.getNodeBatch(pm, 10, 10000);
+			assertEquals(2, batch.length);
+			assertTrue(Thread.currentThread().isInterrupted());
+		}
+		finally {
+			Thread.interrupted();
+		}
+	}
+
+	private AID submit(String name, String node) {
+		AID receiver = new AID(name, AID.ISGUID);
+		if (node != null) {
+			locations.put(receiver, node);
+		}
+		outBox.addLast(receiver, new GenericMessage(new ACLMessage(ACLMessage.INFORM)), channel);
+		return receiver;
+	}
+}
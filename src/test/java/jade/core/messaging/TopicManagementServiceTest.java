@@ -0,0 +1,251 @@
+package jade.core.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.HorizontalCommand;
+import jade.core.Node;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.core.Service;
+import jade.core.VerticalCommand;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.core.exception.IMTPException;
+import jade.core.exception.ServiceException;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.LEAPACLCodec;
+import jade.wrapper.AgentContainer;
+
+public class TopicManagementServiceTest {
+	private static final String TOPIC = "news";
+	private static final int MESSAGES_CNT = 20;
+
+	// Messages received by each subscriber (in order)
+	private static final Map<String, List<String>> received = new ConcurrentHashMap<>();
+	// Fan-out commands successfully served by each node
+	private static final Map<String, AtomicInteger> fanOutCnt = new ConcurrentHashMap<>();
+	// Nodes whose topic-management slice fails the fan-out of messages with odd content
+	private static final Set<String> failingNodes = ConcurrentHashMap.newKeySet();
+
+	private AgentContainer main;
+	private final Map<String, AgentContainer> peripherals = new HashMap<>();
+	private Agent sender;
+
+	@Before
+	public void startPlatform() throws Exception {
+		received.clear();
+		fanOutCnt.clear();
+		failingNodes.clear();
+
+		int port;
+		try (ServerSocket ss = new ServerSocket(0)) {
+			port = ss.getLocalPort();
+		}
+		Runtime.instance().setCloseVM(false);
+		main = Runtime.instance().createMainContainer(createProfile(true, port, null));
+		for (String name : new String[] { "P1", "P2" }) {
+			peripherals.put(name, Runtime.instance().createAgentContainer(createProfile(false, port, name)));
+		}
+
+		// A local subscriber, two subscribers on P1 and one on P2
+		startSubscriber(main, "local");
+		startSubscriber(peripherals.get("P1"), "a1");
+		startSubscriber(peripherals.get("P1"), "a2");
+		startSubscriber(peripherals.get("P2"), "b1");
+		long deadline = System.currentTimeMillis() + 10000;
+		while (Subscriber.registered.get() < 4 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(4, Subscriber.registered.get());
+
+		sender = new Agent();
+		main.acceptNewAgent("sender", sender).start();
+	}
+
+	@After
+	public void stopPlatform() throws Exception {
+		Subscriber.registered.set(0);
+		for (AgentContainer p : peripherals.values()) {
+			try {
+				p.kill();
+			} catch (Exception e) {
+				// Already dead
+			}
+		}
+		if (main != null) {
+			main.kill();
+		}
+	}
+
+	@Test
+	public void testOneCopyPerNodeInOrder() throws Exception {
+		List<String> expected = publish(1, MESSAGES_CNT);
+		for (String name : new String[] { "local", "a1", "a2", "b1" }) {
+			assertEquals(name, expected, awaitMessages(name, MESSAGES_CNT));
+		}
+		// Remote nodes get a single copy of each message, whatever the number of interested agents
+		// (the only subscriber on P2 too). The local subscriber is served directly
+		assertEquals(MESSAGES_CNT, fanOutCnt.get("P1").get());
+		assertEquals(MESSAGES_CNT, fanOutCnt.get("P2").get());
+		assertNull(fanOutCnt.get(main.getContainerName()));
+		assertNull(sender.receive());
+	}
+
+	@Test
+	public void testNodeFailingMidFanOut() throws Exception {
+		// Half of the fan-out commands to P1 fail: those messages are delivered to each
+		// receiver separately, without overtaking or being overtaken by the others
+		failingNodes.add("P1");
+		List<String> expected = publish(1, MESSAGES_CNT);
+		for (String name : new String[] { "local", "a1", "a2", "b1" }) {
+			assertEquals(name, expected, awaitMessages(name, MESSAGES_CNT));
+		}
+		assertEquals(MESSAGES_CNT / 2, fanOutCnt.get("P1").get());
+		assertEquals(MESSAGES_CNT, fanOutCnt.get("P2").get());
+		assertNull(sender.receive());
+	}
+
+	@Test
+	public void testNodeDyingMidFanOut() throws Exception {
+		List<String> expected = publish(1, MESSAGES_CNT);
+		peripherals.remove("P2").kill();
+		expected.addAll(publish(MESSAGES_CNT + 1, MESSAGES_CNT));
+		// Subscribers on other nodes are not affected and no failure goes back to the sender
+		for (String name : new String[] { "local", "a1", "a2" }) {
+			assertEquals(name, expected, awaitMessages(name, 2 * MESSAGES_CNT));
+		}
+		Thread.sleep(500);
+		assertNull(sender.receive());
+	}
+
+	private List<String> publish(int first, int cnt) {
+		List<String> contents = new ArrayList<>();
+		for (int i = first; i < first + cnt; ++i) {
+			ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+			msg.addReceiver(TopicUtility.createTopic(TOPIC));
+			msg.setContent(String.valueOf(i));
+			sender.send(msg);
+			contents.add(msg.getContent());
+		}
+		return contents;
+	}
+
+	private static List<String> awaitMessages(String name, int cnt) throws Exception {
+		List<String> l = received.computeIfAbsent(name, k -> Collections.synchronizedList(new ArrayList<>()));
+		long deadline = System.currentTimeMillis() + 10000;
+		while (l.size() < cnt && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		// Give duplicates, if any, the time to show up
+		Thread.sleep(100);
+		synchronized (l) {
+			return new ArrayList<>(l);
+		}
+	}
+
+	private static void startSubscriber(AgentContainer c, String name) throws Exception {
+		c.createNewAgent(name, Subscriber.class.getName(), null).start();
+	}
+
+	private static Profile createProfile(boolean isMain, int port, String name) {
+		Profile p = new ProfileImpl(isMain);
+		p.setParameter(Profile.MAIN_HOST, "localhost");
+		p.setParameter(Profile.MAIN_PORT, String.valueOf(port));
+		p.setParameter(Profile.NO_MTP, "true");
+		p.setParameter(Profile.SERVICES, CountingTopicManagementService.class.getName());
+		if (name != null) {
+			p.setParameter(Profile.CONTAINER_NAME, name);
+		}
+		return p;
+	}
+
+	public static class Subscriber extends Agent {
+		private static final long serialVersionUID = 1L;
+		private static final AtomicInteger registered = new AtomicInteger();
+
+		protected void setup() {
+			final List<String> l = received.computeIfAbsent(getLocalName(), k -> Collections.synchronizedList(new ArrayList<>()));
+			try {
+				TopicManagementHelper helper = (TopicManagementHelper) getHelper(TopicManagementHelper.SERVICE_NAME);
+				helper.register(helper.createTopic(TOPIC));
+				registered.incrementAndGet();
+			} catch (ServiceException se) {
+				throw new RuntimeException(se);
+			}
+			addBehaviour(new CyclicBehaviour(this) {
+				private static final long serialVersionUID = 1L;
+
+				public void action() {
+					ACLMessage msg = myAgent.receive();
+					if (msg != null) {
+						l.add(msg.getContent());
+					} else {
+						block();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * A TopicManagementService whose slice counts the fan-out commands it serves and, on
+	 * failing nodes, rejects those of messages with odd content as if the node was unreachable.
+	 */
+	public static class CountingTopicManagementService extends TopicManagementService {
+		private Service.Slice countingSlice;
+
+		public synchronized Service.Slice getLocalSlice() {
+			if (countingSlice == null) {
+				final Service.Slice slice = super.getLocalSlice();
+				countingSlice = new Service.Slice() {
+					private static final long serialVersionUID = 1L;
+
+					public Service getService() {
+						return slice.getService();
+					}
+
+					public Node getNode() throws ServiceException {
+						return slice.getNode();
+					}
+
+					public VerticalCommand serve(HorizontalCommand cmd) {
+						if (TopicManagementSlice.H_DELIVER.equals(cmd.getName())) {
+							try {
+								String node = getNode().getName();
+								GenericMessage msg = (GenericMessage) cmd.getParams()[1];
+								String content = new LEAPACLCodec().decode(msg.getPayload(), null).getContent();
+								if (failingNodes.contains(node) && Integer.parseInt(content) % 2 == 1) {
+									cmd.setReturnValue(new IMTPException("Node " + node + " unreachable"));
+									return null;
+								}
+								fanOutCnt.computeIfAbsent(node, k -> new AtomicInteger()).incrementAndGet();
+							} catch (Exception e) {
+								cmd.setReturnValue(e);
+								return null;
+							}
+						}
+						return slice.serve(cmd);
+					}
+				};
+			}
+			return countingSlice;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package jade.core.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.ProfileImpl;
+
+public class DefaultSAMInfoHandlerImplTest {
+
+	private File dir;
+	private DefaultSAMInfoHandlerImpl handler;
+
+	@Before
+	public void startHandler() throws Exception {
+		dir = Files.createTempDirectory("jade-sam-csv").toFile();
+		ProfileImpl p = new ProfileImpl();
+		p.setParameter("jade_core_sam_SAMService_csvdirectory", dir.getAbsolutePath());
+		p.setParameter("jade_core_sam_SAMService_summary", "Latency;Throughput");
+		handler = new DefaultSAMInfoHandlerImpl();
+		handler.initialize(p);
+	}
+
+	@After
+	public void stopHandler() {
+		handler.shutdown();
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testHistogramCsv() throws Exception {
+		Histogram h = new Histogram();
+		for (int i = 1; i <= 1000; ++i) {
+			h.recordValue(i);
+		}
+		handler.handle(new Date(), createInfo(h, 12.5));
+		Histogram empty = new Histogram();
+		handler.handle(new Date(), createInfo(empty, 7));
+		handler.shutdown();
+
+		List<String> lines = Files.readAllLines(new File(dir, "SAM_Latency.csv").toPath());
+		assertEquals(3, lines.size());
+		assertEquals("Time-stamp;N-samples;Average-value;P50;P90;P99;P999;Max", lines.get(0));
+		String[] fields = lines.get(1).split(";");
+		assertEquals(8, fields.length);
+		assertEquals("1000", fields[1]);
+		assertEquals(500.5, Double.parseDouble(fields[2]), 0.001);
+		assertWithinPrecision(500, Long.parseLong(fields[3]));
+		assertWithinPrecision(900, Long.parseLong(fields[4]));
+		assertWithinPrecision(990, Long.parseLong(fields[5]));
+		assertWithinPrecision(999, Long.parseLong(fields[6]));
+		assertEquals("1000", fields[7]);
+		// A round without samples is still reported
+		assertEquals("0", lines.get(2).split(";")[1]);
+
+		// Histogram entities in the summary report their P99
+		List<String> summary = Files.readAllLines(new File(dir, "SAM_Summary.csv").toPath());
+		assertEquals("Time-stamp;Latency;Throughput", summary.get(0));
+		String[] summaryFields = summary.get(1).split(";");
+		assertEquals(fields[5], summaryFields[1]);
+		assertEquals("12.5", summaryFields[2]);
+	}
+
+	private static SAMInfo createInfo(Histogram latency, double throughput) {
+		Map<String, AverageMeasure> measures = new HashMap<>();
+		measures.put("Throughput", new AverageMeasure(throughput, 1));
+		Map<String, Histogram> histograms = new HashMap<>();
+		histograms.put("Latency", latency);
+		return new SAMInfo(measures, new HashMap<>(), histograms);
+	}
+
+	private static void assertWithinPrecision(long expected, long actual) {
+		assertTrue("Expected ~" + expected + ", got " + actual, Math.abs(actual - expected) <= expected / 32 + 1);
+	}
+}
@@ -0,0 +1,59 @@
+package jade.core.sam;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HistogramMeasureProviderImplTest {
+
+	@Test
+	public void testSamplesSincePreviousPoll() {
+		HistogramMeasureProviderImpl provider = new HistogramMeasureProviderImpl();
+		assertEquals(0L, provider.getValue().getTotalCount());
+
+		provider.addSample(10);
+		provider.addSample(20);
+		Histogram h = provider.getValue();
+		assertEquals(2L, h.getTotalCount());
+		assertEquals(10L, h.getMin());
+		assertEquals(20L, h.getMax());
+
+		provider.addSample(1000);
+		h = provider.getValue();
+		assertEquals(1L, h.getTotalCount());
+		assertEquals(1000L, h.getMin());
+		assertEquals(0L, provider.getValue().getTotalCount());
+	}
+
+	@Test
+	public void testNoSampleLostWhilePolling() throws Exception {
+		final HistogramMeasureProviderImpl provider = new HistogramMeasureProviderImpl();
+		final int threadCnt = 4;
+		final int samplesPerThread = 20000;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < threadCnt; ++i) {
+			Thread t = new Thread(() -> {
+				for (int j = 0; j < samplesPerThread; ++j) {
+					provider.addSample(j);
+				}
+			});
+			threads.add(t);
+			t.start();
+		}
+
+		Histogram total = new Histogram();
+		boolean running = true;
+		while (running) {
+			running = false;
+			for (Thread t : threads) {
+				running |= t.isAlive();
+			}
+			total.add(provider.getValue());
+		}
+		total.add(provider.getValue());
+		assertEquals((long) threadCnt * samplesPerThread, total.getTotalCount());
+	}
+}
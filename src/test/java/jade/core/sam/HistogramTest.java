@@ -0,0 +1,88 @@
+package jade.core.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void testBucketBoundaries() {
+		for (int i = 0; i < Histogram.BUCKET_COUNT; ++i) {
+			long low = Histogram.lowestEquivalentValue(i);
+			long high = Histogram.highestEquivalentValue(i);
+			assertEquals(i, Histogram.indexOf(low));
+			assertEquals(i, Histogram.indexOf(high));
+			if (i + 1 < Histogram.BUCKET_COUNT) {
+				assertTrue(Histogram.lowestEquivalentValue(i + 1) == high + 1);
+			}
+		}
+		assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.indexOf(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testPercentiles() {
+		Histogram h = new Histogram();
+		for (int i = 1; i <= 10000; ++i) {
+			h.recordValue(i);
+		}
+		assertEquals(10000L, h.getTotalCount());
+		assertEquals(1L, h.getMin());
+		assertEquals(10000L, h.getMax());
+		assertEquals(5000.5, h.getMean(), 0.001);
+		assertWithinPrecision(5000, h.getValueAtPercentile(50));
+		assertWithinPrecision(9900, h.getValueAtPercentile(99));
+		assertWithinPrecision(9990, h.getValueAtPercentile(99.9));
+		assertEquals(10000L, h.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testMergeAndSnapshot() {
+		Histogram h1 = new Histogram();
+		Histogram h2 = new Histogram();
+		h1.recordValue(10);
+		h2.recordValue(1000000);
+		h2.recordValue(-5);
+		h1.add(h2);
+		assertEquals(3L, h1.getTotalCount());
+		assertEquals(0L, h1.getMin());
+		assertEquals(1000000L, h1.getMax());
+
+		Histogram snapshot = h1.snapshotAndReset();
+		assertEquals(3L, snapshot.getTotalCount());
+		assertEquals(0L, h1.getTotalCount());
+		assertEquals(-1L, h1.getMax());
+		assertEquals(-1L, h1.getValueAtPercentile(50));
+		assertTrue(Double.isNaN(h1.getMean()));
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		Histogram h = new Histogram();
+		for (int i = 0; i < 1000; ++i) {
+			h.recordValue(i * 1000L);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(h);
+		}
+		Histogram copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (Histogram) in.readObject();
+		}
+		assertEquals(h.getTotalCount(), copy.getTotalCount());
+		assertEquals(h.getMax(), copy.getMax());
+		assertEquals(h.getMean(), copy.getMean(), 0.0);
+		assertEquals(h.getValueAtPercentile(90), copy.getValueAtPercentile(90));
+	}
+
+	private static void assertWithinPrecision(long expected, long actual) {
+		assertTrue("Expected ~" + expected + ", got " + actual, Math.abs(actual - expected) <= expected / 32 + 1);
+	}
+}
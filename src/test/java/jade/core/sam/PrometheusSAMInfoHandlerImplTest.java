@@ -0,0 +1,121 @@
+package jade.core.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.ProfileImpl;
+
+public class PrometheusSAMInfoHandlerImplTest {
+
+	private static final String OBJECT_NAME = "jade.core.sam:type=SAM,name=test";
+
+	private PrometheusSAMInfoHandlerImpl handler;
+
+	@Before
+	public void startHandler() throws Exception {
+		ProfileImpl p = new ProfileImpl();
+		p.setParameter(PrometheusSAMInfoHandlerImpl.PORT, "0");
+		p.setParameter(PrometheusSAMInfoHandlerImpl.OBJECT_NAME, OBJECT_NAME);
+		handler = new PrometheusSAMInfoHandlerImpl();
+		handler.initialize(p);
+	}
+
+	@After
+	public void stopHandler() {
+		handler.shutdown();
+	}
+
+	private static SAMInfo createNodeInfo(double delivery, long posted, long latency) {
+		Map<String, AverageMeasure> measures = new HashMap<>();
+		measures.put("Message-Delivery-Time", new AverageMeasure(delivery, 10));
+		Map<String, Long> counters = new HashMap<>();
+		counters.put("Posted-message-count#Container-1", posted);
+		Map<String, Histogram> histograms = new HashMap<>();
+		Histogram h = new Histogram();
+		h.recordValue(latency);
+		histograms.put("Latency", h);
+		return new SAMInfo(measures, counters, histograms);
+	}
+
+	private void poll() {
+		SAMInfo global = new SAMInfo();
+		SAMInfo main = createNodeInfo(10, 0, 100);
+		SAMInfo c1 = createNodeInfo(20, 5, 300);
+		global.addNodeInfo("Main-Container", main);
+		global.update(main);
+		global.addNodeInfo("Container-1", c1);
+		global.update(c1);
+		global.computeAggregatedValues();
+		handler.handle(new Date(), global);
+	}
+
+	private String scrape() throws Exception {
+		URL url = new URL("http://127.0.0.1:" + handler.getPort() + "/metrics");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			assertEquals(200, connection.getResponseCode());
+			assertTrue(connection.getContentType().startsWith("text/plain"));
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (InputStream in = connection.getInputStream()) {
+				in.transferTo(out);
+			}
+			return out.toString(StandardCharsets.UTF_8);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Test
+	public void testPrometheusText() throws Exception {
+		poll();
+		poll();
+		String text = scrape();
+		assertTrue(text, text.contains("# TYPE jade_sam_measure gauge\n"));
+		// Platform-wide and per-container values
+		assertTrue(text, text.contains("jade_sam_measure{entity=\"Message-Delivery-Time\"} 15\n"));
+		assertTrue(text, text.contains("jade_sam_measure{entity=\"Message-Delivery-Time\",container=\"Container-1\"} 20\n"));
+		// Counters are cumulated across polls. Suffixes that are container names become container labels
+		assertTrue(text, text.contains("# TYPE jade_sam_counter_total counter\n"));
+		assertTrue(text, text.contains("jade_sam_counter_total{entity=\"Posted-message-count\",container=\"Container-1\"} 10\n"));
+		// Histograms are merged across containers
+		assertTrue(text, text.contains("# TYPE jade_sam_histogram summary\n"));
+		assertTrue(text, text.contains("jade_sam_histogram{entity=\"Latency\",quantile=\"0.999\"} 300\n"));
+		assertTrue(text, text.contains("jade_sam_histogram_count{entity=\"Latency\"} 4\n"));
+		assertTrue(text, text.contains("jade_sam_histogram_max{entity=\"Latency\",container=\"Main-Container\"} 100\n"));
+	}
+
+	@Test
+	public void testJmxView() throws Exception {
+		poll();
+		MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+		Object value = mbs.getAttribute(new ObjectName(OBJECT_NAME), "measure{entity=\"Message-Delivery-Time\"}");
+		assertEquals(15.0, ((Double) value).doubleValue(), 0.0);
+	}
+
+	@Test
+	public void testEntityLabels() {
+		java.util.Set<String> containers = java.util.Collections.singleton("Container-1");
+		assertEquals("entity=\"a#b\",container=\"Container-1\"",
+				PrometheusSAMInfoHandlerImpl.entityLabels("a#b#Container-1", containers));
+		assertEquals("entity=\"queue\",agent=\"ag\\\"1\"",
+				PrometheusSAMInfoHandlerImpl.entityLabels("queue#ag\"1", containers));
+		assertEquals("entity=\"plain\"", PrometheusSAMInfoHandlerImpl.entityLabels("plain", containers));
+	}
+}
@@ -0,0 +1,47 @@
+package jade.core.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SAMInfoTest {
+
+	private static SAMInfo createInfo(String entityName, long from, long to) {
+		Histogram h = new Histogram();
+		for (long v = from; v < to; ++v) {
+			h.recordValue(v);
+		}
+		Map<String, Histogram> histograms = new HashMap<>();
+		histograms.put(entityName, h);
+		return new SAMInfo(new HashMap<>(), new HashMap<>(), histograms);
+	}
+
+	@Test
+	public void testHistogramsMergedAcrossContainers() {
+		SAMInfo global = new SAMInfo();
+		// Same entity measured on two nodes
+		global.update(createInfo("Latency#Container-1", 0, 900));
+		global.update(createInfo("Latency#Container-1", 900, 1000));
+		// Another contribution to the same aggregated entity
+		global.update(createInfo("Latency#Container-2", 100000, 100100));
+		// Old-style SAMInfo with no histograms at all
+		global.update(new SAMInfo(new HashMap<>(), new HashMap<>()));
+		global.computeAggregatedValues();
+
+		Map<String, Histogram> histograms = global.getHistogramMeasures();
+		assertEquals(1000L, histograms.get("Latency#Container-1").getTotalCount());
+		assertEquals(100L, histograms.get("Latency#Container-2").getTotalCount());
+		Histogram aggregated = histograms.get("Latency");
+		assertNotNull(aggregated);
+		assertEquals(1100L, aggregated.getTotalCount());
+		assertEquals(100099L, aggregated.getMax());
+		// The slow container drives the tail, not the median
+		assertTrue(aggregated.getValueAtPercentile(50) < 1000);
+		assertTrue(aggregated.getValueAtPercentile(99) >= 100000 * 31 / 32);
+	}
+}
@@ -0,0 +1,148 @@
+package jade.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.AID;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.Property;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.domain.KBManagement.KB;
+import jade.domain.KBManagement.LeaseManager;
+
+public class DFIndexedMemKBTest {
+	private static final String[] TYPES = new String[]{"buyer", "seller", "broker"};
+	private static final String[] ONTOLOGIES = new String[]{"books", "music", "cars", "food"};
+
+	private KB indexed;
+	private KB plain;
+
+	private static class TestLeaseManager implements LeaseManager {
+		public Date getLeaseTime(Object item) {
+			return ((DFAgentDescription) item).getLeaseTime();
+		}
+
+		public void setLeaseTime(Object item, Date lease) {
+			((DFAgentDescription) item).setLeaseTime(lease);
+		}
+
+		public Object grantLeaseTime(Object item) {
+			return item;
+		}
+
+		public boolean isExpired(Date lease) {
+			return lease != null && lease.getTime() < System.currentTimeMillis();
+		}
+	}
+
+	@Before
+	public void createTestData() {
+		indexed = new DFIndexedMemKB(-1);
+		indexed.setLeaseManager(new TestLeaseManager());
+		plain = new DFMemKB(-1);
+		plain.setLeaseManager(new TestLeaseManager());
+		for (int i = 0; i < 200; i++) {
+			DFAgentDescription dfd = createDescription(i);
+			indexed.register(dfd.getName(), dfd);
+			plain.register(dfd.getName(), dfd);
+		}
+	}
+
+	private static DFAgentDescription createDescription(int i) {
+		DFAgentDescription dfd = new DFAgentDescription();
+		dfd.setName(new AID("agent" + i + "@platform", AID.ISGUID));
+		dfd.addProtocols(i % 2 == 0 ? "fipa-request" : "fipa-contract-net");
+		ServiceDescription sd = new ServiceDescription();
+		sd.setType(TYPES[i % TYPES.length]);
+		sd.setName("service" + (i % 10));
+		sd.addOntologies(ONTOLOGIES[i % ONTOLOGIES.length]);
+		sd.addProperties(new Property("region", i % 5 == 0 ? "North" : "South"));
+		dfd.addServices(sd);
+		return dfd;
+	}
+
+	private void assertSameResult(DFAgentDescription template) {
+		List expected = plain.search(template, -1);
+		List actual = indexed.search(template, -1);
+		assertEquals(expected.size(), actual.size());
+		Set s = new HashSet(expected);
+		assertTrue(s.containsAll(actual));
+	}
+
+	@Test
+	public void testSearch() {
+		assertSameResult(new DFAgentDescription());
+
+		DFAgentDescription template = new DFAgentDescription();
+		ServiceDescription sd = new ServiceDescription();
+		sd.setType("SELLER");
+		template.addServices(sd);
+		assertSameResult(template);
+
+		sd.addOntologies("music");
+		assertSameResult(template);
+
+		sd.addProperties(new Property("region", "north"));
+		template.addProtocols("fipa-request");
+		assertSameResult(template);
+
+		template = new DFAgentDescription();
+		template.setName(new AID("AGENT7@platform", AID.ISGUID));
+		assertEquals(1, indexed.search(template, -1).size());
+
+		template = new DFAgentDescription();
+		sd = new ServiceDescription();
+		sd.setType("unknown");
+		template.addServices(sd);
+		assertEquals(0, indexed.search(template, -1).size());
+	}
+
+	@Test
+	public void testReregisterAndDeregister() {
+		DFAgentDescription template = new DFAgentDescription();
+		ServiceDescription sd = new ServiceDescription();
+		sd.setType("auctioneer");
+		template.addServices(sd);
+		assertEquals(0, indexed.search(template, -1).size());
+
+		// Modify agent1 so that it now provides an auctioneer service
+		DFAgentDescription dfd = createDescription(1);
+		((ServiceDescription) dfd.getAllServices().next()).setType("auctioneer");
+		indexed.register(dfd.getName(), dfd);
+		plain.register(dfd.getName(), dfd);
+		assertEquals(1, indexed.search(template, -1).size());
+		assertSameResult(template);
+
+		// The old service type is no longer associated to agent1
+		template = new DFAgentDescription();
+		template.setName(dfd.getName());
+		sd = new ServiceDescription();
+		sd.setType(TYPES[1]);
+		template.addServices(sd);
+		assertEquals(0, indexed.search(template, -1).size());
+
+		indexed.deregister(dfd.getName());
+		plain.deregister(dfd.getName());
+		template = new DFAgentDescription();
+		sd = new ServiceDescription();
+		sd.setType("auctioneer");
+		template.addServices(sd);
+		assertEquals(0, indexed.search(template, -1).size());
+		assertSameResult(template);
+	}
+
+	@Test
+	public void testMaxResults() {
+		DFAgentDescription template = new DFAgentDescription();
+		template.addProtocols("fipa-request");
+		assertEquals(10, indexed.search(template, 10).size());
+	}
+}
@@ -0,0 +1,168 @@
+package jade.imtp.leap.JICP;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.imtp.leap.exception.ICPException;
+
+public class MultiplexedConnectionTest {
+	private ServerSocket serverSocket;
+	private MultiplexedConnection mxc;
+	private Connection serverSide;
+
+	@Before
+	public void connect() throws Exception {
+		serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		Socket s = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+		serverSide = new JICPConnection(serverSocket.accept());
+		mxc = new MultiplexedConnection(new JICPConnection(s), new JICPAddress("localhost", String.valueOf(serverSocket.getLocalPort()), null, null));
+
+		// The server accepts the multiplexed mode
+		Thread t = new Thread(() -> {
+			try {
+				JICPPacket pkt = serverSide.readPacket();
+				assertEquals(JICPProtocol.MULTIPLEX_TYPE, pkt.getType());
+				serverSide.writePacket(new JICPPacket(JICPProtocol.RESPONSE_TYPE, JICPProtocol.DEFAULT_INFO, null));
+			} catch (IOException ioe) {
+				throw new RuntimeException(ioe);
+			}
+		});
+		t.start();
+		assertTrue(mxc.negotiate());
+		t.join();
+	}
+
+	@After
+	public void close() throws Exception {
+		mxc.close();
+		serverSide.close();
+		serverSocket.close();
+	}
+
+	@Test
+	public void testInterleavedResponses() throws Exception {
+		final int n = 3;
+		List<Thread> senders = new ArrayList<>();
+		final List<String> failures = new ArrayList<>();
+		for (int i = 0; i < n; ++i) {
+			final String content = "Command-" + i;
+			Thread t = new Thread(() -> {
+				try {
+					JICPPacket rsp = mxc.send(command(content), 10000);
+					if (!content.equals(new String(rsp.getData()))) {
+						addFailure(failures, "Wrong response " + new String(rsp.getData()) + " for " + content);
+					}
+				} catch (Exception e) {
+					addFailure(failures, e.toString());
+				}
+			});
+			senders.add(t);
+			t.start();
+		}
+
+		// Read all commands, then answer them in reverse order
+		List<JICPPacket> commands = new ArrayList<>();
+		for (int i = 0; i < n; ++i) {
+			commands.add(serverSide.readPacket());
+		}
+		for (int i = n - 1; i >= 0; --i) {
+			serverSide.writePacket(response(commands.get(i)));
+		}
+		for (Thread t : senders) {
+			t.join(10000);
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		try {
+			mxc.send(command("Lost"), 200);
+			fail("Timeout not detected");
+		} catch (ICPException icpe) {
+			// Expected
+		}
+		JICPPacket lost = serverSide.readPacket();
+
+		// The connection is still usable and a late response is ignored
+		final AtomicReference<Object> result = new AtomicReference<>();
+		Thread t = new Thread(() -> {
+			try {
+				result.set(new String(mxc.send(command("Next"), 10000).getData()));
+			} catch (Exception e) {
+				result.set(e);
+			}
+		});
+		t.start();
+		JICPPacket next = serverSide.readPacket();
+		serverSide.writePacket(response(lost));
+		serverSide.writePacket(response(next));
+		t.join(10000);
+		assertEquals("Next", result.get());
+		assertTrue(!mxc.isClosed());
+	}
+
+	@Test
+	public void testConnectionLossFailsPendingRequests() throws Exception {
+		final int n = 2;
+		final List<Object> results = new ArrayList<>();
+		List<Thread> senders = new ArrayList<>();
+		for (int i = 0; i < n; ++i) {
+			final String content = "Command-" + i;
+			Thread t = new Thread(() -> {
+				Object res;
+				try {
+					res = mxc.send(command(content), 0);
+				} catch (Exception e) {
+					res = e;
+				}
+				synchronized (results) {
+					results.add(res);
+				}
+			});
+			senders.add(t);
+			t.start();
+		}
+		for (int i = 0; i < n; ++i) {
+			serverSide.readPacket();
+		}
+		serverSide.close();
+		for (Thread t : senders) {
+			t.join(10000);
+		}
+		assertEquals(n, results.size());
+		for (Object res : results) {
+			assertTrue("Unexpected result " + res, res instanceof IOException);
+		}
+		assertTrue(mxc.isClosed());
+	}
+
+	private static JICPPacket command(String content) {
+		return new JICPPacket(JICPProtocol.COMMAND_TYPE, JICPProtocol.DEFAULT_INFO, content.getBytes());
+	}
+
+	private static JICPPacket response(JICPPacket cmd) {
+		JICPPacket rsp = new JICPPacket(JICPProtocol.RESPONSE_TYPE, JICPProtocol.DEFAULT_INFO, cmd.getData());
+		rsp.setRequestID(cmd.getRequestID());
+		return rsp;
+	}
+
+	private static void addFailure(List<String> failures, String f) {
+		synchronized (failures) {
+			failures.add(f);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package jade.imtp.leap.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ConnectionTaskQueueTest {
+	private static final Runnable NOP = () -> {
+	};
+
+	private ExecutorService executor;
+
+	@After
+	public void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testTasksServedInOrderOneAtATime() throws Exception {
+		executor = Executors.newFixedThreadPool(4);
+		ConnectionTaskQueue q = new ConnectionTaskQueue(executor, 10000, 3, NOP, NOP);
+		final List<Integer> served = Collections.synchronizedList(new ArrayList<>());
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(1000);
+		for (int i = 0; i < 1000; ++i) {
+			final int n = i;
+			q.add(() -> {
+				maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+				served.add(n);
+				active.decrementAndGet();
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(1, maxActive.get());
+		for (int i = 0; i < 1000; ++i) {
+			assertEquals(Integer.valueOf(i), served.get(i));
+		}
+	}
+
+	@Test
+	public void testYieldToOtherConnections() throws Exception {
+		executor = Executors.newSingleThreadExecutor();
+		CountDownLatch gate = blockExecutor();
+		final List<String> served = Collections.synchronizedList(new ArrayList<>());
+		ConnectionTaskQueue a = new ConnectionTaskQueue(executor, 100, 2, NOP, NOP);
+		ConnectionTaskQueue b = new ConnectionTaskQueue(executor, 100, 2, NOP, NOP);
+		for (int i = 1; i <= 4; ++i) {
+			a.add(record(served, "A" + i));
+		}
+		b.add(record(served, "B1"));
+		b.add(record(served, "B2"));
+		gate.countDown();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (served.size() < 6 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(Arrays.asList("A1", "A2", "B1", "B2", "A3", "A4"), served);
+	}
+
+	@Test
+	public void testSuspendAndResume() throws Exception {
+		executor = Executors.newSingleThreadExecutor();
+		CountDownLatch gate = blockExecutor();
+		final AtomicInteger suspended = new AtomicInteger();
+		final AtomicInteger resumed = new AtomicInteger();
+		final AtomicInteger pendingWhenResumed = new AtomicInteger(-1);
+		final ConnectionTaskQueue[] q = new ConnectionTaskQueue[1];
+		q[0] = new ConnectionTaskQueue(executor, 8, 100, suspended::incrementAndGet, () -> {
+			resumed.incrementAndGet();
+			pendingWhenResumed.set(q[0].size());
+		});
+		for (int i = 0; i < 7; ++i) {
+			q[0].add(NOP);
+		}
+		assertEquals(0, suspended.get());
+		q[0].add(NOP);
+		q[0].add(NOP);
+		assertEquals(1, suspended.get());
+		assertTrue(q[0].isFull());
+
+		gate.countDown();
+		awaitIdle();
+		assertEquals(1, resumed.get());
+		assertEquals(4, pendingWhenResumed.get());
+		assertEquals(0, q[0].size());
+		assertTrue(!q[0].isFull());
+	}
+
+	@Test
+	public void testServeInCallingThreadWhenPoolSaturated() throws Exception {
+		executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+		CountDownLatch gate = blockExecutor();
+		executor.execute(NOP);
+		final Thread[] servingThread = new Thread[1];
+		ConnectionTaskQueue q = new ConnectionTaskQueue(executor, 100, 2, NOP, NOP);
+		q.add(() -> servingThread[0] = Thread.currentThread());
+		assertSame(Thread.currentThread(), servingThread[0]);
+		assertEquals(0, q.size());
+		gate.countDown();
+	}
+
+	@Test
+	public void testDropTasksWhenPoolShutDown() {
+		executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+		final AtomicInteger served = new AtomicInteger();
+		ConnectionTaskQueue q = new ConnectionTaskQueue(executor, 100, 2, NOP, NOP);
+		q.add(served::incrementAndGet);
+		assertEquals(0, served.get());
+		assertEquals(0, q.size());
+	}
+
+	private CountDownLatch blockExecutor() {
+		final CountDownLatch gate = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				gate.await();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		return gate;
+	}
+
+	private void awaitIdle() throws Exception {
+		// Single thread executor: once this task runs all previously submitted ones
+		// are done (tasks are never resubmitted since maxServedInARow is not reached)
+		final CountDownLatch idle = new CountDownLatch(1);
+		executor.execute(idle::countDown);
+		assertTrue(idle.await(10, TimeUnit.SECONDS));
+	}
+
+	private static Runnable record(final List<String> served, final String name) {
+		return () -> served.add(name);
+	}
+}
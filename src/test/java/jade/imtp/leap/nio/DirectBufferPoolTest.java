@@ -0,0 +1,78 @@
+package jade.imtp.leap.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class DirectBufferPoolTest {
+
+	@Test
+	public void testSizeClassesAndReuse() {
+		DirectBufferPool pool = new DirectBufferPool();
+		ByteBuffer b1 = pool.acquire(10);
+		assertTrue(b1.isDirect());
+		assertEquals(DirectBufferPool.MIN_CLASS_SIZE, b1.capacity());
+		ByteBuffer b2 = pool.acquire(DirectBufferPool.MIN_CLASS_SIZE + 1);
+		assertEquals(2 * DirectBufferPool.MIN_CLASS_SIZE, b2.capacity());
+		assertEquals(2, pool.getInUseCount());
+		assertEquals(3L * DirectBufferPool.MIN_CLASS_SIZE, pool.getInUseBytes());
+
+		b1.put((byte) 1);
+		pool.release(b1);
+		pool.release(b2);
+		assertEquals(0, pool.getInUseCount());
+		assertEquals(3L * DirectBufferPool.MIN_CLASS_SIZE, pool.getIdleBytes());
+
+		ByteBuffer b3 = pool.acquire(100);
+		assertSame(b1, b3);
+		assertEquals(0, b3.position());
+		assertEquals(b3.capacity(), b3.limit());
+		assertEquals(2L, pool.getAllocatedCount());
+	}
+
+	@Test
+	public void testLimits() {
+		DirectBufferPool pool = new DirectBufferPool();
+		// Buffers larger than the biggest class are not pooled
+		ByteBuffer big = pool.acquire(DirectBufferPool.MAX_CLASS_SIZE + 1);
+		assertEquals(DirectBufferPool.MAX_CLASS_SIZE + 1, big.capacity());
+		pool.release(big);
+		assertEquals(0L, pool.getIdleBytes());
+
+		pool.setMaxIdleBytes(DirectBufferPool.MIN_CLASS_SIZE);
+		ByteBuffer b1 = pool.acquire(1);
+		ByteBuffer b2 = pool.acquire(1);
+		pool.release(b1);
+		pool.release(b2);
+		assertEquals((long) DirectBufferPool.MIN_CLASS_SIZE, pool.getIdleBytes());
+		assertEquals(0L, pool.getInUseBytes());
+	}
+
+	@Test
+	public void testEnlargeAndLeakTracking() {
+		DirectBufferPool pool = new DirectBufferPool();
+		pool.setLeakThreshold(0);
+		ByteBuffer b = pool.acquire(4);
+		b.put(new byte[] { 1, 2, 3 });
+		b.flip();
+		ByteBuffer bigger = pool.enlarge(b, DirectBufferPool.MIN_CLASS_SIZE);
+		assertEquals(3, bigger.position());
+		assertEquals(2 * DirectBufferPool.MIN_CLASS_SIZE, bigger.capacity());
+		assertEquals((byte) 3, bigger.get(2));
+		assertEquals(1, pool.getInUseCount());
+
+		// Releasing twice is detected and ignored
+		pool.release(b);
+		assertEquals(1, pool.getInUseCount());
+
+		assertEquals(1, pool.checkLeaks(System.currentTimeMillis() + 1));
+		// Already reported
+		assertEquals(0, pool.checkLeaks(System.currentTimeMillis() + 1));
+		pool.release(bigger);
+		assertEquals(0, pool.getInUseCount());
+	}
+}
@@ -0,0 +1,160 @@
+package jade.imtp.leap.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.imtp.leap.JICP.JICPPacket;
+import jade.imtp.leap.JICP.JICPProtocol;
+
+public class NIOJICPConnectionTest {
+	private ServerSocketChannel server;
+	private Socket client;
+	private NIOJICPConnection connection;
+	private int inUseBefore;
+
+	@Before
+	public void setUp() throws Exception {
+		inUseBefore = DirectBufferPool.getInstance().getInUseCount();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress("localhost", 0));
+		client = new Socket("localhost", server.socket().getLocalPort());
+		SocketChannel sc = server.accept();
+		sc.configureBlocking(false);
+		connection = new NIOJICPConnection();
+		connection.init(sc);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		if (!connection.isClosed()) {
+			connection.close();
+		}
+		server.close();
+	}
+
+	private JICPPacket readPacket() throws Exception {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (System.currentTimeMillis() < deadline) {
+			try {
+				JICPPacket pkt = connection.readPacket();
+				if (pkt != null) {
+					return pkt;
+				}
+			} catch (PacketIncompleteException pie) {
+				Thread.sleep(5);
+			}
+		}
+		throw new AssertionError("Packet not received");
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] bb = new byte[size];
+		new Random(size).nextBytes(bb);
+		return bb;
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		OutputStream out = client.getOutputStream();
+		JICPPacket small = new JICPPacket(JICPProtocol.COMMAND_TYPE, JICPProtocol.DEFAULT_INFO, "BE-1", randomBytes(10));
+		JICPPacket noData = new JICPPacket(JICPProtocol.KEEP_ALIVE_TYPE, JICPProtocol.DEFAULT_INFO, null);
+		JICPPacket big = new JICPPacket(JICPProtocol.COMMAND_TYPE, JICPProtocol.DEFAULT_INFO, randomBytes(3000000));
+		// Write the first two packets at once so that they are read together
+		java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
+		small.writeTo(bos);
+		noData.writeTo(bos);
+		out.write(bos.toByteArray());
+		out.flush();
+
+		JICPPacket pkt = readPacket();
+		assertEquals("BE-1", pkt.getRecipientID());
+		assertTrue(Arrays.equals(small.getData(), pkt.getData()));
+		if (!connection.moreDataAvailable()) {
+			// The second packet was not received together with the first one
+			pkt = readPacket();
+		} else {
+			pkt = connection.readPacket();
+		}
+		assertEquals(JICPProtocol.KEEP_ALIVE_TYPE, pkt.getType());
+		assertEquals(0, pkt.getData().length);
+		assertEquals(inUseBefore, DirectBufferPool.getInstance().getInUseCount());
+
+		AtomicReference<Exception> writeFailure = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			try {
+				big.writeTo(out);
+				out.flush();
+			} catch (Exception e) {
+				writeFailure.set(e);
+			}
+		});
+		writer.start();
+		try {
+			pkt = readPacket();
+		} finally {
+			// A failed write is the real cause of a missing packet
+			writer.join();
+			if (writeFailure.get() != null) {
+				throw writeFailure.get();
+			}
+		}
+		assertTrue(Arrays.equals(big.getData(), pkt.getData()));
+		assertEquals(inUseBefore, DirectBufferPool.getInstance().getInUseCount());
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		InputStream in = client.getInputStream();
+		JICPPacket small = new JICPPacket(JICPProtocol.RESPONSE_TYPE, JICPProtocol.DEFAULT_INFO, "BE-2", randomBytes(100));
+		small.setSessionID((byte) 3);
+		assertEquals(small.getLength(), connection.writePacket(small));
+		JICPPacket pkt = JICPPacket.readFrom(in);
+		assertEquals("BE-2", pkt.getRecipientID());
+		assertEquals((byte) 3, pkt.getSessionID());
+		assertTrue(Arrays.equals(small.getData(), pkt.getData()));
+
+		JICPPacket noData = new JICPPacket(JICPProtocol.KEEP_ALIVE_TYPE, JICPProtocol.DEFAULT_INFO, null);
+		connection.writePacket(noData);
+		pkt = JICPPacket.readFrom(in);
+		assertEquals(JICPProtocol.KEEP_ALIVE_TYPE, pkt.getType());
+		assertEquals(inUseBefore, DirectBufferPool.getInstance().getInUseCount());
+	}
+
+	@Test
+	public void testCloseReleasesBuffers() throws Exception {
+		OutputStream out = client.getOutputStream();
+		// Only a part of the packet: the payload buffer stays in use
+		JICPPacket big = new JICPPacket(JICPProtocol.COMMAND_TYPE, JICPProtocol.DEFAULT_INFO, randomBytes(5000));
+		java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
+		big.writeTo(bos);
+		out.write(bos.toByteArray(), 0, 100);
+		out.flush();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (DirectBufferPool.getInstance().getInUseCount() == inUseBefore && System.currentTimeMillis() < deadline) {
+			try {
+				assertNotNull(connection.readPacket());
+			} catch (PacketIncompleteException pie) {
+				Thread.sleep(5);
+			}
+		}
+		assertEquals(inUseBefore + 1, DirectBufferPool.getInstance().getInUseCount());
+		connection.close();
+		assertEquals(inUseBefore, DirectBufferPool.getInstance().getInUseCount());
+	}
+}
@@ -0,0 +1,188 @@
+package jade.mtp.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.After;
+import org.junit.Test;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import jade.core.AID;
+import jade.domain.FIPAAgentManagement.Envelope;
+import jade.mtp.InChannel;
+
+public class NIOHTTPServerTest {
+
+	/**
+	 * The JVM default SAX parser cannot be instantiated by class name from
+	 * outside the java.xml module: wrap it in a public class.
+	 */
+	public static class DefaultXMLReader extends XMLFilterImpl {
+		public DefaultXMLReader() throws Exception {
+			super(createParser());
+		}
+
+		private static XMLReader createParser() throws Exception {
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			return factory.newSAXParser().getXMLReader();
+		}
+	}
+
+	private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+	private NIOHTTPServer server;
+
+	private void startServer(int poolSize, int queueSize) throws Exception {
+		startServer(poolSize, queueSize, NIOHTTPServer.DEFAULT_MAX_HEADER_SIZE, NIOHTTPServer.DEFAULT_MAX_BODY_SIZE);
+	}
+
+	private void startServer(int poolSize, int queueSize, int maxHeaderSize, int maxBodySize) throws Exception {
+		InChannel.Dispatcher dispatcher = (env, payload) -> {
+			assertEquals("receiver@platform", ((AID) env.getAllTo().next()).getName());
+			received.add(new String(payload, StandardCharsets.US_ASCII));
+		};
+		server = new NIOHTTPServer(null, 0, dispatcher, 10, DefaultXMLReader.class.getName(), 60000, true, poolSize, queueSize, maxHeaderSize, maxBodySize);
+		server.start();
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		if (server != null) {
+			server.desactivate();
+			server.join(5000);
+		}
+	}
+
+	private byte[] createRequest(String content, String policy) throws Exception {
+		Envelope env = new Envelope();
+		env.addTo(new AID("receiver@platform", AID.ISGUID));
+		env.setFrom(new AID("sender@platform", AID.ISGUID));
+		env.setAclRepresentation("fipa.acl.rep.string.std");
+		env.setDate(new Date());
+		byte[] boundary = "a1b2c3d4e5f6".getBytes("ISO-8859-1");
+		byte[] body = HTTPIO.createHTTPBody(env, boundary, content.getBytes("US-ASCII"));
+		byte[] header = HTTPIO.createHTTPHeader(new HTTPAddress("localhost", server.getLocalPort(), false), body.length, policy, boundary, false);
+		ByteArrayOutputStream request = new ByteArrayOutputStream();
+		request.write(header);
+		request.write(body);
+		// HTTPIO.writeAll() terminates each request with an additional CRLF
+		request.write('\r');
+		request.write('\n');
+		return request.toByteArray();
+	}
+
+	private static void assertResponse(InputStream in, String expectedType) throws Exception {
+		StringBuffer type = new StringBuffer();
+		assertEquals(200, HTTPIO.getResponseCode(in, type));
+		assertEquals(expectedType, type.toString());
+	}
+
+	@Test
+	public void testKeepAliveAndPipelining() throws Exception {
+		startServer(2, 10);
+		try (Socket s = new Socket("localhost", server.getLocalPort())) {
+			OutputStream out = s.getOutputStream();
+			InputStream in = new BufferedInputStream(s.getInputStream());
+			// A request split in small chunks
+			byte[] request = createRequest("(inform :content \"1\")", HTTPIO.KA);
+			for (int i = 0; i < request.length; i += 50) {
+				out.write(request, i, Math.min(50, request.length - i));
+				out.flush();
+				Thread.sleep(1);
+			}
+			assertResponse(in, HTTPIO.KA);
+			// Two requests in a single write
+			ByteArrayOutputStream two = new ByteArrayOutputStream();
+			two.write(createRequest("(inform :content \"2\")", HTTPIO.KA));
+			two.write(createRequest("(inform :content \"3\")", HTTPIO.CLOSE));
+			out.write(two.toByteArray());
+			out.flush();
+			assertResponse(in, HTTPIO.KA);
+			assertResponse(in, HTTPIO.CLOSE);
+		}
+		assertEquals(3, received.size());
+		assertTrue(received.get(0).contains("\"1\""));
+		assertTrue(received.get(2).contains("\"3\""));
+	}
+
+	@Test
+	public void testRequestTooLarge() throws Exception {
+		startServer(2, 10, 1024, 4096);
+		// The declared length is rejected before the body is received
+		try (Socket s = new Socket("localhost", server.getLocalPort())) {
+			s.getOutputStream().write(("POST / HTTP/1.1\r\nContent-Type: multipart/mixed ; boundary=\"a1b2\"\r\n"
+					+ "Content-Length: 2000000000\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+			assertResponseCode(s, 413);
+		}
+		// Without a declared length the body is bounded while it is buffered
+		try (Socket s = new Socket("localhost", server.getLocalPort())) {
+			OutputStream out = s.getOutputStream();
+			out.write("POST / HTTP/1.1\r\nContent-Type: multipart/mixed ; boundary=\"a1b2\"\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+			out.write(new byte[4200]);
+			assertResponseCode(s, 413);
+		}
+		// Header never terminated
+		try (Socket s = new Socket("localhost", server.getLocalPort())) {
+			byte[] header = new byte[2048];
+			Arrays.fill(header, (byte) 'x');
+			s.getOutputStream().write(header);
+			assertResponseCode(s, 431);
+		}
+		// Requests within the limits are still served
+		try (Socket s = new Socket("localhost", server.getLocalPort())) {
+			s.getOutputStream().write(createRequest("(inform :content \"ok\")", HTTPIO.CLOSE));
+			assertResponse(new BufferedInputStream(s.getInputStream()), HTTPIO.CLOSE);
+		}
+		assertEquals(1, received.size());
+	}
+
+	private static void assertResponseCode(Socket s, int expectedCode) throws Exception {
+		InputStream in = new BufferedInputStream(s.getInputStream());
+		StringBuffer type = new StringBuffer();
+		assertEquals(expectedCode, HTTPIO.getResponseCode(in, type));
+		assertEquals(HTTPIO.CLOSE, type.toString());
+		// The server closes the connection
+		while (in.read() >= 0) {
+		}
+	}
+
+	@Test
+	public void testSaturatedWorkers() throws Exception {
+		startServer(1, 1);
+		List<Thread> clients = new ArrayList<>();
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < 20; i++) {
+			final byte[] request = createRequest("(inform :content \"" + i + "\")", HTTPIO.CLOSE);
+			Thread t = new Thread(() -> {
+				try (Socket s = new Socket("localhost", server.getLocalPort())) {
+					s.getOutputStream().write(request);
+					assertResponse(new BufferedInputStream(s.getInputStream()), HTTPIO.CLOSE);
+				} catch (Throwable th) {
+					errors.add(th);
+				}
+			});
+			clients.add(t);
+			t.start();
+		}
+		for (Thread t : clients) {
+			t.join(10000);
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertEquals(20, received.size());
+	}
+}
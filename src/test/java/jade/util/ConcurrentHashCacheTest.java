@@ -0,0 +1,77 @@
+package jade.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class ConcurrentHashCacheTest {
+
+	@Test
+	public void testLRUEviction() {
+		// A single stripe so that the LRU order is global
+		ConcurrentHashCache<String, String> cache = new ConcurrentHashCache<>(3, 1);
+		cache.put("one", "1");
+		cache.put("two", "2");
+		cache.put("three", "3");
+		// Access "one" so that "two" becomes the least recently used
+		assertEquals("1", cache.get("one"));
+		cache.put("four", "4");
+
+		assertEquals(3, cache.size());
+		assertTrue(cache.containsKey("one"));
+		assertFalse(cache.containsKey("two"));
+		assertTrue(cache.containsKey("three"));
+		assertTrue(cache.containsKey("four"));
+		assertEquals(1L, cache.getEvictionCnt());
+	}
+
+	@Test
+	public void testPutExistingKey() {
+		ConcurrentHashCache<String, String> cache = new ConcurrentHashCache<>(2, 1);
+		cache.put("one", "1");
+		assertEquals("1", cache.put("one", "uno"));
+		cache.put("two", "2");
+		assertEquals(2, cache.size());
+		assertEquals("uno", cache.get("one"));
+		assertEquals(0L, cache.getEvictionCnt());
+	}
+
+	@Test
+	public void testCounters() {
+		ConcurrentHashCache<String, String> cache = new ConcurrentHashCache<>(100);
+		cache.put("one", "1");
+		cache.get("one");
+		cache.get("one");
+		assertNull(cache.get("two"));
+		assertEquals(2L, cache.getHitCnt());
+		assertEquals(1L, cache.getMissCnt());
+
+		assertEquals("1", cache.remove("one"));
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testPeekNotCounted() {
+		ConcurrentHashCache<String, String> cache = new ConcurrentHashCache<>(100);
+		cache.put("one", "1");
+		assertEquals("1", cache.peek("one"));
+		assertNull(cache.peek("two"));
+		assertEquals(0L, cache.getHitCnt());
+		assertEquals(0L, cache.getMissCnt());
+	}
+
+	@Test
+	public void testBoundedSize() {
+		ConcurrentHashCache<Integer, Integer> cache = new ConcurrentHashCache<>(64);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, i);
+		}
+		assertTrue(cache.size() <= 64);
+		assertEquals((long) (1000 - cache.size()), cache.getEvictionCnt());
+		assertEquals(cache.size(), cache.entrySet().size());
+	}
+}
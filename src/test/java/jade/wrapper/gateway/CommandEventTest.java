@@ -0,0 +1,55 @@
+package jade.wrapper.gateway;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import jade.core.sam.AverageMeasure;
+import jade.wrapper.ControllerException;
+
+public class CommandEventTest {
+
+	@Test
+	public void testFutureCompletedOnRelease() throws Exception {
+		DynamicJadeGateway gateway = new DynamicJadeGateway();
+		String command = "Command";
+		CommandEvent e = new CommandEvent(command, gateway);
+		CompletableFuture<Object> f = e.getFuture();
+		e.processingStarted();
+		assertTrue(!f.isDone());
+		e.notifyProcessed(null);
+		assertSame(command, f.get());
+		// Synchronous callers are released too
+		e.waitUntilProcessed(1000);
+		// A second release has no effect
+		e.notifyProcessed(null);
+
+		AverageMeasure queueTime = gateway.getQueueTimeProvider().getValue();
+		AverageMeasure processingTime = gateway.getProcessingTimeProvider().getValue();
+		assertEquals(1, queueTime.getNSamples());
+		assertEquals(1, processingTime.getNSamples());
+	}
+
+	@Test
+	public void testAbort() throws Exception {
+		DynamicJadeGateway gateway = new DynamicJadeGateway();
+		CommandEvent e = new CommandEvent("Command", gateway);
+		e.abort(new ControllerException("Terminated"));
+		e.waitUntilProcessed(1000);
+		try {
+			e.getFuture().get();
+			fail("Future should have failed");
+		} catch (ExecutionException ee) {
+			assertTrue(ee.getCause() instanceof ControllerException);
+		}
+		// The command was never started: no processing time sample
+		AverageMeasure processingTime = gateway.getProcessingTimeProvider().getValue();
+		assertEquals(0, processingTime.getNSamples());
+	}
+}
@@ -0,0 +1,242 @@
+package jade.wrapper.gateway;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jade.core.Agent;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.core.ServiceHelper;
+import jade.core.sam.AverageMeasureProvider;
+import jade.core.sam.CounterValueProvider;
+import jade.core.sam.HistogramMeasureProvider;
+import jade.core.sam.MeasureProvider;
+import jade.core.sam.SAMHelper;
+import jade.core.sam.SAMInfoHandler;
+import jade.core.sam.SAMService;
+import jade.util.leap.Properties;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.ControllerException;
+
+public class DynamicJadeGatewayTest {
+	private static final String AGENT_NAME = "gw";
+	private static final int POOL_SIZE = 3;
+
+	// Entities registered to the SAM service of the gateway container
+	private static final Set<String> samEntities = ConcurrentHashMap.newKeySet();
+
+	private AgentContainer main;
+	private DynamicJadeGateway gateway;
+
+	@Before
+	public void startPlatform() throws Exception {
+		samEntities.clear();
+		int port;
+		try (ServerSocket ss = new ServerSocket(0)) {
+			port = ss.getLocalPort();
+		}
+		Runtime.instance().setCloseVM(false);
+		Profile p = new ProfileImpl(true);
+		p.setParameter(Profile.MAIN_HOST, "localhost");
+		p.setParameter(Profile.MAIN_PORT, String.valueOf(port));
+		p.setParameter(Profile.NO_MTP, "true");
+		main = Runtime.instance().createMainContainer(p);
+
+		Properties props = new Properties();
+		props.setProperty(Profile.MAIN_HOST, "localhost");
+		props.setProperty(Profile.MAIN_PORT, String.valueOf(port));
+		props.setProperty(Profile.SERVICES, RecordingSAMService.class.getName());
+		props.setProperty(JadeGateway.POOL_SIZE, String.valueOf(POOL_SIZE));
+		gateway = new DynamicJadeGateway();
+		gateway.init(AGENT_NAME, TestGatewayAgent.class.getName(), null, props);
+	}
+
+	@After
+	public void stopPlatform() throws Exception {
+		if (gateway != null) {
+			gateway.shutdown();
+		}
+		if (main != null) {
+			main.kill();
+		}
+	}
+
+	@Test
+	public void testExecuteAsync() throws Exception {
+		assertEquals(POOL_SIZE, gateway.getPoolSize());
+		Command c = new Command(false);
+		CompletableFuture<Command> f = gateway.executeAsync(c);
+		assertSame(c, f.get(10, TimeUnit.SECONDS));
+		assertTrue(c.executor != null);
+		assertEquals(0, gateway.getPendingCommandsCount());
+		assertEquals(1, gateway.getProcessingTimeProvider().getValue().getNSamples());
+	}
+
+	@Test
+	public void testExecuteAsyncFailsWhenAgentTerminates() throws Exception {
+		// The command makes its agent terminate without releasing it
+		Command failing = new Command(true);
+		CompletableFuture<Command> f = gateway.executeAsync(failing);
+		try {
+			f.get(10, TimeUnit.SECONDS);
+			fail("Future completed normally although the command was not executed");
+		} catch (ExecutionException ee) {
+			assertTrue(ee.getCause() instanceof ControllerException);
+		}
+		assertEquals(0, gateway.getPendingCommandsCount());
+
+		// The gateway is still usable
+		awaitTerminated(failing.executor);
+		Command c = new Command(false);
+		assertSame(c, gateway.executeAsync(c).get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testCommandsSpreadOverPool() throws Exception {
+		// Commands without key are distributed round robin
+		List<Command> commands = new ArrayList<>();
+		List<CompletableFuture<Command>> futures = new ArrayList<>();
+		for (int i = 0; i < 3 * POOL_SIZE; ++i) {
+			Command c = new Command(false);
+			commands.add(c);
+			futures.add(gateway.executeAsync(c));
+		}
+		Set<String> executors = new HashSet<>();
+		for (int i = 0; i < commands.size(); ++i) {
+			futures.get(i).get(10, TimeUnit.SECONDS);
+			executors.add(commands.get(i).executor);
+		}
+		assertEquals(POOL_SIZE, executors.size());
+		assertTrue(executors.contains(AGENT_NAME));
+		assertTrue(executors.contains(AGENT_NAME + "-" + (POOL_SIZE - 1)));
+
+		// Commands with the same key always go to the same agent
+		executors.clear();
+		for (int i = 0; i < 2 * POOL_SIZE; ++i) {
+			Command c = new Command(false);
+			gateway.executeAsync("key", c).get(10, TimeUnit.SECONDS);
+			executors.add(c.executor);
+		}
+		assertEquals(1, executors.size());
+	}
+
+	@Test
+	public void testMeasuresRegisteredToSAM() throws Exception {
+		gateway.executeAsync(new Command(false)).get(10, TimeUnit.SECONDS);
+		assertTrue(samEntities.toString(), samEntities.contains(AGENT_NAME + "-Command-Queue-Avg-Time"));
+		assertTrue(samEntities.toString(), samEntities.contains(AGENT_NAME + "-Command-Processing-Avg-Time"));
+		assertTrue(samEntities.toString(), samEntities.contains(AGENT_NAME + "-Pending-Commands"));
+
+		// Re-creating the gateway agent in the same container does not register them twice
+		int cnt = samEntities.size();
+		Command failing = new Command(true);
+		try {
+			gateway.executeAsync(failing).get(10, TimeUnit.SECONDS);
+			fail("Future completed normally although the command was not executed");
+		} catch (ExecutionException ee) {
+			// Expected
+		}
+		awaitTerminated(failing.executor);
+		Command c = new Command(false);
+		gateway.executeAsync(c).get(10, TimeUnit.SECONDS);
+		assertEquals(cnt, samEntities.size());
+	}
+
+	// Gateway agents are re-created with the same name: wait until the old one is gone
+	private void awaitTerminated(String name) throws Exception {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (System.currentTimeMillis() < deadline) {
+			try {
+				gateway.myContainer.getAgent(name);
+				Thread.sleep(10);
+			} catch (ControllerException ce) {
+				return;
+			}
+		}
+		fail("Agent " + name + " still alive");
+	}
+
+	private static class Command {
+		private final boolean fail;
+		private volatile String executor;
+
+		private Command(boolean fail) {
+			this.fail = fail;
+		}
+	}
+
+	public static class TestGatewayAgent extends GatewayAgent {
+		private static final long serialVersionUID = 1L;
+
+		protected void processCommand(Object command) {
+			if (command instanceof Command c) {
+				c.executor = getLocalName();
+				if (c.fail) {
+					doDelete();
+				} else {
+					releaseCommand(command);
+				}
+			} else {
+				super.processCommand(command);
+			}
+		}
+	}
+
+	/**
+	 * A SAMService whose helper records the names of the registered entities.
+	 */
+	public static class RecordingSAMService extends SAMService {
+		public ServiceHelper getHelper(Agent a) {
+			final SAMHelper helper = (SAMHelper) super.getHelper(a);
+			return new SAMHelper() {
+				public void init(Agent a) {
+					helper.init(a);
+				}
+
+				public void addEntityMeasureProvider(String entityName, MeasureProvider provider) {
+					samEntities.add(entityName);
+					helper.addEntityMeasureProvider(entityName, provider);
+				}
+
+				public void addEntityMeasureProvider(String entityName, AverageMeasureProvider provider) {
+					samEntities.add(entityName);
+					helper.addEntityMeasureProvider(entityName, provider);
+				}
+
+				public void addEntityMeasureProvider(String entityName, HistogramMeasureProvider provider) {
+					samEntities.add(entityName);
+					helper.addEntityMeasureProvider(entityName, provider);
+				}
+
+				public void addCounterValueProvider(String counterName, CounterValueProvider provider) {
+					helper.addCounterValueProvider(counterName, provider);
+				}
+
+				public void addHandler(SAMInfoHandler handler, boolean first) {
+					helper.addHandler(handler, first);
+				}
+
+				public void removeHandler(SAMInfoHandler handler) {
+					helper.removeHandler(handler);
+				}
+			};
+		}
+	}
+}